@@ -0,0 +1,277 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.breaker;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.datatree.Promise;
+import services.moleculer.context.Context;
+import services.moleculer.error.QueueIsFullError;
+import services.moleculer.error.RequestRejectedError;
+import services.moleculer.error.RequestTimeoutError;
+import services.moleculer.service.ActionEndpoint;
+import services.moleculer.service.Name;
+
+/**
+ * Circuit Breaker with adaptive concurrency limits. It estimates the safe
+ * number of in-flight calls per (remote) node and action from the observed
+ * response times, and rejects the excess calls with "RequestRejectedError"
+ * before the overloaded node starts to time out. Rejected calls are retried
+ * on another node (if the "retryCount" of the call is greater than zero).
+ */
+@Name("Adaptive Limiter")
+public class AdaptiveLimiter extends CircuitBreaker {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Limit of a new endpoint (before the first samples)
+	 */
+	protected int initialLimit = 20;
+
+	/**
+	 * Lowest possible limit
+	 */
+	protected int minLimit = 1;
+
+	/**
+	 * Highest possible limit
+	 */
+	protected int maxLimit = 1000;
+
+	/**
+	 * Accepted response time increase (1.5 = 50% slower than the baseline)
+	 */
+	protected double tolerance = 1.5;
+
+	/**
+	 * Smoothing factor of the limit (weight of the latest estimation)
+	 */
+	protected double smoothing = 0.2;
+
+	/**
+	 * Multiplicative decrease on timeouts and rejections
+	 */
+	protected double backoffRatio = 0.9;
+
+	/**
+	 * Number of samples of the long-term (baseline) response time
+	 */
+	protected int rttWindow = 600;
+
+	/**
+	 * Limit only the calls of remote nodes
+	 */
+	protected boolean remoteOnly = true;
+
+	// --- LIMITS BY ENDPOINT ---
+
+	protected final ConcurrentHashMap<EndpointKey, ConcurrencyLimit> limits = new ConcurrentHashMap<>(1024);
+
+	// --- STOP LIMITER ---
+
+	@Override
+	public void stopped() {
+		super.stopped();
+		limits.clear();
+	}
+
+	// --- CLEANUP LIMITS / METRICS ---
+
+	@Override
+	public void run() {
+		super.run();
+		long now = System.currentTimeMillis();
+
+		// Cleanup
+		if (cleanup > 0) {
+			long timeout = cleanup * 1000L;
+			Iterator<ConcurrencyLimit> i = limits.values().iterator();
+			while (i.hasNext()) {
+				if (i.next().canRemove(now, timeout)) {
+					i.remove();
+				}
+			}
+		}
+
+		// Metrics
+		if (metrics != null) {
+			for (Map.Entry<EndpointKey, ConcurrencyLimit> entry : limits.entrySet()) {
+				EndpointKey endpointKey = entry.getKey();
+				metrics.set(MOLECULER_CONCURRENCY_LIMIT, MOLECULER_CONCURRENCY_LIMIT_DESC,
+						entry.getValue().getLimit(), "affectedNodeID", endpointKey.nodeID, "action",
+						endpointKey.name);
+			}
+		}
+	}
+
+	// --- INVOKE ENDPOINT ---
+
+	@Override
+	protected Object invoke(ActionEndpoint action, Context ctx) throws Exception {
+		String nodeID = action.getNodeID();
+		if (remoteOnly && broker.getNodeID().equals(nodeID)) {
+			return action.handler(ctx);
+		}
+
+		// Check limit
+		EndpointKey endpointKey = new EndpointKey(nodeID, ctx.name);
+		ConcurrencyLimit limit = limits.get(endpointKey);
+		if (limit == null) {
+			limit = new ConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, smoothing, backoffRatio,
+					rttWindow);
+			ConcurrencyLimit prev = limits.putIfAbsent(endpointKey, limit);
+			if (prev != null) {
+				limit = prev;
+			}
+		}
+		if (!limit.tryAcquire(System.currentTimeMillis())) {
+			if (metrics != null) {
+				metrics.increment(MOLECULER_CONCURRENCY_LIMIT_REJECTED_TOTAL,
+						MOLECULER_CONCURRENCY_LIMIT_REJECTED_TOTAL_DESC, "affectedNodeID", nodeID, "action",
+						ctx.name);
+			}
+			throw new RequestRejectedError(nodeID, ctx.name);
+		}
+
+		// Measure response time
+		final ConcurrencyLimit currentLimit = limit;
+		long start = System.nanoTime();
+		Object rsp;
+		try {
+			rsp = action.handler(ctx);
+		} catch (Throwable cause) {
+			currentLimit.release(System.nanoTime() - start, isOverloaded(cause), false);
+			throw cause;
+		}
+		return new Promise(resolver -> {
+			new Promise(rsp).then(tree -> {
+				currentLimit.release(System.nanoTime() - start, false, true);
+				resolver.resolve(tree);
+			}).catchError(err -> {
+				currentLimit.release(System.nanoTime() - start, isOverloaded(err), false);
+				resolver.reject(err);
+			});
+		});
+	}
+
+	protected boolean isOverloaded(Throwable cause) {
+		Throwable test = cause;
+		if (test instanceof CompletionException && test.getCause() != null) {
+			test = test.getCause();
+		}
+		return test instanceof RequestTimeoutError || test instanceof RequestRejectedError
+				|| test instanceof QueueIsFullError;
+	}
+
+	// --- REJECTED CALLS AREN'T ENDPOINT FAILURES ---
+
+	@Override
+	protected void onError(ErrorCounter errorCounter, String nodeID, String action, Throwable cause) {
+		Throwable test = cause;
+		if (test instanceof CompletionException && test.getCause() != null) {
+			test = test.getCause();
+		}
+		if (test instanceof RequestRejectedError) {
+			return;
+		}
+		super.onError(errorCounter, nodeID, action, cause);
+	}
+
+	// --- GETTERS / SETTERS ---
+
+	public ConcurrencyLimit getLimit(String nodeID, String action) {
+		return limits.get(new EndpointKey(nodeID, action));
+	}
+
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	public void setInitialLimit(int initialLimit) {
+		this.initialLimit = Math.max(1, initialLimit);
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public void setMinLimit(int minLimit) {
+		this.minLimit = Math.max(1, minLimit);
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public void setMaxLimit(int maxLimit) {
+		this.maxLimit = Math.max(1, maxLimit);
+	}
+
+	public double getTolerance() {
+		return tolerance;
+	}
+
+	public void setTolerance(double tolerance) {
+		this.tolerance = Math.max(1, tolerance);
+	}
+
+	public double getSmoothing() {
+		return smoothing;
+	}
+
+	public void setSmoothing(double smoothing) {
+		this.smoothing = Math.min(1, Math.max(0.01, smoothing));
+	}
+
+	public double getBackoffRatio() {
+		return backoffRatio;
+	}
+
+	public void setBackoffRatio(double backoffRatio) {
+		this.backoffRatio = Math.min(1, Math.max(0.1, backoffRatio));
+	}
+
+	public int getRttWindow() {
+		return rttWindow;
+	}
+
+	public void setRttWindow(int rttWindow) {
+		this.rttWindow = Math.max(1, rttWindow);
+	}
+
+	public boolean isRemoteOnly() {
+		return remoteOnly;
+	}
+
+	public void setRemoteOnly(boolean remoteOnly) {
+		this.remoteOnly = remoteOnly;
+	}
+
+}
@@ -25,18 +25,16 @@
  */
 package services.moleculer.breaker;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 
 import io.datatree.Promise;
 import services.moleculer.ServiceBroker;
@@ -88,6 +86,11 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 	 */
 	protected long lockTimeout = 10 * 1000L;
 
+	/**
+	 * Max number of concurrent probe calls in half-opened state
+	 */
+	protected int halfOpenProbes = 1;
+
 	// --- COMPONENTS ---
 
 	protected ServiceRegistry serviceRegistry;
@@ -99,12 +102,7 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 
 	// --- ERROR COUNTERS ---
 
-	protected HashMap<EndpointKey, ErrorCounter> errorCounters = new HashMap<>(1024);
-
-	// --- READ/WRITE LOCK OF COUNTERS ---
-
-	protected final ReadLock readLock;
-	protected final WriteLock writeLock;
+	protected final ConcurrentHashMap<EndpointKey, ErrorCounter> errorCounters = new ConcurrentHashMap<>(1024);
 
 	// --- OTHER VARIABLES ---
 
@@ -117,16 +115,6 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 	 */
 	protected volatile ScheduledFuture<?> timer;
 
-	// --- CONSTRUCTOR ---
-
-	public CircuitBreaker() {
-
-		// Create locks
-		ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-		readLock = lock.readLock();
-		writeLock = lock.writeLock();
-	}
-
 	// --- START BREAKER ---
 
 	@Override
@@ -159,12 +147,7 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 		}
 
 		// Remove counters and types
-		writeLock.lock();
-		try {
-			errorCounters.clear();
-		} finally {
-			writeLock.unlock();
-		}
+		errorCounters.clear();
 		ignoredTypes.clear();
 	}
 
@@ -177,16 +160,11 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 		// Cleanup
 		if (cleanup > 0 && now - lastCleanup >= cleanup * 1000L) {
 			lastCleanup = now;
-			writeLock.lock();
-			try {
-				Iterator<ErrorCounter> i = errorCounters.values().iterator();
-				while (i.hasNext()) {
-					if (i.next().canRemove(now)) {
-						i.remove();
-					}
+			Iterator<ErrorCounter> i = errorCounters.values().iterator();
+			while (i.hasNext()) {
+				if (i.next().canRemove(now)) {
+					i.remove();
 				}
-			} finally {
-				writeLock.unlock();
 			}
 		}
 
@@ -196,43 +174,38 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 			EndpointKey endpointKey;
 			ErrorCounter.Status status;
 			ErrorCounter errorCounter;
-			readLock.lock();
-			try {
-				for (Map.Entry<EndpointKey, ErrorCounter> entry : errorCounters.entrySet()) {
-					endpointKey = entry.getKey();
-					errorCounter = entry.getValue();
-					String[] tags = new String[] { "affectedNodeID", endpointKey.nodeID, "action", endpointKey.name };
-					status = errorCounter.getStatus(now);
-					if (status != errorCounter.prevStatus) {
-						if (status == ErrorCounter.Status.STATUS_OPENED) {
-							metrics.increment(MOLECULER_CIRCUIT_BREAKER_OPENED_TOTAL,
-									MOLECULER_CIRCUIT_BREAKER_OPENED_TOTAL_DESC, tags);
-						}
-						errorCounter.prevStatus = status;
-						switch (status) {
-						case STATUS_CLOSED:
-							metrics.set(MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE,
-									MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE_DESC, 0, tags);
-							metrics.set(MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE,
-									MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE_DESC, 0, tags);
-							break;
-						case STATUS_OPENED:
-							metrics.set(MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE,
-									MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE_DESC, 1, tags);
-							metrics.set(MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE,
-									MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE_DESC, 0, tags);
-							break;
-						default:
-							metrics.set(MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE,
-									MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE_DESC, 0, tags);
-							metrics.set(MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE,
-									MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE_DESC, 1, tags);
-							break;
-						}
+			for (Map.Entry<EndpointKey, ErrorCounter> entry : errorCounters.entrySet()) {
+				endpointKey = entry.getKey();
+				errorCounter = entry.getValue();
+				String[] tags = new String[] { "affectedNodeID", endpointKey.nodeID, "action", endpointKey.name };
+				status = errorCounter.getStatus(now);
+				if (status != errorCounter.prevStatus) {
+					if (status == ErrorCounter.Status.STATUS_OPENED) {
+						metrics.increment(MOLECULER_CIRCUIT_BREAKER_OPENED_TOTAL,
+								MOLECULER_CIRCUIT_BREAKER_OPENED_TOTAL_DESC, tags);
+					}
+					errorCounter.prevStatus = status;
+					switch (status) {
+					case STATUS_CLOSED:
+						metrics.set(MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE,
+								MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE_DESC, 0, tags);
+						metrics.set(MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE,
+								MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE_DESC, 0, tags);
+						break;
+					case STATUS_OPENED:
+						metrics.set(MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE,
+								MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE_DESC, 1, tags);
+						metrics.set(MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE,
+								MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE_DESC, 0, tags);
+						break;
+					default:
+						metrics.set(MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE,
+								MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE_DESC, 0, tags);
+						metrics.set(MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE,
+								MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE_DESC, 1, tags);
+						break;
 					}
 				}
-			} finally {
-				readLock.unlock();
 			}
 		}
 	}
@@ -241,35 +214,38 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 
 	@Override
 	protected Promise call(Context ctx, String targetID, int remaining) {
-		EndpointKey endpointKey = null;
+		ActionEndpoint action = null;
 		ErrorCounter errorCounter = null;
+		boolean probe = false;
 		try {
 
 			// Get the first recommended Endpoint and Error Counter
-			ActionEndpoint action = (ActionEndpoint) serviceRegistry.getAction(ctx.name, targetID);
-			String nodeID = action.getNodeID();
-			endpointKey = new EndpointKey(nodeID, ctx.name);
-			errorCounter = getErrorCounter(endpointKey);
+			action = (ActionEndpoint) serviceRegistry.getAction(ctx.name, targetID);
+			if (!errorCounters.isEmpty()) {
+				errorCounter = getErrorCounter(action.getNodeID(), ctx.name);
+			}
 
 			// Check availability of the Endpoint (if endpoint isn't targetted)
-			if (targetID == null) {
+			if (targetID == null && errorCounter != null) {
 				LinkedHashSet<String> nodeIDs = new LinkedHashSet<>(maxSameNodes * 2);
 				int sameNodeCounter = 0;
-				long now;
-				if (errorCounter == null) {
-					now = 0;
-				} else {
-					now = System.currentTimeMillis();
-				}
+				long now = System.currentTimeMillis();
 				for (int i = 0; i < maxTries; i++) {
-					if (errorCounter == null || errorCounter.isAvailable(now)) {
+					if (errorCounter == null) {
 
 						// Endpoint is available
 						break;
 					}
+					int state = errorCounter.tryAcquire(now);
+					if (state != ErrorCounter.UNAVAILABLE) {
+
+						// Endpoint is available (or it's a probe call)
+						probe = state == ErrorCounter.PROBE;
+						break;
+					}
 
 					// Store nodeID
-					if (!nodeIDs.add(nodeID)) {
+					if (!nodeIDs.add(action.getNodeID())) {
 						sameNodeCounter++;
 						if (sameNodeCounter >= maxSameNodes) {
 
@@ -280,19 +256,21 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 
 					// Try to choose another endpoint
 					action = (ActionEndpoint) serviceRegistry.getAction(ctx.name, null);
-					nodeID = action.getNodeID();
-					endpointKey = new EndpointKey(nodeID, ctx.name);
-					errorCounter = getErrorCounter(endpointKey);
+					errorCounter = getErrorCounter(action.getNodeID(), ctx.name);
 				}
 			}
 
 			// Invoke Endpoint
 			final ErrorCounter currentCounter = errorCounter;
-			final EndpointKey currentKey = endpointKey;
-			return Promise.resolve(action.handler(ctx)).then(rsp -> {
+			final String currentNodeID = action.getNodeID();
+			final boolean currentProbe = probe;
+			return Promise.resolve(invoke(action, ctx)).then(rsp -> {
 
 				// Reset error counter
 				if (currentCounter != null) {
+					if (currentProbe) {
+						currentCounter.releaseProbe();
+					}
 					currentCounter.onSuccess();
 				}
 
@@ -302,7 +280,10 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 			}).catchError(cause -> {
 
 				// Increment error counter
-				onError(currentCounter, currentKey, cause);
+				if (currentProbe) {
+					currentCounter.releaseProbe();
+				}
+				onError(currentCounter, currentNodeID, ctx.name, cause);
 
 				// Retry
 				return retry(ctx, targetID, remaining, cause);
@@ -311,26 +292,34 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 		} catch (Throwable cause) {
 
 			// Increment error counter
-			onError(errorCounter, endpointKey, cause);
+			if (probe) {
+				errorCounter.releaseProbe();
+			}
+			onError(errorCounter, action == null ? null : action.getNodeID(), ctx.name, cause);
 
 			// Retry
 			return retry(ctx, targetID, remaining, cause);
 		}
 	}
 
-	protected ErrorCounter getErrorCounter(EndpointKey endpointKey) {
-		ErrorCounter counter = null;
-		readLock.lock();
-		try {
-			counter = errorCounters.get(endpointKey);
-		} finally {
-			readLock.unlock();
-		}
-		return counter;
+	/**
+	 * Invokes the selected Endpoint (subclasses can wrap the call).
+	 */
+	protected Object invoke(ActionEndpoint action, Context ctx) throws Exception {
+		return action.handler(ctx);
 	}
 
-	protected void onError(ErrorCounter errorCounter, EndpointKey endpointKey, Throwable cause) {
-		if (endpointKey != null) {
+	protected ErrorCounter getErrorCounter(String nodeID, String action) {
+		return errorCounters.get(new EndpointKey(nodeID, action));
+	}
+
+	protected void onError(ErrorCounter errorCounter, String nodeID, String action, Throwable cause) {
+		if (nodeID != null) {
+
+			// Cancelled (hedged) requests aren't failures
+			if (cause instanceof CancellationException || cause.getCause() instanceof CancellationException) {
+				return;
+			}
 
 			// Check error type
 			if (!ignoredTypes.isEmpty()) {
@@ -347,19 +336,16 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 			// Create new Error Counter
 			long now = System.currentTimeMillis();
 			if (errorCounter == null) {
-				ErrorCounter counter = new ErrorCounter(windowLength, lockTimeout, maxErrors);
-				ErrorCounter prev;
-				writeLock.lock();
-				try {
-					prev = errorCounters.putIfAbsent(endpointKey, counter);
-				} finally {
-					writeLock.unlock();
-				}
-				if (prev == null) {
-					counter.onError(now);
-				} else {
-					prev.onError(now);
+				EndpointKey endpointKey = new EndpointKey(nodeID, action);
+				ErrorCounter counter = errorCounters.get(endpointKey);
+				if (counter == null) {
+					counter = new ErrorCounter(windowLength, lockTimeout, maxErrors, halfOpenProbes);
+					ErrorCounter prev = errorCounters.putIfAbsent(endpointKey, counter);
+					if (prev != null) {
+						counter = prev;
+					}
 				}
+				counter.onError(now);
 			} else {
 				errorCounter.onError(now);
 			}
@@ -434,4 +420,12 @@ public class CircuitBreaker extends DefaultServiceInvoker implements Runnable, M
 		this.lockTimeout = lockTimeout;
 	}
 
+	public int getHalfOpenProbes() {
+		return halfOpenProbes;
+	}
+
+	public void setHalfOpenProbes(int halfOpenProbes) {
+		this.halfOpenProbes = Math.max(1, halfOpenProbes);
+	}
+
 }
\ No newline at end of file
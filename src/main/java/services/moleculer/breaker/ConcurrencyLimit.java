@@ -0,0 +1,168 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.breaker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive in-flight limit of an endpoint (gradient algorithm). The limit
+ * follows the ratio of the long-term (no-load) and the current response time:
+ * while the RTT stays near the baseline, the limit grows by a Vegas-style
+ * queue allowance (square root of the limit); when queues build up and the
+ * RTT rises, the limit shrinks proportionally - long before the remote side
+ * starts to fail.
+ */
+public class ConcurrencyLimit {
+
+	// --- PROPERTIES ---
+
+	protected final int minLimit;
+	protected final int maxLimit;
+
+	/**
+	 * Accepted RTT increase (eg. 1.5 = 50% slower than the baseline) before
+	 * the limit starts to shrink
+	 */
+	protected final double tolerance;
+
+	/**
+	 * Smoothing factor of the limit (weight of the latest estimation)
+	 */
+	protected final double smoothing;
+
+	/**
+	 * Multiplicative decrease on timeouts / rejections
+	 */
+	protected final double backoffRatio;
+
+	/**
+	 * Smoothing factor of the long-term RTT
+	 */
+	protected final double rttDecay;
+
+	// --- CURRENT STATE ---
+
+	protected final AtomicInteger inFlight = new AtomicInteger();
+
+	protected volatile double limit;
+
+	/**
+	 * Long-term (baseline) response time, in NANOSECONDS (0 = no samples yet)
+	 */
+	protected double longRtt;
+
+	protected volatile long lastUsed;
+
+	// --- CONSTRUCTOR ---
+
+	protected ConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing,
+			double backoffRatio, int rttWindow) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.tolerance = tolerance;
+		this.smoothing = smoothing;
+		this.backoffRatio = backoffRatio;
+		this.rttDecay = 2d / (rttWindow + 1);
+		this.limit = Math.min(maxLimit, Math.max(minLimit, initialLimit));
+	}
+
+	// --- ACQUIRE / RELEASE ---
+
+	protected boolean tryAcquire(long now) {
+		lastUsed = now;
+		if (inFlight.incrementAndGet() > (int) limit) {
+			inFlight.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Releases the slot and updates the limit.
+	 * 
+	 * @param rtt
+	 *            response time in NANOSECONDS
+	 * @param dropped
+	 *            the call timed out / was rejected (overload signal)
+	 * @param sample
+	 *            the response time can be used for the estimation
+	 */
+	protected synchronized void release(long rtt, boolean dropped, boolean sample) {
+		int pending = inFlight.getAndDecrement();
+		double current = limit;
+		if (dropped) {
+			limit = Math.max(minLimit, current * backoffRatio);
+			return;
+		}
+		if (!sample || rtt <= 0) {
+			return;
+		}
+
+		// Update the baseline
+		if (longRtt == 0) {
+			longRtt = rtt;
+		} else {
+			longRtt += rttDecay * (rtt - longRtt);
+
+			// Recover faster when the RTT is back to normal
+			if (longRtt > rtt * 2) {
+				longRtt *= 0.95;
+			}
+		}
+
+		// Do not grow the limit when the caller doesn't use it
+		if (pending < current / 2) {
+			return;
+		}
+
+		// Estimate the new limit
+		double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+		double estimated = current * gradient + Math.sqrt(current);
+		estimated = current * (1 - smoothing) + estimated * smoothing;
+		limit = Math.min(maxLimit, Math.max(minLimit, estimated));
+	}
+
+	// --- FOR CLEANUP ---
+
+	protected boolean canRemove(long now, long timeout) {
+		return inFlight.get() == 0 && now - lastUsed > timeout;
+	}
+
+	// --- PROPERTY GETTERS ---
+
+	public int getLimit() {
+		return (int) limit;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public long getLongRtt() {
+		return (long) longRtt;
+	}
+
+}
@@ -1,7 +1,7 @@
 /**
  * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
  * <br>
- * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
  * Based on Moleculer Framework for NodeJS [https://moleculer.services].
  * <br><br>
  * Permission is hereby granted, free of charge, to any person obtaining
@@ -25,6 +25,16 @@
  */
 package services.moleculer.breaker;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free error counter of an endpoint. The timestamps of the last
+ * "maxErrors" errors are stored in a ring buffer; the endpoint is locked when
+ * all of them are in the time-window. After the "lockTimeout" the endpoint
+ * goes into half-opened state, and admits a limited number of probe calls.
+ */
 public class ErrorCounter {
 
 	// --- STATUS CODES ---
@@ -33,95 +43,171 @@ public class ErrorCounter {
 		STATUS_OPENED, STATUS_HALF_OPENED, STATUS_CLOSED
 	}
 
+	// --- RESULTS OF "TRY ACQUIRE" ---
+
+	protected static final int UNAVAILABLE = 0;
+	protected static final int AVAILABLE = 1;
+	protected static final int PROBE = 2;
+
 	// --- PROPERTIES ---
 
 	protected final long windowLength;
 	protected final long lockTimeout;
-	
-	protected final int lastPos;
-	
+	protected final int maxErrors;
+	protected final int maxProbes;
+
+	/**
+	 * Previous status (used only by the metrics task)
+	 */
 	protected Status prevStatus = Status.STATUS_CLOSED;
 
-	// --- ERROR TIMESTAMPS ---
+	// --- ERROR TIMESTAMPS (RING BUFFER) ---
+
+	protected final AtomicLongArray errors;
+	protected final AtomicLong cursor = new AtomicLong();
+
+	// --- RUNNING PROBE CALLS ---
 
-	protected final long[] errors;
-	
-	// --- CONSTRUCTOR ---
+	protected final AtomicInteger probes = new AtomicInteger();
+
+	// --- CONSTRUCTORS ---
 
 	protected ErrorCounter(long windowLength, long lockTimeout, int maxErrors) {
+		this(windowLength, lockTimeout, maxErrors, 1);
+	}
+
+	protected ErrorCounter(long windowLength, long lockTimeout, int maxErrors, int maxProbes) {
 		this.windowLength = windowLength;
 		this.lockTimeout = lockTimeout;
-		this.lastPos = maxErrors - 1;
-		
-		this.errors = new long[maxErrors];
+		this.maxErrors = maxErrors;
+		this.maxProbes = maxProbes;
+
+		this.errors = new AtomicLongArray(maxErrors);
 	}
 
 	// --- INCREMENT/DECREMENT ERROR COUNTER ---
 
-	protected synchronized void onError(long now) {
-		if (errors.length > 1) {
-			System.arraycopy(errors, 1, errors, 0, lastPos);
-		}
-		errors[lastPos] = now;
+	protected void onError(long now) {
+		errors.set((int) (cursor.getAndIncrement() % maxErrors), now);
 	}
 
-	protected synchronized void onSuccess() {
-		errors[0] = 0;
+	protected void onSuccess() {
+
+		// Remove the oldest error (without writing shared memory when there
+		// is nothing to remove)
+		int oldest = (int) (cursor.get() % maxErrors);
+		if (errors.get(oldest) != 0) {
+			errors.set(oldest, 0);
+		}
 	}
-	
+
 	// --- FOR CLEANUP ---
 
-	protected synchronized boolean canRemove(long now) {
-		for (long time: errors) {
+	protected boolean canRemove(long now) {
+		long last = 0;
+		long time;
+		for (int i = 0; i < maxErrors; i++) {
+			time = errors.get(i);
 			if (now - time <= windowLength) {
 				return false;
 			}
+			if (time > last) {
+				last = time;
+			}
 		}
-		return now - errors[lastPos] > lockTimeout;
+		return now - last > lockTimeout && probes.get() == 0;
 	}
 
 	// --- CHECK ENDPOINT STATUS ---
 
-	protected synchronized Status getStatus(long now) {
+	protected Status getStatus(long now) {
 		int count = 0;
-		for (long time: errors) {
+		long last = 0;
+		long time;
+		for (int i = 0; i < maxErrors; i++) {
+			time = errors.get(i);
 			if (now - time <= windowLength) {
 				count++;
 			}
+			if (time > last) {
+				last = time;
+			}
 		}
-		if (count <= lastPos) {
+		if (count < maxErrors) {
 			return Status.STATUS_OPENED;
 		}
-		if (now - errors[lastPos] <= lockTimeout) {
+		if (now - last <= lockTimeout) {
 			return Status.STATUS_CLOSED;
 		}
 		return Status.STATUS_HALF_OPENED;
 	}
-	
+
 	protected boolean isAvailable(long now) {
-		return getStatus(now) != Status.STATUS_CLOSED;
+		switch (getStatus(now)) {
+		case STATUS_OPENED:
+			return true;
+		case STATUS_HALF_OPENED:
+			return probes.get() < maxProbes;
+		default:
+			return false;
+		}
 	}
-	
+
+	// --- ACQUIRE / RELEASE PROBE CALLS ---
+
+	/**
+	 * Checks the availability of the endpoint. In half-opened state, it
+	 * reserves a probe call (which must be released by "releaseProbe").
+	 * 
+	 * @param now
+	 *            current timestamp
+	 * 
+	 * @return UNAVAILABLE, AVAILABLE or PROBE
+	 */
+	protected int tryAcquire(long now) {
+		switch (getStatus(now)) {
+		case STATUS_OPENED:
+			return AVAILABLE;
+		case STATUS_HALF_OPENED:
+			int running;
+			do {
+				running = probes.get();
+				if (running >= maxProbes) {
+					return UNAVAILABLE;
+				}
+			} while (!probes.compareAndSet(running, running + 1));
+			return PROBE;
+		default:
+			return UNAVAILABLE;
+		}
+	}
+
+	protected void releaseProbe() {
+		probes.decrementAndGet();
+	}
+
 	// --- TESTING ---
-	
-	protected synchronized int getErrorCounter(long now) {
+
+	protected int getErrorCounter(long now) {
 		int counter = 0;
-		for (long time: errors) {
-			if (now - time <= windowLength) {
+		for (int i = 0; i < maxErrors; i++) {
+			if (now - errors.get(i) <= windowLength) {
 				counter++;
 			}
 		}
 		return counter;
 	}
 
-	protected synchronized long getLastError() {
+	protected long getLastError() {
 		long max = 0;
-		for (long time: errors) {
+		long time;
+		for (int i = 0; i < maxErrors; i++) {
+			time = errors.get(i);
 			if (time > max) {
 				max = time;
 			}
 		}
 		return max;
 	}
-	
-}
\ No newline at end of file
+
+}
@@ -0,0 +1,369 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.bulkhead;
+
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import services.moleculer.ServiceBroker;
+import services.moleculer.context.Context;
+import services.moleculer.error.QueueIsFullError;
+import services.moleculer.metrics.MetricConstants;
+import services.moleculer.metrics.MetricCounter;
+import services.moleculer.metrics.Metrics;
+import services.moleculer.metrics.StoppableTimer;
+import services.moleculer.service.Action;
+import services.moleculer.service.Middleware;
+import services.moleculer.service.Name;
+
+/**
+ * Limits the number of concurrent invocations of local actions (bulkhead
+ * pattern), so a slow action cannot exhaust the shared executor. Invocations
+ * above the limit wait in a bounded queue; calls are rejected with
+ * QueueIsFullError when the queue is full. The limits can be set with the
+ * Bulkhead annotation, or with the "bulkhead" property of the action's
+ * config. Sample:
+ * 
+ * <pre>
+ * broker.use(new BulkheadMiddleware());
+ * ...
+ * &#64;Bulkhead(concurrency = 5, maxQueueSize = 50)
+ * public Action slowAction = ctx -&gt; {
+ * 	...
+ * };
+ * </pre>
+ * 
+ * @see Bulkhead
+ */
+@Name("Bulkhead Middleware")
+public class BulkheadMiddleware extends Middleware implements MetricConstants {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Default maximum number of concurrently running invocations.
+	 */
+	protected int concurrency = 10;
+
+	/**
+	 * Default maximum number of waiting invocations.
+	 */
+	protected int maxQueueSize = 100;
+
+	/**
+	 * Apply the default limits to actions without Bulkhead annotation.
+	 */
+	protected boolean applyToAll;
+
+	// --- COMPONENTS ---
+
+	protected ExecutorService executor;
+	protected Metrics metrics;
+	protected String nodeID;
+
+	// --- SHARED (PER-SERVICE) COMPARTMENTS ---
+
+	protected final ConcurrentHashMap<String, Compartment> compartments = new ConcurrentHashMap<>();
+
+	// --- CONSTRUCTORS ---
+
+	public BulkheadMiddleware() {
+	}
+
+	public BulkheadMiddleware(int concurrency, int maxQueueSize) {
+		setConcurrency(concurrency);
+		setMaxQueueSize(maxQueueSize);
+	}
+
+	// --- START MIDDLEWARE ---
+
+	@Override
+	public void started(ServiceBroker broker) throws Exception {
+		super.started(broker);
+		nodeID = broker.getNodeID();
+		executor = broker.getConfig().getExecutor();
+		if (broker.getConfig().isMetricsEnabled()) {
+			metrics = broker.getConfig().getMetrics();
+		}
+	}
+
+	// --- ADD MIDDLEWARE TO ACTION ---
+
+	@Override
+	public Action install(Action action, Tree config) {
+
+		// Local actions only (remote actions are limited by their own node)
+		String targetID = config.get("nodeID", nodeID);
+		if (targetID != null && !targetID.equals(nodeID)) {
+			return null;
+		}
+
+		// Is bulkhead enabled?
+		Tree bulkheadNode = config.get("bulkhead");
+		if (bulkheadNode == null || bulkheadNode.isNull()) {
+			if (!applyToAll) {
+				return null;
+			}
+		} else if (bulkheadNode.getType() == Boolean.class && !bulkheadNode.asBoolean()) {
+			return null;
+		}
+
+		// Get limits
+		final int limit;
+		final int queueSize;
+		final boolean shared;
+		if (bulkheadNode != null && bulkheadNode.isMap()) {
+			int value = bulkheadNode.get("concurrency", 0);
+			limit = value > 0 ? value : concurrency;
+			value = bulkheadNode.get("maxQueueSize", -1);
+			queueSize = value > -1 ? value : maxQueueSize;
+			shared = bulkheadNode.get("shared", false);
+		} else {
+			limit = concurrency;
+			queueSize = maxQueueSize;
+			shared = false;
+		}
+
+		// Create (or get the service's) compartment
+		String actionName = config.get("name", "unknown");
+		Compartment compartment;
+		if (shared) {
+			int i = actionName.lastIndexOf('.');
+			String serviceName = i > -1 ? actionName.substring(0, i) : actionName;
+			compartment = compartments.computeIfAbsent(serviceName,
+					name -> new Compartment(name, limit, queueSize));
+			if (compartment.concurrency != limit || compartment.maxQueueSize != queueSize) {
+				logger.warn("The shared bulkhead of the \"" + serviceName + "\" service is limited to "
+						+ compartment.concurrency + " concurrent and " + compartment.maxQueueSize
+						+ " waiting invocations, the limits of the \"" + actionName + "\" action (" + limit + " / "
+						+ queueSize + ") are ignored!");
+			}
+		} else {
+			compartment = new Compartment(actionName, limit, queueSize);
+		}
+
+		return new Action() {
+
+			@Override
+			public final Object handler(Context ctx) throws Exception {
+
+				// Free slot (fast path)
+				if (compartment.tryAcquire()) {
+					return invoke(action, ctx, compartment);
+				}
+
+				// Wait for a free slot
+				return new Promise(res -> {
+					StoppableTimer timer = compartment.startQueueTimer();
+					Runnable task = () -> {
+						if (timer != null) {
+							timer.stop();
+						}
+						try {
+							new Promise(invoke(action, ctx, compartment)).then(rsp -> {
+								res.resolve(rsp);
+							}).catchError(err -> {
+								res.reject(err);
+							});
+						} catch (Throwable cause) {
+							res.reject(cause);
+						}
+					};
+					if (!compartment.acquire(task)) {
+						if (timer != null) {
+							timer.stop();
+						}
+						res.reject(new QueueIsFullError(nodeID, actionName));
+					}
+				});
+			}
+
+		};
+	}
+
+	protected Object invoke(Action action, Context ctx, Compartment compartment) throws Exception {
+		Object result;
+		try {
+			result = action.handler(ctx);
+		} catch (Throwable cause) {
+			compartment.release();
+			throw cause;
+		}
+		if (result instanceof Promise) {
+			Promise promise = (Promise) result;
+			if (!promise.isDone()) {
+				return new Promise(res -> {
+					promise.then(rsp -> {
+						compartment.release();
+						res.resolve(rsp);
+					}).catchError(err -> {
+						compartment.release();
+						res.reject(err);
+					});
+				});
+			}
+		}
+		compartment.release();
+		return result;
+	}
+
+	// --- COMPARTMENT ---
+
+	protected class Compartment {
+
+		// --- PROPERTIES ---
+
+		protected final String name;
+		protected final int concurrency;
+		protected final int maxQueueSize;
+
+		// --- VARIABLES ---
+
+		protected int active;
+		protected final LinkedList<Runnable> queue = new LinkedList<>();
+
+		// --- METRICS ---
+
+		protected final MetricCounter counterActive;
+		protected final MetricCounter counterQueued;
+		protected final MetricCounter counterRejected;
+
+		// --- CONSTRUCTOR ---
+
+		protected Compartment(String name, int concurrency, int maxQueueSize) {
+			this.name = name;
+			this.concurrency = concurrency;
+			this.maxQueueSize = maxQueueSize;
+			if (metrics == null) {
+				counterActive = null;
+				counterQueued = null;
+				counterRejected = null;
+			} else {
+				counterActive = metrics.increment(MOLECULER_BULKHEAD_ACTIVE, MOLECULER_BULKHEAD_ACTIVE_DESC, 0,
+						"bulkhead", name);
+				counterQueued = metrics.increment(MOLECULER_BULKHEAD_QUEUED, MOLECULER_BULKHEAD_QUEUED_DESC, 0,
+						"bulkhead", name);
+				counterRejected = metrics.increment(MOLECULER_BULKHEAD_REJECTED_TOTAL,
+						MOLECULER_BULKHEAD_REJECTED_TOTAL_DESC, 0, "bulkhead", name);
+			}
+		}
+
+		// --- ACQUIRE / RELEASE ---
+
+		protected synchronized boolean tryAcquire() {
+			if (active < concurrency) {
+				active++;
+				if (counterActive != null) {
+					counterActive.increment();
+				}
+				return true;
+			}
+			return false;
+		}
+
+		protected boolean acquire(Runnable task) {
+			synchronized (this) {
+				if (active >= concurrency) {
+					if (queue.size() >= maxQueueSize) {
+						if (counterRejected != null) {
+							counterRejected.increment();
+						}
+						return false;
+					}
+					queue.addLast(task);
+					if (counterQueued != null) {
+						counterQueued.increment();
+					}
+					return true;
+				}
+				active++;
+				if (counterActive != null) {
+					counterActive.increment();
+				}
+			}
+			task.run();
+			return true;
+		}
+
+		protected void release() {
+			Runnable next;
+			synchronized (this) {
+				next = queue.pollFirst();
+				if (next == null) {
+					active--;
+					if (counterActive != null) {
+						counterActive.decrement();
+					}
+					return;
+				}
+				if (counterQueued != null) {
+					counterQueued.decrement();
+				}
+			}
+
+			// The slot is passed to the next waiting invocation
+			executor.execute(next);
+		}
+
+		protected StoppableTimer startQueueTimer() {
+			if (metrics == null) {
+				return null;
+			}
+			return metrics.timer(MOLECULER_BULKHEAD_QUEUE_TIME, MOLECULER_BULKHEAD_QUEUE_TIME_DESC, "bulkhead", name);
+		}
+
+	}
+
+	// --- GETTERS AND SETTERS ---
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = Math.max(1, concurrency);
+	}
+
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	public void setMaxQueueSize(int maxQueueSize) {
+		this.maxQueueSize = Math.max(0, maxQueueSize);
+	}
+
+	public boolean isApplyToAll() {
+		return applyToAll;
+	}
+
+	public void setApplyToAll(boolean applyToAll) {
+		this.applyToAll = applyToAll;
+	}
+
+}
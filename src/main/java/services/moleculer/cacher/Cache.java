@@ -51,4 +51,29 @@ public @interface Cache {
 	 */
 	int ttl() default 0;
 
+	/**
+	 * Concurrent cache misses of the same key share one in-flight request
+	 * (only one of them invokes the action).
+	 *
+	 * @return true = enable request coalescing
+	 */
+	boolean singleFlight() default false;
+
+	/**
+	 * Stale-while-revalidate period, in seconds. An expired entry is returned
+	 * for this period while it is refreshed in the background. Requires TTL.
+	 *
+	 * @return stale period in seconds (0 = disabled)
+	 */
+	int staleTtl() default 0;
+
+	/**
+	 * Probabilistic early expiration factor. Entries are refreshed in the
+	 * background shortly before they expire; larger values refresh earlier.
+	 * Requires TTL.
+	 *
+	 * @return beta factor (0 = disabled, 1 = recommended)
+	 */
+	double beta() default 0;
+
 }
\ No newline at end of file
@@ -29,6 +29,9 @@ import java.lang.reflect.Array;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 
 import io.datatree.Promise;
 import io.datatree.Tree;
@@ -38,6 +41,7 @@ import services.moleculer.ServiceBroker;
 import services.moleculer.config.ServiceBrokerConfig;
 import services.moleculer.context.Context;
 import services.moleculer.metrics.MetricConstants;
+import services.moleculer.metrics.MetricCounter;
 import services.moleculer.metrics.Metrics;
 import services.moleculer.service.Action;
 import services.moleculer.service.Middleware;
@@ -58,9 +62,33 @@ public abstract class Cacher extends Middleware implements MetricConstants {
 
 	protected Metrics metrics;
 
+	protected MetricCounter counterCoalesced;
+
 	// --- INTERNAL PROPERTIES ---
 	
 	protected boolean debug;
+
+	/**
+	 * In-flight loads (single-flight mode), by cache key.
+	 */
+	protected final ConcurrentHashMap<String, Promise> inflight = new ConcurrentHashMap<>();
+
+	/**
+	 * Executor of background refreshes.
+	 */
+	protected ExecutorService executor;
+
+	// --- METADATA OF REFRESHED ENTRIES ---
+
+	/**
+	 * The expiration time of the entry is stored under a separate key (the
+	 * cache key + this suffix), so the cached value is the plain response
+	 * for every reader.
+	 */
+	protected static final String META_KEY_SUFFIX = "|$meta";
+
+	protected static final String EXPIRES = "$expires";
+	protected static final String DELTA = "$delta";
 	
 	// --- START MIDDLEWARE ---
 
@@ -70,8 +98,10 @@ public abstract class Cacher extends Middleware implements MetricConstants {
 
 		// Get metrics
 		ServiceBrokerConfig cfg = broker.getConfig();
+		executor = cfg.getExecutor();
 		if (cfg.isMetricsEnabled()) {
 			metrics = cfg.getMetrics();
+			counterCoalesced = metrics.increment(MOLECULER_CACHER_COALESCED_TOTAL, MOLECULER_CACHER_COALESCED_TOTAL_DESC, 0);
 		}
 	}
 
@@ -112,43 +142,12 @@ public abstract class Cacher extends Middleware implements MetricConstants {
 		// Get TTL (0 = use default TTL)
 		final int ttl = cacheNode.get("ttl", 0);
 
-		// Metrics is disabled
-		if (metrics == null) {
-			return new Action() {
+		// Request coalescing and early refresh (these options require TTL)
+		final boolean singleFlight = cacheNode.get("singleFlight", false);
+		final int staleTtl = ttl > 0 ? Math.max(0, cacheNode.get("staleTtl", 0)) : 0;
+		final double beta = ttl > 0 ? Math.max(0d, cacheNode.get("beta", 0d)) : 0d;
+		final boolean refreshed = staleTtl > 0 || beta > 0;
 
-				@Override
-				public Object handler(Context ctx) throws Exception {
-					
-					// Cache is disabled by the request
-					if (isCachingDisabledByTheContext(ctx) || ctx.stream != null) {
-						return action.handler(ctx);
-					}
-					
-					// Use cache
-					String key = getCacheKey(ctx.name, ctx.params, keys);
-					return new Promise(resolver -> {
-						get(key).then(in -> {
-							if (in == null || in.isNull()) {
-								new Promise(action.handler(ctx)).then(tree -> {
-									if (tree != null && !tree.isNull() && !(tree.asObject() instanceof PacketStream)) {
-										set(key, tree, ttl);
-									}
-									resolver.resolve(tree);
-								}).catchError(err -> {
-									resolver.reject(err);
-								});
-							} else {
-								resolver.resolve(in);
-							}
-						}).catchError(err -> {
-							resolver.reject(err);
-						});
-					});
-				}
-			};
-		}
-		
-		// Metrics is enabled
 		return new Action() {
 
 			@Override
@@ -158,23 +157,43 @@ public abstract class Cacher extends Middleware implements MetricConstants {
 				if (isCachingDisabledByTheContext(ctx) || ctx.stream != null) {
 					return action.handler(ctx);
 				}
-				
-				// Use cache
+
+				// Use cache (the metadata is read in parallel with the value)
 				String key = getCacheKey(ctx.name, ctx.params, keys);
+				Promise meta = refreshed ? get(key + META_KEY_SUFFIX) : null;
 				return new Promise(resolver -> {
 					get(key).then(in -> {
-						if (in == null) {
-							new Promise(action.handler(ctx)).then(tree -> {
-								if (tree != null && !tree.isNull() && !(tree.asObject() instanceof PacketStream)) {
-									set(key, tree, ttl);
-								}
+						if (in == null || in.isNull()) {
+							load(action, ctx, key, ttl, staleTtl, refreshed, singleFlight).then(tree -> {
 								resolver.resolve(tree);
 							}).catchError(err -> {
 								resolver.reject(err);
 							});
-						} else {
+							return;
+						}
+						if (meta == null) {
 							resolver.resolve(in);
+							return;
 						}
+						meta.then(info -> {
+							if (info != null && !info.isNull()) {
+
+								// Stale or probabilistically expired entry
+								long now = System.currentTimeMillis();
+								long expiresAt = info.get(EXPIRES, 0L);
+								if ((now >= expiresAt || (beta > 0 && isExpiredEarly(now, expiresAt, info.get(DELTA, 0L), beta)))
+										&& !inflight.containsKey(key)) {
+									executor.execute(() -> {
+										load(action, ctx, key, ttl, staleTtl, true, true).catchError(err -> {
+											logger.warn("Unable to refresh cache entry \"" + key + "\"!", err);
+										});
+									});
+								}
+							}
+							resolver.resolve(in);
+						}).catchError(err -> {
+							resolver.resolve(in);
+						});
 					}).catchError(err -> {
 						resolver.reject(err);
 					});
@@ -183,6 +202,110 @@ public abstract class Cacher extends Middleware implements MetricConstants {
 		};
 	}
 
+	// --- LOAD AND STORE ENTRY ---
+
+	/**
+	 * Invokes the action and stores the response in the cache. In single-flight
+	 * mode the concurrent callers of the same key share one in-flight Promise,
+	 * so only the first of them invokes the action (the others receive clones
+	 * of the response).
+	 *
+	 * @param action
+	 *            original action
+	 * @param ctx
+	 *            Context of the request
+	 * @param key
+	 *            cache key
+	 * @param ttl
+	 *            TTL of the entry in seconds
+	 * @param staleTtl
+	 *            how long the entry can be served after it expired
+	 * @param refreshed
+	 *            store the expiration time of the response (under a separate
+	 *            key)
+	 * @param singleFlight
+	 *            share the in-flight Promise between the concurrent callers
+	 * 
+	 * @return Promise with the response of the action
+	 */
+	protected Promise load(Action action, Context ctx, String key, int ttl, int staleTtl, boolean refreshed,
+			boolean singleFlight) {
+		Promise promise = new Promise();
+		if (singleFlight) {
+			Promise prev = inflight.putIfAbsent(key, promise);
+			if (prev != null) {
+				if (counterCoalesced != null) {
+					counterCoalesced.increment();
+				}
+				return prev.then(tree -> {
+					if (tree == null) {
+						return Promise.resolve((Object) null);
+					}
+					if (tree.isNull() || tree.asObject() instanceof PacketStream) {
+						return tree;
+					}
+					return tree.clone();
+				});
+			}
+		}
+		long start = System.currentTimeMillis();
+		try {
+			new Promise(action.handler(ctx)).then(tree -> {
+				if (tree != null && !tree.isNull() && !(tree.asObject() instanceof PacketStream)) {
+					if (refreshed) {
+						long now = System.currentTimeMillis();
+						Tree info = new Tree();
+						info.put(EXPIRES, now + ttl * 1000L);
+						info.put(DELTA, now - start);
+						set(key + META_KEY_SUFFIX, info, ttl + staleTtl);
+						set(key, tree, ttl + staleTtl);
+					} else {
+						set(key, tree, ttl);
+					}
+				}
+				if (singleFlight) {
+					inflight.remove(key, promise);
+				}
+				promise.complete(tree);
+			}).catchError(err -> {
+				if (singleFlight) {
+					inflight.remove(key, promise);
+				}
+				promise.complete(err);
+			});
+		} catch (Throwable cause) {
+			if (singleFlight) {
+				inflight.remove(key, promise);
+			}
+			promise.complete(cause);
+		}
+		return promise;
+	}
+
+	/**
+	 * Probabilistic early expiration ("XFetch"). The probability of an early
+	 * refresh grows as the entry approaches its expiration time, and it is
+	 * higher for entries that are expensive to recompute.
+	 *
+	 * @param now
+	 *            current timestamp
+	 * @param expiresAt
+	 *            expiration timestamp of the entry
+	 * @param delta
+	 *            time it took to compute the entry, in milliseconds
+	 * @param beta
+	 *            scaling factor (1 = default, larger values refresh earlier)
+	 * 
+	 * @return true, if the entry should be refreshed now
+	 */
+	protected boolean isExpiredEarly(long now, long expiresAt, long delta, double beta) {
+		double rnd = ThreadLocalRandom.current().nextDouble();
+		if (rnd <= 0) {
+			return true;
+		}
+		return now - Math.max(1, delta) * beta * Math.log(rnd) >= expiresAt;
+	}
+
 	// --- GENERATE CACHE KEY ---
 
 	/**
@@ -25,17 +25,13 @@
  */
 package services.moleculer.cacher;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.Map;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import io.datatree.Promise;
 import io.datatree.Tree;
@@ -45,6 +41,9 @@ import services.moleculer.eventbus.Matcher;
 import services.moleculer.metrics.MetricCounter;
 import services.moleculer.metrics.StoppableTimer;
 import services.moleculer.service.Name;
+import services.moleculer.util.HashedWheelTimeoutScheduler;
+import services.moleculer.util.TimeoutScheduler;
+import services.moleculer.util.TimeoutScheduler.Timeout;
 
 /**
  * On-heap memory cache. MemoryCacher is the fastest cache implementation in
@@ -57,10 +56,12 @@ import services.moleculer.service.Name;
  * to 2048
  * <li>ttl: Expire time of entries in memory, in seconds (default: 0 = never
  * expires)
- * <li>cleanup: Cleanup period, in seconds
+ * <li>cleanup: Cleanup period (tick of the expiration timing wheel), in seconds
  * </ul>
- * Performance (small and large data): 5.5 million gets / second (per thread /
- * core) <br>
+ * Reads are lock-free: the partitions are concurrent hash maps, the evicted
+ * entries are selected by a CLOCK (second chance) algorithm, and the expired
+ * entries are removed by a hashed timing wheel. Performance (small and large
+ * data): 5.5 million gets / second (per thread / core) <br>
  * <br>
  *
  * @see RedisCacher
@@ -82,7 +83,7 @@ public class MemoryCacher extends Cacher implements Runnable {
 	protected int ttl;
 
 	/**
-	 * Cleanup period time, in SECONDS (0 = disable cleanup process)
+	 * Cleanup period time, in SECONDS (0 = use 1 second)
 	 */
 	protected int cleanup;
 
@@ -95,25 +96,16 @@ public class MemoryCacher extends Cacher implements Runnable {
 	 */
 	protected boolean useCloning = true;
 
-	// --- READ/WRITE LOCK ---
-
-	protected final ReadLock readLock;
-	protected final WriteLock writeLock;
-
 	// --- PARTITIONS / CACHE REGIONS ---
 
-	protected final HashMap<String, MemoryPartition> partitions = new HashMap<>();
+	protected final ConcurrentHashMap<String, MemoryPartition> partitions = new ConcurrentHashMap<>();
 
-	// --- CLEANUP TIMER ---
+	// --- EXPIRATION TIMER ---
 
 	/**
-	 * Cancelable timer
+	 * Timing wheel of the entry-level TTLs
 	 */
-	protected volatile ScheduledFuture<?> timer;
-
-	protected AtomicBoolean timerStarted = new AtomicBoolean();
-
-	protected AtomicBoolean timerStopped = new AtomicBoolean();
+	protected volatile TimeoutScheduler expirer;
 
 	// --- COUNTERS ---
 
@@ -146,11 +138,6 @@ public class MemoryCacher extends Cacher implements Runnable {
 		// Set other properties
 		this.ttl = defaultTtl;
 		this.cleanup = cleanupSeconds;
-
-		// Create locks
-		ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-		readLock = lock.readLock();
-		writeLock = lock.writeLock();
 	}
 
 	// --- START CACHER ---
@@ -165,8 +152,14 @@ public class MemoryCacher extends Cacher implements Runnable {
 	public void started(ServiceBroker broker) throws Exception {
 		super.started(broker);
 
-		// Start timer
-		startTimer(0);
+		// Start timing wheel
+		HashedWheelTimeoutScheduler wheel = new HashedWheelTimeoutScheduler();
+		wheel.setTickDuration((cleanup > 0 ? cleanup : 1) * 1000L);
+		wheel.started(broker);
+		expirer = wheel;
+		if (ttl > 0) {
+			logger.info("Entries in cache expire after " + ttl + " seconds.");
+		}
 
 		// Log capacity
 		logger.info("Maximum number of cached entries is " + capacity + " per partition.");
@@ -184,32 +177,17 @@ public class MemoryCacher extends Cacher implements Runnable {
 
 	// --- REMOVE OLD ENTRIES ---
 
-	protected void startTimer(int entryTTL) {
-		int delay = cleanup > 0 ? cleanup : entryTTL;
-		if (delay < 1) {
-			return;
-		}
-		if (timerStarted.compareAndSet(false, true) && !timerStopped.get()) {
-			timer = broker.getConfig().getScheduler().scheduleWithFixedDelay(this, delay, delay, TimeUnit.SECONDS);
-		} else {
-			return;
-		}
-		if (ttl > 0) {
-			logger.info("Entries in cache expire after " + delay + " seconds.");
-		}
-	}
-
+	/**
+	 * Removes all expired entries. The entries are removed automatically by
+	 * the timing wheel, this method is only required when the cacher is used
+	 * without a ServiceBroker.
+	 */
 	@Override
 	public void run() {
 		long count = 0;
 		long now = System.currentTimeMillis();
-		readLock.lock();
-		try {
-			for (MemoryPartition partition : partitions.values()) {
-				count += partition.removeOldEntries(now);
-			}
-		} finally {
-			readLock.unlock();
+		for (MemoryPartition partition : partitions.values()) {
+			count += partition.removeOldEntries(now);
 		}
 		if (debug) {
 			logger.info("Cache: " + count + " record(s) timeouted and removed from MemoryCache.");				
@@ -221,20 +199,15 @@ public class MemoryCacher extends Cacher implements Runnable {
 	@Override
 	public void stopped() {
 
-		// Stop timer
-		timerStopped.set(true);
-		if (timer != null) {
-			timer.cancel(false);
-			timer = null;
+		// Stop timing wheel
+		TimeoutScheduler wheel = expirer;
+		expirer = null;
+		if (wheel != null) {
+			wheel.stopped();
 		}
 
 		// Clear partitions
-		writeLock.lock();
-		try {
-			partitions.clear();
-		} finally {
-			writeLock.unlock();
-		}
+		partitions.clear();
 	}
 
 	// --- CACHE METHODS ---
@@ -247,7 +220,7 @@ public class MemoryCacher extends Cacher implements Runnable {
 			// Prefix is the name of the partition / region (eg.
 			// "user" from the "user.name" cache key)
 			String prefix = key.substring(0, pos);
-			MemoryPartition partition = getPartition(prefix);
+			MemoryPartition partition = partitions.get(prefix);
 			if (partition != null) {
 				Tree content = partition.get(key.substring(pos + 1));
 				if (debug) {
@@ -266,14 +239,7 @@ public class MemoryCacher extends Cacher implements Runnable {
 	}
 
 	protected MemoryPartition getPartition(String prefix) {
-		MemoryPartition partition = null;
-		readLock.lock();
-		try {
-			partition = partitions.get(prefix);
-		} finally {
-			readLock.unlock();
-		}
-		return partition;
+		return partitions.get(prefix);
 	}
 
 	@Override
@@ -284,16 +250,10 @@ public class MemoryCacher extends Cacher implements Runnable {
 			// Prefix is the name of the partition / region (eg.
 			// "user" from the "user.name" cache key)
 			String prefix = key.substring(0, pos);
-			MemoryPartition partition = getPartition(prefix);
+			MemoryPartition partition = partitions.get(prefix);
 			if (partition == null) {
 				partition = new MemoryPartition(this);
-				MemoryPartition previous;
-				writeLock.lock();
-				try {
-					previous = partitions.putIfAbsent(prefix, partition);
-				} finally {
-					writeLock.unlock();
-				}
+				MemoryPartition previous = partitions.putIfAbsent(prefix, partition);
 				if (previous != null) {
 					partition = previous;
 				}
@@ -309,13 +269,8 @@ public class MemoryCacher extends Cacher implements Runnable {
 				entryTTL = this.ttl;
 			}
 
-			// Start cleanup process
-			if (entryTTL > 0 && !timerStarted.get()) {
-				startTimer(entryTTL);
-			}
-
 			// Create another, cloned instance
-			Tree v = useCloning ? value.clone() : value;
+			Tree v = useCloning && value != null ? value.clone() : value;
 
 			// Store value
 			partition.set(key.substring(pos + 1), v, entryTTL);
@@ -337,7 +292,7 @@ public class MemoryCacher extends Cacher implements Runnable {
 			// Prefix is the name of the partition / region (eg.
 			// "user" from the "user.name" cache key)
 			String prefix = key.substring(0, pos);
-			MemoryPartition partition = getPartition(prefix);
+			MemoryPartition partition = partitions.get(prefix);
 			if (partition != null) {
 				boolean deleted = partition.del(key.substring(pos + 1));
 				if (debug && deleted) {
@@ -362,7 +317,7 @@ public class MemoryCacher extends Cacher implements Runnable {
 
 				// Remove items in partitions
 				String prefix = match.substring(0, pos);
-				MemoryPartition partition = getPartition(prefix);
+				MemoryPartition partition = partitions.get(prefix);
 				if (partition != null) {
 					count = partition.clean(match.substring(pos + 1));
 				}
@@ -370,27 +325,27 @@ public class MemoryCacher extends Cacher implements Runnable {
 			} else {
 
 				// Remove entire partitions
-				writeLock.lock();
-				try {
-					if (match.isEmpty() || match.startsWith("*")) {
-						partitions.clear();
-					} else if (match.indexOf('*') == -1) {
+				if (match.isEmpty() || match.startsWith("*")) {
+					Iterator<MemoryPartition> i = partitions.values().iterator();
+					while (i.hasNext()) {
+						i.next().clean("**");
+						i.remove();
+					}
+				} else if (match.indexOf('*') == -1) {
 
-						// Not supported method
-						logger.warn("This pattern is not supported: " + match);
+					// Not supported method
+					logger.warn("This pattern is not supported: " + match);
 
-					} else {
-						Iterator<String> i = partitions.keySet().iterator();
-						String key;
-						while (i.hasNext()) {
-							key = i.next();
-							if (Matcher.matches(key, match)) {
-								i.remove();
-							}
+				} else {
+					Iterator<Map.Entry<String, MemoryPartition>> i = partitions.entrySet().iterator();
+					Map.Entry<String, MemoryPartition> entry;
+					while (i.hasNext()) {
+						entry = i.next();
+						if (Matcher.matches(entry.getKey(), match)) {
+							entry.getValue().clean("**");
+							i.remove();
 						}
 					}
-				} finally {
-					writeLock.unlock();
 				}
 			}
 		} catch (Throwable cause) {
@@ -418,17 +373,8 @@ public class MemoryCacher extends Cacher implements Runnable {
 	public Promise getCacheKeys() {
 		Tree result = new Tree();
 		Tree keys = result.putList("keys");
-		writeLock.lock();
-		try {
-			Iterator<Map.Entry<String, MemoryPartition>> i = partitions.entrySet()
-					.iterator();
-			Map.Entry<String, MemoryPartition> entry;
-			while (i.hasNext()) {
-				entry = i.next();
-				entry.getValue().addKeysTo(keys, entry.getKey());
-			}
-		} finally {
-			writeLock.unlock();
+		for (Map.Entry<String, MemoryPartition> entry : partitions.entrySet()) {
+			entry.getValue().addKeysTo(keys, entry.getKey());
 		}
 		return Promise.resolve(result); 
 	}
@@ -441,81 +387,54 @@ public class MemoryCacher extends Cacher implements Runnable {
 
 		protected final MemoryCacher parent;
 
-		// --- READ/WRITE LOCK ---
-
-		protected final ReadLock readLock;
-		protected final WriteLock writeLock;
-
 		// --- MEMORY CACHE PARTITION ---
 
-		protected final LinkedHashMap<String, PartitionEntry> cache;
-
-		// --- CONSTUCTORS ---
+		protected final ConcurrentHashMap<String, PartitionEntry> cache;
 
-		protected MemoryPartition(MemoryCacher parent) {
+		// --- CLOCK (SECOND CHANCE) EVICTION ---
 
-			// Insertion-order is thread safe, access-order is not
-			cache = new LinkedHashMap<String, PartitionEntry>(parent.capacity, 1.0f, false) {
+		/**
+		 * Entries in insertion order (may contain removed entries)
+		 */
+		protected final ConcurrentLinkedQueue<PartitionEntry> clock = new ConcurrentLinkedQueue<>();
 
-				private static final long serialVersionUID = 5994447707758047152L;
+		/**
+		 * Number of removed entries in the "clock" queue
+		 */
+		protected final AtomicInteger removed = new AtomicInteger();
 
-				protected final boolean removeEldestEntry(Map.Entry<String, PartitionEntry> entry) {
-					boolean remove = size() > parent.capacity;
+		/**
+		 * A thread is purging the "clock" queue
+		 */
+		protected final AtomicBoolean purging = new AtomicBoolean();
 
-					// Metrics
-					if (remove && parent.counterExpired != null) {
-						parent.counterExpired.increment();
-					}
+		// --- CONSTUCTORS ---
 
-					return remove;
-				};
-			};
+		protected MemoryPartition(MemoryCacher parent) {
 			this.parent = parent;
-
-			// Create locks
-			ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-			readLock = lock.readLock();
-			writeLock = lock.writeLock();
+			this.cache = new ConcurrentHashMap<>(Math.min(parent.capacity, 1024) * 2);
 		}
 
 		// --- REMOVE OLD ENTRIES ---
 
 		protected int removeOldEntries(long now) {
-			LinkedList<String> expiredKeys = new LinkedList<>();
-			readLock.lock();
-			try {
-				collectExpiredEntries(now, expiredKeys);
-			} finally {
-				readLock.unlock();
-			}
-			if (expiredKeys.isEmpty()) {
-				return 0;
+			int count = 0;
+			for (PartitionEntry entry : cache.values()) {
+				if (entry.isExpired(now) && remove(entry)) {
+					count++;
+				}
 			}
 
 			// Metrics
-			if (parent.counterExpired != null) {
-				parent.counterExpired.increment(expiredKeys.size());
-			}
-
-			// Remove elements
-			writeLock.lock();
-			try {
-				for (String String : expiredKeys) {
-					cache.remove(String);
-				}
-			} finally {
-				writeLock.unlock();
+			if (count > 0 && parent.counterExpired != null) {
+				parent.counterExpired.increment(count);
 			}
-			return expiredKeys.size();
+			return count;
 		}
 
-		protected void collectExpiredEntries(long now, LinkedList<String> expiredKeys) {
-			PartitionEntry partitionEntry;
-			for (Map.Entry<String, PartitionEntry> entry : cache.entrySet()) {
-				partitionEntry = entry.getValue();
-				if (partitionEntry.expireAt > 0 && partitionEntry.expireAt <= now) {
-					expiredKeys.addLast(entry.getKey());
-				}
+		protected void expire(PartitionEntry entry) {
+			if (entry.isExpired(System.currentTimeMillis()) && remove(entry) && parent.counterExpired != null) {
+				parent.counterExpired.increment();
 			}
 		}
 
@@ -529,26 +448,27 @@ public class MemoryCacher extends Cacher implements Runnable {
 				parent.counterGet.increment();
 				getTimer = parent.metrics.timer(MOLECULER_CACHER_GET_TIME, MOLECULER_CACHER_GET_TIME_DESC);
 			}
-
-			PartitionEntry entry = null;
-
-			readLock.lock();
-			try {
-				entry = cache.get(key);
-			} finally {
-				readLock.unlock();
-			}
 			try {
-				if (entry == null || entry.value == null) {
+				PartitionEntry entry = cache.get(key);
+				if (entry == null) {
 					return null;
 				}
+				Tree value = entry.value;
+				if (value == null || (entry.expireAt > 0 && entry.isExpired(System.currentTimeMillis()))) {
+					return null;
+				}
+
+				// Give a second chance (avoid writing to a shared cache line)
+				if (!entry.referenced) {
+					entry.referenced = true;
+				}
 				if (parent.counterFound != null) {
 					parent.counterFound.increment();
 				}
-				if (parent.useCloning && entry.value != null) {
-					return entry.value.clone();
+				if (parent.useCloning) {
+					return value.clone();
 				}
-				return entry.value;
+				return value;
 			} finally {
 				if (getTimer != null) {
 					getTimer.stop();
@@ -564,25 +484,87 @@ public class MemoryCacher extends Cacher implements Runnable {
 				parent.counterSet.increment();
 				setTimer = parent.metrics.timer(MOLECULER_CACHER_SET_TIME, MOLECULER_CACHER_SET_TIME_DESC);
 			}
-
-			writeLock.lock();
 			try {
 				if (value == null) {
-					cache.remove(key);
+					del(key);
+					return;
+				}
+				long expireAt;
+				if (ttl > 0) {
+					expireAt = ttl * 1000L + System.currentTimeMillis();
 				} else {
-					long expireAt;
-					if (ttl > 0) {
-						expireAt = ttl * 1000L + System.currentTimeMillis();
-					} else {
-						expireAt = 0;
+					expireAt = 0;
+				}
+				PartitionEntry entry = cache.get(key);
+				if (entry == null) {
+					PartitionEntry created = new PartitionEntry(key);
+					entry = cache.putIfAbsent(key, created);
+					if (entry == null) {
+						entry = created;
+						clock.add(entry);
 					}
-					cache.put(key, new PartitionEntry(value, expireAt));
+				}
+				entry.update(value, expireAt);
+				schedule(entry, expireAt);
+				if (cache.size() > parent.capacity) {
+					evict();
 				}
 			} finally {
-				writeLock.unlock();
 				if (setTimer != null) {
 					setTimer.stop();
-				}		
+				}
+			}
+		}
+
+		protected void schedule(PartitionEntry entry, long expireAt) {
+			Timeout previous = entry.timeout;
+			TimeoutScheduler wheel = parent.expirer;
+			if (expireAt > 0 && wheel != null) {
+				entry.timeout = wheel.schedule(expireAt, () -> {
+					expire(entry);
+				});
+			} else {
+				entry.timeout = null;
+			}
+			if (previous != null) {
+				previous.cancel();
+			}
+		}
+
+		protected void evict() {
+			PartitionEntry entry;
+			while (cache.size() > parent.capacity && (entry = clock.poll()) != null) {
+				if (entry.removed) {
+					dequeued(entry);
+					continue;
+				}
+				if (entry.referenced) {
+					entry.referenced = false;
+					clock.add(entry);
+					continue;
+				}
+				if (cache.remove(entry.key, entry)) {
+
+					// Not counted as a removed entry of the queue
+					entry.queued = 0;
+					entry.removed = true;
+					cancel(entry);
+
+					// Metrics
+					if (parent.counterExpired != null) {
+						parent.counterExpired.increment();
+					}
+				} else {
+
+					// Removed (and counted) by another thread
+					dequeued(entry);
+				}
+			}
+		}
+
+		protected void dequeued(PartitionEntry entry) {
+			if (entry.dequeue()) {
+				removed.decrementAndGet();
 			}
 		}
 
@@ -594,18 +576,48 @@ public class MemoryCacher extends Cacher implements Runnable {
 				parent.counterDel.increment();
 				delTimer = parent.metrics.timer(MOLECULER_CACHER_DEL_TIME, MOLECULER_CACHER_DEL_TIME_DESC);
 			}
-
-			writeLock.lock();
 			try {
-				return cache.remove(key) != null;
+				PartitionEntry entry = cache.get(key);
+				return entry != null && remove(entry);
 			} finally {
-				writeLock.unlock();
 				if (delTimer != null) {
 					delTimer.stop();
 				}
 			}
 		}
 
+		protected boolean remove(PartitionEntry entry) {
+			if (!cache.remove(entry.key, entry)) {
+				return false;
+			}
+			entry.removed = true;
+			cancel(entry);
+
+			// Purge removed entries from the "clock" queue
+			if (removed.incrementAndGet() > parent.capacity && purging.compareAndSet(false, true)) {
+				try {
+					clock.removeIf(e -> {
+						if (!e.removed) {
+							return false;
+						}
+						dequeued(e);
+						return true;
+					});
+				} finally {
+					purging.set(false);
+				}
+			}
+			return true;
+		}
+
+		protected void cancel(PartitionEntry entry) {
+			Timeout timeout = entry.timeout;
+			if (timeout != null) {
+				entry.timeout = null;
+				timeout.cancel();
+			}
+		}
+
 		protected long clean(String match) {
 
 			// Metrics
@@ -615,32 +627,22 @@ public class MemoryCacher extends Cacher implements Runnable {
 				cleanTimer = parent.metrics.timer(MOLECULER_CACHER_CLEAN_TIME, MOLECULER_CACHER_CLEAN_TIME_DESC);
 			}
 			long count = -1;
-			writeLock.lock();
 			try {
-				if (match.isEmpty() || "**".equals(match)) {
-					count = cache.size();
-					cache.clear();
-				} else if (match.indexOf('*') == -1) {
-					if (cache.remove(match) != null) {
-						count = 1;	
+				if (match.indexOf('*') == -1 && !match.isEmpty()) {
+					PartitionEntry entry = cache.get(match);
+					if (entry != null && remove(entry)) {
+						count = 1;
 					}
 				} else {
-					Iterator<String> i = cache.keySet().iterator();
-					LinkedList<String> r = new LinkedList<>();
-					String key;
-					while (i.hasNext()) {
-						key = i.next();
-						if (Matcher.matches(key, match)) {
-							r.add(key);
+					boolean all = match.isEmpty() || "**".equals(match);
+					count = 0;
+					for (PartitionEntry entry : cache.values()) {
+						if ((all || Matcher.matches(entry.key, match)) && remove(entry)) {
+							count++;
 						}
 					}
-					for (String rx: r) {
-						cache.remove(rx);
-					}
-					count = r.size();
 				}
 			} finally {
-				writeLock.unlock();
 				if (cleanTimer != null) {
 					cleanTimer.stop();
 				}
@@ -649,14 +651,9 @@ public class MemoryCacher extends Cacher implements Runnable {
 		}
 
 		protected void addKeysTo(Tree list, String prefix) {
-			writeLock.lock();
-			try {
-				for (String key : cache.keySet()) {
-					list.add(prefix + '.' + key);
-				}
-			} finally {
-				writeLock.unlock();
-			}				
+			for (String key : cache.keySet()) {
+				list.add(prefix + '.' + key);
+			}
 		}
 		
 	}
@@ -665,12 +662,57 @@ public class MemoryCacher extends Cacher implements Runnable {
 
 	protected static class PartitionEntry {
 
-		protected final Tree value;
-		protected final long expireAt;
+		protected static final AtomicIntegerFieldUpdater<PartitionEntry> QUEUED = AtomicIntegerFieldUpdater
+				.newUpdater(PartitionEntry.class, "queued");
 
-		protected PartitionEntry(Tree value, long expireAt) {
-			this.value = value;
+		protected final String key;
+
+		protected volatile Tree value;
+		protected volatile long expireAt;
+
+		/**
+		 * Entry was read since the last pass of the "clock hand"
+		 */
+		protected volatile boolean referenced;
+
+		/**
+		 * Entry was removed from the partition
+		 */
+		protected volatile boolean removed;
+
+		/**
+		 * Entry is counted in the "removed" counter of the partition until it
+		 * leaves the "clock" queue (1 = counted, 0 = not counted)
+		 */
+		protected volatile int queued = 1;
+
+		/**
+		 * Expiration task in the timing wheel
+		 */
+		protected volatile Timeout timeout;
+
+		protected PartitionEntry(String key) {
+			this.key = key;
+		}
+
+		protected void update(Tree value, long expireAt) {
 			this.expireAt = expireAt;
+			this.value = value;
+		}
+
+		protected boolean isExpired(long now) {
+			long at = expireAt;
+			return at > 0 && at <= now;
+		}
+
+		/**
+		 * Marks a removed entry as dequeued. Only one thread (the "clock hand"
+		 * or the purge) can decrement the "removed" counter for an entry.
+		 * 
+		 * @return true if the caller must decrement the counter
+		 */
+		protected boolean dequeue() {
+			return QUEUED.compareAndSet(this, 1, 0);
 		}
 
 	}
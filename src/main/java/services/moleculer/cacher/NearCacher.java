@@ -0,0 +1,314 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.cacher;
+
+import static services.moleculer.util.CommonUtils.nameOf;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import services.moleculer.ServiceBroker;
+import services.moleculer.context.Context;
+import services.moleculer.eventbus.Listener;
+import services.moleculer.eventbus.Subscribe;
+import services.moleculer.metrics.MetricCounter;
+import services.moleculer.metrics.MetricGauge;
+import services.moleculer.metrics.MetricTimer;
+import services.moleculer.service.Name;
+import services.moleculer.service.Service;
+
+/**
+ * Two-level cache. Keeps a bounded local ("near") cache in front of a
+ * distributed cache (eg. Redis). Local hits are served from the memory without
+ * any I/O. The "del" and "clean" operations are broadcasted to the other nodes
+ * via the event bus, so they remove the outdated entries from their local
+ * caches. Sample of usage:
+ * 
+ * <pre>
+ * NearCacher cacher = new NearCacher(new MemoryCacher(1024, 60), new RedisCacher("redis://host"));
+ * ServiceBroker broker = ServiceBroker.builder().cacher(cacher).build();
+ * </pre>
+ * 
+ * Configuration properties:
+ * <ul>
+ * <li>local: the local cache (default: MemoryCacher)
+ * <li>remote: the distributed cache (default: RedisCacher)
+ * <li>localTtl: maximum lifetime of the local entries, in seconds; this limits
+ * the staleness when an invalidation message is lost (0 = use the TTL of the
+ * local cache)
+ * </ul>
+ *
+ * @see MemoryCacher
+ * @see RedisCacher
+ */
+@Name("Near Cacher")
+public class NearCacher extends DistributedCacher {
+
+	// --- INVALIDATION EVENT ---
+
+	public static final String INVALIDATE_EVENT = "$cacher.invalidate";
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Local (first level) cache
+	 */
+	protected Cacher local;
+
+	/**
+	 * Distributed (second level) cache
+	 */
+	protected Cacher remote;
+
+	/**
+	 * Maximum lifetime of the local entries, in SECONDS (0 = use the TTL of
+	 * the local cache)
+	 */
+	protected int localTtl = 60;
+
+	// --- VARIABLES ---
+
+	protected String nodeID;
+
+	// --- COUNTERS ---
+
+	protected final AtomicLong hits = new AtomicLong();
+	protected final AtomicLong misses = new AtomicLong();
+
+	protected MetricCounter counterHit;
+	protected MetricCounter counterMiss;
+	protected MetricCounter counterInvalidation;
+	protected MetricGauge gaugeHitRatio;
+	protected MetricTimer timerInvalidationLag;
+
+	// --- CONSTUCTORS ---
+
+	public NearCacher() {
+		this(new MemoryCacher(), new RedisCacher());
+	}
+
+	public NearCacher(Cacher remote) {
+		this(new MemoryCacher(), remote);
+	}
+
+	public NearCacher(Cacher local, Cacher remote) {
+		setLocal(local);
+		setRemote(remote);
+	}
+
+	// --- START CACHER ---
+
+	/**
+	 * Initializes cacher instance.
+	 *
+	 * @param broker
+	 *            parent ServiceBroker
+	 */
+	@Override
+	public void started(ServiceBroker broker) throws Exception {
+		super.started(broker);
+		nodeID = broker.getNodeID();
+
+		// Start local and remote caches
+		local.started(broker);
+		remote.started(broker);
+		logger.info(nameOf(this, true) + " will use " + nameOf(local, true) + " in front of "
+				+ nameOf(remote, true) + '.');
+
+		// Create counters
+		if (metrics != null) {
+			counterHit = metrics.increment(MOLECULER_CACHER_NEAR_HIT_TOTAL, MOLECULER_CACHER_NEAR_HIT_TOTAL_DESC, 0);
+			counterMiss = metrics.increment(MOLECULER_CACHER_NEAR_MISS_TOTAL, MOLECULER_CACHER_NEAR_MISS_TOTAL_DESC,
+					0);
+			counterInvalidation = metrics.increment(MOLECULER_CACHER_INVALIDATION_TOTAL,
+					MOLECULER_CACHER_INVALIDATION_TOTAL_DESC, 0);
+			gaugeHitRatio = metrics.set(MOLECULER_CACHER_NEAR_HIT_RATIO, MOLECULER_CACHER_NEAR_HIT_RATIO_DESC, 0);
+			timerInvalidationLag = metrics.recorder(MOLECULER_CACHER_INVALIDATION_LAG,
+					MOLECULER_CACHER_INVALIDATION_LAG_DESC);
+		}
+
+		// Subscribe to invalidation events
+		broker.createService(new InvalidationListener());
+	}
+
+	// --- STOP CACHER ---
+
+	@Override
+	public void stopped() {
+		local.stopped();
+		remote.stopped();
+	}
+
+	// --- CACHE METHODS ---
+
+	@Override
+	public Promise get(String key) {
+		return local.get(key).then(in -> {
+			if (in != null && !in.isNull()) {
+
+				// Found in the local cache
+				hit(true);
+				return in;
+			}
+			return remote.get(key).then(rsp -> {
+				hit(false);
+				if (rsp != null && !rsp.isNull()) {
+					local.set(key, rsp, localTtl);
+					return rsp;
+				}
+				return Promise.resolve((Object) null);
+			});
+		});
+	}
+
+	protected void hit(boolean found) {
+		long count;
+		if (found) {
+			count = hits.incrementAndGet();
+			if (counterHit != null) {
+				counterHit.increment();
+			}
+		} else {
+			count = misses.incrementAndGet();
+			if (counterMiss != null) {
+				counterMiss.increment();
+			}
+		}
+		if (gaugeHitRatio != null && (count & 0xFF) == 0) {
+			long h = hits.get();
+			long total = h + misses.get();
+			gaugeHitRatio.set(total == 0 ? 0 : (double) h / total);
+		}
+	}
+
+	@Override
+	public Promise set(String key, Tree value, int ttl) {
+		int entryTTL;
+		if (localTtl > 0 && (ttl < 1 || ttl > localTtl)) {
+			entryTTL = localTtl;
+		} else {
+			entryTTL = ttl;
+		}
+		local.set(key, value, entryTTL);
+		return remote.set(key, value, ttl);
+	}
+
+	@Override
+	public Promise del(String key) {
+		local.del(key);
+		broadcastInvalidation("key", key);
+		return remote.del(key);
+	}
+
+	@Override
+	public Promise clean(String match) {
+		local.clean(match);
+		broadcastInvalidation("match", match);
+		return remote.clean(match);
+	}
+
+	@Override
+	public Promise getCacheKeys() {
+		return remote.getCacheKeys();
+	}
+
+	// --- INVALIDATION ---
+
+	protected void broadcastInvalidation(String type, String value) {
+		try {
+			Tree msg = new Tree();
+			msg.put(type, value);
+			msg.put("sender", nodeID);
+			msg.put("time", System.currentTimeMillis());
+			broker.broadcast(INVALIDATE_EVENT, msg);
+		} catch (Exception cause) {
+			logger.warn("Unable to broadcast cache invalidation event!", cause);
+		}
+	}
+
+	protected void invalidate(Tree msg) {
+		if (msg == null || nodeID.equals(msg.get("sender", ""))) {
+			return;
+		}
+		String key = msg.get("key", (String) null);
+		if (key != null) {
+			local.del(key);
+		} else {
+			String match = msg.get("match", (String) null);
+			if (match == null) {
+				return;
+			}
+			local.clean(match);
+		}
+
+		// Metrics (the lag also contains the clock skew between the nodes)
+		if (counterInvalidation != null) {
+			counterInvalidation.increment();
+			long lag = System.currentTimeMillis() - msg.get("time", 0L);
+			timerInvalidationLag.record(TimeUnit.MILLISECONDS.toNanos(Math.max(0, lag)));
+		}
+	}
+
+	@Name("$cacher")
+	protected class InvalidationListener extends Service {
+
+		@Subscribe(INVALIDATE_EVENT)
+		public Listener invalidate = (Context ctx) -> {
+			NearCacher.this.invalidate(ctx.params);
+		};
+
+	}
+
+	// --- GETTERS / SETTERS ---
+
+	public Cacher getLocal() {
+		return local;
+	}
+
+	public void setLocal(Cacher local) {
+		this.local = Objects.requireNonNull(local);
+	}
+
+	public Cacher getRemote() {
+		return remote;
+	}
+
+	public void setRemote(Cacher remote) {
+		this.remote = Objects.requireNonNull(remote);
+	}
+
+	public int getLocalTtl() {
+		return localTtl;
+	}
+
+	public void setLocalTtl(int localTtl) {
+		this.localTtl = localTtl;
+	}
+
+}
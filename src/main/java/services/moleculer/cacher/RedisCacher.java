@@ -29,7 +29,6 @@ import static services.moleculer.util.CommonUtils.nameOf;
 
 import java.util.Collections;
 import java.util.Objects;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -99,7 +98,6 @@ public class RedisCacher extends DistributedCacher implements EventBus {
 
 	// --- COMPONENTS ---
 
-	protected ExecutorService executor;
 	protected ScheduledExecutorService scheduler;
 
 	// --- DEFAULT TTL ---
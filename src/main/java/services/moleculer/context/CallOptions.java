@@ -26,7 +26,8 @@
 package services.moleculer.context;
 
 /**
- * Calling options (timeout, target nodeID, number of retries). Usage:<br>
+ * Calling options (timeout, target nodeID, number of retries, hedging).
+ * Usage:<br>
  * 
  * <pre>
  * broker.call("math.add", "a", 3, "b", 5,
@@ -40,6 +41,13 @@ package services.moleculer.context;
  * <pre>
  * CallOptions.nodeID("node-2").timeout(500).retryCount(3);
  * </pre>
+ * 
+ * Hedged call of an idempotent action (if the selected node doesn't respond in
+ * 50 msec, the request is sent to another node, the first response wins):<br>
+ * 
+ * <pre>
+ * CallOptions.hedgeAfter(50).maxHedges(2);
+ * </pre>
  */
 public class CallOptions {
 
@@ -63,26 +71,52 @@ public class CallOptions {
 		 */
 		public final int retryCount;
 
-		// --- CONSTRUCTOR ---
+		/**
+		 * Send a duplicate request to another node when the previous one
+		 * doesn't respond within this time (in milliseconds, 0 = disable
+		 * hedging). Use it only for idempotent actions.
+		 */
+		public final long hedgeAfter;
+
+		/**
+		 * Max number of duplicate (hedged) requests
+		 */
+		public final int maxHedges;
+
+		// --- CONSTRUCTORS ---
 
 		protected Options(String nodeID, long timeoutMillis, int retryCount) {
+			this(nodeID, timeoutMillis, retryCount, 0, 0);
+		}
+
+		protected Options(String nodeID, long timeoutMillis, int retryCount, long hedgeAfterMillis, int maxHedges) {
 			this.nodeID = nodeID;
 			this.timeout = timeoutMillis;
 			this.retryCount = retryCount;
+			this.hedgeAfter = hedgeAfterMillis;
+			this.maxHedges = maxHedges;
 		}
 
 		// --- VARIABLE SETTERS ---
 
 		public Options nodeID(String nodeID) {
-			return new Options(nodeID, timeout, retryCount);
+			return new Options(nodeID, timeout, retryCount, hedgeAfter, maxHedges);
 		}
 
 		public Options timeout(long timeoutMillis) {
-			return new Options(nodeID, timeoutMillis, retryCount);
+			return new Options(nodeID, timeoutMillis, retryCount, hedgeAfter, maxHedges);
 		}
 
 		public Options retryCount(int retryCount) {
-			return new Options(nodeID, timeout, retryCount);
+			return new Options(nodeID, timeout, retryCount, hedgeAfter, maxHedges);
+		}
+
+		public Options hedgeAfter(long hedgeAfterMillis) {
+			return new Options(nodeID, timeout, retryCount, hedgeAfterMillis, Math.max(1, maxHedges));
+		}
+
+		public Options maxHedges(int maxHedges) {
+			return new Options(nodeID, timeout, retryCount, hedgeAfter, maxHedges);
 		}
 
 	}
@@ -106,4 +140,8 @@ public class CallOptions {
 		return new Options(null, 0, retryCount);
 	}
 
+	public static Options hedgeAfter(long hedgeAfterMillis) {
+		return new Options(null, 0, 0, hedgeAfterMillis, 1);
+	}
+
 }
\ No newline at end of file
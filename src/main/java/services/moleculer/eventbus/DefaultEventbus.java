@@ -30,7 +30,10 @@ import static services.moleculer.util.CommonUtils.nameOf;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -38,6 +41,7 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -47,7 +51,6 @@ import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
 
 import io.datatree.Tree;
-import io.datatree.dom.Cache;
 import io.datatree.dom.Config;
 import services.moleculer.ServiceBroker;
 import services.moleculer.config.ServiceBrokerConfig;
@@ -57,6 +60,7 @@ import services.moleculer.error.MaxCallLevelError;
 import services.moleculer.error.MoleculerClientError;
 import services.moleculer.error.RequestTimeoutError;
 import services.moleculer.metrics.MetricConstants;
+import services.moleculer.metrics.MetricCounter;
 import services.moleculer.metrics.Metrics;
 import services.moleculer.service.Name;
 import services.moleculer.service.Service;
@@ -80,11 +84,41 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 
 	protected final HashMap<String, HashMap<String, Strategy<ListenerEndpoint>>> listeners = new HashMap<>(256);
 
+	/**
+	 * Segment trie of the subscriptions (same values as in "listeners")
+	 */
+	protected final SubscriptionIndex<HashMap<String, Strategy<ListenerEndpoint>>> index = new SubscriptionIndex<>();
+
 	// --- CACHES ---
 
-	protected final Cache<String, Strategy<ListenerEndpoint>[]> emitterCache = new Cache<>(Config.CACHE_SIZE);
-	protected final Cache<String, ListenerEndpoint[]> broadcasterCache = new Cache<>(Config.CACHE_SIZE);
-	protected final Cache<String, ListenerEndpoint[]> localBroadcasterCache = new Cache<>(Config.CACHE_SIZE);
+	/**
+	 * Cached targets by event name (and groups). Entries are written under the
+	 * registry's read lock and invalidated selectively (by the changed
+	 * subscriptions) under the write lock.
+	 */
+	protected final ConcurrentHashMap<String, CachedTargets> targetCache = new ConcurrentHashMap<>();
+
+	/**
+	 * Cached entries by event name, used to find the entries affected by a
+	 * changed subscription (the "clock" and "invalidatedEntries" fields are
+	 * also guarded by its monitor).
+	 */
+	protected final SubscriptionIndex<LinkedList<CachedTargets>> cachedNames = new SubscriptionIndex<>();
+
+	/**
+	 * Eviction order of the cached entries (CLOCK algorithm)
+	 */
+	protected final ArrayDeque<CachedTargets> clock = new ArrayDeque<>();
+
+	/**
+	 * Number of invalidated entries in the "clock" queue
+	 */
+	protected int invalidatedEntries;
+
+	/**
+	 * Max number of cached entries
+	 */
+	protected int cacheSize = Config.CACHE_SIZE;
 
 	// --- PROPERTIES ---
 
@@ -114,6 +148,13 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 	 */
 	protected long streamTimeout;
 
+	/**
+	 * Maximum number of missing packets of an incoming stream (distance
+	 * between the last processed and the received sequence number). The
+	 * stream fails if the gap is larger.
+	 */
+	protected int streamMaxGap = IncomingStream.DEFAULT_MAX_GAP;
+
 	/**
 	 * Max call level (for nested events)
 	 */
@@ -146,6 +187,8 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 	protected ScheduledExecutorService scheduler;
 	protected UidGenerator uidGenerator;
 	protected Metrics metrics;
+	protected MetricCounter counterStreamsReorderDepth;
+	protected MetricCounter counterStreamsLateTotal;
 
 	// --- REGISTERED STREAMS ---
 
@@ -199,6 +242,12 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 		// Metrics
 		if (cfg.isMetricsEnabled()) {
 			metrics = cfg.getMetrics();
+			if (metrics != null) {
+				counterStreamsReorderDepth = metrics.increment(MOLECULER_TRANSIT_STREAMS_REORDER_DEPTH,
+						MOLECULER_TRANSIT_STREAMS_REORDER_DEPTH_DESC, 0);
+				counterStreamsLateTotal = metrics.increment(MOLECULER_TRANSIT_STREAMS_LATE_TOTAL,
+						MOLECULER_TRANSIT_STREAMS_LATE_TOTAL_DESC, 0);
+			}
 		}
 
 		// Start timer
@@ -224,12 +273,16 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 		registryWriteLock.lock();
 		try {
 			listeners.clear();
+			index.clear();
 		} finally {
 
 			// Clear caches
-			emitterCache.clear();
-			broadcasterCache.clear();
-			localBroadcasterCache.clear();
+			synchronized (cachedNames) {
+				targetCache.clear();
+				cachedNames.clear();
+				clock.clear();
+				invalidatedEntries = 0;
+			}
 
 			registryWriteLock.unlock();
 		}
@@ -322,7 +375,8 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 				try {
 					requestStream = requestStreams.get(id);
 					if (requestStream == null) {
-						requestStream = new IncomingStream(nodeID, scheduler, streamTimeout);
+						requestStream = new IncomingStream(nodeID, scheduler, streamTimeout, streamMaxGap);
+						requestStream.setMetrics(counterStreamsReorderDepth, counterStreamsLateTotal);
 						requestStreams.put(id, requestStream);
 					}
 				} finally {
@@ -428,6 +482,7 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 		}
 
 		// Initialize listeners in service
+		HashSet<String> changed = new HashSet<>();
 		registryWriteLock.lock();
 		try {
 			for (Field field : fields.values()) {
@@ -468,32 +523,17 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 					}
 				}
 
-				// Get or create group map
-				HashMap<String, Strategy<ListenerEndpoint>> groups = listeners.get(subscribe);
-				if (groups == null) {
-					groups = new HashMap<String, Strategy<ListenerEndpoint>>();
-					listeners.put(subscribe, groups);
-				}
-
-				// Get or create strategy
-				Strategy<ListenerEndpoint> strategy = groups.get(group);
-				if (strategy == null) {
-					strategy = this.strategy.create();
-					groups.put(group, strategy);
-				}
-
 				// Add endpoint to strategy
-				strategy.addEndpoint(
+				getOrCreateStrategy(subscribe, group).addEndpoint(
 						new LocalListenerEndpoint(nodeID, name, group, subscribe, listener, privateAccess, metrics));
+				changed.add(subscribe);
 			}
 		} catch (Exception cause) {
 			logger.error("Unable to register local listener!", cause);
 		} finally {
 
-			// Clear caches
-			emitterCache.clear();
-			broadcasterCache.clear();
-			localBroadcasterCache.clear();
+			// Remove the affected entries from the caches
+			invalidateCaches(changed);
 
 			// Unlock reader threads
 			registryWriteLock.unlock();
@@ -507,6 +547,7 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 		Tree events = config.get("events");
 		if (events != null && events.isMap()) {
 			String serviceName = Objects.requireNonNull(config.get("name", (String) null));
+			HashSet<String> changed = new HashSet<>();
 			registryWriteLock.lock();
 			try {
 				for (Tree listenerConfig : events) {
@@ -517,27 +558,13 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 					RemoteListenerEndpoint endpoint = new RemoteListenerEndpoint(nodeID, serviceName, group, subscribe,
 							transporter);
 
-					// Get or create group map
-					HashMap<String, Strategy<ListenerEndpoint>> groups = listeners.get(subscribe);
-					if (groups == null) {
-						groups = new HashMap<String, Strategy<ListenerEndpoint>>();
-						listeners.put(subscribe, groups);
-					}
-
-					// Get or create strategy
-					Strategy<ListenerEndpoint> listenerStrategy = groups.get(group);
-					if (listenerStrategy == null) {
-						listenerStrategy = strategy.create();
-						groups.put(group, listenerStrategy);
-					}
-					listenerStrategy.addEndpoint(endpoint);
+					getOrCreateStrategy(subscribe, group).addEndpoint(endpoint);
+					changed.add(subscribe);
 				}
 			} finally {
 
-				// Clear caches
-				emitterCache.clear();
-				broadcasterCache.clear();
-				localBroadcasterCache.clear();
+				// Remove the affected entries from the caches
+				invalidateCaches(changed);
 
 				// Unlock reader threads
 				registryWriteLock.unlock();
@@ -545,21 +572,44 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 		}
 	}
 
+	// --- GET OR CREATE STRATEGY OF A SUBSCRIPTION ---
+
+	protected Strategy<ListenerEndpoint> getOrCreateStrategy(String subscribe, String group) {
+
+		// Get or create group map
+		HashMap<String, Strategy<ListenerEndpoint>> groups = listeners.get(subscribe);
+		if (groups == null) {
+			groups = new HashMap<String, Strategy<ListenerEndpoint>>();
+			listeners.put(subscribe, groups);
+			index.put(subscribe, groups);
+		}
+
+		// Get or create strategy
+		Strategy<ListenerEndpoint> listenerStrategy = groups.get(group);
+		if (listenerStrategy == null) {
+			listenerStrategy = strategy.create();
+			groups.put(group, listenerStrategy);
+		}
+		return listenerStrategy;
+	}
+
 	// --- REMOVE ALL REMOTE SERVICES/ACTIONS OF A NODE ---
 
 	@Override
 	public void removeListeners(String nodeID) {
-		boolean found = false;
+		HashSet<String> changed = new HashSet<>();
 		registryWriteLock.lock();
 		try {
-			Iterator<HashMap<String, Strategy<ListenerEndpoint>>> groupIterator = listeners.values().iterator();
+			Iterator<Map.Entry<String, HashMap<String, Strategy<ListenerEndpoint>>>> groupIterator = listeners
+					.entrySet().iterator();
 			while (groupIterator.hasNext()) {
-				HashMap<String, Strategy<ListenerEndpoint>> groups = groupIterator.next();
+				Map.Entry<String, HashMap<String, Strategy<ListenerEndpoint>>> entry = groupIterator.next();
+				HashMap<String, Strategy<ListenerEndpoint>> groups = entry.getValue();
 				Iterator<Strategy<ListenerEndpoint>> strategyIterator = groups.values().iterator();
 				while (strategyIterator.hasNext()) {
 					Strategy<ListenerEndpoint> strategy = strategyIterator.next();
 					if (strategy.remove(nodeID)) {
-						found = true;
+						changed.add(entry.getKey());
 						if (strategy.isEmpty()) {
 							strategyIterator.remove();
 						}
@@ -567,21 +617,233 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 				}
 				if (groups.isEmpty()) {
 					groupIterator.remove();
+					index.remove(entry.getKey());
 				}
 			}
 		} finally {
 
-			// Clear caches
-			if (found) {
-				emitterCache.clear();
-				broadcasterCache.clear();
-				localBroadcasterCache.clear();
+			// Remove the affected entries from the caches
+			invalidateCaches(changed);
+
+			registryWriteLock.unlock();
+		}
+	}
+
+	// --- REMOVE LISTENERS OF A REMOTE SERVICE ---
+
+	@Override
+	public void removeListeners(String nodeID, Tree config) {
+		Tree events = config.get("events");
+		if (events == null || !events.isMap()) {
+			return;
+		}
+		String serviceName = Objects.requireNonNull(config.get("name", (String) null));
+		HashSet<String> changed = new HashSet<>();
+		registryWriteLock.lock();
+		try {
+			for (Tree listenerConfig : events) {
+				String subscribe = listenerConfig.get("name", "");
+				String group = listenerConfig.get("group", serviceName);
+				HashMap<String, Strategy<ListenerEndpoint>> groups = listeners.get(subscribe);
+				if (groups == null) {
+					continue;
+				}
+				Strategy<ListenerEndpoint> strategy = groups.get(group);
+				if (strategy == null) {
+					continue;
+				}
+
+				// Keep the endpoints of the other services of the node
+				LinkedList<ListenerEndpoint> others = new LinkedList<>();
+				for (ListenerEndpoint endpoint : strategy.getAllEndpoints()) {
+					if (nodeID.equals(endpoint.getNodeID()) && !serviceName.equals(endpoint.serviceName)) {
+						others.addLast(endpoint);
+					}
+				}
+				if (!strategy.remove(nodeID)) {
+					continue;
+				}
+				for (ListenerEndpoint endpoint : others) {
+					strategy.addEndpoint(endpoint);
+				}
+				changed.add(subscribe);
+				if (strategy.isEmpty()) {
+					groups.remove(group);
+					if (groups.isEmpty()) {
+						listeners.remove(subscribe);
+						index.remove(subscribe);
+					}
+				}
 			}
+		} finally {
+
+			// Remove the affected entries from the caches
+			invalidateCaches(changed);
 
 			registryWriteLock.unlock();
 		}
 	}
 
+	// --- INVALIDATE CACHES ---
+
+	/**
+	 * Removes the cached targets of the event names which are matching with
+	 * the changed subscriptions. Invoked under the registry's write lock.
+	 * 
+	 * @param changed
+	 *            changed subscriptions (event names or masks)
+	 */
+	protected void invalidateCaches(Collection<String> changed) {
+		if (changed.isEmpty()) {
+			return;
+		}
+		synchronized (cachedNames) {
+			if (cachedNames.isEmpty()) {
+				return;
+			}
+
+			// Find the cached event names by the changed subscriptions
+			ArrayList<LinkedList<CachedTargets>> affected = new ArrayList<>();
+			for (String pattern : changed) {
+				cachedNames.collect(pattern, affected);
+			}
+			for (LinkedList<CachedTargets> entries : affected) {
+				if (entries.isEmpty()) {
+
+					// Already removed
+					continue;
+				}
+				for (CachedTargets entry : entries) {
+					entry.invalidated = true;
+					targetCache.remove(entry.key, entry);
+				}
+				invalidatedEntries += entries.size();
+				cachedNames.remove(entries.getFirst().name);
+				entries.clear();
+			}
+
+			// Purge the invalidated entries from the eviction queue
+			if (invalidatedEntries > cacheSize) {
+				clock.removeIf(entry -> entry.invalidated);
+				invalidatedEntries = 0;
+			}
+		}
+	}
+
+	// --- CACHED TARGETS ---
+
+	/**
+	 * Returns the cached entry of an event name (and groups).
+	 * 
+	 * @param key
+	 *            cache key (see "getCacheKey")
+	 * 
+	 * @return cached entry or null
+	 */
+	protected CachedTargets getCachedTargets(String key) {
+		CachedTargets entry = targetCache.get(key);
+		if (entry != null && !entry.referenced) {
+			entry.referenced = true;
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns or creates the cached entry of an event name (and groups).
+	 * Invoked under the registry's read lock. If the cache is full, it removes
+	 * one entry which was not used recently.
+	 * 
+	 * @param name
+	 *            event name
+	 * @param key
+	 *            cache key (see "getCacheKey")
+	 * 
+	 * @return cached entry or null (if the name is not cacheable)
+	 */
+	protected CachedTargets createCachedTargets(String name, String key) {
+		CachedTargets entry = targetCache.get(key);
+		if (entry != null) {
+			return entry;
+		}
+		if (cacheSize < 1 || !SubscriptionIndex.isLiteral(name)) {
+			return null;
+		}
+		synchronized (cachedNames) {
+			entry = targetCache.get(key);
+			if (entry == null) {
+				while (targetCache.size() >= cacheSize) {
+					if (!evictCachedTargets()) {
+						break;
+					}
+				}
+				entry = new CachedTargets(name, key);
+				targetCache.put(key, entry);
+				clock.addLast(entry);
+				LinkedList<CachedTargets> entries = cachedNames.get(name);
+				if (entries == null) {
+					entries = new LinkedList<>();
+					cachedNames.put(name, entries);
+				}
+				entries.addLast(entry);
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Removes the first entry of the "clock" queue which was not used since
+	 * the previous round (CLOCK / second-chance algorithm).
+	 * 
+	 * @return true if an entry was removed
+	 */
+	protected boolean evictCachedTargets() {
+		CachedTargets entry;
+		while ((entry = clock.pollFirst()) != null) {
+			if (entry.invalidated) {
+				invalidatedEntries--;
+				continue;
+			}
+			if (entry.referenced) {
+				entry.referenced = false;
+				clock.addLast(entry);
+				continue;
+			}
+			targetCache.remove(entry.key, entry);
+			LinkedList<CachedTargets> entries = cachedNames.get(entry.name);
+			if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+				cachedNames.remove(entry.name);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	protected static final class CachedTargets {
+
+		protected final String name;
+		protected final String key;
+
+		protected volatile Strategy<ListenerEndpoint>[] strategies;
+		protected volatile ListenerEndpoint[] endpoints;
+		protected volatile ListenerEndpoint[] localEndpoints;
+
+		/**
+		 * Used since the previous round of the "clock"
+		 */
+		protected volatile boolean referenced;
+
+		/**
+		 * Removed by a changed subscription
+		 */
+		protected boolean invalidated;
+
+		protected CachedTargets(String name, String key) {
+			this.name = name;
+			this.key = key;
+		}
+
+	}
+
 	// --- SEND EVENT TO ONE LISTENER IN THE SPECIFIED GROUP ---
 
 	@Override
@@ -619,33 +881,35 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 
 		// Emit event
 		String key = getCacheKey(ctx.name, groups);
-		Strategy<ListenerEndpoint>[] strategies = emitterCache.get(key);
+		CachedTargets cached = getCachedTargets(key);
+		Strategy<ListenerEndpoint>[] strategies = cached == null ? null : cached.strategies;
 		if (strategies == null) {
 			LinkedList<Strategy<ListenerEndpoint>> list = new LinkedList<>();
 			registryReadLock.lock();
 			try {
-				for (Map.Entry<String, HashMap<String, Strategy<ListenerEndpoint>>> entry : listeners.entrySet()) {
-					if (Matcher.matches(ctx.name, entry.getKey())) {
-						if (groups != null) {
-							for (Map.Entry<String, Strategy<ListenerEndpoint>> test : entry.getValue().entrySet()) {
-								final String testGroup = test.getKey();
-								for (String group : groups.groups()) {
-									if (group.equals(testGroup)) {
-										list.add(test.getValue());
-									}
+				for (HashMap<String, Strategy<ListenerEndpoint>> matching : findSubscriptions(ctx.name)) {
+					if (groups != null) {
+						for (Map.Entry<String, Strategy<ListenerEndpoint>> test : matching.entrySet()) {
+							final String testGroup = test.getKey();
+							for (String group : groups.groups()) {
+								if (group.equals(testGroup)) {
+									list.add(test.getValue());
 								}
 							}
-						} else {
-							list.addAll(entry.getValue().values());
 						}
+					} else {
+						list.addAll(matching.values());
 					}
 				}
+				strategies = new Strategy[list.size()];
+				list.toArray(strategies);
+				cached = createCachedTargets(ctx.name, key);
+				if (cached != null) {
+					cached.strategies = strategies;
+				}
 			} finally {
 				registryReadLock.unlock();
 			}
-			strategies = new Strategy[list.size()];
-			list.toArray(strategies);
-			emitterCache.put(key, strategies);
 		}
 		if (strategies.length == 0) {
 			stopStreaming(ctx);
@@ -794,58 +1058,62 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 
 		// Broadcast event
 		String key = getCacheKey(ctx.name, groups);
+		CachedTargets cached = getCachedTargets(key);
 		ListenerEndpoint[] endpoints;
-		if (local) {
-			endpoints = localBroadcasterCache.get(key);
+		if (cached == null) {
+			endpoints = null;
+		} else if (local) {
+			endpoints = cached.localEndpoints;
 		} else {
-			endpoints = broadcasterCache.get(key);
+			endpoints = cached.endpoints;
 		}
 		if (endpoints == null) {
 			LinkedList<ListenerEndpoint> list = new LinkedList<>();
 			registryReadLock.lock();
 			try {
-				for (Map.Entry<String, HashMap<String, Strategy<ListenerEndpoint>>> entry : listeners.entrySet()) {
-					if (Matcher.matches(ctx.name, entry.getKey())) {
-						for (Map.Entry<String, Strategy<ListenerEndpoint>> test : entry.getValue().entrySet()) {
-							if (groups != null) {
-								final String testGroup = test.getKey();
-								for (String group : groups.groups()) {
-									if (group.equals(testGroup)) {
-										for (ListenerEndpoint endpoint : test.getValue().getAllEndpoints()) {
-											if (local) {
-												if (endpoint.isLocal()) {
-													list.add(endpoint);
-												}
-											} else {
+				for (HashMap<String, Strategy<ListenerEndpoint>> matching : findSubscriptions(ctx.name)) {
+					for (Map.Entry<String, Strategy<ListenerEndpoint>> test : matching.entrySet()) {
+						if (groups != null) {
+							final String testGroup = test.getKey();
+							for (String group : groups.groups()) {
+								if (group.equals(testGroup)) {
+									for (ListenerEndpoint endpoint : test.getValue().getAllEndpoints()) {
+										if (local) {
+											if (endpoint.isLocal()) {
 												list.add(endpoint);
 											}
+										} else {
+											list.add(endpoint);
 										}
 									}
 								}
-							} else {
-								if (local) {
-									for (ListenerEndpoint endpoint : test.getValue().getAllEndpoints()) {
-										if (endpoint.isLocal()) {
-											list.add(endpoint);
-										}
+							}
+						} else {
+							if (local) {
+								for (ListenerEndpoint endpoint : test.getValue().getAllEndpoints()) {
+									if (endpoint.isLocal()) {
+										list.add(endpoint);
 									}
-								} else {
-									list.addAll(test.getValue().getAllEndpoints());
 								}
+							} else {
+								list.addAll(test.getValue().getAllEndpoints());
 							}
 						}
 					}
 				}
+				endpoints = new ListenerEndpoint[list.size()];
+				list.toArray(endpoints);
+				cached = createCachedTargets(ctx.name, key);
+				if (cached != null) {
+					if (local) {
+						cached.localEndpoints = endpoints;
+					} else {
+						cached.endpoints = endpoints;
+					}
+				}
 			} finally {
 				registryReadLock.unlock();
 			}
-			endpoints = new ListenerEndpoint[list.size()];
-			list.toArray(endpoints);
-			if (local) {
-				localBroadcasterCache.put(key, endpoints);
-			} else {
-				broadcasterCache.put(key, endpoints);
-			}
 		}
 		if (endpoints.length == 0) {
 			stopStreaming(ctx);
@@ -886,6 +1154,23 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 		}
 	}
 
+	// --- FIND SUBSCRIPTIONS BY EVENT NAME ---
+
+	/**
+	 * Returns the group maps of the subscriptions which are matching with the
+	 * specified event name. Invoked under the registry's read lock.
+	 * 
+	 * @param name
+	 *            event name (eg. "user.created")
+	 * 
+	 * @return list of group maps
+	 */
+	protected ArrayList<HashMap<String, Strategy<ListenerEndpoint>>> findSubscriptions(String name) {
+		ArrayList<HashMap<String, Strategy<ListenerEndpoint>>> result = new ArrayList<>();
+		index.match(name, result);
+		return result;
+	}
+
 	protected void logUnableToInvokeListener(Throwable cause) {
 		if (cause != null && !(cause instanceof MoleculerClientError)) {
 			logger.error("Unable to invoke event listener!", cause);
@@ -958,6 +1243,14 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 		this.streamTimeout = streamTimeout;
 	}
 
+	public int getStreamMaxGap() {
+		return streamMaxGap;
+	}
+
+	public void setStreamMaxGap(int streamMaxGap) {
+		this.streamMaxGap = Math.max(1, streamMaxGap);
+	}
+
 	public int getMaxCallLevel() {
 		return maxCallLevel;
 	}
@@ -966,4 +1259,12 @@ public class DefaultEventbus extends Eventbus implements MetricConstants {
 		this.maxCallLevel = maxCallLevel;
 	}
 
+	public int getCacheSize() {
+		return cacheSize;
+	}
+
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
 }
\ No newline at end of file
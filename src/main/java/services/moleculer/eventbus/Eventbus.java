@@ -57,6 +57,10 @@ public abstract class Eventbus extends MoleculerComponent {
 
 	public abstract void removeListeners(String nodeID);
 
+	// --- REMOVE LISTENERS OF A REMOTE SERVICE ---
+
+	public abstract void removeListeners(String nodeID, Tree config);
+
 	// --- SEND EVENT TO ONE LISTENER IN THE SPECIFIED GROUP ---
 
 	public abstract void emit(Context ctx, Groups groups, boolean local);
@@ -0,0 +1,463 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.eventbus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Segment trie of event subscriptions (eg. "user.created", "user.*",
+ * "$node.**", "a?c"). Literal segments, single-segment wildcards ("*") and
+ * multi-segment wildcards ("**") are nodes of the trie. Only the segments with
+ * other wildcards (eg. "a?c", "user*") are evaluated by the {@link Matcher}:
+ * the rest of the pattern, starting from such a segment, is stored in the
+ * previous node. Therefore a lookup costs O(segments of the event name) per
+ * matching "*" / "**" branch, instead of O(number of subscriptions). This
+ * class is not thread-safe.
+ *
+ * @param <V>
+ *            type of the subscribed values
+ */
+public class SubscriptionIndex<V> {
+
+	// --- WILDCARD SEGMENTS ---
+
+	/**
+	 * Matches exactly one segment
+	 */
+	protected static final String STAR = "*";
+
+	/**
+	 * Matches one or more segments
+	 */
+	protected static final String GLOBSTAR = "**";
+
+	// --- ROOT NODE ---
+
+	protected final Node<V> root = new Node<>();
+
+	// --- NUMBER OF PATTERNS ---
+
+	protected int size;
+
+	// --- ADD PATTERN ---
+
+	/**
+	 * Adds (or replaces) a subscription.
+	 * 
+	 * @param pattern
+	 *            event name or mask (eg. "user.*")
+	 * @param value
+	 *            subscribed value
+	 * 
+	 * @return previous value of the pattern (or null)
+	 */
+	public V put(String pattern, V value) {
+		Node<V> node = root;
+		int start = 0;
+		for (;;) {
+			int dot = pattern.indexOf('.', start);
+			String segment = dot == -1 ? pattern.substring(start) : pattern.substring(start, dot);
+			if (!isIndexed(segment)) {
+				if (node.wildcards == null) {
+					node.wildcards = new LinkedHashMap<>();
+				}
+				V previous = node.wildcards.put(pattern.substring(start), value);
+				if (previous == null) {
+					size++;
+				}
+				return previous;
+			}
+			Node<V> child = node.getChild(segment);
+			if (child == null) {
+				child = node.addChild(segment);
+			}
+			node = child;
+			if (dot == -1) {
+				V previous = node.value;
+				node.value = value;
+				node.key = pattern;
+				if (previous == null) {
+					size++;
+				}
+				return previous;
+			}
+			start = dot + 1;
+		}
+	}
+
+	// --- GET PATTERN ---
+
+	/**
+	 * Returns the value of a subscription.
+	 * 
+	 * @param pattern
+	 *            event name or mask (eg. "user.*")
+	 * 
+	 * @return value of the pattern (or null)
+	 */
+	public V get(String pattern) {
+		Node<V> node = root;
+		int start = 0;
+		for (;;) {
+			int dot = pattern.indexOf('.', start);
+			String segment = dot == -1 ? pattern.substring(start) : pattern.substring(start, dot);
+			if (!isIndexed(segment)) {
+				return node.wildcards == null ? null : node.wildcards.get(pattern.substring(start));
+			}
+			node = node.getChild(segment);
+			if (node == null) {
+				return null;
+			}
+			if (dot == -1) {
+				return node.value;
+			}
+			start = dot + 1;
+		}
+	}
+
+	// --- REMOVE PATTERN ---
+
+	/**
+	 * Removes a subscription (and the unused nodes of the trie).
+	 * 
+	 * @param pattern
+	 *            event name or mask (eg. "user.*")
+	 * 
+	 * @return the removed value (or null)
+	 */
+	public V remove(String pattern) {
+		V removed = remove(root, pattern, 0);
+		if (removed != null) {
+			size--;
+		}
+		return removed;
+	}
+
+	protected V remove(Node<V> node, String pattern, int start) {
+		int dot = pattern.indexOf('.', start);
+		String segment = dot == -1 ? pattern.substring(start) : pattern.substring(start, dot);
+		if (!isIndexed(segment)) {
+			if (node.wildcards == null) {
+				return null;
+			}
+			V removed = node.wildcards.remove(pattern.substring(start));
+			if (node.wildcards.isEmpty()) {
+				node.wildcards = null;
+			}
+			return removed;
+		}
+		Node<V> child = node.getChild(segment);
+		if (child == null) {
+			return null;
+		}
+		V removed;
+		if (dot == -1) {
+			removed = child.value;
+			child.value = null;
+			child.key = null;
+		} else {
+			removed = remove(child, pattern, dot + 1);
+		}
+		if (child.isEmpty()) {
+			node.removeChild(segment);
+		}
+		return removed;
+	}
+
+	// --- FIND SUBSCRIPTIONS ---
+
+	/**
+	 * Collects the values of the patterns that match the specified event name.
+	 * Each matching value is added once.
+	 * 
+	 * @param name
+	 *            event name (eg. "user.created")
+	 * @param result
+	 *            output collection
+	 */
+	public void match(String name, Collection<V> result) {
+		ArrayList<V> found = new ArrayList<>();
+		match(root, name, 0, found);
+
+		// A pattern with more "**" segments can match in more ways
+		for (int i = 0; i < found.size(); i++) {
+			V value = found.get(i);
+			boolean duplicated = false;
+			for (int j = 0; j < i; j++) {
+				if (found.get(j) == value) {
+					duplicated = true;
+					break;
+				}
+			}
+			if (!duplicated) {
+				result.add(value);
+			}
+		}
+	}
+
+	protected void match(Node<V> node, String name, int start, Collection<V> found) {
+
+		// Patterns with other wildcards (eg. "a?c.created")
+		if (node.wildcards != null) {
+			String rest = start == 0 ? name : name.substring(start);
+			for (Map.Entry<String, V> entry : node.wildcards.entrySet()) {
+				if (Matcher.matches(rest, entry.getKey())) {
+					found.add(entry.getValue());
+				}
+			}
+		}
+
+		// Next literal segment
+		int dot = name.indexOf('.', start);
+		if (node.children != null) {
+			Node<V> child = node.children.get(dot == -1 ? name.substring(start) : name.substring(start, dot));
+			if (child != null) {
+				matchNext(child, name, dot, found);
+			}
+		}
+
+		// One segment ("*")
+		if (node.star != null) {
+			matchNext(node.star, name, dot, found);
+		}
+
+		// One or more segments ("**")
+		if (node.globstar != null) {
+			for (int end = dot;; end = name.indexOf('.', end + 1)) {
+				matchNext(node.globstar, name, end, found);
+				if (end == -1) {
+					break;
+				}
+			}
+		}
+	}
+
+	protected void matchNext(Node<V> node, String name, int dot, Collection<V> found) {
+		if (dot == -1) {
+			if (node.value != null) {
+				found.add(node.value);
+			}
+		} else {
+			match(node, name, dot + 1, found);
+		}
+	}
+
+	// --- FIND PATTERNS BY MASK ---
+
+	/**
+	 * Reverse lookup: collects the values of the stored event names (patterns
+	 * without wildcards) that are matched by the specified mask, using the
+	 * same rules as the {@link #match(String, Collection)} method. The result
+	 * may contain the same value more than once.
+	 * 
+	 * @param mask
+	 *            event name or mask (eg. "user.*")
+	 * @param result
+	 *            output collection
+	 */
+	public void collect(String mask, Collection<V> result) {
+		collect(root, mask, 0, 0, result);
+	}
+
+	protected void collect(Node<V> node, String mask, int start, int depth, Collection<V> result) {
+		if (node.children == null) {
+			return;
+		}
+		int dot = mask.indexOf('.', start);
+		String segment = dot == -1 ? mask.substring(start) : mask.substring(start, dot);
+		if (STAR.equals(segment)) {
+			for (Node<V> child : node.children.values()) {
+				collectNext(child, mask, dot, depth + 1, result);
+			}
+		} else if (GLOBSTAR.equals(segment)) {
+			collectGlobstar(node, mask, dot, depth, result);
+		} else if (isIndexed(segment)) {
+			Node<V> child = node.children.get(segment);
+			if (child != null) {
+				collectNext(child, mask, dot, depth + 1, result);
+			}
+		} else {
+			collectMatching(node, mask.substring(start), depth, result);
+		}
+	}
+
+	protected void collectNext(Node<V> node, String mask, int dot, int depth, Collection<V> result) {
+		if (dot == -1) {
+			if (node.value != null) {
+				result.add(node.value);
+			}
+		} else {
+			collect(node, mask, dot + 1, depth, result);
+		}
+	}
+
+	protected void collectGlobstar(Node<V> node, String mask, int dot, int depth, Collection<V> result) {
+		for (Node<V> child : node.children.values()) {
+			collectNext(child, mask, dot, depth + 1, result);
+			if (child.children != null) {
+				collectGlobstar(child, mask, dot, depth + 1, result);
+			}
+		}
+	}
+
+	protected void collectMatching(Node<V> node, String rest, int depth, Collection<V> result) {
+		for (Node<V> child : node.children.values()) {
+			if (child.value != null) {
+				int start = 0;
+				for (int i = 0; i < depth; i++) {
+					start = child.key.indexOf('.', start) + 1;
+				}
+				if (Matcher.matches(child.key.substring(start), rest)) {
+					result.add(child.value);
+				}
+			}
+			if (child.children != null) {
+				collectMatching(child, rest, depth, result);
+			}
+		}
+	}
+
+	// --- OTHER METHODS ---
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		root.children = null;
+		root.star = null;
+		root.globstar = null;
+		root.wildcards = null;
+		root.value = null;
+		root.key = null;
+		size = 0;
+	}
+
+	/**
+	 * Literal segments and the "*" / "**" wildcards are stored as nodes of
+	 * the trie.
+	 */
+	protected static boolean isIndexed(String segment) {
+		return STAR.equals(segment) || GLOBSTAR.equals(segment) || isLiteral(segment);
+	}
+
+	protected static boolean isLiteral(String segment) {
+		for (int i = 0; i < segment.length(); i++) {
+			char c = segment.charAt(i);
+			if (c == '*' || c == '?' || c == '\\' || c == '^' || c == '[') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// --- NODE OF THE TRIE ---
+
+	protected static final class Node<V> {
+
+		/**
+		 * Child nodes by literal segment
+		 */
+		protected HashMap<String, Node<V>> children;
+
+		/**
+		 * Child node of the "*" segment
+		 */
+		protected Node<V> star;
+
+		/**
+		 * Child node of the "**" segment
+		 */
+		protected Node<V> globstar;
+
+		/**
+		 * Remaining patterns with other wildcards (eg. "a?c.created")
+		 */
+		protected LinkedHashMap<String, V> wildcards;
+
+		/**
+		 * Value of the pattern that ends at this node
+		 */
+		protected V value;
+
+		/**
+		 * The pattern that ends at this node
+		 */
+		protected String key;
+
+		protected Node<V> getChild(String segment) {
+			if (STAR.equals(segment)) {
+				return star;
+			}
+			if (GLOBSTAR.equals(segment)) {
+				return globstar;
+			}
+			return children == null ? null : children.get(segment);
+		}
+
+		protected Node<V> addChild(String segment) {
+			Node<V> child = new Node<>();
+			if (STAR.equals(segment)) {
+				star = child;
+			} else if (GLOBSTAR.equals(segment)) {
+				globstar = child;
+			} else {
+				if (children == null) {
+					children = new HashMap<>();
+				}
+				children.put(segment, child);
+			}
+			return child;
+		}
+
+		protected void removeChild(String segment) {
+			if (STAR.equals(segment)) {
+				star = null;
+			} else if (GLOBSTAR.equals(segment)) {
+				globstar = null;
+			} else if (children != null) {
+				children.remove(segment);
+				if (children.isEmpty()) {
+					children = null;
+				}
+			}
+		}
+
+		protected boolean isEmpty() {
+			return children == null && star == null && globstar == null && wildcards == null && value == null;
+		}
+
+	}
+
+}
\ No newline at end of file
@@ -34,12 +34,15 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
 
 import io.datatree.Tree;
 import services.moleculer.ServiceBroker;
 import services.moleculer.config.ServiceBrokerConfig;
 import services.moleculer.context.Context;
+import services.moleculer.metrics.LatencySnapshot;
+import services.moleculer.metrics.Metrics;
 import services.moleculer.monitor.Monitor;
 import services.moleculer.service.Action;
 import services.moleculer.service.Name;
@@ -65,6 +68,7 @@ public class NodeService extends Service {
 
 	protected Transporter transporter;
 	protected Monitor monitor;
+	protected Metrics metrics;
 
 	// --- ACTIONS ---
 
@@ -443,6 +447,54 @@ public class NodeService extends Service {
 		return list;
 	};
 
+	/**
+	 * Implementation of the "$node.latency" action. Returns the latency
+	 * histograms (of the last closed interval) of the local actions and the
+	 * remote nodes, in MILLISECONDS.
+	 */
+	public Action latency = (ctx) -> {
+
+		// Create response structure
+		Tree root = new Tree();
+		root.put("enabled", metrics != null);
+		if (metrics != null) {
+
+			// Parse input parameters
+			String type = ctx == null || ctx.params == null ? null : ctx.params.get("type", (String) null);
+
+			// Collect data
+			if (type == null || Metrics.LATENCY_ACTION.equals(type)) {
+				putLatencies(root.putMap("actions"), metrics.getLatencies(Metrics.LATENCY_ACTION));
+			}
+			if (type == null || Metrics.LATENCY_NODE.equals(type)) {
+				putLatencies(root.putMap("nodes"), metrics.getLatencies(Metrics.LATENCY_NODE));
+			}
+		}
+		return root;
+	};
+
+	protected void putLatencies(Tree target, Map<String, LatencySnapshot> snapshots) {
+		for (Map.Entry<String, LatencySnapshot> entry : snapshots.entrySet()) {
+			LatencySnapshot snapshot = entry.getValue();
+			Tree map = target.putMap(entry.getKey());
+			map.put("startTime", snapshot.getStartTime());
+			map.put("endTime", snapshot.getEndTime());
+			map.put("count", snapshot.getCount());
+			map.put("min", toMillis(snapshot.getMin()));
+			map.put("mean", toMillis(snapshot.getMean()));
+			map.put("max", toMillis(snapshot.getMax()));
+			map.put("p50", toMillis(snapshot.getP50()));
+			map.put("p90", toMillis(snapshot.getP90()));
+			map.put("p95", toMillis(snapshot.getP95()));
+			map.put("p99", toMillis(snapshot.getP99()));
+			map.put("p999", toMillis(snapshot.getP999()));
+		}
+	}
+
+	protected double toMillis(double nanos) {
+		return Math.round(nanos / 1000d) / 1000d;
+	}
+
 	// --- START SERVICE ---
 
 	@Override
@@ -453,6 +505,9 @@ public class NodeService extends Service {
 		ServiceBrokerConfig cfg = broker.getConfig();
 		this.transporter = cfg.getTransporter();
 		this.monitor = cfg.getMonitor();
+		if (cfg.isMetricsEnabled()) {
+			this.metrics = cfg.getMetrics();
+		}
 
 		// Set local nodeID
 		this.localNodeID = broker.getNodeID();
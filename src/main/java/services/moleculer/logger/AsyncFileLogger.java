@@ -29,6 +29,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -38,6 +46,9 @@ import java.util.StringTokenizer;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -62,7 +73,22 @@ import java.util.zip.ZipOutputStream;
  * services.moleculer.logger.AsyncFileLogger.deleteAfter = 365 days<br>
  * services.moleculer.logger.AsyncFileLogger.logToConsole = true<br>
  * services.moleculer.logger.AsyncFileLogger.level = INFO<br>
- * .level = INFO
+ * services.moleculer.logger.AsyncFileLogger.bufferSize = 8192<br>
+ * services.moleculer.logger.AsyncFileLogger.overflow = block<br>
+ * services.moleculer.logger.AsyncFileLogger.fsyncInterval = 0<br>
+ * .level = INFO<br>
+ * <br>
+ * The log records are collected in a bounded, lock-free ring buffer. When the
+ * buffer is full, the "overflow" policy decides what happens:
+ * <ul>
+ * <li>block: the logging thread waits for free space (no records are lost)
+ * <li>dropDebug: records below INFO level are dropped when the buffer is 3/4
+ * full, other records are waiting for free space
+ * <li>drop: records are dropped and counted
+ * </ul>
+ * The number of dropped records is written into the log. The "fsyncInterval"
+ * (in milliseconds) forces the log file to the storage device at most once per
+ * interval (0 = leave it to the operating system).
  */
 public class AsyncFileLogger extends Handler implements Runnable {
 
@@ -80,11 +106,38 @@ public class AsyncFileLogger extends Handler implements Runnable {
 	protected String fileEncoding;
 	protected boolean enableColors = true;
 
+	protected int bufferSize = 8192;
+	protected int overflow = OVERFLOW_BLOCK;
+	protected long fsyncInterval;
+
 	protected static final long DAY = 1000L * 60 * 60 * 24;
 
+	// --- OVERFLOW POLICIES ---
+
+	protected static final int OVERFLOW_BLOCK = 0;
+	protected static final int OVERFLOW_DROP_DEBUG = 1;
+	protected static final int OVERFLOW_DROP = 2;
+
 	// --- LOG EVENT QUEUE ---
 
-	protected final LinkedList<LogRecord> messages = new LinkedList<>();
+	protected LogRingBuffer messages;
+
+	protected int highWaterMark;
+
+	protected final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Maximum number of records per write.
+	 */
+	protected static final int MAX_BATCH_SIZE = 1024;
+
+	// --- WRITER THREAD ---
+
+	protected volatile Thread writer;
+
+	protected volatile boolean waiting;
+
+	protected volatile boolean closed;
 
 	// --- LOG DIRECTORY ---
 
@@ -93,7 +146,13 @@ public class AsyncFileLogger extends Handler implements Runnable {
 	// --- LOG FILE ---
 
 	protected String openedFile = "";
-	protected FileOutputStream openedStream;
+	protected FileChannel openedChannel;
+	protected long lastSync;
+
+	// --- ENCODER ---
+
+	protected CharsetEncoder encoder;
+	protected ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
 
 	// --- OTHER VARIABLES ---
 
@@ -149,55 +208,112 @@ public class AsyncFileLogger extends Handler implements Runnable {
 		if (!isLoggable(record)) {
 			return;
 		}
-		synchronized (messages) {
-			messages.addLast(record);
-			messages.notifyAll();
+
+		// Drop debug messages when the buffer is almost full
+		if (overflow == OVERFLOW_DROP_DEBUG && record.getLevel().intValue() < Level.INFO.intValue()
+				&& messages.size() >= highWaterMark) {
+			dropped.incrementAndGet();
+			return;
+		}
+
+		// Add to ring buffer
+		while (!messages.offer(record)) {
+			if (overflow == OVERFLOW_DROP || closed || Thread.currentThread() == writer) {
+				dropped.incrementAndGet();
+				return;
+			}
+
+			// Buffer is full -> wake up the writer, and wait for free space
+			wakeUp();
+			LockSupport.parkNanos(100000L);
+		}
+
+		// Notify the writer (only if it's sleeping)
+		if (waiting) {
+			wakeUp();
+		}
+	}
+
+	protected void wakeUp() {
+		Thread thread = writer;
+		if (thread != null) {
+			LockSupport.unpark(thread);
 		}
 	}
 
 	public void run() {
+		writer = Thread.currentThread();
 		LinkedList<LogRecord> records = new LinkedList<>();
-		try {
-			Formatter formatter = getFormatter();
-			StringBuilder lines = new StringBuilder(512);
-			while (true) {
+		StringBuilder lines = new StringBuilder(512);
+		while (!closed) {
+			try {
 
 				// Get next records
-				synchronized (messages) {
-					while (messages.isEmpty()) {
-						messages.wait(15000);
+				if (messages.drainTo(records, MAX_BATCH_SIZE) == 0 && dropped.get() == 0) {
+
+					// Waiting for other log records
+					waiting = true;
+					if (messages.isEmpty() && !closed) {
+						LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
 					}
-					records.addAll(messages);
-					messages.clear();
+					waiting = false;
+					syncFile(false);
+					continue;
 				}
 
 				// Write records to console and/or file
-				writeLines(records, lines, formatter);
+				writeLines(records, lines, getFormatter());
 
-				// Waiting for other log records
-				Thread.sleep(400);
+			} catch (Exception e) {
+				records.clear();
+				e.printStackTrace();
 			}
-		} catch (InterruptedException interrupt) {
-			return;
-		} catch (Exception e) {
-			records.clear();
-			e.printStackTrace();
 		}
+
+		// Write rest of the log (the encoder, the buffer and the file are used
+		// only by the writer thread)
+		while (messages.drainTo(records, MAX_BATCH_SIZE) > 0 || dropped.get() > 0) {
+			try {
+				writeLines(records, lines, getFormatter());
+			} catch (Exception ignored) {
+				records.clear();
+			}
+		}
+
+		// Close stream
+		closeStream();
 	}
 
 	protected void writeLines(LinkedList<LogRecord> records, StringBuilder lines, Formatter formatter)
 			throws Exception {
 		try {
+
+			// Report dropped records
+			long lost = dropped.getAndSet(0);
+			if (lost > 0) {
+				LogRecord record = new LogRecord(Level.WARNING,
+						lost + " log records dropped (the log buffer was full).");
+				record.setSourceClassName(AsyncFileLogger.class.getName());
+				records.addFirst(record);
+			}
+
+			// Format records (on the writer thread)
 			lines.setLength(0);
-			for (LogRecord record : records) {
-				lines.append(formatter.format(record));
+			if (formatter instanceof FastLogFormatter) {
+				FastLogFormatter fastFormatter = (FastLogFormatter) formatter;
+				for (LogRecord record : records) {
+					fastFormatter.format(record, lines);
+				}
+			} else {
+				for (LogRecord record : records) {
+					lines.append(formatter.format(record));
+				}
 			}
-			String packet = lines.toString();
 
 			// Write records to log file
 			if (logDirectory != null) {
 				String date = FILE_FORMAT.format(new Date());
-				appendToFile(prefix + date + ".log", packet.getBytes(fileEncoding));
+				appendToFile(prefix + date + ".log", encode(lines));
 			}
 
 			// Write records to console
@@ -209,33 +325,93 @@ public class AsyncFileLogger extends Handler implements Runnable {
 		}
 	}
 
-	protected void appendToFile(String fileName, byte[] bytes) {
+	/**
+	 * Encodes the characters into the (reusable) output buffer.
+	 * 
+	 * @param chars
+	 *            formatted log records
+	 * 
+	 * @return output buffer (ready to write)
+	 */
+	protected ByteBuffer encode(CharSequence chars) throws Exception {
+		CharBuffer in = CharBuffer.wrap(chars);
+		encoder.reset();
+		buffer.clear();
+		CoderResult result;
+		while (true) {
+			result = in.hasRemaining() ? encoder.encode(in, buffer, true) : CoderResult.UNDERFLOW;
+			if (result.isUnderflow()) {
+				result = encoder.flush(buffer);
+				if (result.isUnderflow()) {
+					break;
+				}
+			}
+			if (result.isOverflow()) {
+				ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			} else {
+				result.throwException();
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	protected void appendToFile(String fileName, ByteBuffer bytes) {
 		try {
 			if (!openedFile.equals(fileName)) {
 				closeStream();
 				File file = new File(logDirectory, fileName);
-				openedStream = new FileOutputStream(file, true);
+				openedChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.APPEND);
 				openedFile = fileName;
 				boolean cleanup = !file.isFile();
 				if (cleanup) {
 					compressOrDeleteOldFiles();
 				}
 			}
-			openedStream.write(bytes);
-			openedStream.flush();
+			while (bytes.hasRemaining()) {
+				openedChannel.write(bytes);
+			}
+			syncFile(false);
 		} catch (Exception e) {
 			closeStream();
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Forces the written records to the storage device (at most once per
+	 * "fsyncInterval").
+	 * 
+	 * @param force
+	 *            ignore the interval
+	 */
+	protected void syncFile(boolean force) {
+		if (fsyncInterval < 1 || openedChannel == null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		if (force || now - lastSync >= fsyncInterval) {
+			lastSync = now;
+			try {
+				openedChannel.force(false);
+			} catch (Exception ignored) {
+			}
+		}
+	}
+
 	protected void closeStream() {
-		if (openedStream != null) {
+		if (openedChannel != null) {
+			syncFile(true);
 			openedFile = "";
 			try {
-				openedStream.close();
+				openedChannel.close();
 			} catch (Exception ignored) {
 			}
+			openedChannel = null;
 		}
 	}
 
@@ -326,29 +502,22 @@ public class AsyncFileLogger extends Handler implements Runnable {
 	@Override
 	public void close() throws SecurityException {
 
-		// Stop executor
+		// Stop executor (the writer thread writes the rest of the log, and
+		// closes the file)
+		closed = true;
 		if (executor != null) {
 			executor.shutdown();
-			executor = null;
-		}
-
-		// Write rest of the log
-		LinkedList<LogRecord> records = new LinkedList<>();
-		synchronized (messages) {
-			if (!messages.isEmpty()) {
-				records.addAll(messages);
-				messages.clear();
-			}
-		}
-		if (!records.isEmpty()) {
+			wakeUp();
 			try {
-				writeLines(records, new StringBuilder(), getFormatter());
-			} catch (Exception ignored) {
+				if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+					System.err.println("The asynchronous log writer is still running, "
+							+ "the rest of the log is written in the background.");
+				}
+			} catch (InterruptedException interrupted) {
+				Thread.currentThread().interrupt();
 			}
+			executor = null;
 		}
-
-		// Close stream
-		closeStream();
 	}
 
 	// --- CONFIGURATION ---
@@ -469,6 +638,29 @@ public class AsyncFileLogger extends Handler implements Runnable {
 
 		// Set file encoding
 		fileEncoding = getProperty(className + ".encoding", "UTF8");
+		encoder = Charset.forName(fileEncoding).newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+		// Create ring buffer
+		bufferSize = Integer.parseInt(getProperty(className + ".bufferSize", Integer.toString(bufferSize)));
+		messages = new LogRingBuffer(bufferSize);
+		highWaterMark = messages.capacity() / 4 * 3;
+
+		// Set overflow policy
+		String policy = getProperty(className + ".overflow", "block");
+		if ("block".equalsIgnoreCase(policy)) {
+			overflow = OVERFLOW_BLOCK;
+		} else if ("dropDebug".equalsIgnoreCase(policy)) {
+			overflow = OVERFLOW_DROP_DEBUG;
+		} else if ("drop".equalsIgnoreCase(policy)) {
+			overflow = OVERFLOW_DROP;
+		} else {
+			throw new IllegalArgumentException(
+					"The \"overflow\" must be \"block\", \"dropDebug\" or \"drop\" (not \"" + policy + "\")!");
+		}
+
+		// Set fsync interval
+		fsyncInterval = Long.parseLong(getProperty(className + ".fsyncInterval", "0"));
 
 		// Log to console
 		logToConsole = Boolean.parseBoolean(getProperty(className + ".logToConsole", "false"));
@@ -63,6 +63,21 @@ public class FastLogFormatter extends Formatter {
 
 	public String format(LogRecord record) {
 		line.setLength(0);
+		format(record, line);
+		return line.toString();
+	}
+
+	/**
+	 * Appends the formatted record to the specified buffer (without creating
+	 * temporary Strings).
+	 * 
+	 * @param record
+	 *            log record
+	 * @param line
+	 *            target buffer
+	 */
+	public void format(LogRecord record, StringBuilder line) {
+		final int start = line.length();
 		line.append('[');
 		line.append(Instant.ofEpochMilli(record.getMillis()).toString());
 
@@ -95,7 +110,7 @@ public class FastLogFormatter extends Formatter {
 			}
 		}
 		line.append(className);
-		n = line.length();
+		n = line.length() - start;
 		if (n > position || position - n > 30) {
 			position = n;
 		}
@@ -140,7 +155,6 @@ public class FastLogFormatter extends Formatter {
 				}
 			}
 		}
-		return line.toString();
 	}
 
 	protected int appendMessages(StringBuilder errors, Throwable t) {
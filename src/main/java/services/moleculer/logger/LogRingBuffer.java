@@ -0,0 +1,147 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.logger;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.LogRecord;
+
+/**
+ * Bounded, lock-free, multi-producer / single-consumer ring buffer of the
+ * AsyncFileLogger. Producers claim a slot with a CAS on the producer index,
+ * then publish the record into the slot. Only the log writer thread may
+ * remove records.
+ */
+public class LogRingBuffer {
+
+	// --- VARIABLES ---
+
+	protected final AtomicReferenceArray<LogRecord> slots;
+
+	protected final int capacity;
+
+	protected final int mask;
+
+	protected final AtomicLong producerIndex = new AtomicLong();
+
+	protected final AtomicLong consumerIndex = new AtomicLong();
+
+	// --- CONSTRUCTOR ---
+
+	/**
+	 * @param size
+	 *            maximum number of records (rounded up to the next power of
+	 *            two)
+	 */
+	public LogRingBuffer(int size) {
+		int capacity = 2;
+		while (capacity < size && capacity < (1 << 30)) {
+			capacity <<= 1;
+		}
+		this.capacity = capacity;
+		this.mask = capacity - 1;
+		this.slots = new AtomicReferenceArray<>(capacity);
+	}
+
+	// --- ADD RECORD (ANY THREAD) ---
+
+	/**
+	 * Inserts a record into the buffer.
+	 * 
+	 * @param record
+	 *            log record
+	 * 
+	 * @return true if the record was added, false if the buffer is full
+	 */
+	public boolean offer(LogRecord record) {
+		long index;
+		while (true) {
+			index = producerIndex.get();
+			if (index - consumerIndex.get() >= capacity) {
+				return false;
+			}
+			if (producerIndex.compareAndSet(index, index + 1)) {
+				break;
+			}
+		}
+		slots.lazySet((int) (index & mask), record);
+		return true;
+	}
+
+	// --- REMOVE RECORDS (WRITER THREAD ONLY) ---
+
+	/**
+	 * Moves records from the buffer into the specified collection.
+	 * 
+	 * @param target
+	 *            target collection
+	 * @param limit
+	 *            maximum number of records to remove
+	 * 
+	 * @return number of removed records
+	 */
+	public int drainTo(Collection<LogRecord> target, int limit) {
+		long index = consumerIndex.get();
+		int count = 0;
+		while (count < limit) {
+			int slot = (int) (index & mask);
+			LogRecord record = slots.get(slot);
+			if (record == null) {
+				if (index >= producerIndex.get()) {
+
+					// Buffer is empty
+					break;
+				}
+
+				// Slot is claimed, but the record is not published yet
+				Thread.yield();
+				continue;
+			}
+			slots.lazySet(slot, null);
+			consumerIndex.lazySet(++index);
+			target.add(record);
+			count++;
+		}
+		return count;
+	}
+
+	// --- PROPERTY GETTERS ---
+
+	public int size() {
+		long size = producerIndex.get() - consumerIndex.get();
+		return (int) Math.max(0, Math.min(capacity, size));
+	}
+
+	public boolean isEmpty() {
+		return producerIndex.get() == consumerIndex.get();
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+}
@@ -27,7 +27,12 @@ package services.moleculer.metrics;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -53,6 +58,7 @@ import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
 import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
 import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import services.moleculer.ServiceBroker;
+import services.moleculer.config.ServiceBrokerConfig;
 import services.moleculer.service.Name;
 import services.moleculer.util.CommonUtils;
 
@@ -71,6 +77,10 @@ public class DefaultMetrics extends CompositeMeterRegistry implements Metrics {
 
 	protected DropwizardReporters reporters;
 
+	protected final ConcurrentHashMap<String, ConcurrentHashMap<String, LatencyRecorder>> latencies = new ConcurrentHashMap<>();
+
+	protected ScheduledFuture<?> latencyTimer;
+
 	// --- LOCKS ---
 
 	protected final ReadLock readLock;
@@ -87,6 +97,16 @@ public class DefaultMetrics extends CompositeMeterRegistry implements Metrics {
 
 	protected double[] percentiles = { 0.75, 0.95, 0.98, 0.99, 0.999 };
 
+	/**
+	 * Length of the intervals of the latency histograms, in SECONDS.
+	 */
+	protected int latencyInterval = 10;
+
+	/**
+	 * Number of significant decimal digits of the latency histograms (0...5).
+	 */
+	protected int latencyPrecision = 2;
+
 	// --- CONSTRUCTORS ---
 
 	public DefaultMetrics() {
@@ -110,6 +130,14 @@ public class DefaultMetrics extends CompositeMeterRegistry implements Metrics {
 
 	@Override
 	public void started(ServiceBroker broker) throws Exception {
+
+		// Start interval swapping of the latency histograms
+		ServiceBrokerConfig cfg = broker.getConfig();
+		ScheduledExecutorService scheduler = cfg.getScheduler();
+		if (cfg.isMetricsEnabled() && scheduler != null && latencyTimer == null) {
+			latencyTimer = scheduler.scheduleAtFixedRate(this::rotateLatencies, latencyInterval, latencyInterval,
+					TimeUnit.SECONDS);
+		}
 	}
 
 	// --- METRIC REGISTRY FUNCTIONS ---
@@ -142,19 +170,80 @@ public class DefaultMetrics extends CompositeMeterRegistry implements Metrics {
 
 	@Override
 	public StoppableTimer timer(String name, String description, Duration duration, String... tags) {
-		Timer timer = Timer.builder(name).description(description).tags(tags)
-				.publishPercentileHistogram(publishPercentileHistogram).percentilePrecision(percentilePrecision)
-				.distributionStatisticBufferLength(distributionStatisticBufferLength)
-				.distributionStatisticExpiry(duration).publishPercentiles(percentiles).register(this);
+		MetricTimer timer = recorder(name, description, duration, tags);
 		long start = System.nanoTime();
 		AtomicBoolean submitted = new AtomicBoolean();
 		return () -> {
 			if (submitted.compareAndSet(false, true)) {
-				timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				timer.record(System.nanoTime() - start);
 			}
 		};
 	}
 
+	@Override
+	public MetricTimer recorder(String name, String description, Duration duration, String... tags) {
+		Timer timer = getMetric(name, tags, () -> {
+			return Timer.builder(name).description(description).tags(tags)
+					.publishPercentileHistogram(publishPercentileHistogram).percentilePrecision(percentilePrecision)
+					.distributionStatisticBufferLength(distributionStatisticBufferLength)
+					.distributionStatisticExpiry(duration).publishPercentiles(percentiles).register(this);
+		});
+		return nanos -> {
+			timer.record(nanos, TimeUnit.NANOSECONDS);
+		};
+	}
+
+	// --- LATENCY HISTOGRAMS ---
+
+	@Override
+	public LatencyRecorder latency(String type, String key) {
+		ConcurrentHashMap<String, LatencyRecorder> recorders = latencies.get(type);
+		if (recorders == null) {
+			recorders = latencies.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+		}
+		LatencyRecorder recorder = recorders.get(key);
+		if (recorder == null) {
+			recorder = recorders.computeIfAbsent(key, k -> new LatencyRecorder(latencyPrecision));
+		}
+		return recorder;
+	}
+
+	@Override
+	public void removeLatency(String type, String key) {
+		ConcurrentHashMap<String, LatencyRecorder> recorders = latencies.get(type);
+		if (recorders != null) {
+			recorders.remove(key);
+		}
+	}
+
+	@Override
+	public Map<String, LatencySnapshot> getLatencies(String type) {
+		LinkedHashMap<String, LatencySnapshot> snapshots = new LinkedHashMap<>();
+		ConcurrentHashMap<String, LatencyRecorder> recorders = latencies.get(type);
+		if (recorders != null) {
+			for (Map.Entry<String, LatencyRecorder> entry : recorders.entrySet()) {
+				snapshots.put(entry.getKey(), entry.getValue().getSnapshot());
+			}
+		}
+		return snapshots;
+	}
+
+	/**
+	 * Closes the current interval of all latency histograms (invoked
+	 * periodically by the scheduler).
+	 */
+	protected void rotateLatencies() {
+		try {
+			for (ConcurrentHashMap<String, LatencyRecorder> recorders : latencies.values()) {
+				for (LatencyRecorder recorder : recorders.values()) {
+					recorder.rotate();
+				}
+			}
+		} catch (Exception cause) {
+			logger.warn("Unable to swap latency histograms!", cause);
+		}
+	}
+
 	// --- METRIC REGISTRY ---
 
 	@SuppressWarnings("unchecked")
@@ -349,6 +438,10 @@ public class DefaultMetrics extends CompositeMeterRegistry implements Metrics {
 
 	@Override
 	public void stopped() {
+		if (latencyTimer != null) {
+			latencyTimer.cancel(false);
+			latencyTimer = null;
+		}
 		try {
 			this.close();
 		} catch (Exception ignored) {
@@ -408,4 +501,20 @@ public class DefaultMetrics extends CompositeMeterRegistry implements Metrics {
 		this.percentiles = percentiles;
 	}
 
+	public int getLatencyInterval() {
+		return latencyInterval;
+	}
+
+	public void setLatencyInterval(int latencyInterval) {
+		this.latencyInterval = Math.max(1, latencyInterval);
+	}
+
+	public int getLatencyPrecision() {
+		return latencyPrecision;
+	}
+
+	public void setLatencyPrecision(int latencyPrecision) {
+		this.latencyPrecision = Math.min(5, Math.max(0, latencyPrecision));
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Lock-free latency histogram with interval swapping. Writers record into the
+ * active (wait-free) HdrHistogram; the {@link #rotate()} method swaps the
+ * active histogram with an inactive one, and publishes the statistics of the
+ * finished interval as an immutable {@link LatencySnapshot}. Readers (eg. the
+ * "$node.latency" action or a load-balancing Strategy) never swap intervals,
+ * they just read the last published snapshot.
+ */
+public class LatencyRecorder implements MetricTimer {
+
+	// --- DISABLED RECORDER ---
+
+	/**
+	 * Recorder that ignores all recorded values (its snapshot is always empty).
+	 */
+	public static final LatencyRecorder NOOP = new LatencyRecorder(0) {
+
+		@Override
+		public void record(long nanos) {
+		}
+
+		@Override
+		public LatencySnapshot rotate() {
+			return LatencySnapshot.EMPTY;
+		}
+
+	};
+
+	// --- VARIABLES ---
+
+	protected final Recorder recorder;
+
+	/**
+	 * Histogram of the previous interval (reused by the next swap; accessed
+	 * only by the rotating thread).
+	 */
+	protected Histogram recycled;
+
+	protected volatile LatencySnapshot snapshot = LatencySnapshot.EMPTY;
+
+	// --- CONSTRUCTOR ---
+
+	/**
+	 * @param significantDigits
+	 *            number of significant decimal digits of the recorded values
+	 *            (0...5)
+	 */
+	public LatencyRecorder(int significantDigits) {
+		recorder = new Recorder(Math.min(5, Math.max(0, significantDigits)));
+	}
+
+	// --- RECORD DURATION ---
+
+	@Override
+	public void record(long nanos) {
+		if (nanos >= 0) {
+			recorder.recordValue(nanos);
+		}
+	}
+
+	// --- SWAP INTERVALS ---
+
+	/**
+	 * Closes the current interval and publishes its statistics.
+	 * 
+	 * @return statistics of the closed interval
+	 */
+	public synchronized LatencySnapshot rotate() {
+		Histogram interval = recorder.getIntervalHistogram(recycled);
+		LatencySnapshot next = new LatencySnapshot(interval);
+		recycled = interval;
+		snapshot = next;
+		return next;
+	}
+
+	// --- GET LAST INTERVAL ---
+
+	/**
+	 * Returns the statistics of the last closed interval.
+	 * 
+	 * @return last published snapshot (never null)
+	 */
+	public LatencySnapshot getSnapshot() {
+		return snapshot;
+	}
+
+}
@@ -0,0 +1,150 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.metrics;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Immutable statistics of one latency interval (produced by a
+ * {@link LatencyRecorder}). All values are in NANOSECONDS.
+ */
+public class LatencySnapshot {
+
+	// --- EMPTY SNAPSHOT ---
+
+	public static final LatencySnapshot EMPTY = new LatencySnapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+	// --- PROPERTIES ---
+
+	protected final long startTime;
+	protected final long endTime;
+
+	protected final long count;
+	protected final long min;
+	protected final long max;
+	protected final double mean;
+
+	protected final long p50;
+	protected final long p90;
+	protected final long p95;
+	protected final long p99;
+	protected final long p999;
+
+	// --- CONSTRUCTORS ---
+
+	public LatencySnapshot(Histogram histogram) {
+		this.startTime = histogram.getStartTimeStamp();
+		this.endTime = histogram.getEndTimeStamp();
+		this.count = histogram.getTotalCount();
+		if (count == 0) {
+			this.min = 0;
+			this.max = 0;
+			this.mean = 0;
+			this.p50 = 0;
+			this.p90 = 0;
+			this.p95 = 0;
+			this.p99 = 0;
+			this.p999 = 0;
+		} else {
+			this.min = histogram.getMinValue();
+			this.max = histogram.getMaxValue();
+			this.mean = histogram.getMean();
+			this.p50 = histogram.getValueAtPercentile(50);
+			this.p90 = histogram.getValueAtPercentile(90);
+			this.p95 = histogram.getValueAtPercentile(95);
+			this.p99 = histogram.getValueAtPercentile(99);
+			this.p999 = histogram.getValueAtPercentile(99.9);
+		}
+	}
+
+	public LatencySnapshot(long startTime, long endTime, long count, long min, long max, double mean, long p50,
+			long p90, long p95, long p99, long p999) {
+		this.startTime = startTime;
+		this.endTime = endTime;
+		this.count = count;
+		this.min = min;
+		this.max = max;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p95 = p95;
+		this.p99 = p99;
+		this.p999 = p999;
+	}
+
+	// --- PROPERTY GETTERS ---
+
+	/**
+	 * @return start of the interval (epoch millis)
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return end of the interval (epoch millis)
+	 */
+	public long getEndTime() {
+		return endTime;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMin() {
+		return min;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public long getP90() {
+		return p90;
+	}
+
+	public long getP95() {
+		return p95;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public long getP999() {
+		return p999;
+	}
+
+}
@@ -75,6 +75,12 @@ public interface MetricConstants {
 	public static final String MOLECULER_TRANSIT_STREAMS_RECEIVE_ACTIVE = "moleculer.transit.streams.receive.active";
 	public static final String MOLECULER_TRANSIT_STREAMS_RECEIVE_ACTIVE_DESC = "Number of active incoming streams";
 
+	public static final String MOLECULER_TRANSIT_STREAMS_REORDER_DEPTH = "moleculer.transit.streams.reorder.depth";
+	public static final String MOLECULER_TRANSIT_STREAMS_REORDER_DEPTH_DESC = "Number of out-of-order stream packets waiting for the missing ones";
+
+	public static final String MOLECULER_TRANSIT_STREAMS_LATE_TOTAL = "moleculer.transit.streams.late.total";
+	public static final String MOLECULER_TRANSIT_STREAMS_LATE_TOTAL_DESC = "Number of duplicated or late stream packets";
+
 	public static final String MOLECULER_TRANSIT_CONNECTED = "moleculer.transit.connected";
 	public static final String MOLECULER_TRANSIT_CONNECTED_DESC = "Transit is connected";
 
@@ -95,6 +101,39 @@ public interface MetricConstants {
 	public static final String MOLECULER_TRANSPORTER_PACKETS_RECEIVED_BYTES = "moleculer.transporter.packets.received.bytes";
 	public static final String MOLECULER_TRANSPORTER_PACKETS_RECEIVED_BYTES_DESC = "Size of all received data in bytes";
 
+	public static final String MOLECULER_TRANSPORTER_READ_BYTES_COPIED = "moleculer.transporter.read.bytes.copied";
+	public static final String MOLECULER_TRANSPORTER_READ_BYTES_COPIED_DESC = "Number of bytes copied while framing or parsing incoming packets";
+
+	public static final String MOLECULER_TRANSPORTER_READ_BUFFERS_POOLED = "moleculer.transporter.read.buffers.pooled";
+	public static final String MOLECULER_TRANSPORTER_READ_BUFFERS_POOLED_DESC = "Number of idle read buffers in the pool";
+
+	public static final String MOLECULER_TRANSPORTER_READ_BUFFERS_ACTIVE = "moleculer.transporter.read.buffers.active";
+	public static final String MOLECULER_TRANSPORTER_READ_BUFFERS_ACTIVE_DESC = "Number of read buffers in use";
+
+	public static final String MOLECULER_TRANSPORTER_LOOP_SELECTED_KEYS = "moleculer.transporter.loop.selected.keys";
+	public static final String MOLECULER_TRANSPORTER_LOOP_SELECTED_KEYS_DESC = "Number of selected keys processed by an I/O loop";
+
+	public static final String MOLECULER_TRANSPORTER_LOOP_QUEUE_DEPTH = "moleculer.transporter.loop.queue.depth";
+	public static final String MOLECULER_TRANSPORTER_LOOP_QUEUE_DEPTH_DESC = "Number of packets waiting in the queue of an I/O loop";
+
+	public static final String MOLECULER_TRANSPORTER_LOOP_CONNECTIONS = "moleculer.transporter.loop.connections";
+	public static final String MOLECULER_TRANSPORTER_LOOP_CONNECTIONS_DESC = "Number of connections served by an I/O loop";
+
+	public static final String MOLECULER_TRANSPORTER_STREAMS_INFLIGHT_BYTES = "moleculer.transporter.streams.inflight.bytes";
+	public static final String MOLECULER_TRANSPORTER_STREAMS_INFLIGHT_BYTES_DESC = "Number of sent but unacknowledged bytes of flow-controlled streams";
+
+	public static final String MOLECULER_TRANSPORTER_PUBLISH_BATCH_SIZE = "moleculer.transporter.publish.batch.size";
+	public static final String MOLECULER_TRANSPORTER_PUBLISH_BATCH_SIZE_DESC = "Number of messages in the last published batch";
+
+	public static final String MOLECULER_TRANSPORTER_PUBLISH_BATCHES_TOTAL = "moleculer.transporter.publish.batches.total";
+	public static final String MOLECULER_TRANSPORTER_PUBLISH_BATCHES_TOTAL_DESC = "Number of published batches";
+
+	public static final String MOLECULER_TRANSPORTER_PUBLISH_FLUSH_TIME = "moleculer.transporter.publish.flush.time";
+	public static final String MOLECULER_TRANSPORTER_PUBLISH_FLUSH_TIME_DESC = "Time spent sending (and committing) a batch";
+
+	public static final String MOLECULER_TRANSPORTER_PUBLISH_DROPPED_TOTAL = "moleculer.transporter.publish.dropped.total";
+	public static final String MOLECULER_TRANSPORTER_PUBLISH_DROPPED_TOTAL_DESC = "Number of messages lost in failed batches";
+
 	// --- MOLECULER CIRCUIT BREAKER METRICS ---
 
 	public static final String MOLECULER_CIRCUIT_BREAKER_OPENED_ACTIVE = "moleculer.circuit-breaker.opened.active";
@@ -106,11 +145,41 @@ public interface MetricConstants {
 	public static final String MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE = "moleculer.circuit-breaker.half-opened.active";
 	public static final String MOLECULER_CIRCUIT_BREAKER_HALF_OPENED_ACTIVE_DESC = "Circuit Breaker in half opened state";
 
+	// --- MOLECULER CONCURRENCY LIMIT METRICS ---
+
+	public static final String MOLECULER_CONCURRENCY_LIMIT = "moleculer.concurrency-limit.limit";
+	public static final String MOLECULER_CONCURRENCY_LIMIT_DESC = "Estimated in-flight limit of the endpoint";
+
+	public static final String MOLECULER_CONCURRENCY_LIMIT_REJECTED_TOTAL = "moleculer.concurrency-limit.rejected.total";
+	public static final String MOLECULER_CONCURRENCY_LIMIT_REJECTED_TOTAL_DESC = "Number of calls rejected by the concurrency limiter";
+
+	// --- MOLECULER BULKHEAD METRICS ---
+
+	public static final String MOLECULER_BULKHEAD_ACTIVE = "moleculer.bulkhead.active";
+	public static final String MOLECULER_BULKHEAD_ACTIVE_DESC = "Number of running invocations in the bulkhead";
+
+	public static final String MOLECULER_BULKHEAD_QUEUED = "moleculer.bulkhead.queued";
+	public static final String MOLECULER_BULKHEAD_QUEUED_DESC = "Number of invocations waiting for a free slot";
+
+	public static final String MOLECULER_BULKHEAD_QUEUE_TIME = "moleculer.bulkhead.queue.time";
+	public static final String MOLECULER_BULKHEAD_QUEUE_TIME_DESC = "Time spent waiting for a free slot";
+
+	public static final String MOLECULER_BULKHEAD_REJECTED_TOTAL = "moleculer.bulkhead.rejected.total";
+	public static final String MOLECULER_BULKHEAD_REJECTED_TOTAL_DESC = "Number of invocations rejected by the bulkhead";
+
 	// --- MOLECULER RETRY METRICS ---
 
 	public static final String MOLECULER_REQUEST_RETRY_ATTEMPTS_TOTAL = "moleculer.request.retry.attempts.total";
 	public static final String MOLECULER_REQUEST_RETRY_ATTEMPTS_TOTAL_DESC = "Number of retries";
 
+	// --- MOLECULER HEDGING METRICS ---
+
+	public static final String MOLECULER_REQUEST_HEDGE_TOTAL = "moleculer.request.hedge.total";
+	public static final String MOLECULER_REQUEST_HEDGE_TOTAL_DESC = "Number of hedged (duplicated) requests";
+
+	public static final String MOLECULER_REQUEST_HEDGE_WON_TOTAL = "moleculer.request.hedge.won.total";
+	public static final String MOLECULER_REQUEST_HEDGE_WON_TOTAL_DESC = "Number of hedged requests answered first";
+
 	// --- MOLECULER TIMEOUT METRICS ---
 
 	public static final String MOLECULER_REQUEST_TIMEOUT_TOTAL = "moleculer.request.timeout.total";
@@ -148,6 +217,24 @@ public interface MetricConstants {
 	public static final String MOLECULER_CACHER_EXPIRED_TOTAL = "moleculer.cacher.expired.total";
 	public static final String MOLECULER_CACHER_EXPIRED_TOTAL_DESC = "Expired cache entries";
 
+	public static final String MOLECULER_CACHER_COALESCED_TOTAL = "moleculer.cacher.coalesced.total";
+	public static final String MOLECULER_CACHER_COALESCED_TOTAL_DESC = "Cache misses served by an in-flight request";
+
+	public static final String MOLECULER_CACHER_NEAR_HIT_TOTAL = "moleculer.cacher.near.hit.total";
+	public static final String MOLECULER_CACHER_NEAR_HIT_TOTAL_DESC = "Number of hits in the local (near) cache";
+
+	public static final String MOLECULER_CACHER_NEAR_MISS_TOTAL = "moleculer.cacher.near.miss.total";
+	public static final String MOLECULER_CACHER_NEAR_MISS_TOTAL_DESC = "Number of lookups forwarded to the distributed cache";
+
+	public static final String MOLECULER_CACHER_NEAR_HIT_RATIO = "moleculer.cacher.near.hit.ratio";
+	public static final String MOLECULER_CACHER_NEAR_HIT_RATIO_DESC = "Hit ratio of the local (near) cache";
+
+	public static final String MOLECULER_CACHER_INVALIDATION_TOTAL = "moleculer.cacher.invalidation.total";
+	public static final String MOLECULER_CACHER_INVALIDATION_TOTAL_DESC = "Number of received cache invalidation events";
+
+	public static final String MOLECULER_CACHER_INVALIDATION_LAG = "moleculer.cacher.invalidation.lag";
+	public static final String MOLECULER_CACHER_INVALIDATION_LAG_DESC = "Delay between sending and processing cache invalidation events";
+
 	// --- MOLECULER EXECUTOR METRICS ---
 
 	public static final String MOLECULER_EXECUTOR = "moleculer.executor";
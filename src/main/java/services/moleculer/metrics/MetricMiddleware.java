@@ -25,6 +25,9 @@
  */
 package services.moleculer.metrics;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import io.datatree.Promise;
 import io.datatree.Tree;
 import services.moleculer.ServiceBroker;
@@ -54,35 +57,40 @@ public class MetricMiddleware extends Middleware implements MetricConstants {
 			String actionName = config.get("name", "unknown");
 			String localNodeID = getBroker().getNodeID();
 
+			// Metric handles of local calls (resolved at install time)
+			final RequestMetrics local = new RequestMetrics(metrics, actionName, "local", localNodeID);
+
+			// Metric handles of remote calls (by caller nodeID)
+			final ConcurrentHashMap<String, RequestMetrics> remote = new ConcurrentHashMap<>();
+
 			@Override
 			public final Object handler(Context ctx) throws Exception {
 				return new Promise(resolver -> {
 
 					// Before call
-					String callType = localNodeID.equals(ctx.nodeID) ? "local" : "remote";
-					String[] tags = new String[] { "action", actionName, "type", callType, "caller", ctx.nodeID };
-					metrics.increment(MOLECULER_REQUEST_TOTAL, MOLECULER_REQUEST_TOTAL_DESC, tags);
-
-					MetricCounter requestActive = metrics.increment(MOLECULER_REQUEST_ACTIVE,
-							MOLECULER_REQUEST_ACTIVE_DESC, tags);
-
-					metrics.increment(MOLECULER_REQUEST_LEVELS, MOLECULER_REQUEST_LEVELS_DESC, "action",
-							actionName, "caller", ctx.nodeID, "level", Integer.toString(ctx.level));
-
-					StoppableTimer timer = metrics.timer(MOLECULER_REQUEST_TIME, MOLECULER_REQUEST_TIME_DESC, tags);
+					RequestMetrics handles;
+					if (ctx.nodeID == null || localNodeID.equals(ctx.nodeID)) {
+						handles = local;
+					} else {
+						handles = remote.get(ctx.nodeID);
+						if (handles == null) {
+							handles = remote.computeIfAbsent(ctx.nodeID,
+									caller -> new RequestMetrics(metrics, actionName, "remote", caller));
+						}
+					}
+					final RequestMetrics current = handles;
+					long start = current.started(ctx.level);
 
 					new Promise(action.handler(ctx)).then(tree -> {
 
 						// After call (normal response)
-						timer.stop();
-						requestActive.decrement();
+						current.finished(start);
 
 						resolver.resolve(tree);
 					}).catchError(err -> {
 
 						// After call (error)
-						timer.stop();
-						requestActive.decrement();
+						current.finished(start);
 
 						String errorName = null;
 						int errorCode = 500;
@@ -103,8 +111,8 @@ public class MetricMiddleware extends Middleware implements MetricConstants {
 							}
 						}
 						metrics.increment(MOLECULER_REQUEST_ERROR_TOTAL, MOLECULER_REQUEST_ERROR_TOTAL_DESC, "action",
-								actionName, "type", callType, "caller", ctx.nodeID, "errorName", errorName, "errorCode",
-								Integer.toString(errorCode), "errorType", errorType);
+								actionName, "type", current.callType, "caller", current.caller, "errorName",
+								errorName, "errorCode", Integer.toString(errorCode), "errorType", errorType);
 
 						resolver.reject(err);
 					});
@@ -114,4 +122,64 @@ public class MetricMiddleware extends Middleware implements MetricConstants {
 		};
 	}
 
-}
+	// --- PRE-BOUND METRIC HANDLES OF AN ACTION / CALLER PAIR ---
+
+	protected static final class RequestMetrics {
+
+		/**
+		 * Number of cached "call level" counters
+		 */
+		protected static final int CACHED_LEVELS = 16;
+
+		protected final Metrics metrics;
+		protected final String actionName;
+		protected final String callType;
+		protected final String caller;
+
+		protected final MetricCounter requestTotal;
+		protected final MetricCounter requestActive;
+		protected final MetricTimer requestTime;
+		protected final AtomicReferenceArray<MetricCounter> requestLevels = new AtomicReferenceArray<>(
+				CACHED_LEVELS);
+
+		protected RequestMetrics(Metrics metrics, String actionName, String callType, String caller) {
+			this.metrics = metrics;
+			this.actionName = actionName;
+			this.callType = callType;
+			this.caller = caller;
+
+			String[] tags = new String[] { "action", actionName, "type", callType, "caller", caller };
+			requestTotal = metrics.increment(MOLECULER_REQUEST_TOTAL, MOLECULER_REQUEST_TOTAL_DESC, 0, tags);
+			requestActive = metrics.increment(MOLECULER_REQUEST_ACTIVE, MOLECULER_REQUEST_ACTIVE_DESC, 0, tags);
+			requestTime = metrics.recorder(MOLECULER_REQUEST_TIME, MOLECULER_REQUEST_TIME_DESC, tags);
+		}
+
+		protected long started(int level) {
+			requestTotal.increment();
+			requestActive.increment();
+			levelCounter(level).increment();
+			return System.nanoTime();
+		}
+
+		protected void finished(long start) {
+			requestTime.record(System.nanoTime() - start);
+			requestActive.decrement();
+		}
+
+		protected MetricCounter levelCounter(int level) {
+			if (level < 0 || level >= CACHED_LEVELS) {
+				return metrics.increment(MOLECULER_REQUEST_LEVELS, MOLECULER_REQUEST_LEVELS_DESC, 0, "action",
+						actionName, "caller", caller, "level", Integer.toString(level));
+			}
+			MetricCounter counter = requestLevels.get(level);
+			if (counter == null) {
+				counter = metrics.increment(MOLECULER_REQUEST_LEVELS, MOLECULER_REQUEST_LEVELS_DESC, 0, "action",
+						actionName, "caller", caller, "level", Integer.toString(level));
+				requestLevels.set(level, counter);
+			}
+			return counter;
+		}
+
+	}
+
+}
\ No newline at end of file
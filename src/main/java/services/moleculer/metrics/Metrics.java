@@ -26,6 +26,8 @@
 package services.moleculer.metrics;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
 
 import services.moleculer.service.MoleculerLifecycle;
 import services.moleculer.service.Name;
@@ -56,5 +58,69 @@ public interface Metrics extends MoleculerLifecycle {
 	}
 	
 	public StoppableTimer timer(String name, String description, Duration duration, String... tags);
+
+	// --- PRE-BOUND TIMER ---
+
+	public default MetricTimer recorder(String name, String description, String... tags) {
+		return recorder(name, description, ONE_SECOND, tags);
+	}
+
+	public default MetricTimer recorder(String name, String description, Duration duration, String... tags) {
+		return MetricTimer.NOOP;
+	}
+
+	// --- LATENCY HISTOGRAMS ---
+
+	/**
+	 * Latency recorders of the local action handlers (key = action name).
+	 */
+	public static final String LATENCY_ACTION = "action";
+
+	/**
+	 * Latency recorders of the remote calls (key = nodeID of the target node).
+	 */
+	public static final String LATENCY_NODE = "node";
+
+	/**
+	 * Returns (or creates) a latency histogram.
+	 * 
+	 * @param type
+	 *            type of the recorder ({@link #LATENCY_ACTION} or
+	 *            {@link #LATENCY_NODE})
+	 * @param key
+	 *            action name or nodeID
+	 * 
+	 * @return latency recorder (never null, {@link LatencyRecorder#NOOP} if
+	 *         the implementation does not support latency histograms)
+	 */
+	public default LatencyRecorder latency(String type, String key) {
+		return LatencyRecorder.NOOP;
+	}
+
+	/**
+	 * Removes a latency histogram (eg. the recorder of a disconnected node).
+	 * 
+	 * @param type
+	 *            type of the recorder ({@link #LATENCY_ACTION} or
+	 *            {@link #LATENCY_NODE})
+	 * @param key
+	 *            action name or nodeID
+	 */
+	public default void removeLatency(String type, String key) {
+	}
+
+	/**
+	 * Returns the statistics of the last closed interval of all recorders of
+	 * the specified type.
+	 * 
+	 * @param type
+	 *            type of the recorders ({@link #LATENCY_ACTION} or
+	 *            {@link #LATENCY_NODE})
+	 * 
+	 * @return snapshots by action names or nodeIDs
+	 */
+	public default Map<String, LatencySnapshot> getLatencies(String type) {
+		return Collections.emptyMap();
+	}
 	
 }
\ No newline at end of file
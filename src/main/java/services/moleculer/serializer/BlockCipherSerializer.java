@@ -37,6 +37,7 @@ import javax.crypto.spec.SecretKeySpec;
 import io.datatree.Tree;
 import services.moleculer.ServiceBroker;
 import services.moleculer.service.Name;
+import services.moleculer.util.PacketOutputStream;
 
 /**
  * Serializer with Symmetric Key Encryption. This enables message-level
@@ -286,16 +287,23 @@ public class BlockCipherSerializer extends ChainedSerializer {
 
 	@Override
 	public byte[] write(Tree value) throws Exception {
+		PacketOutputStream out = new PacketOutputStream();
+		write(value, out);
+		return out.toByteArray();
+	}
+
+	@Override
+	public void write(Tree value, PacketOutputStream out) throws Exception {
+		PacketOutputStream content = new PacketOutputStream();
+		parent.write(value, content);
 		if (debug) {
-			byte[] original = parent.write(value);
 			long start = System.nanoTime();
-			byte[] encrypted = encrypt(getEncriptor(), original);
+			encrypt(getEncriptor(), content.getBuffer(), 0, content.size(), out);
 			long duration = System.nanoTime() - start;
-			logger.info(getAlgorithmName() + " encryption of " + original.length + " bytes finished in "
+			logger.info(getAlgorithmName() + " encryption of " + content.size() + " bytes finished in "
 					+ formatNamoSec(duration) + ".");
-			return encrypted;
 		} else {
-			return encrypt(getEncriptor(), parent.write(value));
+			encrypt(getEncriptor(), content.getBuffer(), 0, content.size(), out);
 		}
 	}
 
@@ -303,26 +311,46 @@ public class BlockCipherSerializer extends ChainedSerializer {
 		return cipher.doFinal(bytes);
 	}
 
+	protected void encrypt(Cipher cipher, byte[] bytes, int offset, int length, PacketOutputStream out)
+			throws Exception {
+		out.ensureCapacity(cipher.getOutputSize(length));
+		out.advance(cipher.doFinal(bytes, offset, length, out.getBuffer(), out.size()));
+	}
+
 	// --- DECRYPT AND DESERIALIZE BYTE ARRAY TO TREE ---
 
 	@Override
 	public Tree read(byte[] source) throws Exception {
+		return read(source, 0, source.length);
+	}
+
+	@Override
+	public Tree read(byte[] source, int offset, int length) throws Exception {
 		if (debug) {
 			long start = System.nanoTime();
-			byte[] decrypted = decrypt(getDecryptor(), source);
+			byte[] decrypted = decrypt(getDecryptor(), source, offset, length);
 			long duration = System.nanoTime() - start;
-			logger.info(getAlgorithmName() + " decryption of " + source.length + " bytes finished in "
+			logger.info(getAlgorithmName() + " decryption of " + length + " bytes finished in "
 					+ formatNamoSec(duration) + ".");
 			return parent.read(decrypted);
 		} else {
-			return parent.read(decrypt(getDecryptor(), source));
+			return parent.read(decrypt(getDecryptor(), source, offset, length));
 		}
 	}
 
+	@Override
+	public int getCopySize(byte[] source, int offset, int length) {
+		return 0;
+	}
+
 	protected byte[] decrypt(Cipher cipher, byte[] bytes) throws Exception {
 		return cipher.doFinal(bytes);
 	}
 
+	protected byte[] decrypt(Cipher cipher, byte[] bytes, int offset, int length) throws Exception {
+		return cipher.doFinal(bytes, offset, length);
+	}
+
 	// --- ENCRYPTOR HANDLER ---
 
 	protected Cipher getEncriptor() throws Exception {
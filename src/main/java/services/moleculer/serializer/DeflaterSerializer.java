@@ -33,6 +33,7 @@ import java.util.zip.Deflater;
 
 import io.datatree.Tree;
 import services.moleculer.service.Name;
+import services.moleculer.util.PacketOutputStream;
 
 /**
  * Message compressor / decompressor. Sample of usage:<br>
@@ -137,61 +138,79 @@ public class DeflaterSerializer extends ChainedSerializer {
 	// --- SERIALIZE AND COMPRESS TREE TO BYTE ARRAY ---
 
 	public byte[] write(Tree value) throws Exception {
+		PacketOutputStream out = new PacketOutputStream();
+		write(value, out);
+		return out.toByteArray();
+	}
+
+	@Override
+	public void write(Tree value, PacketOutputStream out) throws Exception {
 
 		// Serialize content
-		byte[] bytes = parent.write(value);
+		PacketOutputStream content = new PacketOutputStream();
+		parent.write(value, content);
+		int length = content.size();
 
 		// Compress content
-		boolean compressed;
-		if (threshold > 0 && bytes.length > threshold) {
+		if (threshold > 0 && length > threshold) {
+
+			// Compressed = first byte is "1"
+			out.write(1);
 			if (debug) {
 				long start = System.nanoTime();
-				byte[] compressedBytes = compress(bytes, compressionLevel);
+				int size = out.size();
+				compress(content.getBuffer(), 0, length, compressionLevel, out);
 				long duration = System.nanoTime() - start;
-				logger.info("Packet compressed in " + formatNamoSec(duration) + " (from " + bytes.length + " bytes to "
-						+ compressedBytes.length + " bytes).");
-				bytes = compressedBytes;
+				logger.info("Packet compressed in " + formatNamoSec(duration) + " (from " + length + " bytes to "
+						+ (out.size() - size) + " bytes).");
 			} else {
-				bytes = compress(bytes, compressionLevel);
+				compress(content.getBuffer(), 0, length, compressionLevel, out);
 			}
-			compressed = true;
 		} else {
-			compressed = false;
-		}
-		byte[] copy = new byte[bytes.length + 1];
-		System.arraycopy(bytes, 0, copy, 1, bytes.length);
-		if (compressed) {
 
-			// Compressed = first byte is "1"
-			copy[0] = 1;
+			// Uncompressed = first byte is "0"
+			out.ensureCapacity(length + 1);
+			out.write(0);
+			out.write(content.getBuffer(), 0, length);
 		}
-		return copy;
 	}
 
 	// --- DECOMPRESS AND DESERIALIZE BYTE ARRAY TO TREE ---
 
 	public Tree read(byte[] source) throws Exception {
+		return read(source, 0, source.length);
+	}
 
-		// Decompress content
-		byte[] copy = new byte[source.length - 1];
-		System.arraycopy(source, 1, copy, 0, source.length - 1);
-		if (source[0] == 1) {
+	@Override
+	public Tree read(byte[] source, int offset, int length) throws Exception {
+		if (source[offset] != 1) {
 
-			// First byte == 1 -> compressed
-			if (debug) {
-				long start = System.nanoTime();
-				byte[] decompressed = decompress(copy);
-				long duration = System.nanoTime() - start;
-				logger.info("Packet extracted in " + formatNamoSec(duration) + " (from " + copy.length + " bytes to "
-						+ decompressed.length + " bytes).");
-				copy = decompressed;
-			} else {
-				copy = decompress(copy);
-			}
+			// Uncompressed content (no copy required)
+			return parent.read(source, offset + 1, length - 1);
+		}
+
+		// First byte == 1 -> compressed
+		byte[] decompressed;
+		if (debug) {
+			long start = System.nanoTime();
+			decompressed = decompress(source, offset + 1, length - 1);
+			long duration = System.nanoTime() - start;
+			logger.info("Packet extracted in " + formatNamoSec(duration) + " (from " + (length - 1) + " bytes to "
+					+ decompressed.length + " bytes).");
+		} else {
+			decompressed = decompress(source, offset + 1, length - 1);
 		}
 
 		// Deserialize content
-		return parent.read(copy);
+		return parent.read(decompressed);
+	}
+
+	@Override
+	public int getCopySize(byte[] source, int offset, int length) {
+		if (source[offset] != 1) {
+			return parent.getCopySize(source, offset + 1, length - 1);
+		}
+		return 0;
 	}
 
 	// --- GETTERS / SETTERS ---
@@ -25,7 +25,11 @@
  */
 package services.moleculer.serializer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.datatree.Tree;
 import services.moleculer.service.Name;
+import services.moleculer.util.CheckedTree;
 
 /**
  * <b>Generic JSON serializer</b><br>
@@ -58,4 +62,20 @@ public class JsonSerializer extends Serializer {
 		super("json");
 	}
 
+	// --- DESERIALIZE A SLICE OF THE BYTE ARRAY ---
+
+	/**
+	 * Decodes the slice directly into the JSON text (the JSON readers parse
+	 * the text of the byte array anyway), without copying the bytes.
+	 */
+	@Override
+	public Tree read(byte[] source, int offset, int length) throws Exception {
+		return new CheckedTree(reader.parse(new String(source, offset, length, UTF_8)));
+	}
+
+	@Override
+	public int getCopySize(byte[] source, int offset, int length) {
+		return 0;
+	}
+
 }
\ No newline at end of file
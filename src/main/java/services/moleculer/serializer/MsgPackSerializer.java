@@ -25,7 +25,17 @@
  */
 package services.moleculer.serializer;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.msgpack.MessagePack;
+import org.msgpack.type.IntegerValue;
+import org.msgpack.type.Value;
+
+import io.datatree.Tree;
 import services.moleculer.service.Name;
+import services.moleculer.util.CheckedTree;
 
 /**
  * <b>MessagePack serializer</b><br>
@@ -57,8 +67,71 @@ public class MsgPackSerializer extends Serializer {
 
 	// --- CONSTRUCTOR ---
 
+	// --- SLICE PARSER ---
+
+	protected final MessagePack msgPack = new MessagePack();
+
+	// --- CONSTRUCTOR ---
+
 	public MsgPackSerializer() {
 		super("msgpack");
 	}
 
+	// --- DESERIALIZE A SLICE OF THE BYTE ARRAY ---
+
+	/**
+	 * Unpacks the slice directly from the source array, without copying the
+	 * bytes.
+	 */
+	@Override
+	public Tree read(byte[] source, int offset, int length) throws Exception {
+		return new CheckedTree(toObject(msgPack.read(source, offset, length)));
+	}
+
+	@Override
+	public int getCopySize(byte[] source, int offset, int length) {
+		return 0;
+	}
+
+	protected Object toObject(Value value) {
+		switch (value.getType()) {
+		case MAP:
+			Map<Value, Value> values = value.asMapValue();
+			LinkedHashMap<String, Object> map = new LinkedHashMap<>(values.size() * 2);
+			for (Map.Entry<Value, Value> entry : values.entrySet()) {
+				Value key = entry.getKey();
+				map.put(key.isRawValue() ? key.asRawValue().getString() : String.valueOf(toObject(key)),
+						toObject(entry.getValue()));
+			}
+			return map;
+		case ARRAY:
+			Value[] elements = value.asArrayValue().getElementArray();
+			ArrayList<Object> list = new ArrayList<>(elements.length);
+			for (Value element : elements) {
+				list.add(toObject(element));
+			}
+			return list;
+		case RAW:
+			return value.asRawValue().getString();
+		case INTEGER:
+			IntegerValue integer = value.asIntegerValue();
+			long number = integer.longValue();
+			if (number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE) {
+				return (int) number;
+			}
+			if (number < 0 && integer.doubleValue() > 0) {
+
+				// Unsigned 64-bit integer
+				return integer.getBigInteger();
+			}
+			return number;
+		case FLOAT:
+			return value.asFloatValue().getDouble();
+		case BOOLEAN:
+			return value.asBooleanValue().getBoolean();
+		default:
+			return null;
+		}
+	}
+
 }
\ No newline at end of file
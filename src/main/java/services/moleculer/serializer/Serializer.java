@@ -33,6 +33,7 @@ import io.datatree.dom.TreeWriterRegistry;
 import services.moleculer.ServiceBroker;
 import services.moleculer.service.MoleculerComponent;
 import services.moleculer.util.CheckedTree;
+import services.moleculer.util.PacketOutputStream;
 
 /**
  * Base superclass of all data serializer implementations.
@@ -92,12 +93,75 @@ public abstract class Serializer extends MoleculerComponent {
 		return writer.toBinary(value.asObject(), null, true);
 	}
 
+	/**
+	 * Serializes a Tree into a caller-provided stream (after the reserved
+	 * header space, if any). Chained Serializers write their output directly
+	 * into the stream, without intermediate arrays.
+	 *
+	 * @param value
+	 *            Tree to serialize
+	 * @param out
+	 *            target stream
+	 *
+	 * @throws Exception
+	 *             any serialization error
+	 */
+	public void write(Tree value, PacketOutputStream out) throws Exception {
+		out.write(write(value));
+	}
+
 	// --- DESERIALIZE BYTE ARRAY TO TREE ---
 
 	public Tree read(byte[] source) throws Exception {
 		return new CheckedTree(reader.parse(source));
 	}
 
+	/**
+	 * Deserializes a slice of a (possibly shared and larger) byte array. The
+	 * caller keeps the ownership of the array, so implementations must not
+	 * retain a reference to it after the method returns.
+	 *
+	 * @param source
+	 *            source array
+	 * @param offset
+	 *            first byte of the serialized message
+	 * @param length
+	 *            length of the serialized message
+	 *
+	 * @return deserialized Tree
+	 *
+	 * @throws Exception
+	 *             any parser error
+	 */
+	public Tree read(byte[] source, int offset, int length) throws Exception {
+		if (offset == 0 && length == source.length) {
+			return read(source);
+		}
+		byte[] copy = new byte[length];
+		System.arraycopy(source, offset, copy, 0, length);
+		return read(copy);
+	}
+
+	/**
+	 * Returns the number of bytes the {@link #read(byte[], int, int)} method
+	 * copies into a new array before parsing the specified slice. The
+	 * TcpTransporter reports this value in the "read.bytes.copied" metric. Used
+	 * only for reporting; implementations that override the
+	 * {@link #read(byte[], int, int)} method must override this one too.
+	 *
+	 * @param source
+	 *            source array
+	 * @param offset
+	 *            first byte of the serialized message
+	 * @param length
+	 *            length of the serialized message
+	 *
+	 * @return number of copied bytes (0 = the slice is parsed in place)
+	 */
+	public int getCopySize(byte[] source, int offset, int length) {
+		return offset == 0 && length == source.length ? 0 : length;
+	}
+
 	// --- GET FORMAT NAME ---
 
 	public String getFormat() {
@@ -26,6 +26,7 @@
 package services.moleculer.service;
 
 import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +64,32 @@ public abstract class ActionEndpoint extends Endpoint implements Action {
 
 	protected HashSet<Middleware> checkedMiddlewares = new HashSet<>(32);
 
+	// --- LOAD STATISTICS ---
+
+	/**
+	 * Smoothing factor of the response time EWMA (weight of the latest
+	 * sample).
+	 */
+	protected static final double LATENCY_DECAY = 0.2;
+
+	/**
+	 * A failed call counts as a sample of at least this multiple of the
+	 * current average, so a fast-failing endpoint does not attract more
+	 * requests.
+	 */
+	protected static final double ERROR_PENALTY = 2;
+
+	/**
+	 * Number of pending (registered, but not yet answered) calls.
+	 */
+	protected final AtomicInteger outstanding = new AtomicInteger();
+
+	/**
+	 * Exponentially weighted moving average of the response time, in
+	 * NANOSECONDS (0 = no samples yet).
+	 */
+	protected volatile double latency;
+
 	// --- CONSTRUCTOR ---
 
 	public ActionEndpoint(String nodeID, String service, Tree config) {
@@ -101,6 +128,42 @@ public abstract class ActionEndpoint extends Endpoint implements Action {
 		return false;
 	}
 
+	// --- LOAD TRACKING (CALLED BY THE SERVICE REGISTRY) ---
+
+	protected void requestStarted() {
+		outstanding.incrementAndGet();
+	}
+
+	protected void requestFinished(long duration) {
+		requestFinished(duration, true);
+	}
+
+	protected void requestFinished(long duration, boolean success) {
+		outstanding.decrementAndGet();
+
+		// Lost updates are acceptable here (it's only a heuristic)
+		double previous = latency;
+		double sample;
+		if (success) {
+			sample = duration;
+		} else if (previous == 0) {
+
+			// A fast error must not be the first sample
+			return;
+		} else {
+			sample = Math.max(duration, previous * ERROR_PENALTY);
+		}
+		if (previous == 0) {
+			latency = sample;
+		} else {
+			latency = previous + LATENCY_DECAY * (sample - previous);
+		}
+	}
+
+	protected void requestCancelled() {
+		outstanding.decrementAndGet();
+	}
+
 	// --- COLLECTION HELPERS ---
 
 	@Override
@@ -140,4 +203,12 @@ public abstract class ActionEndpoint extends Endpoint implements Action {
 		return localOnly;
 	}
 
+	public int getOutstanding() {
+		return outstanding.get();
+	}
+
+	public double getLatency() {
+		return latency;
+	}
+
 }
\ No newline at end of file
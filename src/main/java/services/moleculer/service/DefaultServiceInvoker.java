@@ -26,7 +26,9 @@
 package services.moleculer.service;
 
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Predicate;
 
 import io.datatree.Promise;
@@ -42,7 +44,7 @@ import services.moleculer.metrics.Metrics;
 import services.moleculer.uid.UidGenerator;
 
 /**
- * Default service invoker with retry logic.
+ * Default service invoker with retry logic and request hedging.
  */
 @Name("Default Service Invoker")
 public class DefaultServiceInvoker extends ServiceInvoker implements MetricConstants {
@@ -59,12 +61,18 @@ public class DefaultServiceInvoker extends ServiceInvoker implements MetricConst
 	 */
 	protected int maxCallLevel = 100;
 
+	/**
+	 * Number of tries to find another node for a hedged request
+	 */
+	protected int maxHedgeTries = 8;
+
 	// --- COMPONENTS ---
 
 	protected ServiceRegistry serviceRegistry;
 	protected Eventbus eventbus;
 	protected UidGenerator uidGenerator;
 	protected Metrics metrics;
+	protected ScheduledExecutorService scheduler;
 
 	// --- RETRY LOGIC (BY ERROR) ---
 
@@ -95,6 +103,7 @@ public class DefaultServiceInvoker extends ServiceInvoker implements MetricConst
 		this.serviceRegistry = cfg.getServiceRegistry();
 		this.eventbus = cfg.getEventbus();
 		this.uidGenerator = cfg.getUidGenerator();
+		this.scheduler = cfg.getScheduler();
 		if (cfg.isMetricsEnabled()) {
 			metrics = cfg.getMetrics();
 		}
@@ -119,6 +128,11 @@ public class DefaultServiceInvoker extends ServiceInvoker implements MetricConst
 		} else {
 			targetID = ctx.opts.nodeID;
 			remaining = ctx.opts.retryCount;
+
+			// Hedged call (only non-targeted calls without streaming)
+			if (targetID == null && ctx.opts.hedgeAfter > 0 && ctx.opts.maxHedges > 0 && ctx.stream == null) {
+				return new HedgedCall(this, ctx, remaining).start();
+			}
 		}
 		return call(ctx, targetID, remaining);
 	}
@@ -141,8 +155,9 @@ public class DefaultServiceInvoker extends ServiceInvoker implements MetricConst
 
 	protected Promise retry(Context ctx, String targetID, int remaining, Throwable cause) {
 
-		// Write error to log file
-		if (writeErrorsToLog && cause != null) {
+		// Write error to log file (except cancelled hedged requests)
+		if (writeErrorsToLog && cause != null && !(cause instanceof CancellationException)
+				&& !(cause.getCause() instanceof CancellationException)) {
 			boolean clientError = false;
 			Throwable err = cause;
 			while (err != null) {
@@ -180,6 +195,14 @@ public class DefaultServiceInvoker extends ServiceInvoker implements MetricConst
 				ctx.parentID, ctx.requestID, ctx.stream, ctx.opts, ctx.nodeID), targetID, newRemaining);
 	}
 
+	// --- CANCEL A PENDING (HEDGED) REQUEST ---
+
+	protected void cancel(Context ctx) {
+		if (serviceRegistry instanceof DefaultServiceRegistry) {
+			((DefaultServiceRegistry) serviceRegistry).cancel(ctx.id);
+		}
+	}
+
 	// --- GETTERS / SETTERS ---
 
 	public boolean isWriteErrorsToLog() {
@@ -206,4 +229,12 @@ public class DefaultServiceInvoker extends ServiceInvoker implements MetricConst
 		this.maxCallLevel = maxCallLevel;
 	}
 
+	public int getMaxHedgeTries() {
+		return maxHedgeTries;
+	}
+
+	public void setMaxHedgeTries(int maxHedgeTries) {
+		this.maxHedgeTries = Math.max(1, maxHedgeTries);
+	}
+
 }
\ No newline at end of file
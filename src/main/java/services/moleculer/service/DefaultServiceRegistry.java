@@ -51,13 +51,14 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
@@ -78,6 +79,7 @@ import services.moleculer.error.RequestTimeoutError;
 import services.moleculer.error.ServiceNotAvailableError;
 import services.moleculer.error.ServiceNotFoundError;
 import services.moleculer.eventbus.Eventbus;
+import services.moleculer.metrics.LatencyRecorder;
 import services.moleculer.metrics.MetricConstants;
 import services.moleculer.metrics.MetricCounter;
 import services.moleculer.metrics.MetricGauge;
@@ -91,6 +93,8 @@ import services.moleculer.transporter.Transporter;
 import services.moleculer.uid.UidGenerator;
 import services.moleculer.util.CheckedTree;
 import services.moleculer.util.FastBuildTree;
+import services.moleculer.util.HashedWheelTimeoutScheduler;
+import services.moleculer.util.TimeoutScheduler;
 
 /**
  * Default implementation of the Service Registry.
@@ -169,6 +173,13 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 	 */
 	protected long streamTimeout;
 
+	/**
+	 * Maximum number of missing packets of an incoming stream (distance
+	 * between the last processed and the received sequence number). The
+	 * stream fails if the gap is larger.
+	 */
+	protected int streamMaxGap = IncomingStream.DEFAULT_MAX_GAP;
+
 	// --- LOCAL NODE ID ---
 
 	protected String nodeID;
@@ -184,17 +195,12 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 	protected ServiceInvoker serviceInvoker;
 	protected Metrics metrics;
 
-	// --- VARIABLES OF THE TIMEOUT HANDLER ---
-
-	/**
-	 * Cancelable timer for handling timeouts of action calls
-	 */
-	protected final AtomicReference<ScheduledFuture<?>> callTimeoutTimer = new AtomicReference<>();
+	// --- TIMEOUT HANDLER ---
 
 	/**
-	 * Next scheduled time to check timeouts
+	 * Timeout scheduler of action calls, "ping" requests and incoming streams
 	 */
-	protected final AtomicLong prevTimeoutAt = new AtomicLong();
+	protected TimeoutScheduler timeoutScheduler = new HashedWheelTimeoutScheduler();
 
 	// --- WAIT FOR SERVICE(S) ---
 
@@ -225,6 +231,8 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 	protected MetricGauge gaugeRequestsActive;
 	protected MetricGauge gaugeStreamsReceiveActive;
 	protected MetricCounter counterOrphanResponseTotal;
+	protected MetricCounter counterStreamsReorderDepth;
+	protected MetricCounter counterStreamsLateTotal;
 
 	// --- CONSTRUCTORS ---
 
@@ -288,8 +296,15 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 						MOLECULER_TRANSIT_STREAMS_RECEIVE_ACTIVE_DESC, 0);
 				counterOrphanResponseTotal = metrics.increment(MOLECULER_TRANSIT_ORPHAN_RESPONSE_TOTAL,
 						MOLECULER_TRANSIT_ORPHAN_RESPONSE_TOTAL_DESC, 0);
+				counterStreamsReorderDepth = metrics.increment(MOLECULER_TRANSIT_STREAMS_REORDER_DEPTH,
+						MOLECULER_TRANSIT_STREAMS_REORDER_DEPTH_DESC, 0);
+				counterStreamsLateTotal = metrics.increment(MOLECULER_TRANSIT_STREAMS_LATE_TOTAL,
+						MOLECULER_TRANSIT_STREAMS_LATE_TOTAL_DESC, 0);
 			}
 		}
+
+		// Start timeout scheduler
+		timeoutScheduler.started(broker);
 	}
 
 	// --- STOP SERVICE REGISTRY ---
@@ -297,17 +312,15 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 	@Override
 	public void stopped() {
 
-		// Stop timer
-		ScheduledFuture<?> task = callTimeoutTimer.get();
-		if (task != null) {
-			task.cancel(false);
-		}
+		// Stop timeout scheduler
+		timeoutScheduler.stopped();
 
 		// Stop pending invocations
 		Iterator<PendingPromise> pendingPromises = promises.values().iterator();
 		while (pendingPromises.hasNext()) {
 			PendingPromise pending = pendingPromises.next();
 			pendingPromises.remove();
+			pending.finished(false);
 			try {
 				pending.promise.complete(new RequestRejectedError(nodeID, pending.action));
 			} catch (Throwable cause) {
@@ -348,187 +361,162 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 		}
 	}
 
-	// --- CALL TIMEOUT CHECKER TASK ---
-
-	protected void checkTimeouts() {
-		long now = System.currentTimeMillis();
-
-		// Check timeouted promises
-		PendingPromise pending;
-		Iterator<PendingPromise> i = promises.values().iterator();
-		boolean removed = false;
-		while (i.hasNext()) {
-			pending = i.next();
-			if (pending.timeoutAt > 0 && now >= pending.timeoutAt) {
-
-				// Action is unknown at this location
-				pending.promise.complete(new RequestTimeoutError(this.nodeID, pending.action));
-				i.remove();
-				removed = true;
+	// --- CALL TIMEOUT HANDLING ---
 
-				// Metrics
-				if (metrics != null) {
-					metrics.increment(MOLECULER_REQUEST_TIMEOUT_TOTAL, MOLECULER_REQUEST_TIMEOUT_TOTAL_DESC, "action",
-							pending.action);
-				}
-			}
-		}
+	/**
+	 * Rejects a timeouted action call or "ping" request.
+	 * 
+	 * @param id
+	 *            unique ID of the request
+	 * @param pending
+	 *            promise container of the request
+	 */
+	protected void timeout(String id, PendingPromise pending) {
+		if (!promises.remove(id, pending)) {
 
-		// Check timeouted request streams
-		IncomingStream stream;
-		long timeoutAt;
-		requestStreamWriteLock.lock();
-		try {
-			Iterator<IncomingStream> j = requestStreams.values().iterator();
-			while (j.hasNext()) {
-				stream = j.next();
-				timeoutAt = stream.getTimeoutAt();
-				if (timeoutAt > 0 && now >= timeoutAt) {
-					stream.error(new RequestTimeoutError(this.nodeID, "unknown"));
-					j.remove();
-					removed = true;
-				}
-			}
-		} finally {
-			requestStreamWriteLock.unlock();
+			// Already resolved or rejected
+			return;
 		}
+		pending.finished(false);
 
-		// Check timeouted response streams
-		try {
-			Iterator<IncomingStream> j = responseStreams.values().iterator();
-			while (j.hasNext()) {
-				stream = j.next();
-				timeoutAt = stream.getTimeoutAt();
-				if (timeoutAt > 0 && now >= timeoutAt) {
-					stream.error(new RequestTimeoutError(nodeID, "unknown"));
-					j.remove();
-					removed = true;
-				}
-			}
-		} finally {
-			responseStreamWriteLock.unlock();
-		}
+		// Action is unknown at this location
+		pending.promise.complete(new RequestTimeoutError(this.nodeID, pending.action));
 
 		// Metrics
-		if (removed && metrics != null) {
+		if (metrics != null) {
 			gaugeRequestsActive.set(promises.size());
-			gaugeStreamsReceiveActive.set(requestStreams.size() + responseStreams.size());
-		}
-
-		// Reschedule
-		if (removed) {
-			scheduler.execute(() -> {
-				reschedule(Long.MAX_VALUE);
-			});
-		} else {
-			prevTimeoutAt.set(0);
+			metrics.increment(MOLECULER_REQUEST_TIMEOUT_TOTAL, MOLECULER_REQUEST_TIMEOUT_TOTAL_DESC, "action",
+					pending.action);
 		}
 	}
 
-	// --- CALL TIMEOUT HANDLING ---
+	// --- STREAM TIMEOUT HANDLING ---
 
 	/**
-	 * Recalculates the next timeout checking time.
+	 * Schedules the inactivity timeout of an incoming stream.
 	 * 
-	 * @param minTimeoutAt
-	 *            next / closest timestamp
+	 * @param id
+	 *            unique ID of the request
+	 * @param stream
+	 *            incoming (request or response) stream
+	 * @param streams
+	 *            stream registry (requestStreams or responseStreams)
+	 * @param lock
+	 *            writer lock of the stream registry
 	 */
-	protected void reschedule(long minTimeoutAt) {
-		if (minTimeoutAt == Long.MAX_VALUE) {
-			for (PendingPromise pending : promises.values()) {
-				if (pending.timeoutAt > 0 && pending.timeoutAt < minTimeoutAt) {
-					minTimeoutAt = pending.timeoutAt;
-				}
-			}
-			long timeoutAt;
-			requestStreamReadLock.lock();
-			try {
-				for (IncomingStream stream : requestStreams.values()) {
-					timeoutAt = stream.getTimeoutAt();
-					if (timeoutAt > 0 && timeoutAt < minTimeoutAt) {
-						minTimeoutAt = timeoutAt;
-					}
-				}
-			} finally {
-				requestStreamReadLock.unlock();
-			}
-			responseStreamReadLock.lock();
-			try {
-				for (IncomingStream stream : responseStreams.values()) {
-					timeoutAt = stream.getTimeoutAt();
-					if (timeoutAt > 0 && timeoutAt < minTimeoutAt) {
-						minTimeoutAt = timeoutAt;
-					}
-				}
-			} finally {
-				responseStreamReadLock.unlock();
-			}
+	protected void scheduleStreamTimeout(String id, IncomingStream stream, HashMap<String, IncomingStream> streams,
+			WriteLock lock) {
+		long timeoutAt = stream.getTimeoutAt();
+		if (timeoutAt < 1) {
+			return;
 		}
-		long now = System.currentTimeMillis();
-		if (minTimeoutAt == Long.MAX_VALUE) {
-			ScheduledFuture<?> t = callTimeoutTimer.get();
-			if (t != null) {
-				if (prevTimeoutAt.get() > now) {
-					t.cancel(false);
-					prevTimeoutAt.set(0);
-				} else {
-					callTimeoutTimer.set(null);
-					prevTimeoutAt.set(0);
-				}
-			}
-		} else {
-			minTimeoutAt = (minTimeoutAt / 100 * 100) + 100;
-			long prev = prevTimeoutAt.getAndSet(minTimeoutAt);
-			if (prev == minTimeoutAt) {
+		stream.setTimeout(timeoutScheduler.schedule(timeoutAt, () -> {
 
-				// Next when not changed
+			// Packet received since the last check
+			if (stream.getTimeoutAt() > System.currentTimeMillis()) {
+				scheduleStreamTimeout(id, stream, streams, lock);
 				return;
 			}
 
-			// Stop previous timer
-			ScheduledFuture<?> t = callTimeoutTimer.get();
-			if (t != null) {
-				t.cancel(false);
+			// Remove timeouted stream
+			boolean removed;
+			lock.lock();
+			try {
+				removed = streams.remove(id, stream);
+			} finally {
+				lock.unlock();
 			}
+			if (removed) {
+				stream.error(new RequestTimeoutError(this.nodeID, "unknown"));
 
-			// Schedule next timeout timer
-			long delay = Math.max(10, minTimeoutAt - now);
-			callTimeoutTimer.set(scheduler.schedule(this::checkTimeouts, delay, TimeUnit.MILLISECONDS));
-		}
+				// Metrics
+				if (gaugeStreamsReceiveActive != null) {
+					gaugeStreamsReceiveActive.set(requestStreams.size() + responseStreams.size());
+				}
+			}
+		}));
 	}
 
 	// --- REGISTER PROMISE ---
 
 	protected void register(String id, Promise promise, long timeoutAt, String nodeID, String action, Tree req) {
+		register(id, promise, timeoutAt, nodeID, action, req, null);
+	}
 
-		// Register Promise
-		promises.put(id, new PendingPromise(promise, timeoutAt, nodeID, action, req));
+	protected void register(String id, Promise promise, long timeoutAt, String nodeID, String action, Tree req,
+			ActionEndpoint endpoint) {
+
+		// Register Promise (and increment the endpoint's outstanding calls)
+		PendingPromise pending = new PendingPromise(promise, timeoutAt, nodeID, action, req, endpoint);
+		promises.put(id, pending);
 
 		// Metrics
 		if (gaugeRequestsActive != null) {
 			gaugeRequestsActive.set(promises.size());
 		}
 
-		// Reschedule
-		long nextTimeoutAt = prevTimeoutAt.get();
-		if (nextTimeoutAt == 0 || (timeoutAt / 100 * 100) + 100 < nextTimeoutAt || promises.size() < 3) {
-			scheduler.execute(() -> {
-				reschedule(timeoutAt);
+		// Schedule timeout
+		if (timeoutAt > 0) {
+			pending.timeout = timeoutScheduler.schedule(timeoutAt, () -> {
+				timeout(id, pending);
 			});
 		}
 	}
 
-	protected void deregister(String id) {
+	protected void deregister(String id, boolean success) {
 
 		// Remove Promise
 		PendingPromise removed = promises.remove(id);
+		if (removed != null) {
+			removed.cancelTimeout();
+			removed.finished(success);
 
-		// Metrics
-		if (gaugeRequestsActive != null && removed != null) {
-			gaugeRequestsActive.set(promises.size());
+			// Metrics
+			if (gaugeRequestsActive != null) {
+				gaugeRequestsActive.set(promises.size());
+			}
+		}
+	}
+
+	/**
+	 * Cancels a pending call (eg. the slower request of a hedged call). The
+	 * Promise of the call is rejected with a "CancellationException".
+	 * 
+	 * @param id
+	 *            unique ID of the request
+	 */
+	protected void cancel(String id) {
+		PendingPromise removed = promises.remove(id);
+		if (removed != null) {
+			removed.cancelTimeout();
+			removed.cancelled();
+			removed.promise.complete(new CancellationException("Request \"" + id + "\" cancelled."));
+
+			// Metrics
+			if (gaugeRequestsActive != null) {
+				gaugeRequestsActive.set(promises.size());
+			}
 		}
 	}
 
+	// --- LATENCY HISTOGRAMS ---
+
+	/**
+	 * Returns the latency recorder of a local action.
+	 * 
+	 * @param actionName
+	 *            name of the action
+	 * 
+	 * @return latency recorder or null (if metrics are disabled)
+	 */
+	protected LatencyRecorder getLatencyRecorder(String actionName) {
+		if (metrics == null) {
+			return null;
+		}
+		LatencyRecorder recorder = metrics.latency(Metrics.LATENCY_ACTION, actionName);
+		return recorder == LatencyRecorder.NOOP ? null : recorder;
+	}
+
 	// --- RECEIVE REQUEST FROM REMOTE SERVICE ---
 
 	@Override
@@ -596,18 +584,26 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 				} finally {
 					requestStreamWriteLock.unlock();
 				}
+				requestStream.cancelTimeout();
 			}
 		} else if (message.get("stream", false) || message.get("seq", 0) > 0) {
+			boolean created = false;
 			requestStreamWriteLock.lock();
 			try {
 				requestStream = requestStreams.get(id);
 				if (requestStream == null) {
-					requestStream = new IncomingStream(nodeID, scheduler, streamTimeout);
+					requestStream = new IncomingStream(nodeID, scheduler, streamTimeout, streamMaxGap);
+					requestStream.setMetrics(counterStreamsReorderDepth, counterStreamsLateTotal);
 					requestStreams.put(id, requestStream);
+					created = true;
 				}
 			} finally {
 				requestStreamWriteLock.unlock();
 			}
+			if (created) {
+				transporter.openIncomingStream(sender, id, requestStream.getPacketStream());
+				scheduleStreamTimeout(id, requestStream, requestStreams, requestStreamWriteLock);
+			}
 			if (requestStream.receive(message)) {
 				requestStreamWriteLock.lock();
 				try {
@@ -615,6 +611,7 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 				} finally {
 					requestStreamWriteLock.unlock();
 				}
+				requestStream.cancelTimeout();
 			}
 		}
 
@@ -736,6 +733,7 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 
 				// Define sender for response stream
 				if (responseStream != null) {
+					transporter.openOutgoingStream(sender, id, responseStream);
 					responseStream.onPacket(new PacketListener() {
 
 						// Create sequence counter
@@ -831,6 +829,8 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 			}
 			return;
 		}
+		pending.cancelTimeout();
+		pending.finished(true);
 
 		// Resolve Promise
 		pending.promise.complete(message);
@@ -886,20 +886,29 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 				} finally {
 					responseStreamWriteLock.unlock();
 				}
+				responseStream.cancelTimeout();
 			}
 			return;
 		}
 		if (message.get("stream", false)) {
+			boolean created = false;
 			responseStreamWriteLock.lock();
 			try {
 				responseStream = responseStreams.get(id);
 				if (responseStream == null) {
-					responseStream = new IncomingStream(nodeID, scheduler, streamTimeout);
+					responseStream = new IncomingStream(nodeID, scheduler, streamTimeout, streamMaxGap);
+					responseStream.setMetrics(counterStreamsReorderDepth, counterStreamsLateTotal);
 					responseStreams.put(id, responseStream);
+					created = true;
 				}
 			} finally {
 				responseStreamWriteLock.unlock();
 			}
+			if (created) {
+				transporter.openIncomingStream(message.get("sender", (String) null), id,
+						responseStream.getPacketStream());
+				scheduleStreamTimeout(id, responseStream, responseStreams, responseStreamWriteLock);
+			}
 			if (responseStream.receive(message)) {
 				responseStreamWriteLock.lock();
 				try {
@@ -907,6 +916,7 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 				} finally {
 					responseStreamWriteLock.unlock();
 				}
+				responseStream.cancelTimeout();
 			}
 			message.putObject("data", responseStream.getPacketStream());
 		}
@@ -927,6 +937,9 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 			}
 			return;
 		}
+		pending.cancelTimeout();
+		boolean success = message.get("success", true);
+		long duration = pending.finished(success);
 		try {
 
 			// Metrics
@@ -934,10 +947,15 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 				gaugeRequestsActive.set(promises.size());
 			}
 
-			// Get response status (successed or not?)
-			boolean success = message.get("success", true);
+			// Response status (successed or not?)
 			if (success) {
 
+				// Round-trip time of the successful calls (like the local
+				// action latencies)
+				if (metrics != null && duration >= 0) {
+					metrics.latency(Metrics.LATENCY_NODE, pending.nodeID).record(duration);
+				}
+
 				// Ok -> resolve
 				Tree rsp = message.get("data");
 				Tree meta = message.get("meta");
@@ -1201,10 +1219,17 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 					actionConfig.putObject("nodeID", nodeID, true);
 					String actionName = actionConfig.get("name", "");
 
+					// Unchanged action of a changed service (keep the load
+					// statistics of the endpoint)
+					Strategy<ActionEndpoint> actionStrategy = strategies.get(actionName);
+					if (actionStrategy != null && isRegistered(actionStrategy, nodeID, actionConfig)) {
+						actionCounter++;
+						continue;
+					}
+
 					// Register remote action
 					RemoteActionEndpoint endpoint = new RemoteActionEndpoint(this, transporter, nodeID, serviceName,
 							actionConfig, actionName);
-					Strategy<ActionEndpoint> actionStrategy = strategies.get(actionName);
 					if (actionStrategy == null) {
 						actionStrategy = strategyFactory.create();
 						strategies.put(actionName, actionStrategy);
@@ -1253,6 +1278,15 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 		broadcastServicesChanged(false);
 	}
 
+	protected boolean isRegistered(Strategy<ActionEndpoint> strategy, String nodeID, Tree actionConfig) {
+		for (ActionEndpoint endpoint : strategy.getAllEndpoints()) {
+			if (nodeID.equals(endpoint.getNodeID()) && actionConfig.equals(endpoint.getConfig())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	// --- REMOVE ALL REMOTE SERVICES/ACTIONS OF A NODE ---
 
 	@Override
@@ -1276,12 +1310,7 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 			}
 
 			// Update service names
-			names.clear();
-			for (Strategy<ActionEndpoint> strategy : strategies.values()) {
-				for (ActionEndpoint endpoint : strategy.getAllEndpoints()) {
-					names.add(endpoint.service);
-				}
-			}
+			updateServiceNames();
 
 			// Delete cached node descriptor
 			if (this.nodeID.equals(nodeID)) {
@@ -1294,12 +1323,12 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 
 		// Reject promises
 		Iterator<PendingPromise> pendingPromises = promises.values().iterator();
-		boolean removed = false;
 		while (pendingPromises.hasNext()) {
 			PendingPromise pending = pendingPromises.next();
 			if (pending.nodeID.equals(nodeID)) {
-				removed = true;
 				pendingPromises.remove();
+				pending.cancelTimeout();
+				pending.finished(false);
 				executor.execute(() -> {
 					try {
 						pending.promise.complete(new RequestRejectedError(nodeID, pending.action));
@@ -1310,13 +1339,6 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 			}
 		}
 
-		// Reschedule timeout checker
-		if (removed) {
-			scheduler.execute(() -> {
-				reschedule(Long.MAX_VALUE);
-			});
-		}
-
 		// Notify listeners
 		if (this.nodeID.equals(nodeID)) {
 
@@ -1329,6 +1351,102 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 		}
 	}
 
+	// --- REMOVE ACTIONS OF A REMOTE SERVICE ---
+
+	/**
+	 * Removes the actions of one remote service (used when only some services
+	 * of a node are changed). The actions which are present (with the same
+	 * descriptor) in the new version of the service are kept, with their
+	 * endpoints and pending calls. The pending calls of the removed actions
+	 * are rejected.
+	 * 
+	 * @param nodeID
+	 *            node identifier
+	 * @param config
+	 *            previous service descriptor
+	 * @param current
+	 *            new service descriptor (or null, if the service is removed)
+	 */
+	@Override
+	public void removeActions(String nodeID, Tree config, Tree current) {
+		Tree actions = config.get("actions");
+		String serviceName = config.get("name", "");
+		HashSet<String> removed = new HashSet<>();
+
+		// Actions of the new descriptor
+		HashMap<String, Tree> unchanged = new HashMap<>();
+		Tree currentActions = current == null ? null : current.get("actions");
+		if (currentActions != null && currentActions.isMap()) {
+			for (Tree actionConfig : currentActions) {
+				unchanged.put(actionConfig.get("name", ""), actionConfig);
+			}
+		}
+
+		writeLock.lock();
+		try {
+			if (actions != null && actions.isMap()) {
+				for (Tree actionConfig : actions) {
+					String actionName = actionConfig.get("name", "");
+					if (actionConfig.equals(unchanged.get(actionName))) {
+
+						// Unchanged action (addActions keeps this endpoint)
+						continue;
+					}
+					Strategy<ActionEndpoint> strategy = strategies.get(actionName);
+					if (strategy != null && strategy.remove(nodeID)) {
+						removed.add(actionName);
+						if (strategy.isEmpty()) {
+							strategies.remove(actionName);
+						}
+					}
+				}
+			}
+
+			// Update service names
+			updateServiceNames();
+
+		} finally {
+			writeLock.unlock();
+		}
+
+		// Reject promises
+		if (!removed.isEmpty()) {
+			Iterator<PendingPromise> pendingPromises = promises.values().iterator();
+			while (pendingPromises.hasNext()) {
+				PendingPromise pending = pendingPromises.next();
+				if (pending.nodeID.equals(nodeID) && removed.contains(pending.action)) {
+					pendingPromises.remove();
+					pending.cancelTimeout();
+					pending.finished(false);
+					executor.execute(() -> {
+						try {
+							pending.promise.complete(new RequestRejectedError(nodeID, pending.action));
+						} catch (Throwable cause) {
+							logger.warn("Unable to reject action \"" + pending.action + "\"!", cause);
+						}
+					});
+				}
+			}
+		}
+
+		// Write log about this service
+		if (writeRegistrations) {
+			logger.info("Remote service \"" + serviceName + "\" removed from node \"" + nodeID + "\".");
+		}
+
+		// Notify local listeners (REMOTE services changed)
+		broadcastServicesChanged(false);
+	}
+
+	protected void updateServiceNames() {
+		names.clear();
+		for (Strategy<ActionEndpoint> strategy : strategies.values()) {
+			for (ActionEndpoint endpoint : strategy.getAllEndpoints()) {
+				names.add(endpoint.service);
+			}
+		}
+	}
+
 	protected void stopAllLocalServices() {
 
 		// Stop services
@@ -1710,6 +1828,14 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 		this.streamTimeout = streamTimeout;
 	}
 
+	public int getStreamMaxGap() {
+		return streamMaxGap;
+	}
+
+	public void setStreamMaxGap(int streamMaxGap) {
+		this.streamMaxGap = Math.max(1, streamMaxGap);
+	}
+
 	public boolean isWriteRegistrations() {
 		return writeRegistrations;
 	}
@@ -1718,4 +1844,12 @@ public class DefaultServiceRegistry extends ServiceRegistry implements MetricCon
 		this.writeRegistrations = writeRegistrations;
 	}
 
+	public TimeoutScheduler getTimeoutScheduler() {
+		return timeoutScheduler;
+	}
+
+	public void setTimeoutScheduler(TimeoutScheduler timeoutScheduler) {
+		this.timeoutScheduler = Objects.requireNonNull(timeoutScheduler);
+	}
+
 }
@@ -0,0 +1,208 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.datatree.Promise;
+import services.moleculer.context.Context;
+import services.moleculer.metrics.MetricConstants;
+
+/**
+ * State of a hedged action call. The first request is sent to the endpoint
+ * selected by the Strategy; if it doesn't respond within "hedgeAfter"
+ * milliseconds, the same request is sent to another node (at most
+ * "maxHedges" times). The first response wins, the pending requests of the
+ * other attempts are cancelled.
+ */
+public class HedgedCall implements MetricConstants {
+
+	// --- PROPERTIES ---
+
+	protected final DefaultServiceInvoker invoker;
+	protected final Context ctx;
+	protected final int remaining;
+
+	protected final Promise promise = new Promise();
+
+	// --- ATTEMPTS ---
+
+	protected final ArrayList<Context> attempts = new ArrayList<>();
+	protected final HashSet<String> nodeIDs = new HashSet<>();
+
+	protected int failed;
+	protected boolean done;
+
+	// --- HEDGE TIMER ---
+
+	protected ScheduledFuture<?> timer;
+
+	// --- CONSTRUCTOR ---
+
+	protected HedgedCall(DefaultServiceInvoker invoker, Context ctx, int remaining) {
+		this.invoker = invoker;
+		this.ctx = ctx;
+		this.remaining = remaining;
+	}
+
+	// --- SEND THE FIRST REQUEST ---
+
+	protected Promise start() {
+		String nodeID;
+		try {
+			nodeID = ((ActionEndpoint) invoker.serviceRegistry.getAction(ctx.name, null)).getNodeID();
+		} catch (Throwable cause) {
+			return invoker.retry(ctx, null, remaining, cause);
+		}
+		send(ctx, nodeID);
+		return promise;
+	}
+
+	// --- SEND A DUPLICATED REQUEST ---
+
+	protected void hedge() {
+		synchronized (this) {
+			if (done) {
+				return;
+			}
+		}
+
+		// Choose another node
+		String nodeID = null;
+		try {
+			for (int i = 0; i < invoker.maxHedgeTries; i++) {
+				String test = ((ActionEndpoint) invoker.serviceRegistry.getAction(ctx.name, null)).getNodeID();
+				synchronized (this) {
+					if (!nodeIDs.contains(test)) {
+						nodeID = test;
+						break;
+					}
+				}
+			}
+		} catch (Throwable cause) {
+
+			// Service is no longer available
+		}
+		if (nodeID == null) {
+			return;
+		}
+
+		// Create new Context (with new id)
+		Context hedge = new Context(invoker, invoker.eventbus, invoker.uidGenerator, invoker.uidGenerator.nextUID(),
+				ctx.name, ctx.params, ctx.level, ctx.parentID, ctx.requestID, null, ctx.opts, ctx.nodeID);
+		if (invoker.metrics != null) {
+			invoker.metrics.increment(MOLECULER_REQUEST_HEDGE_TOTAL, MOLECULER_REQUEST_HEDGE_TOTAL_DESC, "action",
+					ctx.name);
+		}
+		send(hedge, nodeID);
+	}
+
+	protected void send(Context attempt, String nodeID) {
+		synchronized (this) {
+			attempts.add(attempt);
+			nodeIDs.add(nodeID);
+		}
+		invoker.call(attempt, nodeID, 0).then(rsp -> {
+			onResponse(attempt, rsp);
+		}).catchError(err -> {
+			onError(err);
+		});
+		schedule();
+	}
+
+	protected synchronized void schedule() {
+		if (done || attempts.size() > ctx.opts.maxHedges) {
+			return;
+		}
+		timer = invoker.scheduler.schedule(this::hedge, ctx.opts.hedgeAfter, TimeUnit.MILLISECONDS);
+	}
+
+	// --- RESPONSE HANDLING ---
+
+	protected void onResponse(Context winner, Object rsp) {
+		ArrayList<Context> losers;
+		synchronized (this) {
+			if (done) {
+				return;
+			}
+			done = true;
+			cancelTimer();
+			losers = new ArrayList<>(attempts);
+		}
+
+		// Cancel pending requests
+		for (Context attempt : losers) {
+			if (attempt != winner) {
+				invoker.cancel(attempt);
+			}
+		}
+
+		// Hedged request won
+		if (winner != ctx && invoker.metrics != null) {
+			invoker.metrics.increment(MOLECULER_REQUEST_HEDGE_WON_TOTAL, MOLECULER_REQUEST_HEDGE_WON_TOTAL_DESC,
+					"action", ctx.name);
+		}
+		promise.complete(rsp);
+	}
+
+	protected void onError(Throwable cause) {
+		synchronized (this) {
+			if (done) {
+				return;
+			}
+
+			// Other requests are still pending
+			failed++;
+			if (failed < attempts.size()) {
+				return;
+			}
+			done = true;
+			cancelTimer();
+		}
+
+		// All attempts failed -> retry
+		if (remaining < 1 || !invoker.retryLogic.test(cause)) {
+			promise.complete(cause);
+			return;
+		}
+		invoker.retry(ctx, null, remaining, cause).then(rsp -> {
+			promise.complete(rsp);
+		}).catchError(err -> {
+			promise.complete(err);
+		});
+	}
+
+	protected void cancelTimer() {
+		if (timer != null) {
+			timer.cancel(false);
+			timer = null;
+		}
+	}
+
+}
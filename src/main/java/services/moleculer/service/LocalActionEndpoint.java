@@ -31,14 +31,24 @@ import java.util.concurrent.ExecutorService;
 
 import io.datatree.Promise;
 import io.datatree.Tree;
+import services.moleculer.metrics.LatencyRecorder;
 
 public class LocalActionEndpoint extends ActionEndpoint {
 
+	// --- LATENCY HISTOGRAM ---
+
+	/**
+	 * Latency recorder of this action (null = metrics are disabled).
+	 */
+	protected final LatencyRecorder latencyRecorder;
+
 	// --- CONSTRUCTOR ---
 
 	public LocalActionEndpoint(DefaultServiceRegistry registry, ExecutorService executor, String nodeID, String service,
 			Tree config, Action action, String actionName) {
 		super(nodeID, service, config);
+		LatencyRecorder recorder = registry.getLatencyRecorder(actionName);
+		this.latencyRecorder = recorder;
 
 		// Handle local timeout with a handler
 		current = ctx -> {
@@ -54,25 +64,29 @@ public class LocalActionEndpoint extends ActionEndpoint {
 					long timeoutAt = System.currentTimeMillis() + ctx.opts.timeout;
 
 					// Register promise
-					registry.register(ctx.id, promise, timeoutAt, nodeID, actionName, ctx.params);
+					registry.register(ctx.id, promise, timeoutAt, nodeID, actionName, ctx.params, this);
 
 					// Invoke async method
 					try {
+						long start = recorder == null ? 0 : System.nanoTime();
 						Object rsp = action.handler(ctx);
 
 						// Deregister
 						Promise.resolve(rsp).then(in -> {
 							in = mergeMeta(in, ctx.params);
 							if (promise.complete(in)) {
-								registry.deregister(ctx.id);
+								registry.deregister(ctx.id, true);
+								if (recorder != null) {
+									recorder.record(System.nanoTime() - start);
+								}
 							}
 						}).catchError(err -> {
 							if (promise.complete(err)) {
-								registry.deregister(ctx.id);
+								registry.deregister(ctx.id, false);
 							}
 						});
 					} catch (Throwable cause) {
-						registry.deregister(ctx.id);
+						registry.deregister(ctx.id, false);
 						promise.complete(cause);
 					}
 
@@ -84,10 +98,30 @@ public class LocalActionEndpoint extends ActionEndpoint {
 			} else {
 
 				// Invoke handler without timeout handling
+				if (recorder == null) {
+					if (ctx.params == null || ctx.params.getMeta(false) == null) {
+						return action.handler(ctx);
+					}
+					return Promise.resolve(action.handler(ctx)).then(in -> {
+						return mergeMeta(in, ctx.params);
+					});
+				}
+
+				// Invoke handler and measure latency
+				long start = System.nanoTime();
+				Object rsp = action.handler(ctx);
 				if (ctx.params == null || ctx.params.getMeta(false) == null) {
-					return action.handler(ctx);
+					if (rsp instanceof Promise) {
+						return ((Promise) rsp).then(in -> {
+							recorder.record(System.nanoTime() - start);
+							return in;
+						});
+					}
+					recorder.record(System.nanoTime() - start);
+					return rsp;
 				}
-				return Promise.resolve(action.handler(ctx)).then(in -> {
+				return Promise.resolve(rsp).then(in -> {
+					recorder.record(System.nanoTime() - start);
 					return mergeMeta(in, ctx.params);
 				});
 			}
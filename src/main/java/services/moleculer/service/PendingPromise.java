@@ -27,6 +27,7 @@ package services.moleculer.service;
 
 import io.datatree.Promise;
 import io.datatree.Tree;
+import services.moleculer.util.TimeoutScheduler.Timeout;
 
 /**
  * Promise container of a pending action calls.
@@ -40,15 +41,70 @@ public class PendingPromise {
 	protected final String nodeID;
 	protected final String action;
 	protected final Tree req;
+	protected final ActionEndpoint endpoint;
+	protected final long startedAt;
+
+	// --- TIMEOUT HANDLER ---
+
+	protected volatile Timeout timeout;
 	
 	// --- CONSTRUCTOR ---
 
-	PendingPromise(Promise promise, long timeoutAt, String nodeID, String action, Tree req) {
+	PendingPromise(Promise promise, long timeoutAt, String nodeID, String action, Tree req,
+			ActionEndpoint endpoint) {
 		this.promise = promise;
 		this.timeoutAt = timeoutAt;
 		this.nodeID = nodeID;
 		this.action = action;
 		this.req = req;
+		this.endpoint = endpoint;
+		if (endpoint == null) {
+			this.startedAt = 0;
+		} else {
+			this.startedAt = System.nanoTime();
+			endpoint.requestStarted();
+		}
+	}
+
+	// --- UPDATE LOAD STATISTICS OF THE ENDPOINT ---
+
+	/**
+	 * This method (or the "cancelled") must be invoked exactly once, by the
+	 * thread which removed this container from the registry (response,
+	 * timeout or rejection).
+	 * 
+	 * @param success
+	 *            false = error response, timeout or rejection
+	 * 
+	 * @return duration of the call in NANOSECONDS (or -1 if the call is not
+	 *         bound to an endpoint)
+	 */
+	protected long finished(boolean success) {
+		if (endpoint != null) {
+			long duration = System.nanoTime() - startedAt;
+			endpoint.requestFinished(duration, success);
+			return duration;
+		}
+		return -1;
+	}
+
+	/**
+	 * Releases the endpoint without a response time sample (the call was
+	 * cancelled by the caller).
+	 */
+	protected void cancelled() {
+		if (endpoint != null) {
+			endpoint.requestCancelled();
+		}
+	}
+
+	// --- CANCEL TIMEOUT ---
+
+	protected void cancelTimeout() {
+		Timeout t = timeout;
+		if (t != null) {
+			t.cancel();
+		}
 	}
 
 }
\ No newline at end of file
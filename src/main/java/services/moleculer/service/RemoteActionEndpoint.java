@@ -59,13 +59,14 @@ public class RemoteActionEndpoint extends ActionEndpoint {
 			}
 
 			// Register promise (timeout and response handling)
-			registry.register(ctx.id, promise, timeoutAt, nodeID, actionName, ctx.params);
+			registry.register(ctx.id, promise, timeoutAt, nodeID, actionName, ctx.params, this);
 
 			// Send request via transporter
 			transporter.sendRequestPacket(nodeID, ctx);
 
 			// Streamed content
 			if (ctx.stream != null) {
+				transporter.openOutgoingStream(nodeID, ctx.id, ctx.stream);
 				ctx.stream.onPacket(new PacketListener() {
 
 					// Create sequence counter
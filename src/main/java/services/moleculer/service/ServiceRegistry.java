@@ -66,6 +66,10 @@ public abstract class ServiceRegistry extends MoleculerComponent {
 
 	public abstract void removeActions(String nodeID);
 
+	// --- REMOVE ACTIONS OF A REMOTE SERVICE ---
+
+	public abstract void removeActions(String nodeID, Tree config, Tree current);
+
 	// --- GET LOCAL SERVICE ---
 
 	public abstract Service getService(String name);
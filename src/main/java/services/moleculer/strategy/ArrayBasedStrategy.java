@@ -44,6 +44,7 @@ import services.moleculer.service.Endpoint;
  * @see XorShiftRandomStrategy
  * @see CpuUsageStrategy
  * @see NetworkLatencyStrategy
+ * @see LeastOutstandingStrategy
  * @see ShardStrategy
  */
 public abstract class ArrayBasedStrategy<T extends Endpoint> extends Strategy<T> {
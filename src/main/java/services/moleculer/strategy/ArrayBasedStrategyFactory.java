@@ -34,6 +34,7 @@ package services.moleculer.strategy;
  * @see XorShiftRandomStrategyFactory
  * @see CpuUsageStrategyFactory
  * @see NetworkLatencyStrategyFactory
+ * @see LeastOutstandingStrategyFactory
  * @see ShardStrategyFactory
  */
 public abstract class ArrayBasedStrategyFactory extends StrategyFactory {
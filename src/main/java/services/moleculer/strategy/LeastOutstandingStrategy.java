@@ -0,0 +1,103 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.strategy;
+
+import services.moleculer.ServiceBroker;
+import services.moleculer.context.Context;
+import services.moleculer.service.ActionEndpoint;
+import services.moleculer.service.Endpoint;
+import services.moleculer.service.Name;
+
+/**
+ * Least outstanding requests strategy. Picks two random endpoints and invokes
+ * the one with fewer pending calls ("power of two choices"). The number of
+ * pending calls is maintained by the ServiceRegistry (it's incremented when
+ * the PendingPromise of a call is registered, and decremented when the call is
+ * answered, timeouted or rejected). Optionally the number of pending calls is
+ * weighted by the average (EWMA) response time of the endpoints, so slow nodes
+ * receive less traffic.
+ *
+ * @see RoundRobinStrategy
+ * @see NanoSecRandomStrategy
+ * @see XorShiftRandomStrategy
+ * @see SecureRandomStrategy
+ * @see CpuUsageStrategy
+ * @see NetworkLatencyStrategy
+ * @see ShardStrategy
+ */
+@Name("Least Outstanding Requests Strategy")
+public class LeastOutstandingStrategy<T extends Endpoint> extends XorShiftRandomStrategy<T> {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Weight the number of pending calls with the average response time.
+	 */
+	protected final boolean latencyWeighted;
+
+	// --- CONSTRUCTOR ---
+
+	public LeastOutstandingStrategy(ServiceBroker broker, boolean preferLocal, boolean latencyWeighted) {
+		super(broker, preferLocal);
+		this.latencyWeighted = latencyWeighted;
+	}
+
+	// --- GET NEXT ENDPOINT ---
+
+	@Override
+	public Endpoint next(Context ctx, Endpoint[] array) {
+
+		// Select two different endpoints
+		int length = array.length;
+		int i = nextIndex(length);
+		int j = nextIndex(length - 1);
+		if (j >= i) {
+			j++;
+		}
+		Endpoint first = array[i];
+		Endpoint second = array[j];
+		if (!(first instanceof ActionEndpoint) || !(second instanceof ActionEndpoint)) {
+			return first;
+		}
+
+		// Compare the loads of the endpoints
+		return score((ActionEndpoint) second) < score((ActionEndpoint) first) ? second : first;
+	}
+
+	protected double score(ActionEndpoint endpoint) {
+		double score = endpoint.getOutstanding() + 1;
+		if (latencyWeighted) {
+
+			// Endpoints without samples are preferred (until the first response)
+			double latency = endpoint.getLatency();
+			if (latency > 0) {
+				score *= latency;
+			}
+		}
+		return score;
+	}
+
+}
@@ -26,7 +26,6 @@
 package services.moleculer.strategy;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
@@ -38,7 +37,14 @@ import services.moleculer.service.Name;
 
 /**
  * Sharding invocation strategy. Using consistent-hashing.<br>
- * More info: https://www.toptal.com/big-data/consistent-hashing
+ * More info: https://www.toptal.com/big-data/consistent-hashing<br>
+ * <br>
+ * The vnodes are stored in a sorted array (the layout is compatible with the
+ * Node.js implementation), the owner of a hash is located by binary search.
+ * Optionally, a Maglev lookup table (see
+ * https://research.google/pubs/pub44824/) provides O(1) routing, with minimal
+ * disruption when a node joins or leaves the cluster (the Maglev table is not
+ * compatible with the Node.js implementation).
  * 
  * @see RoundRobinStrategy
  * @see NanoSecRandomStrategy
@@ -68,7 +74,7 @@ public class ShardStrategy<T extends Endpoint> extends XorShiftRandomStrategy<T>
 	protected final Integer ringSize;
 
 	/**
-	 * Size of the memory cache (0 = disabled)
+	 * Read the shard key from the "meta" block
 	 */
 	protected final boolean useMeta;
 
@@ -77,6 +83,12 @@ public class ShardStrategy<T extends Endpoint> extends XorShiftRandomStrategy<T>
 	 */
 	protected final int cacheSize;
 
+	/**
+	 * Size of the Maglev lookup table (0 = disabled, otherwise rounded up to
+	 * the next prime number)
+	 */
+	protected final int maglevSize;
+
 	// --- RING ---
 
 	/**
@@ -91,10 +103,22 @@ public class ShardStrategy<T extends Endpoint> extends XorShiftRandomStrategy<T>
 	 */
 	protected final Function<String, Long> hash;
 
-	// --- CONSTRUCTOR ---
+	/**
+	 * Accelerator cache (shard key -&gt; hash). The hash of a key does not
+	 * depend on the members of the cluster, so the cache is preserved when the
+	 * ring is rebuilt.
+	 */
+	protected final Cache<String, Long> cache;
+
+	// --- CONSTRUCTORS ---
 
 	public ShardStrategy(ServiceBroker broker, boolean preferLocal, String shardKey, int vnodes, Integer ringSize,
 			int cacheSize, Function<String, Long> hash) {
+		this(broker, preferLocal, shardKey, vnodes, ringSize, cacheSize, 0, hash);
+	}
+
+	public ShardStrategy(ServiceBroker broker, boolean preferLocal, String shardKey, int vnodes, Integer ringSize,
+			int cacheSize, int maglevSize, Function<String, Long> hash) {
 		super(broker, preferLocal);
 
 		// Set properties
@@ -108,7 +132,9 @@ public class ShardStrategy<T extends Endpoint> extends XorShiftRandomStrategy<T>
 		this.vnodes = vnodes < 1 ? 1 : vnodes;
 		this.ringSize = ringSize;
 		this.cacheSize = cacheSize;
+		this.maglevSize = maglevSize < 1 ? 0 : nextPrime(maglevSize);
 		this.hash = hash;
+		this.cache = cacheSize < 1 ? null : new Cache<>(cacheSize);
 
 		// Init Ring
 		rebuild();
@@ -141,42 +167,22 @@ public class ShardStrategy<T extends Endpoint> extends XorShiftRandomStrategy<T>
 			String key = getKeyFromContext(ctx);
 			if (key != null) {
 
-				// Get current ring
-				Ring ring = ringRef.get();
-
-				// Get from cache
-				Endpoint next;
-				if (ring.cache != null) {
-					next = ring.cache.get(key);
-					if (next != null) {
-						return next;
-					}
+				// Get hash number (from cache)
+				Long hashNum = null;
+				if (cache != null) {
+					hashNum = cache.get(key);
 				}
-
-				// Calculate hash number
-				long hashNum = hash.apply(key);
-				if (ring.ringSize > -1) {
-					hashNum %= ring.ringSize;
+				if (hashNum == null) {
+					hashNum = hash.apply(key);
+					if (cache != null) {
+						cache.put(key, hashNum);
+					}
 				}
 
 				// Find endpoint
-				long[][] limits = new long[array.length][];
-				for (int i = 0; i < array.length; i++) {
-					limits[i] = ring.limitMap.get(array[i]);
-				}
-				for (int j = 0; j < vnodes; j++) {
-					for (int i = 0; i < array.length; i++) {
-						if (limits[i] == null) {
-							continue;
-						}
-						if (hashNum <= limits[i][j]) {
-							next = array[i];
-							if (ring.cache != null) {
-								ring.cache.put(key, next);
-							}
-							return next;
-						}
-					}
+				Endpoint next = find(ringRef.get(), hashNum, array);
+				if (next != null) {
+					return next;
 				}
 			}
 		}
@@ -195,53 +201,173 @@ public class ShardStrategy<T extends Endpoint> extends XorShiftRandomStrategy<T>
 		return ctx.params.get(shardKey, (String) null);
 	}
 
+	/**
+	 * Finds the owner of the specified hash number.
+	 * 
+	 * @param ring
+	 *            current ring
+	 * @param hashNum
+	 *            hash of the shard key
+	 * @param array
+	 *            available endpoints
+	 * 
+	 * @return owner endpoint (or null)
+	 */
+	protected Endpoint find(Ring ring, long hashNum, Endpoint[] array) {
+		int len = ring.keys.length;
+		if (len == 0) {
+			return null;
+		}
+		boolean all = array == ring.endpoints;
+
+		// Maglev lookup table (O(1))
+		if (all && ring.table != null) {
+			return ring.table[(int) ((hashNum & Long.MAX_VALUE) % ring.table.length)];
+		}
+
+		// Binary search (first vnode, which is greater or equal to the hash)
+		if (ring.ringSize > -1) {
+			hashNum %= ring.ringSize;
+		}
+		int index = Arrays.binarySearch(ring.keys, hashNum);
+		if (index < 0) {
+			index = -index - 1;
+			if (index == len) {
+				index = 0;
+			}
+		}
+		if (all) {
+			return ring.owners[index];
+		}
+
+		// Subset of the endpoints (eg. local endpoints) -> walk clockwise
+		for (int n = 0; n < len; n++) {
+			Endpoint owner = ring.owners[(index + n) % len];
+			for (Endpoint endpoint : array) {
+				if (owner.equals(endpoint)) {
+					return owner;
+				}
+			}
+		}
+		return null;
+	}
+
 	protected void rebuild() {
 
 		// Sort endpoints by nodeIDs
-		Endpoint[] copy = new Endpoint[endpoints.length];
-		System.arraycopy(endpoints, 0, copy, 0, copy.length);
+		Endpoint[] source = endpoints;
+		Endpoint[] copy = new Endpoint[source.length];
+		System.arraycopy(source, 0, copy, 0, copy.length);
 		Arrays.sort(copy, (ep1, ep2) -> {
 			return String.CASE_INSENSITIVE_ORDER.compare(ep1.getNodeID(), ep2.getNodeID());
 		});
 
 		// Check ringSize
-		Ring ring = new Ring(copy.length, vnodes, ringSize, cacheSize);
-		
+		Ring ring = new Ring(source, vnodes, ringSize);
+
 		// Calculate
 		int total = copy.length * vnodes;
 		long size = ring.ringSize > -1 ? ring.ringSize : (long) Math.pow(2, 32);
 		double slice = size / (double) total;
-		
-		// Build ring
-		long index = 1;
+
+		// Build ring (the vnodes are in ascending order)
+		int index = 0;
 		for (int j = 0; j < vnodes; j++) {
 			for (int i = 0; i < copy.length; i++) {
-				long[] limits = ring.limitMap.get(copy[i]);
-				if (limits == null) {
-					limits = new long[vnodes];
-					ring.limitMap.put(copy[i], limits);
-				}
-				if (j == vnodes - 1 && i == copy.length - 1) {
-					limits[j] = size;
+				if (index == total - 1) {
+					ring.keys[index] = size;
 				} else {
-					limits[j] = (long) (slice * (index++));
+					ring.keys[index] = (long) (slice * (index + 1));
 				}
+				ring.owners[index++] = copy[i];
 			}
 		}
 
-		// Store the new ring (clear cache)
+		// Build Maglev lookup table
+		if (maglevSize > 0 && copy.length > 0) {
+			ring.table = populate(copy, maglevSize);
+		}
+
+		// Store the new ring
 		ringRef.set(ring);
 	}
 
+	// --- MAGLEV LOOKUP TABLE ---
+
+	/**
+	 * Fills the Maglev lookup table. Each endpoint has its own permutation of
+	 * the table's slots (generated from the hash of the nodeID), and the
+	 * endpoints take turns claiming their next preferred slot.
+	 * 
+	 * @param sorted
+	 *            endpoints (sorted by nodeIDs)
+	 * @param size
+	 *            size of the table (prime number)
+	 * 
+	 * @return lookup table
+	 */
+	protected Endpoint[] populate(Endpoint[] sorted, int size) {
+		int n = sorted.length;
+		long[] offset = new long[n];
+		long[] skip = new long[n];
+		long[] next = new long[n];
+		for (int i = 0; i < n; i++) {
+			String nodeID = sorted[i].getNodeID();
+			offset[i] = (hash.apply(nodeID) & Long.MAX_VALUE) % size;
+			skip[i] = (hash.apply(nodeID + "#skip") & Long.MAX_VALUE) % (size - 1) + 1;
+		}
+		Endpoint[] table = new Endpoint[size];
+		int filled = 0;
+		while (true) {
+			for (int i = 0; i < n; i++) {
+				int slot = (int) ((offset[i] + next[i] * skip[i]) % size);
+				while (table[slot] != null) {
+					next[i]++;
+					slot = (int) ((offset[i] + next[i] * skip[i]) % size);
+				}
+				table[slot] = sorted[i];
+				next[i]++;
+				if (++filled == size) {
+					return table;
+				}
+			}
+		}
+	}
+
+	protected static int nextPrime(int value) {
+		int candidate = Math.max(3, value);
+		while (true) {
+			boolean prime = candidate % 2 != 0;
+			for (int i = 3; prime && (long) i * i <= candidate; i += 2) {
+				prime = candidate % i != 0;
+			}
+			if (prime) {
+				return candidate;
+			}
+			candidate++;
+		}
+	}
+
 	// --- RING ---
 
 	protected static class Ring {
 
 		// --- VARIABLES ---
+
+		/**
+		 * Array of the endpoints (used to detect subsets)
+		 */
+		protected final Endpoint[] endpoints;
+
+		/**
+		 * Positions of the vnodes (in ascending order)
+		 */
+		protected final long[] keys;
+
 		/**
-		 * The "hash ring" (https://www.toptal.com/big-data/consistent-hashing)
+		 * Owners of the vnodes
 		 */
-		protected HashMap<Endpoint, long[]> limitMap;
+		protected final Endpoint[] owners;
 
 		/**
 		 * Actual/minimum ring size (or -1, if not set)
@@ -249,22 +375,24 @@ public class ShardStrategy<T extends Endpoint> extends XorShiftRandomStrategy<T>
 		protected final int ringSize;
 
 		/**
-		 * Accelerator cache
+		 * Maglev lookup table (or null)
 		 */
-		protected final Cache<String, Endpoint> cache;
+		protected Endpoint[] table;
 
 		// --- CONSTRUCTOR ---
 
-		protected Ring(int nodes, int vnodes, Integer ringSize, int cacheSize) {
+		protected Ring(Endpoint[] endpoints, int vnodes, Integer ringSize) {
+			int nodes = endpoints.length;
 			if (ringSize == null || nodes < 1) {
 				this.ringSize = -1;
 			} else {
 				this.ringSize = Math.max(ringSize, vnodes * nodes);
 			}
-			cache = cacheSize < 1 ? null : new Cache<>(cacheSize);
-			limitMap = new HashMap<>(this.ringSize == -1 ? 512 : this.ringSize * 2);
+			this.endpoints = endpoints;
+			this.keys = new long[nodes * vnodes];
+			this.owners = new Endpoint[nodes * vnodes];
 		}
 
 	}
 
-}
\ No newline at end of file
+}
@@ -69,6 +69,12 @@ public class ShardStrategyFactory extends ArrayBasedStrategyFactory {
 	 */
 	protected int cacheSize = 1024;
 
+	/**
+	 * Size of the Maglev lookup table (0 = disabled, use the Node.js
+	 * compatible hash ring)
+	 */
+	protected int maglevSize;
+
 	// --- HASHER ---
 
 	/**
@@ -155,7 +161,7 @@ public class ShardStrategyFactory extends ArrayBasedStrategyFactory {
 
 	@Override
 	public <T extends Endpoint> Strategy<T> create() {
-		return new ShardStrategy<T>(broker, preferLocal, shardKey, vnodes, ringSize, cacheSize, hash);
+		return new ShardStrategy<T>(broker, preferLocal, shardKey, vnodes, ringSize, cacheSize, maglevSize, hash);
 	}
 
 	// --- GETTERS AND SETTERS ---
@@ -192,6 +198,14 @@ public class ShardStrategyFactory extends ArrayBasedStrategyFactory {
 		this.cacheSize = cacheSize;
 	}
 
+	public int getMaglevSize() {
+		return maglevSize;
+	}
+
+	public void setMaglevSize(int maglevSize) {
+		this.maglevSize = maglevSize;
+	}
+
 	public Function<String, Long> getHash() {
 		return hash;
 	}
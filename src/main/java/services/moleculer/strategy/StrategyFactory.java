@@ -48,6 +48,7 @@ import services.moleculer.service.Name;
  * @see XorShiftRandomStrategyFactory
  * @see CpuUsageStrategyFactory
  * @see NetworkLatencyStrategyFactory
+ * @see LeastOutstandingStrategyFactory
  */
 @Name("Strategy Factory")
 public abstract class StrategyFactory extends MoleculerComponent {
@@ -60,6 +60,14 @@ public class XorShiftRandomStrategy<T extends Endpoint> extends ArrayBasedStrate
 	@Override
 	public Endpoint next(Context ctx, Endpoint[] array) {
 
+		// Return ActionEndpoint
+		return array[nextIndex(array.length)];
+	}
+
+	// --- GET NEXT RANDOM INDEX ---
+
+	protected int nextIndex(int bound) {
+
 		// Generate pseudo random long (XORShift is the fastest random method)
 		long start;
 		long next;
@@ -70,9 +78,7 @@ public class XorShiftRandomStrategy<T extends Endpoint> extends ArrayBasedStrate
 			next ^= (next >>> 35);
 			next ^= (next << 4);
 		} while (!rnd.compareAndSet(start, next));
-
-		// Return ActionEndpoint
-		return array[(int) Math.abs(next % array.length)];
+		return (int) Math.abs(next % bound);
 	}
 
 }
\ No newline at end of file
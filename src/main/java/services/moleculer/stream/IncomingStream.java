@@ -26,16 +26,29 @@
 package services.moleculer.stream;
 
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import io.datatree.Tree;
+import services.moleculer.error.MoleculerClientError;
 import services.moleculer.error.MoleculerError;
 import services.moleculer.error.MoleculerErrorUtils;
+import services.moleculer.metrics.MetricCounter;
+import services.moleculer.util.TimeoutScheduler.Timeout;
 
 public class IncomingStream {
 
+	// --- CONSTANTS ---
+
+	public static final int DEFAULT_MAX_GAP = 1024;
+
+	protected static final int MIN_RING_SIZE = 16;
+
+	protected static final byte SLOT_DATA = 1;
+	protected static final byte SLOT_CLOSE = 2;
+	protected static final byte SLOT_ERROR = 4;
+
 	// --- PROPERTIES ---
 
 	/**
@@ -58,23 +71,88 @@ public class IncomingStream {
 	 */
 	protected volatile long timeoutAt;
 
-	protected volatile long prevSeq = -1;
+	/**
+	 * Scheduled timeout task (or null).
+	 */
+	protected volatile Timeout timeout;
 
-	protected final HashMap<Long, Tree> pool = new HashMap<>();
+	protected volatile long prevSeq = -1;
 
 	protected AtomicBoolean inited = new AtomicBoolean();
 
-	// --- CONSTRUCTOR ---
+	// --- REORDER RING ---
+
+	/**
+	 * Maximum distance between the last processed and the incoming sequence
+	 * number. The stream fails if the gap is larger.
+	 */
+	protected final int maxGap;
+
+	/**
+	 * Payloads of the out-of-order packets (indexed by "seq &amp; mask").
+	 * Allocated at the first out-of-order packet and grown on demand. Its size
+	 * is the smallest power of two that covers the largest gap seen so far (at
+	 * least MIN_RING_SIZE), so it can be up to twice the "maxGap".
+	 */
+	protected byte[][] payloads;
+
+	/**
+	 * Type of the parked packets (0 = empty slot, SLOT_DATA, SLOT_CLOSE,
+	 * SLOT_ERROR).
+	 */
+	protected byte[] slots;
+
+	protected int mask;
+
+	/**
+	 * Error of a parked packet.
+	 */
+	protected Throwable parkedError;
+
+	/**
+	 * Number of parked (out-of-order) packets.
+	 */
+	protected int reorderDepth;
+
+	/**
+	 * Number of duplicated or late packets.
+	 */
+	protected long latePackets;
+
+	// --- PARSED PACKET ---
+
+	protected byte[] parsedBytes;
+	protected Throwable parsedCause;
+	protected boolean parsedClose;
+
+	// --- METRICS ---
+
+	protected MetricCounter counterReorderDepth;
+	protected MetricCounter counterLatePackets;
+
+	// --- CONSTRUCTORS ---
 
 	public IncomingStream(String nodeID, ScheduledExecutorService scheduler, long timeoutMillis) {
+		this(nodeID, scheduler, timeoutMillis, DEFAULT_MAX_GAP);
+	}
+
+	public IncomingStream(String nodeID, ScheduledExecutorService scheduler, long timeoutMillis, int maxGap) {
 		this.nodeID = nodeID;
 		this.stream = new PacketStream(nodeID, scheduler);
 		this.timeoutMillis = timeoutMillis;
+		this.maxGap = Math.max(1, maxGap);
 		if (timeoutMillis > 0) {
 			timeoutAt = System.currentTimeMillis() + timeoutMillis;
 		}
 	}
 
+	// --- METRICS ---
+
+	public void setMetrics(MetricCounter counterReorderDepth, MetricCounter counterLatePackets) {
+		this.counterReorderDepth = counterReorderDepth;
+		this.counterLatePackets = counterLatePackets;
+	}
+
 	// --- RESET ---
 
 	/**
@@ -83,9 +161,13 @@ public class IncomingStream {
 	public synchronized void reset() {
 		timeoutAt = 0;
 		prevSeq = -1;
-		pool.clear();
+		releaseParked();
+		latePackets = 0;
 		stream.closed.set(false);
 		stream.buffer.clear();
+		stream.bufferedBytes = 0;
+		stream.consumedBytes = 0;
+		stream.grantedBytes = 0;
 		stream.cause = null;
 		stream.transferedBytes.set(0);
 		inited.set(false);
@@ -93,7 +175,8 @@ public class IncomingStream {
 
 	// --- ERROR ---
 
-	public void error(Throwable cause) {
+	public synchronized void error(Throwable cause) {
+		releaseParked();
 		stream.sendError(cause);
 	}
 
@@ -113,16 +196,30 @@ public class IncomingStream {
 		}
 
 		// Check sequence number
-		long seq = message.get("seq", -1);
+		long seq = message.get("seq", -1L);
 		if (seq > -1) {
-			if (seq - 1 == prevSeq) {
-				prevSeq = seq;
-			} else {
+			if (seq <= prevSeq) {
+
+				// Duplicated or late packet
+				late();
+				return false;
+			}
+			if (seq - 1 != prevSeq) {
+				long distance = seq - prevSeq;
+				if (distance > maxGap) {
+
+					// Too many missing packets
+					releaseParked();
+					stream.sendError(new MoleculerClientError("Too many missing stream packets (received: " + seq
+							+ ", expected: " + (prevSeq + 1) + ", max gap: " + maxGap + ")!", nodeID));
+					return true;
+				}
 
 				// Process later
-				pool.put(seq, message);
+				park(seq, (int) distance, message);
 				return false;
 			}
+			prevSeq = seq;
 		} else {
 			prevSeq = -1;
 		}
@@ -130,23 +227,107 @@ public class IncomingStream {
 		// Process current message
 		boolean close = processMessage(message);
 
-		// Process pooled messages
-		long nextSeq = prevSeq;
-		while (true) {
-			Tree nextMessage = pool.remove(++nextSeq);
-			if (nextMessage == null) {
+		// Process parked packets
+		while (reorderDepth > 0) {
+			int idx = (int) ((prevSeq + 1) & mask);
+			byte slot = slots[idx];
+			if (slot == 0) {
 				break;
 			}
-			prevSeq = nextSeq;
-			if (processMessage(nextMessage)) {
+			prevSeq++;
+			byte[] bytes = payloads[idx];
+			payloads[idx] = null;
+			slots[idx] = 0;
+			reorderDepth--;
+			if (counterReorderDepth != null) {
+				counterReorderDepth.decrement();
+			}
+			Throwable cause = null;
+			if ((slot & SLOT_ERROR) != 0) {
+				cause = parkedError;
+				parkedError = null;
+			}
+			if (deliver(bytes, cause, (slot & SLOT_CLOSE) != 0)) {
 				close = true;
 			}
 		}
+		if (close) {
+			releaseParked();
+		}
 
 		// True = remove stream from registry
 		return close;
 	}
 
+	protected void park(long seq, int distance, Tree message) {
+
+		// Allocate or grow ring
+		if (payloads == null || distance > payloads.length) {
+			int size = Math.max(MIN_RING_SIZE, Integer.highestOneBit(distance - 1) << 1);
+			byte[][] newPayloads = new byte[size][];
+			byte[] newSlots = new byte[size];
+			int newMask = size - 1;
+			if (payloads != null && reorderDepth > 0) {
+				for (long s = prevSeq + 1, last = prevSeq + payloads.length; s <= last; s++) {
+					int oldIdx = (int) (s & mask);
+					if (slots[oldIdx] != 0) {
+						int newIdx = (int) (s & newMask);
+						newPayloads[newIdx] = payloads[oldIdx];
+						newSlots[newIdx] = slots[oldIdx];
+					}
+				}
+			}
+			payloads = newPayloads;
+			slots = newSlots;
+			mask = newMask;
+		}
+
+		// Store payload only
+		int idx = (int) (seq & mask);
+		if (slots[idx] != 0) {
+
+			// Duplicated packet
+			late();
+			return;
+		}
+		parse(message);
+		byte slot = SLOT_DATA;
+		if (parsedClose) {
+			slot |= SLOT_CLOSE;
+		}
+		if (parsedCause != null) {
+			slot |= SLOT_ERROR;
+			parkedError = parsedCause;
+		}
+		payloads[idx] = parsedBytes;
+		slots[idx] = slot;
+		parsedBytes = null;
+		parsedCause = null;
+		reorderDepth++;
+		if (counterReorderDepth != null) {
+			counterReorderDepth.increment();
+		}
+	}
+
+	protected void releaseParked() {
+		if (reorderDepth > 0) {
+			if (counterReorderDepth != null) {
+				counterReorderDepth.decrement(reorderDepth);
+			}
+			reorderDepth = 0;
+			Arrays.fill(payloads, null);
+			Arrays.fill(slots, (byte) 0);
+		}
+		parkedError = null;
+	}
+
+	protected void late() {
+		latePackets++;
+		if (counterLatePackets != null) {
+			counterLatePackets.increment();
+		}
+	}
+
 	protected boolean processMessage(Tree message) {
 
 		// Stream closed
@@ -154,6 +335,17 @@ public class IncomingStream {
 			return true;
 		}
 
+		// Parse and process incoming message
+		parse(message);
+		byte[] bytes = parsedBytes;
+		Throwable cause = parsedCause;
+		parsedBytes = null;
+		parsedCause = null;
+		return deliver(bytes, cause, parsedClose);
+	}
+
+	protected void parse(Tree message) {
+
 		// Create processing variables
 		byte[] bytes = null;
 		Throwable cause = null;
@@ -172,7 +364,12 @@ public class IncomingStream {
 					if (data == null) {
 						data = params;
 					}
-					if (data.isEnumeration()) {
+					Object chunk = data.asObject();
+					if (chunk instanceof byte[]) {
+
+						// Binary chunk (eg. from TcpTransporter)
+						bytes = (byte[]) chunk;
+					} else if (data.isEnumeration()) {
 						bytes = new byte[data.size()];
 						int idx = 0;
 						for (Tree item : data) {
@@ -203,6 +400,17 @@ public class IncomingStream {
 		} catch (Throwable error) {
 			cause = error;
 		}
+		parsedBytes = bytes;
+		parsedCause = cause;
+		parsedClose = close;
+	}
+
+	protected boolean deliver(byte[] bytes, Throwable cause, boolean close) {
+
+		// Stream closed
+		if (stream.isClosed()) {
+			return true;
+		}
 
 		// Bytes
 		if (bytes != null) {
@@ -225,8 +433,33 @@ public class IncomingStream {
 		return false;
 	}
 
+	// --- TIMEOUT HANDLER ---
+
+	public void setTimeout(Timeout timeout) {
+		this.timeout = timeout;
+	}
+
+	public void cancelTimeout() {
+		Timeout t = timeout;
+		if (t != null) {
+			t.cancel();
+		}
+	}
+
 	// --- PROPERTY GETTERS ---
 
+	public int getMaxGap() {
+		return maxGap;
+	}
+
+	public synchronized int getReorderDepth() {
+		return reorderDepth;
+	}
+
+	public synchronized long getLatePackets() {
+		return latePackets;
+	}
+
 	public long getTimeoutAt() {
 		return timeoutAt;
 	}
@@ -41,7 +41,9 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -88,6 +90,8 @@ public class PacketStream {
 
 	protected static final int DEFAULT_MIN_PACKET_SIZE = 1024 * 16;
 
+	protected static final long DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024 * 64;
+
 	protected static final byte[] CLOSE_MARKER = new byte[0];
 
 	// --- LOGGER ---
@@ -118,6 +122,11 @@ public class PacketStream {
 	 */
 	protected final LinkedList<byte[]> buffer = new LinkedList<>();
 
+	/**
+	 * Number of bytes in the memory-buffer.
+	 */
+	protected volatile long bufferedBytes;
+
 	/**
 	 * Counter of transfered bytes.
 	 * 
@@ -133,7 +142,7 @@ public class PacketStream {
 	/**
 	 * Cause (blocking error).
 	 */
-	protected Throwable cause;
+	protected volatile Throwable cause;
 
 	/**
 	 * Minimum size of packets.
@@ -146,6 +155,56 @@ public class PacketStream {
 	 */
 	protected long packetDelay = 100;
 
+	/**
+	 * Maximum size of the memory-buffer of an unconnected stream in bytes (0 =
+	 * unlimited, -1 = 64 MB with credit-based flow control, otherwise
+	 * unlimited). The "transferFrom" methods wait for the receiver, the
+	 * "sendData" method throws an error when the buffer is full.
+	 */
+	protected long maxBufferSize = -1;
+
+	// --- FLOW CONTROL ---
+
+	/**
+	 * Maximum number of sent but unacknowledged bytes (0 = no flow control).
+	 * Set by the Transporter, if the remote receiver supports credit-based flow
+	 * control. The "transferFrom" methods send the next packet without
+	 * "packetDelay", when the receiver has free capacity.
+	 */
+	protected volatile long window;
+
+	/**
+	 * Number of bytes consumed by the remote receiver (sum of the credits).
+	 */
+	protected final AtomicLong acknowledgedBytes = new AtomicLong();
+
+	/**
+	 * Paused "transferFrom" task (waiting for credits or listener).
+	 */
+	protected final AtomicReference<Runnable> waiting = new AtomicReference<>();
+
+	/**
+	 * Timestamp of the pause of the "transferFrom" task (0 = not paused).
+	 */
+	protected volatile long pausedAt;
+
+	/**
+	 * Receiver side: sends the number of consumed bytes (the credit) to the
+	 * remote sender.
+	 */
+	protected LongConsumer creditHandler;
+
+	/**
+	 * Receiver side: window size of the remote sender.
+	 */
+	protected long creditWindow;
+
+	/**
+	 * Receiver side: number of bytes processed by the listeners and the number
+	 * of bytes reported to the remote sender.
+	 */
+	protected long consumedBytes, grantedBytes;
+
 	// --- CONSTRUCTOR ---
 
 	public PacketStream(String nodeID, ScheduledExecutorService scheduler) {
@@ -181,6 +240,9 @@ public class PacketStream {
 						listener.onPacket(bytes, null, false);
 					}
 				}
+				if (listeners.length == 1) {
+					consumed(bufferedBytes);
+				}
 			} else {
 				listener.onPacket(null, cause, true);
 			}
@@ -189,6 +251,7 @@ public class PacketStream {
 		} catch (Throwable error) {
 			throw new MoleculerClientError("Unable to send packet to stream listener!", error, nodeID, null);
 		}
+		resume();
 		return true;
 	}
 
@@ -198,15 +261,26 @@ public class PacketStream {
 		if (bytes != null && bytes.length > 0 && !closed.get()) {
 			try {
 				if (listeners == null) {
+					long limit = getBufferLimit();
+					if (limit > 0 && bufferedBytes + bytes.length > limit) {
+						throw new MoleculerClientError("Stream buffer is full (" + limit + " bytes)!", nodeID);
+					}
 					buffer.addLast(bytes);
-				} else if (listeners.length == 1) {
-					listeners[0].onPacket(bytes, null, false);
+					bufferedBytes += bytes.length;
+					transferedBytes.addAndGet(bytes.length);
 				} else {
-					for (PacketListener listener : listeners) {
-						listener.onPacket(bytes, null, false);
+
+					// Counted before sending (the sender measures in-flight bytes)
+					transferedBytes.addAndGet(bytes.length);
+					if (listeners.length == 1) {
+						listeners[0].onPacket(bytes, null, false);
+					} else {
+						for (PacketListener listener : listeners) {
+							listener.onPacket(bytes, null, false);
+						}
 					}
+					consumed(bytes.length);
 				}
-				transferedBytes.addAndGet(bytes.length);
 			} catch (MoleculerError moleculerError) {
 				throw moleculerError;
 			} catch (Throwable error) {
@@ -225,8 +299,8 @@ public class PacketStream {
 		}
 		if (closed.compareAndSet(false, true)) {
 			this.cause = cause;
-			if (listeners != null) {
-				try {
+			try {
+				if (listeners != null) {
 					if (listeners.length == 1) {
 						listeners[0].onPacket(null, cause, true);
 					} else {
@@ -234,11 +308,15 @@ public class PacketStream {
 							listener.onPacket(null, cause, true);
 						}
 					}
-				} catch (MoleculerError moleculerError) {
-					throw moleculerError;
-				} catch (Throwable error) {
-					throw new MoleculerClientError("Unable to send error to stream listener!", error, nodeID, null);
 				}
+			} catch (MoleculerError moleculerError) {
+				throw moleculerError;
+			} catch (Throwable error) {
+				throw new MoleculerClientError("Unable to send error to stream listener!", error, nodeID, null);
+			} finally {
+
+				// Paused "transferFrom" task fails
+				resume();
 			}
 			return true;
 		}
@@ -262,6 +340,8 @@ public class PacketStream {
 			} catch (Throwable error) {
 				logger.warn("Unable to send close marker to stream listener!", error);
 				return false;
+			} finally {
+				resume();
 			}
 			return true;
 		}
@@ -480,7 +560,17 @@ public class PacketStream {
 				if (blocker != null && blocker.getAsBoolean()) {
 					scheduleNextPacket(source, destination, promise, packet, blocker);
 					return;
-				}				
+				}
+				if (!isWritable()) {
+					pause(() -> scheduleNextPacket(source, destination, promise, packet, blocker));
+					return;
+				}
+				Throwable error = cause;
+				if (error != null) {
+
+					// Stream is closed with an error (eg. receiver is lost)
+					throw error;
+				}
 				int len = -1;
 				if (!promise.isDone()) {
 					packet.rewind();
@@ -525,7 +615,7 @@ public class PacketStream {
 					promise.complete(cause);
 				}
 			}
-		}, packetDelay, TimeUnit.MILLISECONDS);
+		}, window > 0 ? 0 : packetDelay, TimeUnit.MILLISECONDS);
 	}
 
 	protected void scheduleNextPacket(InputStream source, OutputStream destination, Promise promise, byte[] packet, BooleanSupplier blocker) {
@@ -535,6 +625,16 @@ public class PacketStream {
 					scheduleNextPacket(source, destination, promise, packet, blocker);
 					return;
 				}
+				if (!isWritable()) {
+					pause(() -> scheduleNextPacket(source, destination, promise, packet, blocker));
+					return;
+				}
+				Throwable error = cause;
+				if (error != null) {
+
+					// Stream is closed with an error (eg. receiver is lost)
+					throw error;
+				}
 				int len = promise.isDone() ? -1 : source.read(packet);
 				if (len < 0) {
 					try {
@@ -575,7 +675,96 @@ public class PacketStream {
 					promise.complete(cause);
 				}
 			}
-		}, packetDelay, TimeUnit.MILLISECONDS);
+		}, window > 0 ? 0 : packetDelay, TimeUnit.MILLISECONDS);
+	}
+
+	// --- FLOW CONTROL ---
+
+	/**
+	 * Returns true if the stream can accept the next packet without exceeding
+	 * the size of the local buffer or the window of the remote receiver.
+	 * 
+	 * @return true if the next packet can be sent
+	 */
+	public boolean isWritable() {
+		if (closed.get()) {
+			return true;
+		}
+		if (listeners == null) {
+			long limit = getBufferLimit();
+			return limit < 1 || bufferedBytes < limit;
+		}
+		long w = window;
+		return w < 1 || transferedBytes.get() - acknowledgedBytes.get() < w;
+	}
+
+	/**
+	 * Processes a credit from the remote receiver.
+	 * 
+	 * @param consumedBytes
+	 *            total number of bytes consumed by the receiver
+	 */
+	public void acknowledge(long consumedBytes) {
+		long prev;
+		do {
+			prev = acknowledgedBytes.get();
+			if (consumedBytes <= prev) {
+
+				// Old (reordered) credit
+				return;
+			}
+		} while (!acknowledgedBytes.compareAndSet(prev, consumedBytes));
+		resume();
+	}
+
+	protected void pause(Runnable task) {
+		pausedAt = System.currentTimeMillis();
+		waiting.set(task);
+		if (isWritable() && waiting.compareAndSet(task, null)) {
+			pausedAt = 0;
+			task.run();
+		}
+	}
+
+	protected void resume() {
+		Runnable task = waiting.getAndSet(null);
+		if (task != null) {
+			pausedAt = 0;
+			scheduler.execute(task);
+		}
+	}
+
+	/**
+	 * Returns the size limit of the memory-buffer of an unconnected stream.
+	 * By default, only flow-controlled streams are limited.
+	 * 
+	 * @return maximum number of buffered bytes (0 = unlimited)
+	 */
+	protected long getBufferLimit() {
+		long max = maxBufferSize;
+		if (max < 0) {
+			return window > 0 || creditHandler != null ? DEFAULT_MAX_BUFFER_SIZE : 0;
+		}
+		return max;
+	}
+
+	/**
+	 * Receiver side: counts the bytes processed by the listeners, and sends
+	 * the credit to the remote sender after each half window.
+	 * 
+	 * @param bytes
+	 *            number of processed bytes
+	 */
+	protected void consumed(long bytes) {
+		LongConsumer handler = creditHandler;
+		if (handler == null || bytes < 1) {
+			return;
+		}
+		consumedBytes += bytes;
+		if (consumedBytes - grantedBytes >= creditWindow / 2) {
+			grantedBytes = consumedBytes;
+			handler.accept(consumedBytes);
+		}
 	}
 
 	// --- "TRANSFER TO" METHODS ---
@@ -732,6 +921,42 @@ public class PacketStream {
 		this.packetDelay = Math.max(0L, packetDelay);
 	}
 
+	public long getMaxBufferSize() {
+		return maxBufferSize;
+	}
+
+	public void setMaxBufferSize(long maxBufferSize) {
+		this.maxBufferSize = Math.max(-1L, maxBufferSize);
+	}
+
+	public long getWindow() {
+		return window;
+	}
+
+	public void setWindow(long window) {
+		this.window = Math.max(0L, window);
+	}
+
+	public synchronized void setCreditHandler(long window, LongConsumer handler) {
+		this.creditWindow = Math.max(0L, window);
+		this.creditHandler = handler;
+	}
+
+	public long getPausedAt() {
+		return pausedAt;
+	}
+
+	public long getBufferedBytes() {
+		return bufferedBytes;
+	}
+
+	public long getInFlightBytes() {
+		if (window < 1) {
+			return 0;
+		}
+		return Math.max(0L, transferedBytes.get() - acknowledgedBytes.get());
+	}
+
 	public boolean isClosed() {
 		return closed.get();
 	}
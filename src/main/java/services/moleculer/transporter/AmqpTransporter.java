@@ -27,6 +27,7 @@ package services.moleculer.transporter;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -58,7 +59,12 @@ import services.moleculer.service.Name;
  * <b>Required dependency:</b><br>
  * <br>
  * // https://mvnrepository.com/artifact/com.rabbitmq/amqp-client<br>
- * compile group: 'com.rabbitmq', name: 'amqp-client', version: '5.8.0'
+ * compile group: 'com.rabbitmq', name: 'amqp-client', version: '5.8.0'<br>
+ * <br>
+ * With "batching" enabled, messages are published asynchronously, in batches
+ * (see "maxBatchSize" and "maxQueueSize"). With "publisherConfirms" the
+ * transporter waits for the confirmations of the whole batch at once. By
+ * default every message is sent in the caller's thread.
  *
  * @see TcpTransporter
  * @see RedisTransporter
@@ -92,6 +98,45 @@ public class AmqpTransporter extends Transporter {
 	protected Map<String, Object> queueProperties = new HashMap<>();
 	protected Map<String, Object> exchangeProperties = new HashMap<>();
 
+	// --- BATCHED PUBLISHING ---
+
+	/**
+	 * Publish messages asynchronously, in batches (false = send every message
+	 * in the caller's thread)
+	 */
+	protected boolean batching;
+
+	/**
+	 * Max number of messages in a batch
+	 */
+	protected int maxBatchSize = 64;
+
+	/**
+	 * Max waiting time of a message before sending (in MILLISECONDS, 0 = send
+	 * without waiting)
+	 */
+	protected long maxBatchDelay;
+
+	/**
+	 * Max number of queued messages (the publishing threads are blocked while
+	 * the queue is full)
+	 */
+	protected int maxQueueSize = PublishQueue.DEFAULT_MAX_QUEUE_SIZE;
+
+	/**
+	 * Wait for the publisher confirms of the batches
+	 */
+	protected boolean publisherConfirms;
+
+	/**
+	 * Timeout of publisher confirms (in MILLISECONDS)
+	 */
+	protected long confirmTimeout = 10000;
+
+	// --- OUTGOING QUEUE ---
+
+	protected PublishQueue publishQueue;
+
 	// --- AMQP CONNECTION ---
 
 	protected Connection client;
@@ -158,6 +203,13 @@ public class AmqpTransporter extends Transporter {
 			started.set(true);
 			client = factory.newConnection();
 			channel = client.createChannel();
+			if (publisherConfirms) {
+				channel.confirmSelect();
+			}
+			if (batching && publishQueue == null) {
+				publishQueue = new PublishQueue(this::publishBatch, executor, scheduler, maxBatchSize,
+						maxBatchDelay, maxQueueSize, metrics);
+			}
 
 			logger.info("AMQP pub-sub connection estabilished.");
 			connected();
@@ -234,6 +286,11 @@ public class AmqpTransporter extends Transporter {
 		// Stop timers
 		super.stopped();
 
+		// Send queued messages
+		if (publishQueue != null) {
+			publishQueue.flush();
+		}
+
 		// Disconnect
 		disconnect();
 	}
@@ -341,30 +398,56 @@ public class AmqpTransporter extends Transporter {
 					counterTransporterPacketsSentBytes.increment(bytes.length);
 				}
 
-				int pos = channel.indexOf('.');
-				if (channel.indexOf('.', pos + 1) > -1) {
-
-					// Send to queue directly
-					if (debug && (debugHeartbeats || !channel.endsWith(heartbeatChannel))) {
-						logger.info("Submitting message to queue \"" + channel + "\":\r\n" + message.toString());
-					}
-					this.channel.basicPublish("", channel, mandatory, immediate, messageProperties, bytes);
-
-				} else {
-
-					// Send to exchange
-					if (debug && (debugHeartbeats || !channel.endsWith(heartbeatChannel))) {
-						logger.info("Submitting message to exchange \"" + channel + "\":\r\n" + message.toString());
-					}
-					this.channel.basicPublish(channel, "", mandatory, immediate, messageProperties, bytes);
+				if (debug && (debugHeartbeats || !channel.endsWith(heartbeatChannel))) {
+					String target = isQueue(channel) ? "queue" : "exchange";
+					logger.info("Submitting message to " + target + " \"" + channel + "\":\r\n" + message.toString());
+				}
 
+				// Send in batch
+				if (publishQueue != null) {
+					publishQueue.add(channel, bytes);
+					return;
 				}
+				send(this.channel, channel, bytes);
+
 			} catch (Exception cause) {
 				logger.warn("Unable to send message to AMQP server!", cause);
 			}
 		}
 	}
 
+	protected void publishBatch(List<PublishQueue.Message> batch) throws Exception {
+		Channel current = channel;
+		if (current == null) {
+			throw new IllegalStateException("AMQP channel is closed!");
+		}
+		for (PublishQueue.Message message : batch) {
+			send(current, message.channel, message.bytes);
+		}
+		if (publisherConfirms) {
+			current.waitForConfirmsOrDie(confirmTimeout);
+		}
+	}
+
+	protected void send(Channel target, String channel, byte[] bytes) throws IOException {
+		if (isQueue(channel)) {
+
+			// Send to queue directly
+			target.basicPublish("", channel, mandatory, immediate, messageProperties, bytes);
+
+		} else {
+
+			// Send to exchange
+			target.basicPublish(channel, "", mandatory, immediate, messageProperties, bytes);
+
+		}
+	}
+
+	protected boolean isQueue(String channel) {
+		int pos = channel.indexOf('.');
+		return channel.indexOf('.', pos + 1) > -1;
+	}
+
 	// --- GETTERS / SETTERS ---
 
 	public String getUrl() {
@@ -473,4 +556,52 @@ public class AmqpTransporter extends Transporter {
 		this.internal = internal;
 	}
 
+	public boolean isBatching() {
+		return batching;
+	}
+
+	public void setBatching(boolean batching) {
+		this.batching = batching;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+	}
+
+	public long getMaxBatchDelay() {
+		return maxBatchDelay;
+	}
+
+	public void setMaxBatchDelay(long maxBatchDelay) {
+		this.maxBatchDelay = Math.max(0, maxBatchDelay);
+	}
+
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	public void setMaxQueueSize(int maxQueueSize) {
+		this.maxQueueSize = Math.max(1, maxQueueSize);
+	}
+
+	public boolean isPublisherConfirms() {
+		return publisherConfirms;
+	}
+
+	public void setPublisherConfirms(boolean publisherConfirms) {
+		this.publisherConfirms = publisherConfirms;
+	}
+
+	public long getConfirmTimeout() {
+		return confirmTimeout;
+	}
+
+	public void setConfirmTimeout(long confirmTimeout) {
+		this.confirmTimeout = Math.max(1, confirmTimeout);
+	}
+
 }
\ No newline at end of file
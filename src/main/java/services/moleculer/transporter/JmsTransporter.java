@@ -26,6 +26,7 @@
 package services.moleculer.transporter;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.jms.BytesMessage;
@@ -60,7 +61,12 @@ import services.moleculer.service.Name;
  * // https://mvnrepository.com/artifact/javax.jms/javax.jms-api<br>
  * compile group: 'javax.jms', name: 'javax.jms-api', version: '2.0.1'<br>
  * <br>
- * + dependencies of the JMS driver.
+ * + dependencies of the JMS driver.<br>
+ * <br>
+ * With "batching" enabled, messages are published asynchronously, in batches
+ * (see "maxBatchSize" and "maxQueueSize"). In transacted mode a batch is
+ * committed as one transaction. By default every message is sent in the
+ * caller's thread.
  *
  * @see TcpTransporter
  * @see RedisTransporter
@@ -86,6 +92,31 @@ public class JmsTransporter extends Transporter {
 	protected int priority = 5;
 	protected int ttl = 10000;
 
+	// --- BATCHED PUBLISHING ---
+
+	/**
+	 * Publish messages asynchronously, in batches (false = send every message
+	 * in the caller's thread)
+	 */
+	protected boolean batching;
+
+	/**
+	 * Max number of messages in a batch (or in a transaction)
+	 */
+	protected int maxBatchSize = 64;
+
+	/**
+	 * Max waiting time of a message before sending (in MILLISECONDS, 0 = send
+	 * without waiting)
+	 */
+	protected long maxBatchDelay;
+
+	/**
+	 * Max number of queued messages (the publishing threads are blocked while
+	 * the queue is full)
+	 */
+	protected int maxQueueSize = PublishQueue.DEFAULT_MAX_QUEUE_SIZE;
+
 	// --- CONNECTION FACTORY NAME IN JNDI ---
 
 	protected String connectionFactoryJndiName = "moleculerConnectionFactory";
@@ -110,6 +141,10 @@ public class JmsTransporter extends Transporter {
 
 	protected final HashMap<String, TopicSubscriber> subscribers = new HashMap<>(64);
 
+	// --- OUTGOING QUEUE ---
+
+	protected PublishQueue publishQueue;
+
 	// --- CONSTUCTORS ---
 
 	public JmsTransporter() {
@@ -162,6 +197,10 @@ public class JmsTransporter extends Transporter {
 			client.setClientID(nodeID);
 			client.start();
 			session = client.createTopicSession(transacted, acknowledgeMode);
+			if (batching && publishQueue == null) {
+				publishQueue = new PublishQueue(this::publishBatch, executor, scheduler, maxBatchSize,
+						maxBatchDelay, maxQueueSize, metrics);
+			}
 			connected();
 		} catch (Exception cause) {
 			reconnect(cause);
@@ -254,6 +293,11 @@ public class JmsTransporter extends Transporter {
 		// Stop timers
 		super.stopped();
 
+		// Send queued messages
+		if (publishQueue != null) {
+			publishQueue.flush();
+		}
+
 		// Disconnect
 		disconnect();
 	}
@@ -322,6 +366,12 @@ public class JmsTransporter extends Transporter {
 					counterTransporterPacketsSentBytes.increment(bytes.length);
 				}				
 				
+				// Send in batch
+				if (publishQueue != null) {
+					publishQueue.add(channel, bytes);
+					return;
+				}
+
 				TopicPublisher publisher = createOrGetPublisher(channel);
 				BytesMessage msg = session.createBytesMessage();
 				msg.writeBytes(bytes);
@@ -347,6 +397,39 @@ public class JmsTransporter extends Transporter {
 		}
 	}
 
+	protected void publishBatch(List<PublishQueue.Message> batch) throws Exception {
+		if (client == null) {
+			throw new IllegalStateException("JMS connection is closed!");
+		}
+		if (transacted) {
+			synchronized (this) {
+				try {
+					for (PublishQueue.Message message : batch) {
+						send(message);
+					}
+					session.commit();
+				} catch (Exception cause) {
+					try {
+						session.rollback();
+					} catch (Exception ignored) {
+					}
+					throw cause;
+				}
+			}
+		} else {
+			for (PublishQueue.Message message : batch) {
+				send(message);
+			}
+		}
+	}
+
+	protected void send(PublishQueue.Message message) throws Exception {
+		TopicPublisher publisher = createOrGetPublisher(message.channel);
+		BytesMessage msg = session.createBytesMessage();
+		msg.writeBytes(message.bytes);
+		publisher.send(msg, deliveryMode, priority, ttl);
+	}
+
 	// --- GETTERS / SETTERS ---
 
 	public String getUsername() {
@@ -421,4 +504,36 @@ public class JmsTransporter extends Transporter {
 		this.connectionFactoryJndiName = connectionFactoryJndiName;
 	}
 
+	public boolean isBatching() {
+		return batching;
+	}
+
+	public void setBatching(boolean batching) {
+		this.batching = batching;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+	}
+
+	public long getMaxBatchDelay() {
+		return maxBatchDelay;
+	}
+
+	public void setMaxBatchDelay(long maxBatchDelay) {
+		this.maxBatchDelay = Math.max(0, maxBatchDelay);
+	}
+
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	public void setMaxQueueSize(int maxQueueSize) {
+		this.maxQueueSize = Math.max(1, maxQueueSize);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,337 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import services.moleculer.metrics.MetricConstants;
+import services.moleculer.metrics.MetricCounter;
+import services.moleculer.metrics.MetricGauge;
+import services.moleculer.metrics.Metrics;
+import services.moleculer.metrics.StoppableTimer;
+
+/**
+ * Asynchronous publish pipeline of the message broker based Transporters (JMS,
+ * AMQP). The submitted messages are queued, and only one task sends them at a
+ * time, in batches of at most "maxBatchSize" messages (eg. in one JMS
+ * transaction). The queue is processed in FIFO order, so the order of the
+ * messages is preserved in every channel. The first message of a batch waits
+ * at most "maxBatchDelay" milliseconds for the others (0 = no waiting; under
+ * load the next batch is collected while the previous one is being sent). The
+ * queue holds at most "maxQueueSize" messages; when it is full, the submitting
+ * thread sends (or waits for) the queued messages, like the synchronous
+ * publishing does. The messages of a failed batch are counted as dropped.
+ */
+public class PublishQueue implements MetricConstants {
+
+	// --- LOGGER ---
+
+	protected static final Logger logger = LoggerFactory.getLogger(PublishQueue.class);
+
+	// --- DEFAULT QUEUE SIZE ---
+
+	public static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
+
+	// --- BATCH SENDER ---
+
+	@FunctionalInterface
+	public static interface BatchSender {
+
+		public void send(List<Message> batch) throws Exception;
+
+	}
+
+	// --- QUEUED MESSAGE ---
+
+	public static final class Message {
+
+		public final String channel;
+		public final byte[] bytes;
+
+		protected Message(String channel, byte[] bytes) {
+			this.channel = channel;
+			this.bytes = bytes;
+		}
+
+	}
+
+	// --- PROPERTIES ---
+
+	protected final BatchSender sender;
+	protected final Executor executor;
+	protected final ScheduledExecutorService scheduler;
+
+	protected final int maxBatchSize;
+	protected final long maxBatchDelay;
+	protected final int maxQueueSize;
+
+	// --- OUTGOING QUEUE ---
+
+	protected final ConcurrentLinkedQueue<Message> queue = new ConcurrentLinkedQueue<>();
+	protected final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Free places in the queue (released after the batch has been sent)
+	 */
+	protected final Semaphore free;
+
+	/**
+	 * Number of messages of the failed batches
+	 */
+	protected final AtomicLong dropped = new AtomicLong();
+
+	// --- DRAIN STATES ---
+
+	/**
+	 * The queue is empty, no drain task is scheduled
+	 */
+	protected static final int IDLE = 0;
+
+	/**
+	 * A drain task is scheduled (but not running)
+	 */
+	protected static final int SCHEDULED = 1;
+
+	/**
+	 * A task is sending the queued messages
+	 */
+	protected static final int RUNNING = 2;
+
+	protected final AtomicInteger state = new AtomicInteger(IDLE);
+
+	// --- METRICS ---
+
+	protected final Metrics metrics;
+	protected final MetricGauge gaugeBatchSize;
+	protected final MetricCounter counterBatchesTotal;
+	protected final MetricCounter counterDroppedTotal;
+
+	// --- CONSTRUCTORS ---
+
+	public PublishQueue(BatchSender sender, Executor executor, ScheduledExecutorService scheduler, int maxBatchSize,
+			long maxBatchDelay, Metrics metrics) {
+		this(sender, executor, scheduler, maxBatchSize, maxBatchDelay, DEFAULT_MAX_QUEUE_SIZE, metrics);
+	}
+
+	public PublishQueue(BatchSender sender, Executor executor, ScheduledExecutorService scheduler, int maxBatchSize,
+			long maxBatchDelay, int maxQueueSize, Metrics metrics) {
+		this.sender = sender;
+		this.executor = executor;
+		this.scheduler = scheduler;
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.maxBatchDelay = Math.max(0, maxBatchDelay);
+		this.maxQueueSize = Math.max(this.maxBatchSize, maxQueueSize);
+		this.free = new Semaphore(this.maxQueueSize);
+		this.metrics = metrics;
+		if (metrics == null) {
+			gaugeBatchSize = null;
+			counterBatchesTotal = null;
+			counterDroppedTotal = null;
+		} else {
+			gaugeBatchSize = metrics.set(MOLECULER_TRANSPORTER_PUBLISH_BATCH_SIZE,
+					MOLECULER_TRANSPORTER_PUBLISH_BATCH_SIZE_DESC, 0);
+			counterBatchesTotal = metrics.increment(MOLECULER_TRANSPORTER_PUBLISH_BATCHES_TOTAL,
+					MOLECULER_TRANSPORTER_PUBLISH_BATCHES_TOTAL_DESC, 0);
+			counterDroppedTotal = metrics.increment(MOLECULER_TRANSPORTER_PUBLISH_DROPPED_TOTAL,
+					MOLECULER_TRANSPORTER_PUBLISH_DROPPED_TOTAL_DESC, 0);
+		}
+	}
+
+	// --- ADD MESSAGE TO QUEUE ---
+
+	/**
+	 * Submits a message. Blocks the caller while the queue is full.
+	 * 
+	 * @param channel
+	 *            target channel
+	 * @param bytes
+	 *            serialized message
+	 */
+	public void add(String channel, byte[] bytes) {
+		if (!free.tryAcquire() && !waitForFreePlace()) {
+
+			// Interrupted
+			addDropped(1);
+			return;
+		}
+		queue.add(new Message(channel, bytes));
+		size.incrementAndGet();
+		if (state.compareAndSet(IDLE, SCHEDULED)) {
+			if (maxBatchDelay > 0) {
+				scheduler.schedule(this::drain, maxBatchDelay, TimeUnit.MILLISECONDS);
+			} else {
+				executor.execute(this::drain);
+			}
+		}
+	}
+
+	/**
+	 * Sends the queued messages in the caller's thread (or waits for the
+	 * running task) until there is a free place in the queue.
+	 * 
+	 * @return false if the thread was interrupted
+	 */
+	protected boolean waitForFreePlace() {
+		try {
+			while (true) {
+				if (state.compareAndSet(SCHEDULED, RUNNING) || state.compareAndSet(IDLE, RUNNING)) {
+					process();
+				}
+				if (free.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			}
+		} catch (InterruptedException interrupted) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	// --- SEND QUEUED MESSAGES ---
+
+	protected void drain() {
+		if (state.compareAndSet(SCHEDULED, RUNNING)) {
+			process();
+		}
+	}
+
+	protected void process() {
+		ArrayList<Message> batch = new ArrayList<>(Math.min(maxBatchSize, 64));
+		Message message;
+		while (true) {
+			while (batch.size() < maxBatchSize && (message = queue.poll()) != null) {
+				batch.add(message);
+			}
+			if (batch.isEmpty()) {
+				state.set(IDLE);
+
+				// Message submitted after the last "poll"
+				if (queue.isEmpty() || !state.compareAndSet(IDLE, RUNNING)) {
+					synchronized (state) {
+						state.notifyAll();
+					}
+					return;
+				}
+				continue;
+			}
+			size.addAndGet(-batch.size());
+			try {
+				send(batch);
+			} finally {
+				free.release(batch.size());
+			}
+			batch.clear();
+		}
+	}
+
+	protected void send(List<Message> batch) {
+		StoppableTimer timer = null;
+		if (metrics != null) {
+			timer = metrics.timer(MOLECULER_TRANSPORTER_PUBLISH_FLUSH_TIME,
+					MOLECULER_TRANSPORTER_PUBLISH_FLUSH_TIME_DESC);
+		}
+		try {
+			sender.send(batch);
+		} catch (Throwable cause) {
+			logger.warn("Unable to send " + batch.size() + " message(s) to the message broker!", cause);
+			addDropped(batch.size());
+		} finally {
+			if (timer != null) {
+				timer.stop();
+				gaugeBatchSize.set(batch.size());
+				counterBatchesTotal.increment();
+			}
+		}
+	}
+
+	protected void addDropped(int messages) {
+		dropped.addAndGet(messages);
+		if (counterDroppedTotal != null) {
+			counterDroppedTotal.increment(messages);
+		}
+	}
+
+	// --- FLUSH QUEUE (BEFORE DISCONNECT) ---
+
+	/**
+	 * Sends the queued messages in the caller's thread. If another task is
+	 * sending them, waits until that task has sent all of them.
+	 */
+	public void flush() {
+		while (true) {
+			if (state.compareAndSet(IDLE, RUNNING) || state.compareAndSet(SCHEDULED, RUNNING)) {
+				process();
+			}
+			synchronized (state) {
+				if (state.get() == IDLE && queue.isEmpty()) {
+					return;
+				}
+				if (state.get() == RUNNING) {
+					try {
+						state.wait(100);
+					} catch (InterruptedException interrupted) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	// --- PROPERTY GETTERS ---
+
+	public int size() {
+		return size.get();
+	}
+
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public long getMaxBatchDelay() {
+		return maxBatchDelay;
+	}
+
+}
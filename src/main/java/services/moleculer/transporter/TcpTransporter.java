@@ -32,10 +32,14 @@ import static services.moleculer.util.CommonUtils.removeLocalEvents;
 
 import java.net.InetAddress;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -43,15 +47,20 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import io.datatree.Promise;
 import io.datatree.Tree;
+import services.moleculer.context.Context;
 import services.moleculer.error.InvalidPacketDataError;
 import services.moleculer.error.MoleculerError;
 import services.moleculer.error.MoleculerServerError;
+import services.moleculer.metrics.Metrics;
 import services.moleculer.service.Name;
+import services.moleculer.transporter.tcp.GossipDigest;
 import services.moleculer.transporter.tcp.NodeDescriptor;
+import services.moleculer.transporter.tcp.PooledBuffer;
 import services.moleculer.transporter.tcp.TcpReader;
 import services.moleculer.transporter.tcp.TcpWriter;
 import services.moleculer.transporter.tcp.UDPLocator;
 import services.moleculer.util.FastBuildTree;
+import services.moleculer.util.PacketOutputStream;
 
 /**
  * TCP Transporter with optional UDP discovery ("zero configuration") module.
@@ -100,6 +109,7 @@ public class TcpTransporter extends Transporter {
 	protected static final byte PACKET_GOSSIP_REQ_ID = 6;
 	protected static final byte PACKET_GOSSIP_RSP_ID = 7;
 	protected static final byte PACKET_GOSSIP_HELLO_ID = 8;
+	protected static final byte PACKET_STREAM_DATA_ID = 9;
 
 	// --- PROPERTIES ---
 
@@ -115,6 +125,26 @@ public class TcpTransporter extends Transporter {
 	 */
 	protected int gossipPeriod = 2;
 
+	/**
+	 * Send a compact digest (hashes of the version vector, split into
+	 * buckets) instead of the full "online" / "offline" blocks. Peers exchange
+	 * the entries of the differing buckets only. All nodes of the cluster must
+	 * support it (recommended for large clusters).
+	 */
+	protected boolean gossipDigest;
+
+	/**
+	 * Number of buckets in the gossip digest.
+	 */
+	protected int gossipDigestSize = 32;
+
+	/**
+	 * Send the chunks of streams in binary frames (without serializer) to the
+	 * nodes which support it (Java nodes with "binaryStreams" flag in their
+	 * INFO block). Other nodes receive the chunks in the standard format.
+	 */
+	protected boolean binaryStreams = true;
+
 	/**
 	 * Max number of keep-alive connections (-1 = unlimited, 0 = disable
 	 * keep-alive connections).
@@ -126,6 +156,46 @@ public class TcpTransporter extends Transporter {
 	 */
 	protected int maxPacketSize = 1024 * 1024;
 
+	/**
+	 * Size of the pooled read buffers (BYTES). Larger packets are received
+	 * into dedicated buffers.
+	 */
+	protected int readBufferSize = 64 * 1024;
+
+	/**
+	 * Max number of idle read buffers kept in the pool.
+	 */
+	protected int maxPooledReadBuffers = 64;
+
+	/**
+	 * Small packets are collected until their total size reaches this limit
+	 * (BYTES) or the "writeCoalescingMicros" elapses, then they are sent with
+	 * one system call (0 = disable coalescing).
+	 */
+	protected int writeCoalescingBytes;
+
+	/**
+	 * Max time to wait for additional packets before writing, in
+	 * MICROSECONDS (0 = disable coalescing).
+	 */
+	protected long writeCoalescingMicros;
+
+	/**
+	 * Number of selector loops (threads) for incoming connections.
+	 */
+	protected int readerThreads = 1;
+
+	/**
+	 * Number of selector loops (threads) for outgoing connections.
+	 */
+	protected int writerThreads = 1;
+
+	/**
+	 * Use the SO_REUSEPORT socket option (if the platform supports it), so
+	 * every reader loop accepts connections on its own server socket.
+	 */
+	protected boolean reusePort = true;
+
 	/**
 	 * List of URLs ("tcp://host:port/nodeID" or "host:port/nodeID" or
 	 * "host/nodeID"), when UDP discovery is disabled.
@@ -450,94 +520,162 @@ public class TcpTransporter extends Transporter {
 			// Parse message
 			Tree data;
 			try {
-				data = serializer.read(packet);
+				if (packetID == PACKET_STREAM_DATA_ID) {
+					data = readStreamData(packet, 0, packet.length);
+				} else {
+					data = serializer.read(packet);
+				}
 			} catch (Exception cause) {
 				logger.warn("Unable to parse incoming message!", cause);
 				return;
 			}
+			processReceived(packetID, data);
+		});
+	}
 
-			// Send message to proper component
-			try {
-
-				switch (packetID) {
-				case PACKET_EVENT_ID:
+	/**
+	 * Processes a packet that is framed inside a pooled read buffer. The
+	 * buffer is released (and can be reused by the TcpReader) right after the
+	 * deserialization.
+	 *
+	 * @param packetID
+	 *            packet type
+	 * @param buffer
+	 *            read buffer (retained by the caller with "retainPacket")
+	 * @param offset
+	 *            first byte of the packet's body
+	 * @param length
+	 *            length of the packet's body
+	 */
+	public void received(byte packetID, PooledBuffer buffer, int offset, int length) {
+		try {
+			executor.execute(() -> {
 
-					// Incoming event
-					if (debug) {
-						logger.info("Event message received:\r\n" + data);
+				// Parse message
+				Tree data;
+				try {
+					if (packetID == PACKET_STREAM_DATA_ID) {
+						data = readStreamData(buffer.array, offset, length);
+					} else {
+						int copySize = serializer.getCopySize(buffer.array, offset, length);
+						if (copySize > 0) {
+							buffer.copied(copySize);
+						}
+						data = serializer.read(buffer.array, offset, length);
 					}
-					eventbus.receiveEvent(data);
+				} catch (Exception cause) {
+					logger.warn("Unable to parse incoming message!", cause);
 					return;
+				} finally {
+					buffer.releasePacket();
+				}
+				processReceived(packetID, data);
+			});
+		} catch (RuntimeException rejected) {
+			buffer.releasePacket();
+			throw rejected;
+		}
+	}
 
-				case PACKET_REQUEST_ID:
+	protected void processReceived(byte packetID, Tree data) {
 
-					// Incoming request
-					if (debug) {
-						logger.info("Request message received:\r\n" + data);
-					}
+		// Send message to proper component
+		try {
+
+			switch (packetID) {
+			case PACKET_EVENT_ID:
+
+				// Incoming event
+				if (debug) {
+					logger.info("Event message received:\r\n" + data);
+				}
+				eventbus.receiveEvent(data);
+				return;
+
+			case PACKET_REQUEST_ID:
+
+				// Incoming request
+				if (debug) {
+					logger.info("Request message received:\r\n" + data);
+				}
+				if (!receiveCreditPacket(data)) {
 					registry.receiveRequest(data);
-					return;
+				}
+				return;
 
-				case PACKET_RESPONSE_ID:
+			case PACKET_RESPONSE_ID:
 
-					// Incoming response
-					if (debug) {
-						logger.info("Response message received:\r\n" + data);
-					}
-					registry.receiveResponse(data);
-					return;
+				// Incoming response
+				if (debug) {
+					logger.info("Response message received:\r\n" + data);
+				}
+				registry.receiveResponse(data);
+				return;
 
-				case PACKET_PING_ID:
+			case PACKET_PING_ID:
 
-					// Send pong
-					if (debug) {
-						logger.info("Ping message received:\r\n" + data);
-					}
-					String sender = data.get("sender", "");
-					if (sender == null || sender.isEmpty()) {
-						logger.warn("Missing \"sender\" property:\r\n" + data);
-						return;
-					}
-					data.put("sender", this.nodeID);
-					data.put("arrived", System.currentTimeMillis());
-					writer.send(sender, serialize(PACKET_PONG_ID, data));
+				// Send pong
+				if (debug) {
+					logger.info("Ping message received:\r\n" + data);
+				}
+				String sender = data.get("sender", "");
+				if (sender == null || sender.isEmpty()) {
+					logger.warn("Missing \"sender\" property:\r\n" + data);
 					return;
+				}
+				data.put("sender", this.nodeID);
+				data.put("arrived", System.currentTimeMillis());
+				writer.send(sender, serialize(PACKET_PONG_ID, data));
+				return;
 
-				case PACKET_PONG_ID:
+			case PACKET_PONG_ID:
 
-					// Pong received
-					if (debug) {
-						logger.info("Pong message received:\r\n" + data);
-					}
-					registry.receivePong(data);
-					return;
+				// Pong received
+				if (debug) {
+					logger.info("Pong message received:\r\n" + data);
+				}
+				registry.receivePong(data);
+				return;
 
-				case PACKET_GOSSIP_REQ_ID:
+			case PACKET_GOSSIP_REQ_ID:
 
-					// Incoming gossip request
-					processGossipRequest(data);
-					return;
+				// Incoming gossip request
+				processGossipRequest(data);
+				return;
 
-				case PACKET_GOSSIP_RSP_ID:
+			case PACKET_GOSSIP_RSP_ID:
 
-					// Incoming gossip request
-					processGossipResponse(data);
-					return;
+				// Incoming gossip request
+				processGossipResponse(data);
+				return;
 
-				case PACKET_GOSSIP_HELLO_ID:
+			case PACKET_GOSSIP_HELLO_ID:
 
-					// Incoming "hello" message
-					processGossipHello(data);
-					return;
+				// Incoming "hello" message
+				processGossipHello(data);
+				return;
 
-				default:
-					logger.warn("Unsupported message ID (" + packetID + ")!");
+			case PACKET_STREAM_DATA_ID:
+
+				// Incoming (binary) stream chunk
+				if (debug) {
+					logger.info("Stream chunk received from \"" + data.get("sender", "") + "\" node (id: "
+							+ data.get("id", "") + ", seq: " + data.get("seq", 0L) + ").");
 				}
+				if (data.get("params") == null) {
+					registry.receiveResponse(data);
+				} else {
+					registry.receiveRequest(data);
+				}
+				return;
 
-			} catch (Exception cause) {
-				logger.warn("Unable to process incoming message!", cause);
+			default:
+				logger.warn("Unsupported message ID (" + packetID + ")!");
 			}
-		});
+
+		} catch (Exception cause) {
+			logger.warn("Unable to process incoming message!", cause);
+		}
 	}
 
 	// --- CONNECTION ERROR ---
@@ -576,6 +714,7 @@ public class TcpTransporter extends Transporter {
 
 					// Notify listeners (unexpected disconnection)
 					logger.info("Node \"" + nodeID + "\" disconnected.");
+					closeOutgoingStreams(nodeID);
 					broadcastNodeDisconnected(node.info, true);
 				}
 
@@ -742,25 +881,153 @@ public class TcpTransporter extends Transporter {
 		}
 	}
 
+	// --- BINARY STREAM CHUNKS ---
+
+	@Override
+	public void sendDataPacket(String cmd, String nodeID, Context ctx, byte[] bytes, long sequence) {
+		if (!binaryStreams || writer == null || !isBinaryStreamsSupported(nodeID)) {
+
+			// Standard (eg. JSON) encoding
+			super.sendDataPacket(cmd, nodeID, ctx, bytes, sequence);
+			return;
+		}
+		try {
+			byte[] packet = serializeStreamData(PACKET_RESPONSE.equals(cmd), ctx.id, bytes, sequence);
+
+			// Check size
+			if (maxPacketSize > 0 && packet.length > maxPacketSize) {
+				throw new InvalidPacketDataError(
+						"Outgoing packet is larger than the \"maxPacketSize\" limit (" + packet.length + " > "
+								+ maxPacketSize + ")!",
+						"maxPacketSize", maxPacketSize, "packetSize", packet.length);
+			}
+
+			// Metrics
+			if (metrics != null) {
+				counterTransporterPacketsSentTotal.increment();
+				counterTransporterPacketsSentBytes.increment(packet.length);
+			}
+
+			// Send packet to endpoint
+			if (debug) {
+				logger.info("Stream chunk submitting to \"" + nodeID + "\" node (id: " + ctx.id + ", seq: " + sequence
+						+ ", size: " + bytes.length + ").");
+			}
+			writer.send(nodeID, packet);
+			dataPacketSent(ctx.id);
+
+		} catch (Exception cause) {
+			logger.warn("Unable to send message!", cause);
+		}
+	}
+
+	protected boolean isBinaryStreamsSupported(String nodeID) {
+		NodeDescriptor node = nodes.get(nodeID);
+		if (node == null) {
+			return false;
+		}
+		Tree info = node.info;
+		return info != null && info.get("binaryStreams", false);
+	}
+
+	/**
+	 * Creates a binary stream chunk. Structure of the body (after the 6-bytes
+	 * header): response flag (1 byte), protocol version (1 byte length + UTF-8
+	 * bytes), sender's nodeID (2 bytes length + UTF-8 bytes), request ID (2
+	 * bytes length + UTF-8 bytes), sequence number (8 bytes), raw bytes of the
+	 * chunk.
+	 * 
+	 * @param response
+	 *            response (true) or request (false) stream
+	 * @param id
+	 *            request ID
+	 * @param bytes
+	 *            bytes of the chunk
+	 * @param sequence
+	 *            stream packet counter
+	 * 
+	 * @return packet with header
+	 */
+	protected byte[] serializeStreamData(boolean response, String id, byte[] bytes, long sequence) {
+		byte[] ver = protocolVersion.getBytes(StandardCharsets.UTF_8);
+		byte[] sender = nodeID.getBytes(StandardCharsets.UTF_8);
+		byte[] request = id.getBytes(StandardCharsets.UTF_8);
+		int length = 6 + 1 + 1 + ver.length + 2 + sender.length + 2 + request.length + 8 + bytes.length;
+		byte[] packet = new byte[length];
+		ByteBuffer buffer = ByteBuffer.wrap(packet);
+		buffer.position(6);
+		buffer.put((byte) (response ? 1 : 0));
+		buffer.put((byte) ver.length);
+		buffer.put(ver);
+		buffer.putShort((short) sender.length);
+		buffer.put(sender);
+		buffer.putShort((short) request.length);
+		buffer.put(request);
+		buffer.putLong(sequence);
+		buffer.put(bytes);
+		writeHeader(packet, PACKET_STREAM_DATA_ID, length);
+		return packet;
+	}
+
+	protected Tree readStreamData(byte[] array, int offset, int length) {
+		ByteBuffer buffer = ByteBuffer.wrap(array, offset, length);
+		boolean response = buffer.get() == 1;
+		String ver = readString(buffer, buffer.get() & 0xFF);
+		String sender = readString(buffer, buffer.getShort() & 0xFFFF);
+		String id = readString(buffer, buffer.getShort() & 0xFFFF);
+		long seq = buffer.getLong();
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+
+		// Same structure as the standard "data" packet
+		LinkedHashMap<String, Object> params = new LinkedHashMap<>(4);
+		params.put("type", "Buffer");
+		params.put("data", bytes);
+		FastBuildTree msg = new FastBuildTree(8);
+		msg.putUnsafe("ver", ver);
+		msg.putUnsafe("sender", sender);
+		msg.putUnsafe("id", id);
+		msg.putUnsafe("stream", true);
+		msg.putUnsafe("seq", seq);
+		if (response) {
+			msg.putUnsafe("success", true);
+			msg.putUnsafe("data", params);
+		} else {
+			msg.putUnsafe("params", params);
+		}
+		return msg;
+	}
+
+	protected static String readString(ByteBuffer buffer, int length) {
+		int position = buffer.position();
+		String value = new String(buffer.array(), position, length, StandardCharsets.UTF_8);
+		buffer.position(position + length);
+		return value;
+	}
+
 	protected byte[] serialize(byte packetID, Tree message) throws Exception {
-		byte[] data = serializer.write(message);
-		byte[] packet = new byte[data.length + 6];
 
-		// 6. byte is the packet type (from 1 to 6)
+		// Serialize data block (after the 6-bytes header)
+		PacketOutputStream out = new PacketOutputStream(6, 0);
+		serializer.write(message, out);
+		byte[] packet = out.getBuffer();
+		writeHeader(packet, packetID, out.size());
+		return out.toByteArray();
+	}
+
+	protected static void writeHeader(byte[] packet, byte packetID, int length) {
+
+		// 6. byte is the packet type (from 1 to 9)
 		packet[5] = packetID;
 
 		// 2.-5. bytes are the length of the packet
-		packet[4] = (byte) packet.length;
-		packet[3] = (byte) (packet.length >>> 8);
-		packet[2] = (byte) (packet.length >>> 16);
-		packet[1] = (byte) (packet.length >>> 24);
+		packet[4] = (byte) length;
+		packet[3] = (byte) (length >>> 8);
+		packet[2] = (byte) (length >>> 16);
+		packet[1] = (byte) (length >>> 24);
 
 		// First byte = Header's CRC (XOR)
 		packet[0] = (byte) (packet[1] ^ packet[2] ^ packet[3] ^ packet[4] ^ packet[5]);
-
-		// Add data block
-		System.arraycopy(data, 0, packet, 6, data.length);
-		return packet;
 	}
 
 	// --- LOCAL NODE'S DESCRIPTOR ---
@@ -786,6 +1053,12 @@ public class TcpTransporter extends Transporter {
 				cachedDescriptor.info.put("seq", cachedDescriptor.seq);
 				cachedDescriptor.info.put("port", reader.getCurrentPort());
 				cachedDescriptor.info.put("instanceID", instanceID);
+				if (binaryStreams) {
+					cachedDescriptor.info.put("binaryStreams", true);
+				}
+				if (streamWindow > 0) {
+					cachedDescriptor.info.put("streamWindow", streamWindow);
+				}
 			}
 
 		} finally {
@@ -922,25 +1195,9 @@ public class TcpTransporter extends Transporter {
 				return null;
 			}
 
-			// Add "online" and "offline" blocks
+			// Separate online and offline nodes
 			Collection<NodeDescriptor> descriptors = nodes.values();
 			int size = nodes.size() + 32;
-			FastBuildTree online = new FastBuildTree(size);
-			FastBuildTree offline = new FastBuildTree(size);
-
-			// Add current node
-			descriptor.readLock.lock();
-			try {
-				ArrayList<Object> array = new ArrayList<>(3);
-				array.add(descriptor.seq);
-				array.add(descriptor.cpuSeq);
-				array.add(descriptor.cpu);
-				online.putUnsafe(nodeID, array);
-			} finally {
-				descriptor.readLock.unlock();
-			}
-
-			// Separate online and offline nodes
 			String[] liveEndpoints = new String[size];
 			String[] unreachableEndpoints = new String[size];
 
@@ -949,45 +1206,27 @@ public class TcpTransporter extends Transporter {
 
 			// Loop on registered nodes
 			for (NodeDescriptor node : descriptors) {
-				node.readLock.lock();
-				try {
-					if (node.offlineSince > 0) {
+				if (node.offlineSince > 0) {
 
-						// Offline
-						if (unreachableEndpointCount < unreachableEndpoints.length) {
-							unreachableEndpoints[unreachableEndpointCount++] = node.nodeID;
-						}
-						if (node.seq > 0) {
-							offline.put(node.nodeID, node.seq);
-						}
-					} else {
-						if (!node.local) {
+					// Offline
+					if (unreachableEndpointCount < unreachableEndpoints.length) {
+						unreachableEndpoints[unreachableEndpointCount++] = node.nodeID;
+					}
+				} else if (!node.local) {
 
-							// Online
-							if (liveEndpointCount < liveEndpoints.length) {
-								liveEndpoints[liveEndpointCount++] = node.nodeID;
-							}
-							if (node.seq > 0) {
-								ArrayList<Object> array = new ArrayList<>(3);
-								array.add(node.seq);
-								array.add(node.cpuSeq);
-								array.add(node.cpu);
-								online.putUnsafe(node.nodeID, array);
-							}
-						}
+					// Online
+					if (liveEndpointCount < liveEndpoints.length) {
+						liveEndpoints[liveEndpointCount++] = node.nodeID;
 					}
-				} finally {
-					node.readLock.unlock();
 				}
 			}
 
-			// Create gossip request
-			FastBuildTree root = new FastBuildTree(5);
-			root.putUnsafe("ver", protocolVersion);
-			root.putUnsafe("sender", nodeID);
-			root.putUnsafe("online", online.asObject());
-			if (!offline.isEmpty()) {
-				root.putUnsafe("offline", offline.asObject());
+			// Create gossip request (digest or full version vector)
+			Tree root;
+			if (gossipDigest) {
+				root = createGossipDigest();
+			} else {
+				root = createGossipRequest(null);
 			}
 
 			// Serialize gossip packet (JSON, MessagePack, etc.)
@@ -1024,6 +1263,102 @@ public class TcpTransporter extends Transporter {
 		return null;
 	}
 
+	/**
+	 * Create the "online" and "offline" blocks (version vector) of a gossip
+	 * request.
+	 * 
+	 * @param filter
+	 *            buckets to include (null = all nodes)
+	 * 
+	 * @return gossip request
+	 */
+	protected Tree createGossipRequest(boolean[] filter) {
+		NodeDescriptor descriptor = getDescriptor();
+		Collection<NodeDescriptor> descriptors = nodes.values();
+		int size = nodes.size() + 32;
+		FastBuildTree online = new FastBuildTree(size);
+		FastBuildTree offline = new FastBuildTree(size);
+
+		// Add current node
+		if (filter == null || filter[GossipDigest.bucketOf(nodeID, filter.length)]) {
+			descriptor.readLock.lock();
+			try {
+				ArrayList<Object> array = new ArrayList<>(3);
+				array.add(descriptor.seq);
+				array.add(descriptor.cpuSeq);
+				array.add(descriptor.cpu);
+				online.putUnsafe(nodeID, array);
+			} finally {
+				descriptor.readLock.unlock();
+			}
+		}
+
+		// Loop on registered nodes
+		for (NodeDescriptor node : descriptors) {
+			if (filter != null && !filter[GossipDigest.bucketOf(node.nodeID, filter.length)]) {
+				continue;
+			}
+			node.readLock.lock();
+			try {
+				if (node.offlineSince > 0) {
+
+					// Offline
+					if (node.seq > 0) {
+						offline.put(node.nodeID, node.seq);
+					}
+				} else if (!node.local && node.seq > 0) {
+
+					// Online
+					ArrayList<Object> array = new ArrayList<>(3);
+					array.add(node.seq);
+					array.add(node.cpuSeq);
+					array.add(node.cpu);
+					online.putUnsafe(node.nodeID, array);
+				}
+			} finally {
+				node.readLock.unlock();
+			}
+		}
+
+		// Create gossip request
+		FastBuildTree root = new FastBuildTree(7);
+		root.putUnsafe("ver", protocolVersion);
+		root.putUnsafe("sender", nodeID);
+		root.putUnsafe("online", online.asObject());
+		if (!offline.isEmpty()) {
+			root.putUnsafe("offline", offline.asObject());
+		}
+		if (filter != null) {
+			root.putUnsafe("buckets", GossipDigest.toIndexes(filter));
+			root.putUnsafe("bucketCount", filter.length);
+		}
+		return root;
+	}
+
+	/**
+	 * Create a gossip request with the digest of the version vector.
+	 * 
+	 * @return gossip request
+	 */
+	protected Tree createGossipDigest() {
+		FastBuildTree root = new FastBuildTree(3);
+		root.putUnsafe("ver", protocolVersion);
+		root.putUnsafe("sender", nodeID);
+		root.putUnsafe("digest", createDigest(gossipDigestSize).asList());
+		return root;
+	}
+
+	protected GossipDigest createDigest(int size) {
+		GossipDigest digest = new GossipDigest(size);
+		digest.add(getDescriptor());
+		for (NodeDescriptor node : nodes.values()) {
+			if (!node.local) {
+				digest.add(node);
+			}
+		}
+		return digest;
+	}
+
 	protected void sendGossipToRandomEndpoint(String[] endpoints, int size, byte[] packet, Tree message)
 			throws Exception {
 
@@ -1054,6 +1389,15 @@ public class TcpTransporter extends Transporter {
 			logger.info("Gossip request received from \"" + sender + "\" node:\r\n" + data);
 		}
 
+		// Digest of the requester's version vector
+		Tree digest = data.get("digest");
+		if (digest != null) {
+			return processGossipDigest(sender, digest);
+		}
+
+		// Version vector of the differing buckets only
+		boolean[] filter = GossipDigest.toFilter(data.get("buckets"), data.get("bucketCount", 0));
+
 		// Add "online" and "offline" response blocks
 		LinkedList<NodeDescriptor> allNodes = new LinkedList<>(nodes.values());
 		NodeDescriptor descriptor = getDescriptor();
@@ -1069,6 +1413,9 @@ public class TcpTransporter extends Transporter {
 		// Loop in nodes
 		LinkedList<NodeDescriptor> disconnectedNodes = new LinkedList<>();
 		for (NodeDescriptor node : allNodes) {
+			if (filter != null && !filter[GossipDigest.bucketOf(node.nodeID, filter.length)]) {
+				continue;
+			}
 			node.writeLock.lock();
 			try {
 
@@ -1220,6 +1567,7 @@ public class TcpTransporter extends Transporter {
 		// Notify listeners (unexpected disconnection)
 		for (NodeDescriptor node : disconnectedNodes) {
 			logger.info("Node \"" + node.nodeID + "\" disconnected.");
+			closeOutgoingStreams(node.nodeID);
 			broadcastNodeDisconnected(node.info, true);
 		}
 
@@ -1227,6 +1575,51 @@ public class TcpTransporter extends Transporter {
 		return root;
 	}
 
+	// --- GOSSIP DIGEST RECEIVED ---
+
+	/**
+	 * Compares the digest of the requester with the local version vector, and
+	 * requests the full entries of the differing buckets.
+	 * 
+	 * @param sender
+	 *            nodeID of the requester
+	 * @param digest
+	 *            list of bucket hashes
+	 * 
+	 * @return created response (used for testing)
+	 */
+	protected Tree processGossipDigest(String sender, Tree digest) throws Exception {
+		FastBuildTree root = new FastBuildTree(4);
+		root.putUnsafe("ver", protocolVersion);
+		root.putUnsafe("sender", nodeID);
+
+		// Compare buckets
+		int size = digest.size();
+		if (size < 1) {
+			logger.warn("Invalid \"digest\" block: " + digest.toString(false));
+			return root;
+		}
+		List<Object> buckets = createDigest(size).compare(digest);
+		if (buckets.isEmpty()) {
+
+			// Version vectors are equal
+			return root;
+		}
+		root.putUnsafe("buckets", buckets);
+		root.putUnsafe("bucketCount", size);
+
+		// Debug
+		if (debugHeartbeats) {
+			logger.info("Gossip response submitting to \"" + sender + "\" node:\r\n" + root);
+		}
+
+		// Request the differing entries
+		writer.send(sender, serialize(PACKET_GOSSIP_RSP_ID, root));
+
+		// For unit testing
+		return root;
+	}
+
 	// --- GOSSIP RESPONSE MESSAGE RECEIVED ---
 
 	protected void processGossipResponse(Tree data) throws Exception {
@@ -1237,6 +1630,22 @@ public class TcpTransporter extends Transporter {
 			logger.info("Gossip response received from \"" + sender + "\" node:\r\n" + data);
 		}
 
+		// Peer requested the entries of the differing buckets
+		boolean[] filter = GossipDigest.toFilter(data.get("buckets"), data.get("bucketCount", 0));
+		if (filter != null) {
+			String sender = data.get("sender", (String) null);
+			if (sender != null && !sender.isEmpty()) {
+				Tree req = createGossipRequest(filter);
+
+				// Debug
+				if (debugHeartbeats) {
+					logger.info("Gossip request submitting to \"" + sender + "\" node:\r\n" + req);
+				}
+				writer.send(sender, serialize(PACKET_GOSSIP_REQ_ID, req));
+			}
+			return;
+		}
+
 		// Online / offline nodes in responnse
 		Tree online = data.get("online");
 		Tree offline = data.get("offline");
@@ -1350,6 +1759,7 @@ public class TcpTransporter extends Transporter {
 
 					// Notify listeners (not unexpected disconnection)
 					logger.info("Node \"" + node.nodeID + "\" disconnected.");
+					closeOutgoingStreams(node.nodeID);
 					broadcastNodeDisconnected(node.info, false);
 				}
 			}
@@ -1432,6 +1842,30 @@ public class TcpTransporter extends Transporter {
 		this.gossipPeriod = gossipPeriod;
 	}
 
+	public boolean isGossipDigest() {
+		return gossipDigest;
+	}
+
+	public void setGossipDigest(boolean gossipDigest) {
+		this.gossipDigest = gossipDigest;
+	}
+
+	public int getGossipDigestSize() {
+		return gossipDigestSize;
+	}
+
+	public void setGossipDigestSize(int gossipDigestSize) {
+		this.gossipDigestSize = gossipDigestSize;
+	}
+
+	public boolean isBinaryStreams() {
+		return binaryStreams;
+	}
+
+	public void setBinaryStreams(boolean binaryStreams) {
+		this.binaryStreams = binaryStreams;
+	}
+
 	public int getMaxConnections() {
 		return maxConnections;
 	}
@@ -1448,6 +1882,66 @@ public class TcpTransporter extends Transporter {
 		this.maxPacketSize = maxPacketSize;
 	}
 
+	public int getReadBufferSize() {
+		return readBufferSize;
+	}
+
+	public void setReadBufferSize(int readBufferSize) {
+		this.readBufferSize = readBufferSize;
+	}
+
+	public int getMaxPooledReadBuffers() {
+		return maxPooledReadBuffers;
+	}
+
+	public void setMaxPooledReadBuffers(int maxPooledReadBuffers) {
+		this.maxPooledReadBuffers = maxPooledReadBuffers;
+	}
+
+	public int getWriteCoalescingBytes() {
+		return writeCoalescingBytes;
+	}
+
+	public void setWriteCoalescingBytes(int writeCoalescingBytes) {
+		this.writeCoalescingBytes = writeCoalescingBytes;
+	}
+
+	public long getWriteCoalescingMicros() {
+		return writeCoalescingMicros;
+	}
+
+	public void setWriteCoalescingMicros(long writeCoalescingMicros) {
+		this.writeCoalescingMicros = writeCoalescingMicros;
+	}
+
+	public int getReaderThreads() {
+		return readerThreads;
+	}
+
+	public void setReaderThreads(int readerThreads) {
+		this.readerThreads = readerThreads;
+	}
+
+	public int getWriterThreads() {
+		return writerThreads;
+	}
+
+	public void setWriterThreads(int writerThreads) {
+		this.writerThreads = writerThreads;
+	}
+
+	public boolean isReusePort() {
+		return reusePort;
+	}
+
+	public void setReusePort(boolean reusePort) {
+		this.reusePort = reusePort;
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
 	public int getCurrentPort() {
 		return currentPort;
 	}
@@ -32,7 +32,9 @@ import static services.moleculer.util.CommonUtils.throwableToTree;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -48,6 +50,7 @@ import io.datatree.Tree;
 import services.moleculer.ServiceBroker;
 import services.moleculer.config.ServiceBrokerConfig;
 import services.moleculer.context.Context;
+import services.moleculer.error.MoleculerClientError;
 import services.moleculer.eventbus.Eventbus;
 import services.moleculer.eventbus.Groups;
 import services.moleculer.metrics.MetricConstants;
@@ -61,6 +64,7 @@ import services.moleculer.service.MoleculerComponent;
 import services.moleculer.service.Name;
 import services.moleculer.service.ServiceInvoker;
 import services.moleculer.service.ServiceRegistry;
+import services.moleculer.stream.PacketStream;
 import services.moleculer.transporter.tcp.NodeDescriptor;
 import services.moleculer.transporter.tcp.RemoteAddress;
 import services.moleculer.uid.TimeBasedUidGenerator;
@@ -157,6 +161,29 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 	 */
 	protected boolean preferHostname = true;
 
+	/**
+	 * Broadcast only the changed services (versioned diff of the previous
+	 * INFO packet) when the local services change. Nodes which missed the
+	 * previous INFO packet request the full INFO block. All nodes of the
+	 * cluster must support it.
+	 */
+	protected boolean infoDiff;
+
+	/**
+	 * Credit-based flow control of streams: maximum number of bytes a stream
+	 * receiver accepts without acknowledgement (0 = disabled). The value is
+	 * published in the INFO block; the flow control is used only between nodes
+	 * which have this property.
+	 */
+	protected long streamWindow;
+
+	/**
+	 * Credit timeout of the flow-controlled outgoing streams, in SECONDS. A
+	 * stream which waits longer for a credit is closed with an error (0 = no
+	 * timeout).
+	 */
+	protected int streamTimeout = 60;
+
 	// --- DEBUG COMMUNICATION ---
 
 	/**
@@ -206,11 +233,27 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 
 	protected final ConcurrentHashMap<String, NodeDescriptor> nodes = new ConcurrentHashMap<>(256);
 
+	// --- FLOW-CONTROLLED OUTGOING STREAMS ---
+
+	protected final ConcurrentHashMap<String, OutgoingStream> outgoingStreams = new ConcurrentHashMap<>();
+
+	/**
+	 * Sum of the unacknowledged bytes of the outgoing streams
+	 */
+	protected final AtomicLong inFlightBytes = new AtomicLong();
+
 	// --- SENDING INFO BLOCK ---
 
 	protected final AtomicBoolean infoScheduled = new AtomicBoolean();
 	protected final AtomicLong infoScheduledAt = new AtomicLong();
 
+	/**
+	 * Services (by name) and sequence number of the last broadcasted INFO
+	 * packet (base of the next diff).
+	 */
+	protected Map<String, Tree> infoServices;
+	protected long infoSeq;
+
 	// --- FOR TESTING ONLY ---
 
 	protected final AtomicLong lastReceivedMessageAt = new AtomicLong();
@@ -222,6 +265,7 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 	protected MetricCounter counterTransporterPacketsSentBytes;
 	protected MetricCounter counterTransporterPacketsReceivedTotal;
 	protected MetricCounter counterTransporterPacketsReceivedBytes;
+	protected MetricGauge gaugeTransporterStreamsInFlightBytes;
 
 	// --- CONSTUCTORS ---
 
@@ -286,6 +330,8 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 						MOLECULER_TRANSPORTER_PACKETS_RECEIVED_TOTAL_DESC, 0);
 				counterTransporterPacketsReceivedBytes = metrics.increment(MOLECULER_TRANSPORTER_PACKETS_RECEIVED_BYTES,
 						MOLECULER_TRANSPORTER_PACKETS_RECEIVED_BYTES_DESC, 0);
+				gaugeTransporterStreamsInFlightBytes = metrics.set(MOLECULER_TRANSPORTER_STREAMS_INFLIGHT_BYTES,
+						MOLECULER_TRANSPORTER_STREAMS_INFLIGHT_BYTES_DESC, 0);
 			}
 		}
 
@@ -348,7 +394,8 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 				// Redis transporter is ready for use
 				logger.info("All channels subscribed successfully.");
 
-				// Do the discovery process
+				// Do the discovery process (first INFO is always complete)
+				resetInfoDiff();
 				scheduler.schedule(() -> {
 					sendDiscoverPacket(discoverBroadcastChannel);
 				}, 500, TimeUnit.MILLISECONDS);
@@ -418,13 +465,153 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 
 	protected void sendInfoPacket(String channel) {
 		Tree msg = removeLocalEvents(registry.getDescriptor());
+		if (streamWindow > 0) {
+			msg.put("streamWindow", streamWindow);
+		}
+		long seq = registry.getTimestamp();
+		if (channel.equals(infoBroadcastChannel)) {
+			Tree diff = createInfoDiff(msg, seq);
+			if (diff != null) {
+				publish(channel, diff);
+				return;
+			}
+		}
 		msg.put("ver", protocolVersion);
 		msg.put("sender", nodeID);
-		msg.put("seq", registry.getTimestamp());
+		msg.put("seq", seq);
 		msg.put("instanceID", instanceID);
 		publish(channel, msg);
 	}
 
+	// --- INCREMENTAL INFO PACKETS ---
+
+	/**
+	 * Creates a versioned diff from the current and the previously broadcasted
+	 * descriptor. The diff contains the added and changed service blocks, and
+	 * the names of the removed services.
+	 * 
+	 * @param descriptor
+	 *            current descriptor of the local node
+	 * @param seq
+	 *            timestamp of the descriptor
+	 * 
+	 * @return diff packet or null (send the full INFO block)
+	 */
+	protected synchronized Tree createInfoDiff(Tree descriptor, long seq) {
+		if (!infoDiff) {
+			return null;
+		}
+		Map<String, Tree> previous = infoServices;
+		long base = infoSeq;
+		Map<String, Tree> current = servicesByName(descriptor.get("services"));
+		infoServices = current;
+		infoSeq = seq;
+		if (previous == null || base == 0) {
+			return null;
+		}
+
+		// Changed and removed services
+		LinkedList<Object> changed = new LinkedList<>();
+		LinkedList<Object> removed = new LinkedList<>();
+		for (Map.Entry<String, Tree> entry : current.entrySet()) {
+			Tree service = previous.get(entry.getKey());
+			if (service == null || !service.equals(entry.getValue())) {
+				changed.addLast(entry.getValue().asObject());
+			}
+		}
+		for (String name : previous.keySet()) {
+			if (!current.containsKey(name)) {
+				removed.addLast(name);
+			}
+		}
+
+		// Create diff packet
+		FastBuildTree msg = new FastBuildTree(7);
+		msg.putUnsafe("ver", protocolVersion);
+		msg.putUnsafe("sender", nodeID);
+		msg.putUnsafe("seq", seq);
+		msg.putUnsafe("base", base);
+		msg.putUnsafe("instanceID", instanceID);
+		msg.putUnsafe("services", changed);
+		msg.putUnsafe("removed", removed);
+		return msg;
+	}
+
+	protected synchronized void resetInfoDiff() {
+		infoServices = null;
+		infoSeq = 0;
+	}
+
+	/**
+	 * Applies a diff packet to the stored INFO block of the sender.
+	 * 
+	 * @param sender
+	 *            nodeID of the sender
+	 * @param diff
+	 *            incoming diff packet
+	 * 
+	 * @return new (full) INFO block, or null if the diff is out of sequence
+	 */
+	protected Tree applyInfoDiff(String sender, Tree diff) {
+		NodeDescriptor node = nodes.get(sender);
+		if (node == null) {
+			return null;
+		}
+		Tree info;
+		node.readLock.lock();
+		try {
+			long base = diff.get("base", 0L);
+			if (node.offlineSince > 0 || node.version == 0 || node.version != base) {
+				return null;
+			}
+			info = node.info.clone();
+		} finally {
+			node.readLock.unlock();
+		}
+
+		// Merge services
+		Map<String, Tree> services = servicesByName(info.get("services"));
+		Tree removed = diff.get("removed");
+		if (removed != null) {
+			for (Tree name : removed) {
+				services.remove(name.asString());
+			}
+		}
+		Tree changed = diff.get("services");
+		if (changed != null) {
+			for (Tree service : changed) {
+				services.put(serviceName(service), service);
+			}
+		}
+		Tree list = info.putList("services");
+		for (Tree service : services.values()) {
+			list.addObject(service);
+		}
+		info.put("ver", diff.get("ver", protocolVersion));
+		info.put("sender", sender);
+		info.put("seq", diff.get("seq", 0L));
+		info.put("instanceID", diff.get("instanceID", ""));
+		return info;
+	}
+
+	protected static Map<String, Tree> servicesByName(Tree services) {
+		LinkedHashMap<String, Tree> map = new LinkedHashMap<>();
+		if (services != null) {
+			for (Tree service : services) {
+				map.put(serviceName(service), service);
+			}
+		}
+		return map;
+	}
+
+	protected static String serviceName(Tree service) {
+		String name = service.get("fullName", (String) null);
+		if (name == null) {
+			name = service.get("name", "");
+		}
+		return name;
+	}
+
 	protected void sendDiscoverPacket(String channel) {
 		FastBuildTree msg = new FastBuildTree(3);
 		msg.putUnsafe("ver", protocolVersion);
@@ -612,6 +799,7 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 
 		// Send message
 		publish(cmd, nodeID, msg);
+		dataPacketSent(ctx.id);
 	}
 
 	// --- ERROR PACKET (STREAMING) ---
@@ -627,6 +815,7 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 
 		// Send message
 		publish(cmd, nodeID, msg);
+		closeOutgoingStream(ctx.id);
 	}
 
 	// --- CLOSE PACKET (STREAMING) ---
@@ -649,6 +838,208 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 
 		// Send message
 		publish(cmd, nodeID, msg);
+		closeOutgoingStream(ctx.id);
+	}
+
+	// --- STREAM FLOW CONTROL ---
+
+	/**
+	 * Enables the credit-based flow control of an outgoing stream, if the
+	 * remote node supports it.
+	 * 
+	 * @param nodeID
+	 *            receiver's nodeID
+	 * @param id
+	 *            request ID
+	 * @param stream
+	 *            outgoing stream
+	 */
+	public void openOutgoingStream(String nodeID, String id, PacketStream stream) {
+		long window = getStreamWindow(nodeID);
+		if (window > 0) {
+			stream.setWindow(window);
+			outgoingStreams.put(id, new OutgoingStream(nodeID, stream));
+		}
+	}
+
+	/**
+	 * Enables sending credits to the sender of an incoming stream, if the
+	 * remote node supports it.
+	 * 
+	 * @param nodeID
+	 *            sender's nodeID
+	 * @param id
+	 *            request ID
+	 * @param stream
+	 *            incoming stream
+	 */
+	public void openIncomingStream(String nodeID, String id, PacketStream stream) {
+		if (getStreamWindow(nodeID) > 0) {
+			stream.setCreditHandler(streamWindow, consumed -> sendCreditPacket(nodeID, id, consumed));
+		}
+	}
+
+	protected void closeOutgoingStream(String id) {
+		OutgoingStream outgoing = outgoingStreams.remove(id);
+		if (outgoing != null) {
+			updateInFlightBytes(outgoing, -1);
+		}
+	}
+
+	/**
+	 * Closes the outgoing stream with an error (the paused "transferFrom" task
+	 * of the stream fails).
+	 * 
+	 * @param id
+	 *            request ID
+	 * @param cause
+	 *            error
+	 */
+	protected void closeOutgoingStream(String id, Throwable cause) {
+		OutgoingStream outgoing = outgoingStreams.remove(id);
+		if (outgoing != null) {
+			updateInFlightBytes(outgoing, -1);
+			try {
+				outgoing.stream.sendError(cause);
+			} catch (Throwable ignored) {
+
+				// Listener failed (eg. the request is already rejected)
+			}
+		}
+	}
+
+	/**
+	 * Closes all outgoing streams of a disconnected node.
+	 * 
+	 * @param nodeID
+	 *            receiver's nodeID
+	 */
+	protected void closeOutgoingStreams(String nodeID) {
+		if (outgoingStreams.isEmpty()) {
+			return;
+		}
+		for (Map.Entry<String, OutgoingStream> entry : outgoingStreams.entrySet()) {
+			if (entry.getValue().nodeID.equals(nodeID)) {
+				closeOutgoingStream(entry.getKey(),
+						new MoleculerClientError("Receiver of the stream (\"" + nodeID + "\") is disconnected!",
+								this.nodeID));
+			}
+		}
+	}
+
+	protected long getStreamWindow(String nodeID) {
+		if (streamWindow < 1 || nodeID == null) {
+			return 0;
+		}
+		NodeDescriptor node = nodes.get(nodeID);
+		if (node == null) {
+			return 0;
+		}
+		Tree info = node.info;
+		return info == null ? 0 : info.get("streamWindow", 0L);
+	}
+
+	protected void sendCreditPacket(String nodeID, String id, long consumed) {
+		FastBuildTree msg = new FastBuildTree(4);
+		msg.putUnsafe("ver", protocolVersion);
+		msg.putUnsafe("sender", this.nodeID);
+		msg.putUnsafe("id", id);
+		msg.putUnsafe("consumed", consumed);
+		publish(PACKET_REQUEST, nodeID, msg);
+	}
+
+	/**
+	 * Processes the credit packets (they are sent via the "request" channel).
+	 * 
+	 * @param message
+	 *            incoming request
+	 * 
+	 * @return true if the message was a credit packet
+	 */
+	protected boolean receiveCreditPacket(Tree message) {
+		Tree consumed = message.get("consumed");
+		if (consumed == null) {
+			return false;
+		}
+		OutgoingStream outgoing = outgoingStreams.get(message.get("id", ""));
+		if (outgoing != null) {
+			outgoing.stream.acknowledge(consumed.asLong());
+			updateInFlightBytes(outgoing, outgoing.stream.getInFlightBytes());
+		}
+		return true;
+	}
+
+	/**
+	 * Updates the in-flight bytes of a flow-controlled stream after sending a
+	 * data packet.
+	 * 
+	 * @param id
+	 *            request ID
+	 */
+	protected void dataPacketSent(String id) {
+		OutgoingStream outgoing = outgoingStreams.get(id);
+		if (outgoing != null) {
+			updateInFlightBytes(outgoing, outgoing.stream.getInFlightBytes());
+		}
+	}
+
+	/**
+	 * Updates the "streams.inflight.bytes" gauge.
+	 * 
+	 * @param outgoing
+	 *            flow-controlled stream
+	 * @param bytes
+	 *            current in-flight bytes of the stream (-1 = stream closed)
+	 */
+	protected void updateInFlightBytes(OutgoingStream outgoing, long bytes) {
+		long delta;
+		synchronized (outgoing) {
+			if (outgoing.inFlightBytes < 0) {
+
+				// Already closed
+				return;
+			}
+			delta = Math.max(0L, bytes) - outgoing.inFlightBytes;
+			outgoing.inFlightBytes = bytes;
+		}
+		long total = inFlightBytes.addAndGet(delta);
+		if (gaugeTransporterStreamsInFlightBytes != null) {
+			gaugeTransporterStreamsInFlightBytes.set(total);
+		}
+	}
+
+	protected void checkStreamTimeouts(long now) {
+		long streamTimeoutMillis = streamTimeout * 1000L;
+		for (Map.Entry<String, OutgoingStream> entry : outgoingStreams.entrySet()) {
+			long pausedAt = entry.getValue().stream.getPausedAt();
+			if (pausedAt > 0 && now - pausedAt > streamTimeoutMillis) {
+				String nodeID = entry.getValue().nodeID;
+				logger.warn("Credit is not received from \"" + nodeID + "\" node for " + streamTimeout
+						+ " seconds, stream \"" + entry.getKey() + "\" closed.");
+				closeOutgoingStream(entry.getKey(), new MoleculerClientError(
+						"Receiver of the stream (\"" + nodeID + "\") does not respond!", this.nodeID));
+			}
+		}
+	}
+
+	/**
+	 * Flow-controlled outgoing stream and its receiver.
+	 */
+	protected static class OutgoingStream {
+
+		protected final String nodeID;
+		protected final PacketStream stream;
+
+		/**
+		 * Number of in-flight bytes counted in the metric (-1 = closed)
+		 */
+		protected long inFlightBytes;
+
+		protected OutgoingStream(String nodeID, PacketStream stream) {
+			this.nodeID = nodeID;
+			this.stream = stream;
+		}
+
 	}
 
 	// --- PUBLISH ---
@@ -753,7 +1144,9 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 
 			// Incoming request
 			if (channel.equals(requestChannel)) {
-				registry.receiveRequest(message);
+				if (!receiveCreditPacket(message)) {
+					registry.receiveRequest(message);
+				}
 				return;
 			}
 
@@ -790,10 +1183,29 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 			// Info packet
 			if (channel.equals(infoChannel) || channel.equals(infoBroadcastChannel)) {
 
+				// Incremental INFO packet
+				if (message.get("base") != null) {
+					Tree info = applyInfoDiff(sender, message);
+					if (info == null) {
+
+						// Out of sequence -> request the full INFO block
+						sendDiscoverPacket(channel(PACKET_DISCOVER, sender));
+						return;
+					}
+					message = info;
+				}
+
 				// Register services and listeners
+				long version = message.get("seq", 0L);
 				message.put("seq", System.currentTimeMillis());
 				message.put("port", 1);
 				updateNodeInfo(sender, message);
+
+				// Store the sender's sequence number (base of the next diff)
+				NodeDescriptor node = nodes.get(sender);
+				if (node != null) {
+					node.version = version;
+				}
 				return;
 			}
 
@@ -843,6 +1255,7 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 
 					// Notify listeners (not unexpected disconnection)
 					logger.info("Node \"" + sender + "\" disconnected.");
+					closeOutgoingStreams(sender);
 					broadcastNodeDisconnected(node.info, false);
 				}
 				return;
@@ -857,6 +1270,7 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 		boolean connected = false;
 		boolean reconnected = false;
 		boolean updated = false;
+		Tree prevServices = null;
 		NodeDescriptor node = nodes.get(sender);
 		if (node == null) {
 
@@ -886,6 +1300,7 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 						// Store new node info
 						if (prevInfo != null && wasOnline) {
 							Tree s1 = prevInfo.get("services");
+							prevServices = s1;
 							if (s1 != null) {
 								Tree s2 = node.info.get("services");
 								if (s2 != null && s1.equals(s2)) {
@@ -914,7 +1329,12 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 		}
 
 		// Register actions and listeners
-		if (connected || reconnected || updated) {
+		if (updated && prevServices != null) {
+
+			// Update the changed services only
+			updateServices(sender, prevServices, info.get("services"));
+
+		} else if (connected || reconnected || updated) {
 			if (updated) {
 
 				// Remove actions and listeners
@@ -950,6 +1370,36 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 		}
 	}
 
+	/**
+	 * Compares the previous and the current service blocks of a remote node,
+	 * and re-registers only the added, changed or removed services.
+	 * 
+	 * @param sender
+	 *            nodeID of the remote node
+	 * @param prevServices
+	 *            previous "services" block
+	 * @param services
+	 *            current "services" block
+	 */
+	protected void updateServices(String sender, Tree prevServices, Tree services) {
+		Map<String, Tree> previous = servicesByName(prevServices);
+		Map<String, Tree> current = servicesByName(services);
+		for (Map.Entry<String, Tree> entry : previous.entrySet()) {
+			Tree service = current.get(entry.getKey());
+			if (service == null || !service.equals(entry.getValue())) {
+				registry.removeActions(sender, entry.getValue(), service);
+				eventbus.removeListeners(sender, entry.getValue());
+			}
+		}
+		for (Map.Entry<String, Tree> entry : current.entrySet()) {
+			Tree service = previous.get(entry.getKey());
+			if (service == null || !service.equals(entry.getValue())) {
+				registry.addActions(sender, entry.getValue());
+				eventbus.addListeners(sender, entry.getValue());
+			}
+		}
+	}
+
 	// --- INTERNAL MOLECULER EVENTS ---
 
 	protected void broadcastTransporterConnected() {
@@ -993,6 +1443,12 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 
 	protected void broadcastNodeDisconnected(Tree info, boolean unexpected) {
 		if (info != null) {
+
+			// Drop the round-trip histogram of the node
+			String sender = info.get("sender", (String) null);
+			if (metrics != null && sender != null) {
+				metrics.removeLatency(Metrics.LATENCY_NODE, sender);
+			}
 			Tree msg = new Tree();
 			msg.putObject("node", info);
 			msg.put("unexpected", unexpected);
@@ -1030,6 +1486,11 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 		Iterator<NodeDescriptor> i;
 		NodeDescriptor node;
 
+		// Check credit timeout of streams
+		if (streamTimeout > 0 && !outgoingStreams.isEmpty()) {
+			checkStreamTimeouts(now);
+		}
+
 		// Check offline timeout
 		if (offlineTimeout > 0) {
 			i = nodes.values().iterator();
@@ -1085,6 +1546,7 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 				// Notify listeners
 				logger.info("Heartbeat is not received from \"" + node.nodeID + "\" node.");
 				logger.info("Node \"" + node.nodeID + "\" disconnected unexpectedly.");
+				closeOutgoingStreams(node.nodeID);
 				broadcastNodeDisconnected(node.info, true);
 			}
 		}
@@ -1276,4 +1738,28 @@ public abstract class Transporter extends MoleculerComponent implements MetricCo
 		return instanceID;
 	}
 
+	public boolean isInfoDiff() {
+		return infoDiff;
+	}
+
+	public void setInfoDiff(boolean infoDiff) {
+		this.infoDiff = infoDiff;
+	}
+
+	public long getStreamWindow() {
+		return streamWindow;
+	}
+
+	public void setStreamWindow(long streamWindow) {
+		this.streamWindow = Math.max(0L, streamWindow);
+	}
+
+	public int getStreamTimeout() {
+		return streamTimeout;
+	}
+
+	public void setStreamTimeout(int streamTimeout) {
+		this.streamTimeout = Math.max(0, streamTimeout);
+	}
+
 }
\ No newline at end of file
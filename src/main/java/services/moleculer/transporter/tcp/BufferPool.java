@@ -0,0 +1,197 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_READ_BUFFERS_ACTIVE;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_READ_BUFFERS_ACTIVE_DESC;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_READ_BUFFERS_POOLED;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_READ_BUFFERS_POOLED_DESC;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_READ_BYTES_COPIED;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_READ_BYTES_COPIED_DESC;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import services.moleculer.metrics.MetricCounter;
+import services.moleculer.metrics.MetricGauge;
+import services.moleculer.metrics.Metrics;
+
+/**
+ * Pool of fixed-size read buffers, shared by the connections of a TcpReader.
+ * Packets larger than the buffer size get a dedicated (unpooled) buffer.
+ */
+public class BufferPool {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Size of the pooled buffers (BYTES)
+	 */
+	protected final int bufferSize;
+
+	/**
+	 * Max number of idle buffers kept in the pool
+	 */
+	protected final int maxPooled;
+
+	// --- IDLE BUFFERS ---
+
+	protected final ConcurrentLinkedQueue<PooledBuffer> idle = new ConcurrentLinkedQueue<>();
+
+	// --- COUNTERS ---
+
+	protected final AtomicInteger pooled = new AtomicInteger();
+	protected final AtomicInteger active = new AtomicInteger();
+	protected final AtomicInteger pendingPackets = new AtomicInteger();
+	protected final AtomicLong copied = new AtomicLong();
+
+	// --- METRICS ---
+
+	protected MetricGauge gaugePooled;
+	protected MetricGauge gaugeActive;
+	protected MetricCounter counterCopied;
+
+	// --- CONSTRUCTOR ---
+
+	public BufferPool(int bufferSize, int maxPooled, Metrics metrics, String... tags) {
+		if (bufferSize < 16) {
+			throw new IllegalArgumentException("Buffer size must be at least 16 bytes!");
+		}
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+		if (metrics != null) {
+			gaugePooled = metrics.set(MOLECULER_TRANSPORTER_READ_BUFFERS_POOLED,
+					MOLECULER_TRANSPORTER_READ_BUFFERS_POOLED_DESC, 0, tags);
+			gaugeActive = metrics.set(MOLECULER_TRANSPORTER_READ_BUFFERS_ACTIVE,
+					MOLECULER_TRANSPORTER_READ_BUFFERS_ACTIVE_DESC, 0, tags);
+			counterCopied = metrics.increment(MOLECULER_TRANSPORTER_READ_BYTES_COPIED,
+					MOLECULER_TRANSPORTER_READ_BYTES_COPIED_DESC, 0, tags);
+		}
+	}
+
+	// --- ACQUIRE / RECYCLE ---
+
+	/**
+	 * Returns a buffer with at least "minSize" bytes of capacity. The
+	 * reference count of the returned buffer is 1.
+	 * 
+	 * @param minSize
+	 *            minimum capacity
+	 * 
+	 * @return pooled or newly allocated buffer
+	 */
+	public PooledBuffer acquire(int minSize) {
+		PooledBuffer buffer = null;
+		if (minSize <= bufferSize) {
+			buffer = idle.poll();
+			if (buffer != null) {
+				updatePooled(pooled.decrementAndGet());
+				buffer.references.set(1);
+			}
+		}
+		if (buffer == null) {
+			buffer = new PooledBuffer(this, Math.max(minSize, bufferSize));
+		}
+		updateActive(active.incrementAndGet());
+		return buffer;
+	}
+
+	protected void recycle(PooledBuffer buffer) {
+		updateActive(active.decrementAndGet());
+		if (buffer.array.length != bufferSize) {
+			return;
+		}
+		if (pooled.incrementAndGet() > maxPooled) {
+			pooled.decrementAndGet();
+			return;
+		}
+		idle.add(buffer);
+		updatePooled(pooled.get());
+	}
+
+	/**
+	 * Registers the number of bytes moved during compaction (packet tails
+	 * that did not fit into the remaining part of a buffer) or copied before
+	 * deserialization.
+	 * 
+	 * @param bytes
+	 *            number of copied bytes
+	 */
+	public void copied(int bytes) {
+		copied.addAndGet(bytes);
+		if (counterCopied != null) {
+			counterCopied.increment(bytes);
+		}
+	}
+
+	// --- METRICS ---
+
+	protected void updatePooled(int value) {
+		if (gaugePooled != null) {
+			gaugePooled.set(value);
+		}
+	}
+
+	protected void updateActive(int value) {
+		if (gaugeActive != null) {
+			gaugeActive.set(value);
+		}
+	}
+
+	// --- GETTERS ---
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public int getMaxPooled() {
+		return maxPooled;
+	}
+
+	public int getPooled() {
+		return pooled.get();
+	}
+
+	public int getActive() {
+		return active.get();
+	}
+
+	public long getCopiedBytes() {
+		return copied.get();
+	}
+
+	/**
+	 * Returns the number of packets which are handed over to the executor,
+	 * but not deserialized yet.
+	 * 
+	 * @return number of pending packets
+	 */
+	public int getPendingPackets() {
+		return pendingPackets.get();
+	}
+
+}
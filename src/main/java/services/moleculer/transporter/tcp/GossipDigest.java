@@ -0,0 +1,175 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.datatree.Tree;
+
+/**
+ * Compact, order-independent digest of a gossip version vector. The nodes are
+ * distributed into a fixed number of buckets (by the hash of their nodeIDs),
+ * and every bucket contains the sum of the hashes of its
+ * (nodeID, seq, cpuSeq, offline) entries. Two peers exchange the full entries
+ * of the differing buckets only, so the size of a gossip round doesn't depend
+ * on the size of the cluster (when the cluster is in steady state).
+ */
+public class GossipDigest {
+
+	// --- BUCKETS ---
+
+	protected final long[] buckets;
+
+	// --- CONSTUCTOR ---
+
+	public GossipDigest(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Invalid number of buckets (" + size + ")!");
+		}
+		buckets = new long[size];
+	}
+
+	// --- ADD ENTRY ---
+
+	/**
+	 * Adds the current state of a node. Fields are read without locking; a
+	 * torn read only causes an unnecessary exchange in the current round.
+	 * 
+	 * @param node
+	 *            local or remote node
+	 */
+	public void add(NodeDescriptor node) {
+		long seq = node.seq;
+		if (node.offlineSince > 0) {
+			if (seq > 0) {
+				add(node.nodeID, seq, 0, true);
+			}
+		} else if (seq > 0 || node.local) {
+			add(node.nodeID, seq, node.cpuSeq, false);
+		}
+	}
+
+	public void add(String nodeID, long seq, long cpuSeq, boolean offline) {
+		long hash = nodeID.hashCode();
+		hash = mix(hash * 31 + seq);
+		hash = mix(hash * 31 + cpuSeq);
+		if (offline) {
+			hash = mix(hash ^ 0x5bd1e995L);
+		}
+		buckets[bucketOf(nodeID, buckets.length)] += hash;
+	}
+
+	// --- COMPARE WITH A REMOTE DIGEST ---
+
+	/**
+	 * Returns the indexes of the differing buckets.
+	 * 
+	 * @param remote
+	 *            list of buckets (received from a peer)
+	 * 
+	 * @return indexes of the differing buckets (empty list if the digests are
+	 *         equal)
+	 */
+	public List<Object> compare(Tree remote) {
+		ArrayList<Object> indexes = new ArrayList<>();
+		int i = 0;
+		for (Tree bucket : remote) {
+			if (i >= buckets.length) {
+				break;
+			}
+			if (buckets[i] != bucket.asLong()) {
+				indexes.add(i);
+			}
+			i++;
+		}
+		return indexes;
+	}
+
+	// --- CONVERTERS ---
+
+	public List<Object> asList() {
+		ArrayList<Object> list = new ArrayList<>(buckets.length);
+		for (long bucket : buckets) {
+			list.add(bucket);
+		}
+		return list;
+	}
+
+	/**
+	 * Converts the list of bucket indexes to a filter array.
+	 * 
+	 * @param indexes
+	 *            list of bucket indexes (or null)
+	 * @param size
+	 *            number of buckets
+	 * 
+	 * @return filter array (or null, if the parameters are missing or
+	 *         invalid)
+	 */
+	public static boolean[] toFilter(Tree indexes, int size) {
+		if (indexes == null || size < 1) {
+			return null;
+		}
+		boolean[] filter = new boolean[size];
+		for (Tree index : indexes) {
+			int i = index.asInteger();
+			if (i >= 0 && i < size) {
+				filter[i] = true;
+			}
+		}
+		return filter;
+	}
+
+	public static List<Object> toIndexes(boolean[] filter) {
+		ArrayList<Object> indexes = new ArrayList<>();
+		for (int i = 0; i < filter.length; i++) {
+			if (filter[i]) {
+				indexes.add(i);
+			}
+		}
+		return indexes;
+	}
+
+	// --- HASH FUNCTIONS ---
+
+	public static int bucketOf(String nodeID, int size) {
+		return (nodeID.hashCode() & 0x7FFFFFFF) % size;
+	}
+
+	protected static long mix(long hash) {
+		hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+		return hash ^ (hash >>> 31);
+	}
+
+	// --- PROPERTY GETTERS ---
+
+	public int size() {
+		return buckets.length;
+	}
+
+}
@@ -55,6 +55,12 @@ public class NodeDescriptor {
 	public volatile long seq;
 	public volatile long offlineSince;
 
+	/**
+	 * Sequence number of the last INFO packet received from the node (base of
+	 * the incremental INFO packets).
+	 */
+	public volatile long version;
+
 	public volatile int cpu;
 	public volatile long cpuSeq;
 	public volatile long cpuWhen;
@@ -0,0 +1,123 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted byte array of the TcpReader. The reader keeps one
+ * reference while it fills the array, and every incoming packet that is
+ * framed inside the array holds an additional reference until the packet is
+ * deserialized. When the last reference is released, the array returns to
+ * its {@link BufferPool}.
+ */
+public class PooledBuffer {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Backing array
+	 */
+	public final byte[] array;
+
+	/**
+	 * Owner pool
+	 */
+	protected final BufferPool pool;
+
+	/**
+	 * Number of references
+	 */
+	protected final AtomicInteger references = new AtomicInteger(1);
+
+	// --- CONSTRUCTOR ---
+
+	protected PooledBuffer(BufferPool pool, int size) {
+		this.pool = pool;
+		this.array = new byte[size];
+	}
+
+	// --- REFERENCE COUNTING ---
+
+	/**
+	 * Increments the reference count.
+	 */
+	public void retain() {
+		references.incrementAndGet();
+	}
+
+	/**
+	 * Decrements the reference count and returns the array to the pool when
+	 * the count reaches zero.
+	 */
+	public void release() {
+		int count = references.decrementAndGet();
+		if (count == 0) {
+			pool.recycle(this);
+		} else if (count < 0) {
+			throw new IllegalStateException("Buffer is already released!");
+		}
+	}
+
+	/**
+	 * Retains the buffer for an incoming packet (the packet is counted as
+	 * pending until the "releasePacket" call).
+	 */
+	public void retainPacket() {
+		pool.pendingPackets.incrementAndGet();
+		retain();
+	}
+
+	/**
+	 * Releases the buffer after the packet is deserialized.
+	 */
+	public void releasePacket() {
+		pool.pendingPackets.decrementAndGet();
+		release();
+	}
+
+	/**
+	 * Registers the number of bytes copied out of the array (eg. by a
+	 * Serializer which cannot parse a slice in place).
+	 * 
+	 * @param bytes
+	 *            number of copied bytes
+	 */
+	public void copied(int bytes) {
+		pool.copied(bytes);
+	}
+
+	/**
+	 * Returns true if some packet still refers to the array.
+	 * 
+	 * @return true = the array is shared, the content must not be
+	 *         overwritten
+	 */
+	public boolean isShared() {
+		return references.get() > 1;
+	}
+
+}
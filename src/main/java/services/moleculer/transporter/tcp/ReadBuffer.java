@@ -0,0 +1,162 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Attachment of TcpReader's SelectionKeys. The socket is read directly into
+ * a pooled array and incoming packets are framed in place; only the tail of a
+ * partially received packet is ever moved.
+ */
+public class ReadBuffer {
+
+	// --- POOL ---
+
+	protected final BufferPool pool;
+
+	// --- CURRENT BUFFER ---
+
+	protected PooledBuffer buffer;
+	protected ByteBuffer view;
+
+	/**
+	 * First unprocessed byte
+	 */
+	protected int start;
+
+	/**
+	 * End of the received bytes
+	 */
+	protected int limit;
+
+	// --- CONSTRUCTOR ---
+
+	public ReadBuffer(BufferPool pool) {
+		this.pool = pool;
+	}
+
+	// --- PREPARE FOR READING ---
+
+	/**
+	 * Returns a ByteBuffer (which wraps the current array) for the next
+	 * "channel.read" call.
+	 * 
+	 * @return ByteBuffer with free space
+	 */
+	public ByteBuffer prepare() {
+		if (buffer == null) {
+			set(pool.acquire(pool.bufferSize));
+		} else if (start == limit) {
+
+			// Everything processed
+			if (buffer.isShared() || buffer.array.length != pool.bufferSize) {
+				buffer.release();
+				set(pool.acquire(pool.bufferSize));
+			} else {
+				start = 0;
+				limit = 0;
+			}
+		} else if (limit == buffer.array.length) {
+
+			// Buffer is full, relocate the partially received packet
+			int remaining = limit - start;
+			int required = Math.max(remaining + 1, pendingLength());
+			if (start > 0 && !buffer.isShared() && required <= buffer.array.length) {
+				System.arraycopy(buffer.array, start, buffer.array, 0, remaining);
+			} else {
+				PooledBuffer next = pool.acquire(required);
+				System.arraycopy(buffer.array, start, next.array, 0, remaining);
+				buffer.release();
+				set(next);
+			}
+			start = 0;
+			limit = remaining;
+			pool.copied(remaining);
+		}
+		view.limit(buffer.array.length);
+		view.position(limit);
+		return view;
+	}
+
+	protected void set(PooledBuffer next) {
+		buffer = next;
+		view = ByteBuffer.wrap(next.array);
+		start = 0;
+		limit = 0;
+	}
+
+	/**
+	 * Returns the length of the partially received packet (or 0, when the
+	 * header is incomplete). The header was already validated by the
+	 * TcpReader.
+	 * 
+	 * @return packet length
+	 */
+	protected int pendingLength() {
+		if (limit - start < 6) {
+			return 0;
+		}
+		byte[] bytes = buffer.array;
+		return ((0xFF & bytes[start + 1]) << 24) | ((0xFF & bytes[start + 2]) << 16)
+				| ((0xFF & bytes[start + 3]) << 8) | (0xFF & bytes[start + 4]);
+	}
+
+	// --- READ FINISHED ---
+
+	public void filled(int bytes) {
+		limit += bytes;
+	}
+
+	public void consumed(int bytes) {
+		start += bytes;
+	}
+
+	// --- CLOSE ---
+
+	public void close() {
+		if (buffer != null) {
+			buffer.release();
+			buffer = null;
+			view = null;
+		}
+	}
+
+	// --- GETTERS ---
+
+	public PooledBuffer getBuffer() {
+		return buffer;
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+}
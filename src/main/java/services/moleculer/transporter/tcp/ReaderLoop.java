@@ -0,0 +1,458 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_CONNECTIONS;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_CONNECTIONS_DESC;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_QUEUE_DEPTH;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_QUEUE_DEPTH_DESC;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_SELECTED_KEYS;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_SELECTED_KEYS_DESC;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import services.moleculer.error.InvalidPacketDataError;
+import services.moleculer.metrics.MetricCounter;
+import services.moleculer.metrics.MetricGauge;
+import services.moleculer.metrics.Metrics;
+import services.moleculer.transporter.TcpTransporter;
+
+/**
+ * Selector loop of the TcpReader. Every loop has its own Selector and read
+ * buffer pool. When SO_REUSEPORT is supported, every loop accepts
+ * connections on its own server socket; otherwise the first loop accepts the
+ * connections and distributes them between the loops.
+ */
+public class ReaderLoop implements Runnable {
+
+	// --- LOGGER ---
+
+	protected static final Logger logger = LoggerFactory.getLogger(ReaderLoop.class);
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Index of the loop
+	 */
+	protected final int index;
+
+	/**
+	 * Maximum size of an incoming packet
+	 */
+	protected final int maxPacketSize;
+
+	/**
+	 * Debug mode
+	 */
+	protected final boolean debug;
+
+	// --- COMPONENTS ---
+
+	/**
+	 * Parent reader
+	 */
+	protected final TcpReader reader;
+
+	/**
+	 * Parent transporter
+	 */
+	protected final TcpTransporter transporter;
+
+	// --- NIO VARIABLES ---
+
+	protected final Selector selector;
+
+	/**
+	 * Server channel of this loop (or null)
+	 */
+	protected final ServerSocketChannel serverChannel;
+
+	/**
+	 * Accepted channels waiting for registration
+	 */
+	protected final ConcurrentLinkedQueue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+
+	// --- READ BUFFERS ---
+
+	/**
+	 * Pool of the per-connection read buffers
+	 */
+	protected final BufferPool pool;
+
+	// --- METRICS ---
+
+	protected MetricCounter counterSelectedKeys;
+	protected MetricGauge gaugeQueueDepth;
+	protected MetricGauge gaugeConnections;
+
+	// --- CONSTRUCTOR ---
+
+	public ReaderLoop(TcpReader reader, int index, ServerSocketChannel serverChannel) throws IOException {
+		this.reader = reader;
+		this.transporter = reader.transporter;
+		this.index = index;
+		this.serverChannel = serverChannel;
+		this.maxPacketSize = transporter.getMaxPacketSize();
+		this.debug = reader.debug;
+
+		// Create selector
+		selector = Selector.open();
+		if (serverChannel != null) {
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		}
+
+		// Create metrics
+		String loop = Integer.toString(index);
+		Metrics metrics = transporter.getMetrics();
+		pool = new BufferPool(transporter.getReadBufferSize(), transporter.getMaxPooledReadBuffers(), metrics,
+				"loop", loop);
+		if (metrics != null) {
+			counterSelectedKeys = metrics.increment(MOLECULER_TRANSPORTER_LOOP_SELECTED_KEYS,
+					MOLECULER_TRANSPORTER_LOOP_SELECTED_KEYS_DESC, 0, "type", "reader", "loop", loop);
+			gaugeQueueDepth = metrics.set(MOLECULER_TRANSPORTER_LOOP_QUEUE_DEPTH,
+					MOLECULER_TRANSPORTER_LOOP_QUEUE_DEPTH_DESC, 0, "type", "reader", "loop", loop);
+			gaugeConnections = metrics.set(MOLECULER_TRANSPORTER_LOOP_CONNECTIONS,
+					MOLECULER_TRANSPORTER_LOOP_CONNECTIONS_DESC, 0, "type", "reader", "loop", loop);
+		}
+	}
+
+	// --- REGISTER ACCEPTED CHANNEL ---
+
+	/**
+	 * Registers an accepted channel (can be called from any thread).
+	 *
+	 * @param channel
+	 *            accepted channel
+	 */
+	public void register(SocketChannel channel) {
+		registrations.add(channel);
+		selector.wakeup();
+	}
+
+	protected void registerChannels() {
+		SocketChannel channel = registrations.poll();
+		while (channel != null) {
+			try {
+				channel.register(selector, SelectionKey.OP_READ, new ReadBuffer(pool));
+			} catch (Exception cause) {
+				logger.warn("Unable to register channel!", cause);
+				try {
+					channel.close();
+				} catch (Exception ignored) {
+				}
+			}
+			channel = registrations.poll();
+		}
+	}
+
+	// --- READER LOOP ---
+
+	@Override
+	public void run() {
+
+		// Processing variables
+		Iterator<SelectionKey> keys;
+		SocketChannel channel;
+		SelectionKey key;
+
+		ReadBuffer buffer;
+		int processed, n;
+
+		// Loop
+		while (true) {
+
+			// Waiting for sockets
+			int selected;
+			try {
+				selected = selector.select(3000);
+			} catch (NullPointerException nullPointer) {
+				continue;
+			} catch (Exception anyError) {
+				break;
+			}
+			if (!registrations.isEmpty()) {
+				registerChannels();
+			}
+			if (selected < 1) {
+				updateMetrics(0);
+				continue;
+			}
+			keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				key = keys.next();
+				if (key == null) {
+					continue;
+				}
+				if (!key.isValid()) {
+					keys.remove();
+					continue;
+				}
+				if (key.isAcceptable()) {
+
+					// Accept channel
+					try {
+
+						// Register socket
+						channel = serverChannel.accept();
+						if (channel == null) {
+							continue;
+						}
+						channel.configureBlocking(false);
+
+						channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+						channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+						channel.setOption(StandardSocketOptions.SO_LINGER, -1);
+
+						ReaderLoop target = reader.selectLoop(this);
+						if (target == this) {
+							channel.register(selector, SelectionKey.OP_READ, new ReadBuffer(pool));
+						} else {
+							target.register(channel);
+						}
+
+						// Debug
+						if (debug) {
+							logger.info("Client channel opened from " + channel.getRemoteAddress() + " (loop #"
+									+ target.index + ").");
+						}
+
+					} catch (Exception cause) {
+						close(key, cause);
+					} finally {
+						keys.remove();
+					}
+
+				} else if (key.isReadable()) {
+					try {
+
+						// Read bytes into the (pooled) read buffer
+						channel = (SocketChannel) key.channel();
+						buffer = (ReadBuffer) key.attachment();
+						n = channel.read(buffer.prepare());
+						if (n < 0) {
+							throw new EOFException();
+						}
+						if (n == 0) {
+							continue;
+						}
+
+						// Debug
+						if (debug) {
+							logger.info(n + " bytes received from " + channel.getRemoteAddress() + ".");
+						}
+
+						// Split data (the remaining bytes stay in the buffer)
+						buffer.filled(n);
+						while ((processed = processPacket(buffer.getBuffer(), buffer.getStart(),
+								buffer.getLimit())) > 0) {
+							buffer.consumed(processed);
+						}
+
+					} catch (EOFException eof) {
+
+						// Peer closed
+						close(key, null);
+
+					} catch (Exception cause) {
+						close(key, cause);
+					} finally {
+						keys.remove();
+					}
+				}
+			}
+			updateMetrics(selected);
+		}
+	}
+
+	protected int processPacket(PooledBuffer buffer, int pos, int limit) throws Exception {
+
+		// Too short packet
+		byte[] bytes = buffer.array;
+		if (limit - pos < 6) {
+			return 0;
+		}
+
+		// Check packet's size
+		int len = ((0xFF & bytes[pos + 1]) << 24) | ((0xFF & bytes[pos + 2]) << 16) | ((0xFF & bytes[pos + 3]) << 8)
+				| (0xFF & bytes[pos + 4]);
+
+		if (maxPacketSize > 0 && len > maxPacketSize) {
+			throw new InvalidPacketDataError(
+					"Incoming packet is larger than the \"maxPacketSize\" limit (" + len + " > " + maxPacketSize + ")!",
+					"maxPacketSize", maxPacketSize, "packetSize", len);
+		} else if (len < 6) {
+			throw new InvalidPacketDataError("Incoming packet is smaller than the header's size (" + len + " < 6)!",
+					"packetSize", len);
+		}
+
+		// If all data present
+		if (limit >= pos + len) {
+
+			// Verify header's CRC
+			byte crc = (byte) (bytes[pos + 1] ^ bytes[pos + 2] ^ bytes[pos + 3] ^ bytes[pos + 4] ^ bytes[pos + 5]);
+			if (crc != bytes[pos]) {
+				throw new InvalidPacketDataError("Invalid CRC (" + crc + " != " + bytes[pos] + ")!", "crc", crc, "byte",
+						bytes[pos]);
+			}
+
+			// Verify type
+			byte type = bytes[pos + 5];
+			if (type < 1 || type > 9) {
+
+				// Unknown packet type!
+				throw new InvalidPacketDataError("Invalid packet type (" + type + ")!", "type", type);
+			}
+
+			// Process incoming message (without copying the body)
+			buffer.retainPacket();
+			transporter.received(type, buffer, pos + 6, len - 6);
+
+			return len;
+		}
+
+		// Byte array is smaller than the packet length
+		return 0;
+	}
+
+	// --- METRICS ---
+
+	protected void updateMetrics(int selectedKeys) {
+		if (counterSelectedKeys != null) {
+			if (selectedKeys > 0) {
+				counterSelectedKeys.increment(selectedKeys);
+			}
+			gaugeQueueDepth.set(pool.getPendingPackets());
+			gaugeConnections.set(selector.keys().size() - (serverChannel == null ? 0 : 1));
+		}
+	}
+
+	// --- CLOSE LOOP ---
+
+	public void close() {
+
+		// Close server socket
+		if (serverChannel != null) {
+			try {
+				serverChannel.close();
+			} catch (Exception ignored) {
+			}
+		}
+
+		// Close pending channels
+		SocketChannel channel = registrations.poll();
+		while (channel != null) {
+			try {
+				channel.close();
+			} catch (Exception ignored) {
+			}
+			channel = registrations.poll();
+		}
+
+		// Close selector
+		HashSet<SelectionKey> keys = new HashSet<>();
+		for (int i = 0; i < 5; i++) {
+			try {
+				keys.addAll(selector.keys());
+				break;
+			} catch (ConcurrentModificationException ignored) {
+			}
+		}
+		for (SelectionKey key : keys) {
+			close(key, null);
+		}
+		try {
+			selector.close();
+		} catch (Exception ignored) {
+		}
+	}
+
+	// --- CLOSE CHANNEL ---
+
+	protected void close(SelectionKey key, Exception cause) {
+		if (key == null) {
+			return;
+		}
+
+		// Cancel key
+		key.cancel();
+
+		// Release read buffer
+		Object attachment = key.attachment();
+		if (attachment instanceof ReadBuffer) {
+			key.attach(null);
+			((ReadBuffer) attachment).close();
+		}
+
+		// Get channel
+		SelectableChannel channel = key.channel();
+		if (channel == null) {
+			return;
+		}
+
+		// Debug
+		if (debug) {
+			try {
+				if (channel instanceof SocketChannel) {
+					SocketChannel socketChannel = (SocketChannel) channel;
+					logger.info("Client channel closed from " + socketChannel.getRemoteAddress() + ".", cause);
+				}
+			} catch (Exception ignored) {
+			}
+		}
+
+		// Close channel
+		try {
+			channel.close();
+		} catch (Exception ignored) {
+		}
+	}
+
+	// --- GETTERS ---
+
+	public int getIndex() {
+		return index;
+	}
+
+	public BufferPool getPool() {
+		return pool;
+	}
+
+}
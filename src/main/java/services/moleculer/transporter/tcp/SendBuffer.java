@@ -28,8 +28,11 @@ package services.moleculer.transporter.tcp;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -56,6 +59,67 @@ public class SendBuffer {
 
 	protected AtomicReference<ByteBuffer> blockerBuffer = new AtomicReference<>();
 
+	// --- WRITE STATES ---
+
+	/**
+	 * The queue is empty, the key is not interested in writing
+	 */
+	protected static final int IDLE = 0;
+
+	/**
+	 * The writer thread will process (or is processing) the queue
+	 */
+	protected static final int SCHEDULED = 1;
+
+	/**
+	 * Writing is delayed by the coalescing window
+	 */
+	protected static final int DEFERRED = 2;
+
+	protected final AtomicInteger state = new AtomicInteger(SCHEDULED);
+
+	// --- COALESCING ---
+
+	/**
+	 * Max number of bytes to collect before writing (0 = disable coalescing)
+	 */
+	protected final int coalescingBytes;
+
+	/**
+	 * Max time to wait for additional packets (NANOSECONDS)
+	 */
+	protected final long coalescingNanos;
+
+	/**
+	 * Number of bytes in the queue (used only when coalescing is enabled)
+	 */
+	protected final AtomicLong queuedBytes = new AtomicLong();
+
+	/**
+	 * Timestamp of the oldest unsent packet (used only when coalescing is
+	 * enabled)
+	 */
+	protected volatile long oldestPacketAt;
+
+	/**
+	 * Deadline of the deferred write (used by the TcpWriter)
+	 */
+	protected long flushAt;
+
+	// --- GATHERING WRITE ---
+
+	/**
+	 * Max number of packets submitted by one "channel.write" call
+	 */
+	protected int maxGathered = 64;
+
+	protected ByteBuffer[] gathered;
+
+	/**
+	 * The last completely submitted buffer
+	 */
+	protected ByteBuffer lastWritten;
+
 	// --- PROPERTIES ---
 
 	public final String nodeID;
@@ -72,13 +136,30 @@ public class SendBuffer {
 	protected SocketChannel channel;
 	protected SelectionKey key;
 
+	/**
+	 * Selector loop of the buffer
+	 */
+	protected WriterLoop loop;
+
 	// --- CONSTRUCTOR ---
 
 	protected SendBuffer(String nodeID, String host, int port, boolean debug) {
+		this(nodeID, host, port, debug, 0, 0);
+	}
+
+	protected SendBuffer(String nodeID, String host, int port, boolean debug, int coalescingBytes,
+			long coalescingNanos) {
 		this.nodeID = nodeID;
 		this.host = host;
 		this.port = port;
 		this.debug = debug;
+		if (coalescingBytes > 0 && coalescingNanos > 0) {
+			this.coalescingBytes = coalescingBytes;
+			this.coalescingNanos = coalescingNanos;
+		} else {
+			this.coalescingBytes = 0;
+			this.coalescingNanos = 0;
+		}
 	}
 
 	// --- CONNECTED ---
@@ -107,12 +188,38 @@ public class SendBuffer {
 				return false;
 			}
 			if (blockerBuffer.compareAndSet(blocker, buffer)) {
+				if (coalescingBytes > 0) {
+					if (oldestPacketAt == 0) {
+						oldestPacketAt = System.nanoTime();
+					}
+					queuedBytes.addAndGet(packet.length);
+				}
 				queue.add(buffer);
+				if (loop != null) {
+					loop.queueDepth.incrementAndGet();
+				}
 				return true;
 			}
 		}
 	}
 
+	// --- REQUEST WRITING ---
+
+	/**
+	 * Marks the buffer as writable after an "append" call.
+	 *
+	 * @return true, if the caller must turn on write mode and wake up the
+	 *         selector (false = the writer thread will process the packet
+	 *         anyway)
+	 */
+	protected boolean requestWrite() {
+		if (state.compareAndSet(IDLE, SCHEDULED)) {
+			return true;
+		}
+		return coalescingBytes > 0 && queuedBytes.get() >= coalescingBytes
+				&& state.compareAndSet(DEFERRED, SCHEDULED);
+	}
+
 	// --- CLOSE IF UNUSED ---
 
 	/**
@@ -151,7 +258,11 @@ public class SendBuffer {
 			}
 			key = null;
 		}
-		queue.clear();
+		while (queue.poll() != null) {
+			if (loop != null) {
+				loop.queueDepth.decrementAndGet();
+			}
+		}
 		if (channel != null) {
 
 			// Debug
@@ -174,49 +285,112 @@ public class SendBuffer {
 	// --- WRITE BYTES ---
 
 	/**
-	 * Writes N bytes to the target channel.
+	 * Writes the queued packets to the target channel. Multiple packets are
+	 * submitted with one (gathering) "write" call.
+	 *
+	 * @return 0, or the number of NANOSECONDS to wait, if writing is delayed
+	 *         by the coalescing window
 	 *
 	 * @throws Exception
 	 *             any I/O exception
 	 */
-	protected void write() throws Exception {
-		ByteBuffer buffer = queue.peek();
-		if (buffer == null) {
-			if (key != null) {
+	protected long write() throws Exception {
+		SocketChannel channel = this.channel;
+		SelectionKey key = this.key;
+		if (channel == null || key == null) {
+			return 0;
+		}
+		state.set(SCHEDULED);
+
+		// Wait for more packets
+		if (coalescingBytes > 0 && queuedBytes.get() < coalescingBytes) {
+			long oldest = oldestPacketAt;
+			long delay = oldest == 0 ? 0 : oldest + coalescingNanos - System.nanoTime();
+			if (delay > 0 && !queue.isEmpty()) {
 				key.interestOps(0);
+				state.set(DEFERRED);
+				if (queuedBytes.get() < coalescingBytes || !state.compareAndSet(DEFERRED, SCHEDULED)) {
+					return delay;
+				}
 			}
-			return;
 		}
-		if (channel != null) {
-			int count;
-			while (true) {
-				count = channel.write(buffer);
 
-				// Debug
-				if (debug) {
-					logger.info(count + " bytes submitted to " + channel.getRemoteAddress() + ".");
-				}
+		// Collect buffers
+		if (gathered == null) {
+			gathered = new ByteBuffer[maxGathered];
+		}
+		long count;
+		while (true) {
+			int size = 0;
+			Iterator<ByteBuffer> i = queue.iterator();
+			while (size < gathered.length && i.hasNext()) {
+				gathered[size++] = i.next();
+			}
+			if (size == 0) {
+				break;
+			}
 
-				// EOF?
-				if (count == -1) {
-					throw new InvalidPacketDataError(nodeID, "host", host, "port", port);
-				}
+			// Submit buffers
+			if (size == 1) {
+				count = channel.write(gathered[0]);
+			} else {
+				count = channel.write(gathered, 0, size);
+			}
 
-				// Remove the submitted buffer from the queue
-				if (!buffer.hasRemaining()) {
-					queue.poll();
-				}
+			// Debug
+			if (debug) {
+				logger.info(count + " bytes submitted to " + channel.getRemoteAddress() + " (in " + size
+						+ " buffers).");
+			}
 
-				// Turn off write mode (if the queue is empty)
-				if (queue.isEmpty()) {
-					if (blockerBuffer.compareAndSet(buffer, null) && key != null) {
-						key.interestOps(0);
-					}
-					return;
-				} else {
-					buffer = queue.peek();
+			// EOF?
+			if (count == -1) {
+				throw new InvalidPacketDataError(nodeID, "host", host, "port", port);
+			}
+			if (coalescingBytes > 0) {
+				queuedBytes.addAndGet(-count);
+			}
+
+			// Remove the submitted buffers from the queue
+			boolean full = false;
+			for (int n = 0; n < size; n++) {
+				if (gathered[n].hasRemaining()) {
+					full = true;
+					break;
+				}
+				lastWritten = gathered[n];
+				queue.poll();
+				if (loop != null) {
+					loop.queueDepth.decrementAndGet();
 				}
 			}
+			clear(size);
+			if (full) {
+
+				// Socket's send buffer is full (wait for the next OP_WRITE)
+				key.interestOps(SelectionKey.OP_WRITE);
+				return 0;
+			}
+		}
+
+		// Turn off write mode (if the queue is empty)
+		oldestPacketAt = 0;
+		if (lastWritten == null || blockerBuffer.compareAndSet(lastWritten, null)) {
+			key.interestOps(0);
+			state.set(IDLE);
+			if (queue.isEmpty() || !state.compareAndSet(IDLE, SCHEDULED)) {
+				return 0;
+			}
+		}
+
+		// New packets arrived
+		key.interestOps(SelectionKey.OP_WRITE);
+		return 0;
+	}
+
+	protected void clear(int size) {
+		for (int n = 0; n < size; n++) {
+			gathered[n] = null;
 		}
 	}
 
@@ -227,6 +401,9 @@ public class SendBuffer {
 		ByteBuffer buffer = queue.poll();
 		while (buffer != null) {
 			list.addLast(buffer.array());
+			if (loop != null) {
+				loop.queueDepth.decrementAndGet();
+			}
 			buffer = queue.poll();
 		}
 		return list;
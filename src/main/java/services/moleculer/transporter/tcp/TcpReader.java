@@ -25,32 +25,25 @@
  */
 package services.moleculer.transporter.tcp;
 
-import java.io.EOFException;
+import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
-import java.net.ServerSocket;
+import java.net.SocketOption;
 import java.net.StandardSocketOptions;
-import java.nio.ByteBuffer;
-import java.nio.channels.SelectableChannel;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
-import java.nio.channels.SocketChannel;
-import java.util.ConcurrentModificationException;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import services.moleculer.error.InvalidPacketDataError;
 import services.moleculer.transporter.TcpTransporter;
 
 /**
- * Packet receiver Thread of the TCP Transporter.
+ * Packet receiver of the TCP Transporter. Incoming connections are
+ * distributed between one or more {@link ReaderLoop}s.
  */
-public class TcpReader implements Runnable {
+public class TcpReader {
 
 	// --- LOGGER ---
 
@@ -58,11 +51,6 @@ public class TcpReader implements Runnable {
 
 	// --- PROPERTIES ---
 
-	/**
-	 * Maximum size of an incoming packet
-	 */
-	protected int maxPacketSize;
-
 	/**
 	 * Debug mode
 	 */
@@ -78,6 +66,11 @@ public class TcpReader implements Runnable {
 	 */
 	protected int currentPort;
 
+	/**
+	 * Every loop accepts connections on its own server socket (SO_REUSEPORT)
+	 */
+	protected boolean reusePort;
+
 	// --- COMPONENTS ---
 
 	/**
@@ -85,10 +78,11 @@ public class TcpReader implements Runnable {
 	 */
 	protected final TcpTransporter transporter;
 
-	// --- NIO VARIABLES ---
+	// --- SELECTOR LOOPS ---
+
+	protected ReaderLoop[] loops;
 
-	protected ServerSocketChannel serverChannel;
-	protected Selector selector;
+	protected final AtomicInteger nextLoop = new AtomicInteger();
 
 	// --- CONSTRUCTOR ---
 
@@ -101,27 +95,103 @@ public class TcpReader implements Runnable {
 
 	public void connect() throws Exception {
 
-		// Create selector
+		// Create selectors
 		disconnect();
+		int threads = Math.max(1, transporter.getReaderThreads());
+		SocketOption<Boolean> reusePortOption = null;
+		if (threads > 1 && transporter.isReusePort()) {
+			reusePortOption = getReusePortOption();
+		}
 
 		// Open channel
-		serverChannel = ServerSocketChannel.open();
-		ServerSocket serverSocket = serverChannel.socket();
-		serverSocket.bind(new InetSocketAddress(transporter.getPort()));
-		serverChannel.configureBlocking(false);
-		selector = Selector.open();
-		serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		ServerSocketChannel serverChannel = ServerSocketChannel.open();
+		if (reusePortOption != null && serverChannel.supportedOptions().contains(reusePortOption)) {
+
+			// SO_REUSEPORT allows binding to a port which is used by another
+			// process, so the port is checked with an exclusive socket first
+			int port = transporter.getPort();
+			if (port > 0) {
+				try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+					probe.bind(new InetSocketAddress(port));
+				} catch (Exception cause) {
+					serverChannel.close();
+					throw cause;
+				}
+			}
+			serverChannel.setOption(reusePortOption, true);
+		} else {
+			reusePortOption = null;
+		}
+		serverChannel.bind(new InetSocketAddress(transporter.getPort()));
 
 		// Get current port
 		InetSocketAddress address = (InetSocketAddress) serverChannel.getLocalAddress();
 		currentPort = address.getPort();
 
-		// Get properties
-		maxPacketSize = transporter.getMaxPacketSize();
+		// Open additional channels on the same port
+		ServerSocketChannel[] serverChannels = new ServerSocketChannel[threads];
+		serverChannels[0] = serverChannel;
+		if (reusePortOption != null) {
+			try {
+				for (int i = 1; i < threads; i++) {
+					serverChannels[i] = ServerSocketChannel.open();
+					serverChannels[i].setOption(reusePortOption, true);
+					serverChannels[i].bind(new InetSocketAddress(currentPort));
+				}
+				reusePort = true;
+			} catch (Exception cause) {
+				logger.warn("Unable to bind server sockets with SO_REUSEPORT option!", cause);
+				for (int i = 1; i < threads; i++) {
+					if (serverChannels[i] != null) {
+						try {
+							serverChannels[i].close();
+						} catch (Exception ignored) {
+						}
+						serverChannels[i] = null;
+					}
+				}
+				reusePort = false;
+			}
+		} else {
+			reusePort = false;
+		}
+
+		// Create loops
+		loops = new ReaderLoop[threads];
+		for (int i = 0; i < threads; i++) {
+			loops[i] = new ReaderLoop(this, i, serverChannels[i]);
+		}
+		if (debug && threads > 1) {
+			logger.info("TCP reader started with " + threads + " selector loops (SO_REUSEPORT "
+					+ (reusePort ? "enabled" : "disabled") + ").");
+		}
+
+		// Start selectors
+		executor = Executors.newFixedThreadPool(threads);
+		for (ReaderLoop loop : loops) {
+			executor.execute(loop);
+		}
+	}
 
-		// Start selector
-		executor = Executors.newSingleThreadExecutor();
-		executor.execute(this);
+	@SuppressWarnings("unchecked")
+	protected static SocketOption<Boolean> getReusePortOption() {
+		try {
+
+			// Java 9+
+			Field field = StandardSocketOptions.class.getField("SO_REUSEPORT");
+			return (SocketOption<Boolean>) field.get(null);
+		} catch (Throwable notSupported) {
+			return null;
+		}
+	}
+
+	// --- SELECT LOOP OF AN ACCEPTED CHANNEL ---
+
+	protected ReaderLoop selectLoop(ReaderLoop acceptor) {
+		if (reusePort || loops.length == 1) {
+			return acceptor;
+		}
+		return loops[(nextLoop.getAndIncrement() & 0x7FFFFFFF) % loops.length];
 	}
 
 	// --- GET CURRENT PORT ---
@@ -139,7 +209,7 @@ public class TcpReader implements Runnable {
 
 	public void disconnect() {
 
-		// Close selector thread
+		// Close selector threads
 		if (executor != null) {
 			try {
 				executor.shutdownNow();
@@ -148,256 +218,23 @@ public class TcpReader implements Runnable {
 			executor = null;
 		}
 
-		// Close server socket
-		if (serverChannel != null) {
-			try {
-				serverChannel.close();
-			} catch (Exception ignored) {
-			}
-			serverChannel = null;
-		}
-
-		// Close selector
-		if (selector != null) {
-			HashSet<SelectionKey> keys = new HashSet<>();
-			for (int i = 0; i < 5; i++) {
-				try {
-					keys.addAll(selector.keys());
-					break;
-				} catch (ConcurrentModificationException ignored) {
-				}
-			}
-			for (SelectionKey key : keys) {
-				close(key, null);
-			}
-			try {
-				selector.close();
-			} catch (Exception ignored) {
-			}
-			selector = null;
-		}
-	}
-
-	// --- READER LOOP ---
-
-	@Override
-	public void run() {
-
-		// Read buffer
-		ByteBuffer readBuffer = ByteBuffer.allocate(Math.min(maxPacketSize, 1024 * 1024));
-		byte[] readArray = readBuffer.array();
-
-		// Processing variables
-		Iterator<SelectionKey> keys;
-		SocketChannel channel;
-		SelectionKey key;
-
-		byte[] bytes;
-		byte[] remaining;
-		int processed;
-		int pos;
-
-		// Loop
-		while (true) {
-
-			// Waiting for sockets
-			int n;
-			try {
-				n = selector.select(3000);
-			} catch (NullPointerException nullPointer) {
-				continue;
-			} catch (Exception anyError) {
-				break;
-			}
-			if (n < 1) {
-				continue;
-			}
-			keys = selector.selectedKeys().iterator();
-			while (keys.hasNext()) {
-				key = keys.next();
-				if (key == null) {
-					continue;
-				}
-				if (!key.isValid()) {
-					keys.remove();
-					continue;
-				}
-				if (key.isAcceptable()) {
-
-					// Accept channel
-					try {
-
-						// Register socket
-						channel = serverChannel.accept();
-						channel.configureBlocking(false);
-
-						channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
-						channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
-						channel.setOption(StandardSocketOptions.SO_LINGER, -1);
-
-						channel.register(selector, SelectionKey.OP_READ);
-
-						// Debug
-						if (debug) {
-							logger.info("Client channel opened from " + channel.getRemoteAddress() + ".");
-						}
-
-					} catch (Exception cause) {
-						close(key, cause);
-					} finally {
-						keys.remove();
-					}
-
-				} else if (key.isReadable()) {
-					try {
-
-						// Read bytes into the read buffer
-						channel = (SocketChannel) key.channel();
-						readBuffer.clear();
-						n = channel.read(readBuffer);
-						if (n < 0) {
-							throw new EOFException();
-						}
-						if (n == 0) {
-							keys.remove();
-							continue;
-						}
-
-						// Debug
-						if (debug) {
-							logger.info(n + " bytes received from " + channel.getRemoteAddress() + ".");
-						}
-
-						// Get the incoming bytes
-						bytes = new byte[n];
-						System.arraycopy(readArray, 0, bytes, 0, n);
-
-						// Add remaining bytes
-						remaining = (byte[]) key.attachment();
-						if (remaining != null) {
-							byte[] tmp = new byte[remaining.length + bytes.length];
-							System.arraycopy(remaining, 0, tmp, 0, remaining.length);
-							System.arraycopy(bytes, 0, tmp, remaining.length, bytes.length);
-							bytes = tmp;
-							key.attach(null);
-						}
-
-						// Split data
-						pos = 0;
-						while ((processed = processPacket(bytes, pos)) > 0) {
-							pos += processed;
-						}
-
-						// Has remaining?
-						if (pos < bytes.length) {
-							if (pos == 0) {
-								remaining = bytes;
-							} else {
-								remaining = new byte[bytes.length - pos];
-								System.arraycopy(bytes, pos, remaining, 0, remaining.length);
-							}
-							key.attach(remaining);
-						}
-
-					} catch (EOFException eof) {
-
-						// Peer closed
-						close(key, null);
-
-					} catch (Exception cause) {
-						close(key, cause);
-					} finally {
-						keys.remove();
-					}
-				}
+		// Close server sockets and selectors
+		if (loops != null) {
+			for (ReaderLoop loop : loops) {
+				loop.close();
 			}
+			loops = null;
 		}
 	}
 
-	protected int processPacket(byte[] bytes, int pos) throws Exception {
+	// --- GETTERS ---
 
-		// Too short packet
-		if (bytes.length - pos < 6) {
-			return 0;
-		}
-
-		// Check packet's size
-		int len = ((0xFF & bytes[pos + 1]) << 24) | ((0xFF & bytes[pos + 2]) << 16) | ((0xFF & bytes[pos + 3]) << 8)
-				| (0xFF & bytes[pos + 4]);
-
-		if (maxPacketSize > 0 && len > maxPacketSize) {
-			throw new InvalidPacketDataError(
-					"Incoming packet is larger than the \"maxPacketSize\" limit (" + len + " > " + maxPacketSize + ")!",
-					"maxPacketSize", maxPacketSize, "packetSize", len);
-		} else if (len < 6) {
-			throw new InvalidPacketDataError("Incoming packet is smaller than the header's size (" + len + " < 6)!",
-					"packetSize", len);
-		}
-
-		// If all data present
-		if (bytes.length >= pos + len) {
-
-			// Verify header's CRC
-			byte crc = (byte) (bytes[pos + 1] ^ bytes[pos + 2] ^ bytes[pos + 3] ^ bytes[pos + 4] ^ bytes[pos + 5]);
-			if (crc != bytes[pos]) {
-				throw new InvalidPacketDataError("Invalid CRC (" + crc + " != " + bytes[pos] + ")!", "crc", crc, "byte",
-						bytes[pos]);
-			}
-
-			// Verify type
-			byte type = bytes[pos + 5];
-			if (type < 1 || type > 8) {
-
-				// Unknown packet type!
-				throw new InvalidPacketDataError("Invalid packet type (" + type + ")!", "type", type);
-			}
-
-			// Remove header
-			byte[] body = new byte[len - 6];
-			System.arraycopy(bytes, pos + 6, body, 0, body.length);
-
-			// Process incoming message
-			transporter.received(type, body);
-
-			return len;
-		}
-
-		// Byte array is smaller than the packet length
-		return 0;
+	public ReaderLoop[] getLoops() {
+		return loops;
 	}
 
-	// --- CLOSE CHANNEL ---
-
-	protected void close(SelectionKey key, Exception cause) {
-		if (key == null) {
-			return;
-		}
-
-		// Cancel key
-		key.cancel();
-
-		// Get channel
-		SelectableChannel channel = key.channel();
-		if (channel == null) {
-			return;
-		}
-
-		// Debug
-		if (debug) {
-			try {
-				if (channel instanceof SocketChannel) {
-					SocketChannel socketChannel = (SocketChannel) channel;
-					logger.info("Client channel closed from " + socketChannel.getRemoteAddress() + ".", cause);
-				}
-			} catch (Exception ignored) {
-			}
-		}
-
-		// Close channel
-		try {
-			channel.close();
-		} catch (Exception ignored) {
-		}
+	public boolean isReusePort() {
+		return reusePort;
 	}
 
-}
\ No newline at end of file
+}
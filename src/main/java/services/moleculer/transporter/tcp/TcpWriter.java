@@ -31,17 +31,15 @@ import java.net.InetSocketAddress;
 import java.net.StandardSocketOptions;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.UnresolvedAddressException;
-import java.util.ConcurrentModificationException;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,6 +68,16 @@ public class TcpWriter {
 	 */
 	protected final boolean debug;
 
+	/**
+	 * Max number of bytes to collect before writing (0 = disable coalescing)
+	 */
+	protected final int coalescingBytes;
+
+	/**
+	 * Max time to wait for additional packets (NANOSECONDS)
+	 */
+	protected final long coalescingNanos;
+
 	// --- PARENT TRANSPORTER ---
 
 	protected final TcpTransporter transporter;
@@ -80,10 +88,13 @@ public class TcpWriter {
 
 	protected final LinkedHashMap<String, SendBuffer> buffers = new LinkedHashMap<>();
 
-	protected Selector selector;
+	/**
+	 * Selector loops (outgoing connections are sharded by node ID)
+	 */
+	protected WriterLoop[] loops;
 
 	/**
-	 * Writer thread
+	 * Writer threads
 	 */
 	protected ExecutorService executor;
 
@@ -93,20 +104,29 @@ public class TcpWriter {
 		this.transporter = transporter;
 		this.debug = transporter.isDebug();
 		this.maxConnections = transporter.getMaxConnections();
+		this.coalescingBytes = transporter.getWriteCoalescingBytes();
+		this.coalescingNanos = TimeUnit.MICROSECONDS.toNanos(transporter.getWriteCoalescingMicros());
 	}
 
 	// --- CONNECT ---
 
 	public void connect() throws Exception {
 
-		// Create selector
+		// Create selectors
 		disconnect();
-		selector = Selector.open();
+		int threads = Math.max(1, transporter.getWriterThreads());
+		WriterLoop[] loops = new WriterLoop[threads];
+		for (int i = 0; i < threads; i++) {
+			loops[i] = new WriterLoop(this, i);
+		}
+		this.loops = loops;
 
-		// Start selector's loop
-		executor = Executors.newFixedThreadPool(2);
+		// Start selector's loops
+		executor = Executors.newFixedThreadPool(threads + 1);
 		executor.execute(this::openConnections);
-		executor.execute(this::sendPackets);
+		for (WriterLoop loop : loops) {
+			executor.execute(loop);
+		}
 	}
 
 	// --- DISCONNECT ---
@@ -127,26 +147,12 @@ public class TcpWriter {
 			executor = null;
 		}
 
-		// Close other sockets
-		if (selector != null) {
-			HashSet<SelectionKey> keys = new HashSet<>();
-			for (int i = 0; i < 5; i++) {
-				try {
-					keys.addAll(selector.keys());
-					break;
-				} catch (ConcurrentModificationException ignored) {
-				}
-			}
-			for (SelectionKey key : keys) {
-				close(key, null);
-			}
-
-			// Close selector
-			try {
-				selector.close();
-			} catch (Exception ignored) {
+		// Close other sockets and selectors
+		if (loops != null) {
+			for (WriterLoop loop : loops) {
+				loop.close();
 			}
-			selector = null;
+			loops = null;
 		}
 
 		// Close sockets and clear buffers
@@ -198,7 +204,7 @@ public class TcpWriter {
 						logger.warn("Unknown node ID (" + nodeID + ")!");
 						return;
 					}
-					buffer = new SendBuffer(nodeID, address.host, address.port, debug);
+					buffer = createBuffer(nodeID, address);
 					append(nodeID, buffer, packet);
 					buffers.put(nodeID, buffer);
 					newBuffer = true;
@@ -209,7 +215,7 @@ public class TcpWriter {
 
 						// Buffer is closed
 						RemoteAddress address = transporter.getAddress(nodeID);
-						buffer = new SendBuffer(nodeID, address.host, address.port, debug);
+						buffer = createBuffer(nodeID, address);
 						append(nodeID, buffer, packet);
 						buffers.put(nodeID, buffer);
 						newBuffer = true;
@@ -229,15 +235,14 @@ public class TcpWriter {
 					opened.notifyAll();
 				}
 
-			} else if (buffer.key != null) {
+			} else if (buffer.requestWrite()) {
 
-				// Mark as writable
-				buffer.key.interestOps(SelectionKey.OP_WRITE);
-			}
-
-			// Wake up selector
-			if (selector != null) {
-				selector.wakeup();
+				// Mark as writable and wake up selector
+				SelectionKey key = buffer.key;
+				if (key != null) {
+					key.interestOps(SelectionKey.OP_WRITE);
+					buffer.loop.wakeup();
+				}
 			}
 
 		} catch (Throwable cause) {
@@ -257,6 +262,13 @@ public class TcpWriter {
 		}
 	}
 
+	protected SendBuffer createBuffer(String nodeID, RemoteAddress address) {
+		SendBuffer buffer = new SendBuffer(nodeID, address.host, address.port, debug, coalescingBytes,
+				coalescingNanos);
+		buffer.loop = loops[(nodeID.hashCode() & 0x7FFFFFFF) % loops.length];
+		return buffer;
+	}
+
 	protected boolean append(String nodeID, SendBuffer buffer, byte[] packet) {
 
 		// Add HELLO first
@@ -277,7 +289,6 @@ public class TcpWriter {
 		try {
 
 			// Loop
-			SelectionKey key = null;
 			while (true) {
 			
 				// Wait for connection
@@ -316,11 +327,12 @@ public class TcpWriter {
 						channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
 						channel.setOption(StandardSocketOptions.SO_LINGER, -1);
 
-						key = channel.register(selector, SelectionKey.OP_WRITE);
-						key.attach(buffer);
-						buffer.connected(key, channel);
+						// Register channel in the buffer's selector loop
+						buffer.channel = channel;
+						buffer.loop.register(buffer);
 						if (debug) {
-							logger.info("Client channel opened to \"" + buffer.nodeID + "\".");
+							logger.info("Client channel opened to \"" + buffer.nodeID + "\" (loop #"
+									+ buffer.loop.index + ").");
 						}
 
 					} catch (Throwable cause) {
@@ -341,61 +353,17 @@ public class TcpWriter {
 		}
 	}
 	
-	public void sendPackets() {
-		try {
+	// --- CONNECTION ERROR ---
 
-			// Loop
-			SelectionKey key = null;
-			while (true) {
-
-				// Waiting for sockets
-				int n;
-				try {
-					n = selector.select(1000);
-				} catch (NullPointerException nullPointer) {
-					continue;
-				} catch (Exception cause) {
-					break;
-				}
-
-				if (n < 1) {
-					continue;
-				}
-				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-				while (keys.hasNext()) {
-					key = keys.next();
-					if (key == null) {
-						continue;
-					}
-					if (!key.isValid()) {
-						keys.remove();
-						continue;
-					}
-					if (key.isWritable()) {
-
-						// Write data
-						SendBuffer buffer = null;
-						try {
-							buffer = (SendBuffer) key.attachment();
-							if (buffer != null) {
-								buffer.write();
-							}
-						} catch (Exception cause) {
-							if (buffer != null) {
-								synchronized (buffers) {
-									buffers.remove(buffer.nodeID);
-								}
-								transporter.unableToSend(buffer.nodeID, buffer.getUnsentPackets(), cause);
-							}
-							close(key, cause);
-						}
-					}
-					keys.remove();
-				}
-			}
-
-		} catch (Exception fatal) {
-			logger.error("TCP writer closed!", fatal);
+	protected void unableToSend(SelectionKey key, SendBuffer buffer, Exception cause) {
+		synchronized (buffers) {
+			buffers.remove(buffer.nodeID);
+		}
+		transporter.unableToSend(buffer.nodeID, buffer.getUnsentPackets(), cause);
+		if (key == null) {
+			buffer.close();
+		} else {
+			close(key, cause);
 		}
 	}
 
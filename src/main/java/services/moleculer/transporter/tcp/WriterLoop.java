@@ -0,0 +1,330 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_CONNECTIONS;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_CONNECTIONS_DESC;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_QUEUE_DEPTH;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_QUEUE_DEPTH_DESC;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_SELECTED_KEYS;
+import static services.moleculer.metrics.MetricConstants.MOLECULER_TRANSPORTER_LOOP_SELECTED_KEYS_DESC;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import services.moleculer.metrics.MetricCounter;
+import services.moleculer.metrics.MetricGauge;
+import services.moleculer.metrics.Metrics;
+
+/**
+ * Selector loop of the TcpWriter. The outgoing connections are sharded
+ * between the loops by node ID.
+ */
+public class WriterLoop implements Runnable {
+
+	// --- LOGGER ---
+
+	protected static final Logger logger = LoggerFactory.getLogger(WriterLoop.class);
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Index of the loop
+	 */
+	protected final int index;
+
+	// --- PARENT WRITER ---
+
+	protected final TcpWriter writer;
+
+	// --- NIO VARIABLES ---
+
+	protected final Selector selector;
+
+	/**
+	 * Connected buffers waiting for registration
+	 */
+	protected final ConcurrentLinkedQueue<SendBuffer> registrations = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Buffers delayed by the coalescing window (used only by the loop's
+	 * thread)
+	 */
+	protected final ArrayList<SendBuffer> deferred = new ArrayList<>();
+
+	/**
+	 * Number of unsent packets in the buffers of this loop
+	 */
+	protected final AtomicInteger queueDepth = new AtomicInteger();
+
+	// --- METRICS ---
+
+	protected MetricCounter counterSelectedKeys;
+	protected MetricGauge gaugeQueueDepth;
+	protected MetricGauge gaugeConnections;
+
+	// --- CONSTRUCTOR ---
+
+	public WriterLoop(TcpWriter writer, int index) throws IOException {
+		this.writer = writer;
+		this.index = index;
+		selector = Selector.open();
+
+		// Create metrics
+		Metrics metrics = writer.transporter.getMetrics();
+		if (metrics != null) {
+			String loop = Integer.toString(index);
+			counterSelectedKeys = metrics.increment(MOLECULER_TRANSPORTER_LOOP_SELECTED_KEYS,
+					MOLECULER_TRANSPORTER_LOOP_SELECTED_KEYS_DESC, 0, "type", "writer", "loop", loop);
+			gaugeQueueDepth = metrics.set(MOLECULER_TRANSPORTER_LOOP_QUEUE_DEPTH,
+					MOLECULER_TRANSPORTER_LOOP_QUEUE_DEPTH_DESC, 0, "type", "writer", "loop", loop);
+			gaugeConnections = metrics.set(MOLECULER_TRANSPORTER_LOOP_CONNECTIONS,
+					MOLECULER_TRANSPORTER_LOOP_CONNECTIONS_DESC, 0, "type", "writer", "loop", loop);
+		}
+	}
+
+	// --- REGISTER CONNECTED CHANNEL ---
+
+	/**
+	 * Registers a connected buffer (can be called from any thread).
+	 *
+	 * @param buffer
+	 *            buffer with connected channel
+	 */
+	public void register(SendBuffer buffer) {
+		registrations.add(buffer);
+		selector.wakeup();
+	}
+
+	protected void registerBuffers() {
+		SendBuffer buffer = registrations.poll();
+		while (buffer != null) {
+			SocketChannel channel = buffer.channel;
+			try {
+				if (buffer.blockerBuffer.get() == SendBuffer.BUFFER_IS_CLOSED) {
+					channel.close();
+				} else {
+					buffer.connected(channel.register(selector, SelectionKey.OP_WRITE, buffer), channel);
+				}
+			} catch (Exception cause) {
+				writer.unableToSend(null, buffer, cause);
+			}
+			buffer = registrations.poll();
+		}
+	}
+
+	// --- WAKE UP SELECTOR ---
+
+	public void wakeup() {
+		selector.wakeup();
+	}
+
+	// --- WRITER LOOP ---
+
+	@Override
+	public void run() {
+		try {
+
+			// Loop
+			SelectionKey key = null;
+			while (true) {
+
+				// Waiting for sockets
+				int n;
+				try {
+					long timeout = deferred.isEmpty() ? 1000000000L : nextFlush() - System.nanoTime();
+					if (timeout >= 1000000L) {
+						n = selector.select(TimeUnit.NANOSECONDS.toMillis(timeout));
+					} else {
+						if (timeout > 0) {
+							LockSupport.parkNanos(timeout);
+						}
+						n = selector.selectNow();
+					}
+				} catch (NullPointerException nullPointer) {
+					continue;
+				} catch (Exception cause) {
+					break;
+				}
+
+				// Register new connections
+				if (!registrations.isEmpty()) {
+					registerBuffers();
+				}
+
+				// Write delayed packets
+				if (!deferred.isEmpty()) {
+					flushDeferred();
+				}
+				if (n > 0) {
+					Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+					while (keys.hasNext()) {
+						key = keys.next();
+						if (key == null) {
+							continue;
+						}
+						if (!key.isValid()) {
+							keys.remove();
+							continue;
+						}
+						if (key.isWritable()) {
+
+							// Write data
+							write(key, (SendBuffer) key.attachment());
+						}
+						keys.remove();
+					}
+				}
+				updateMetrics(n);
+			}
+
+		} catch (Exception fatal) {
+			logger.error("TCP writer closed!", fatal);
+		}
+	}
+
+	protected void write(SelectionKey key, SendBuffer buffer) {
+		if (buffer == null) {
+			return;
+		}
+		try {
+			long delay = buffer.write();
+			if (delay > 0) {
+
+				// Wait for more packets
+				buffer.flushAt = System.nanoTime() + delay;
+				if (!deferred.contains(buffer)) {
+					deferred.add(buffer);
+				}
+			}
+		} catch (Exception cause) {
+			writer.unableToSend(key, buffer, cause);
+		}
+	}
+
+	protected long nextFlush() {
+		long next = Long.MAX_VALUE;
+		for (SendBuffer buffer : deferred) {
+			if (buffer.state.get() != SendBuffer.DEFERRED) {
+				return 0;
+			}
+			next = Math.min(next, buffer.flushAt);
+		}
+		return next;
+	}
+
+	protected void flushDeferred() {
+		long now = System.nanoTime();
+		Iterator<SendBuffer> i = deferred.iterator();
+		ArrayList<SendBuffer> due = null;
+		while (i.hasNext()) {
+			SendBuffer buffer = i.next();
+			int state = buffer.state.get();
+			if (state == SendBuffer.DEFERRED && buffer.flushAt > now) {
+				continue;
+			}
+			i.remove();
+			if (state != SendBuffer.IDLE && buffer.key != null) {
+				if (due == null) {
+					due = new ArrayList<>();
+				}
+				due.add(buffer);
+			}
+		}
+		if (due != null) {
+			for (SendBuffer buffer : due) {
+				write(buffer.key, buffer);
+			}
+		}
+	}
+
+	// --- METRICS ---
+
+	protected void updateMetrics(int selectedKeys) {
+		if (counterSelectedKeys != null) {
+			if (selectedKeys > 0) {
+				counterSelectedKeys.increment(selectedKeys);
+			}
+			gaugeQueueDepth.set(queueDepth.get());
+			gaugeConnections.set(selector.keys().size());
+		}
+	}
+
+	// --- CLOSE LOOP ---
+
+	public void close() {
+
+		// Close pending channels
+		SendBuffer buffer = registrations.poll();
+		while (buffer != null) {
+			buffer.close();
+			buffer = registrations.poll();
+		}
+
+		// Close sockets
+		HashSet<SelectionKey> keys = new HashSet<>();
+		for (int i = 0; i < 5; i++) {
+			try {
+				keys.addAll(selector.keys());
+				break;
+			} catch (ConcurrentModificationException ignored) {
+			}
+		}
+		for (SelectionKey key : keys) {
+			writer.close(key, null);
+		}
+
+		// Close selector
+		try {
+			selector.close();
+		} catch (Exception ignored) {
+		}
+	}
+
+	// --- GETTERS ---
+
+	public int getIndex() {
+		return index;
+	}
+
+	public int getQueueDepth() {
+		return queueDepth.get();
+	}
+
+}
@@ -0,0 +1,177 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.uid;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import services.moleculer.ServiceBroker;
+import services.moleculer.service.Name;
+
+/**
+ * Contention-free {@link UidGenerator}. Every thread has its own stripe (state)
+ * with a pre-sized character buffer, a unique stripe number and a private
+ * sequence, so generating an UID does not touch any shared, mutable variable.
+ * The generated UIDs are 22 characters long (base-62, fixed width):
+ * <ul>
+ * <li>7 characters: timestamp (milliseconds)
+ * <li>4 characters: hash of the nodeID
+ * <li>4 characters: stripe (thread) number
+ * <li>3 characters: sequence within the millisecond
+ * <li>4 characters: random characters (from the ThreadLocalRandom)
+ * </ul>
+ * The UIDs of a node can be sorted in alphabetical order, which corresponds to
+ * a time-based order (in millisecond resolution).
+ *
+ * @see IncrementalUidGenerator
+ * @see XorShiftRandomUidGenerator
+ */
+@Name("Striped UID Generator")
+public class StripedUidGenerator extends UidGenerator {
+
+	// --- CONSTANTS ---
+
+	protected static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"
+			.toCharArray();
+
+	protected static final int TIME_LENGTH = 7;
+	protected static final int NODE_LENGTH = 4;
+	protected static final int STRIPE_LENGTH = 4;
+	protected static final int SEQUENCE_LENGTH = 3;
+	protected static final int RANDOM_LENGTH = 4;
+
+	protected static final int NODE_OFFSET = TIME_LENGTH;
+	protected static final int STRIPE_OFFSET = NODE_OFFSET + NODE_LENGTH;
+	protected static final int SEQUENCE_OFFSET = STRIPE_OFFSET + STRIPE_LENGTH;
+	protected static final int RANDOM_OFFSET = SEQUENCE_OFFSET + SEQUENCE_LENGTH;
+
+	protected static final int UID_LENGTH = RANDOM_OFFSET + RANDOM_LENGTH;
+
+	protected static final int MAX_SEQUENCE = 62 * 62 * 62 - 1;
+	protected static final int MAX_RANDOM = 62 * 62 * 62 * 62;
+
+	// --- HOST/NODE HASH ---
+
+	/**
+	 * Base-62 hash of the nodeID
+	 */
+	protected volatile char[] node = encode(0, NODE_LENGTH);
+
+	// --- STRIPES ---
+
+	protected final AtomicInteger stripes = new AtomicInteger();
+
+	protected final ThreadLocal<Stripe> local = ThreadLocal.withInitial(() -> {
+		return new Stripe(stripes.getAndIncrement());
+	});
+
+	// --- START GENERATOR ---
+
+	/**
+	 * Initializes UID generator instance.
+	 *
+	 * @param broker
+	 *            parent ServiceBroker
+	 */
+	@Override
+	public void started(ServiceBroker broker) throws Exception {
+		super.started(broker);
+		node = encode((broker.getNodeID().hashCode() & 0x7FFFFFFF) % MAX_RANDOM, NODE_LENGTH);
+	}
+
+	// --- GENERATE UID ---
+
+	@Override
+	public String nextUID() {
+		return local.get().next();
+	}
+
+	// --- STATE OF A THREAD ---
+
+	protected final class Stripe {
+
+		protected final char[] chars = new char[UID_LENGTH];
+
+		protected char[] nodeChars;
+
+		protected long time = -1;
+
+		protected int sequence;
+
+		protected Stripe(int stripe) {
+			write(stripe, STRIPE_OFFSET, STRIPE_LENGTH);
+		}
+
+		protected String next() {
+
+			// Set node hash (only once)
+			char[] current = node;
+			if (nodeChars != current) {
+				nodeChars = current;
+				System.arraycopy(current, 0, chars, NODE_OFFSET, NODE_LENGTH);
+			}
+
+			// Set timestamp (only when changed)
+			long now = System.currentTimeMillis();
+			if (now > time) {
+				time = now;
+				sequence = 0;
+				write(now, 0, TIME_LENGTH);
+			} else if (++sequence > MAX_SEQUENCE) {
+
+				// Sequence overflow -> borrow the next millisecond
+				time++;
+				sequence = 0;
+				write(time, 0, TIME_LENGTH);
+			}
+
+			// Set sequence and random characters
+			write(sequence, SEQUENCE_OFFSET, SEQUENCE_LENGTH);
+			write(ThreadLocalRandom.current().nextInt(MAX_RANDOM), RANDOM_OFFSET, RANDOM_LENGTH);
+			return new String(chars);
+		}
+
+		protected void write(long value, int offset, int length) {
+			for (int i = offset + length - 1; i >= offset; i--) {
+				chars[i] = DIGITS[(int) (value % 62)];
+				value /= 62;
+			}
+		}
+
+	}
+
+	// --- BASE-62 ENCODER ---
+
+	protected static char[] encode(long value, int length) {
+		char[] chars = new char[length];
+		for (int i = length - 1; i >= 0; i--) {
+			chars[i] = DIGITS[(int) (value % 62)];
+			value /= 62;
+		}
+		return chars;
+	}
+
+}
@@ -34,6 +34,7 @@ import services.moleculer.service.Name;
  * @see IncrementalUidGenerator
  * @see StandardUidGenerator
  * @see XorShiftRandomUidGenerator
+ * @see StripedUidGenerator
  */
 @Name("UID Generator")
 public abstract class UidGenerator extends MoleculerComponent {
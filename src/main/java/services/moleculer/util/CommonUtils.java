@@ -639,10 +639,35 @@ public final class CommonUtils {
 		return compressed;
 	}
 
+	public static final void compress(byte[] data, int offset, int length, int level, PacketOutputStream out) {
+		final Deflater deflater = new Deflater(level, true);
+		try {
+			deflater.setInput(data, offset, length);
+			deflater.finish();
+			out.ensureCapacity(length / 2 + 64);
+			while (!deflater.finished()) {
+				byte[] buffer = out.getBuffer();
+				int free = buffer.length - out.size();
+				if (free < 64) {
+					out.ensureCapacity(Math.max(1024, length / 2));
+					continue;
+				}
+				out.advance(deflater.deflate(buffer, out.size(), free));
+			}
+		} finally {
+			deflater.end();
+		}
+	}
+
 	public static final byte[] decompress(byte[] data) throws IOException, DataFormatException {
+		return decompress(data, 0, data.length);
+	}
+
+	public static final byte[] decompress(byte[] data, int offset, int length)
+			throws IOException, DataFormatException {
 		Inflater inflater = new Inflater(true);
-		inflater.setInput(data);
-		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length);
+		inflater.setInput(data, offset, length);
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(length);
 		byte[] buffer = new byte[1024];
 		while (!inflater.finished()) {
 			int count = inflater.inflate(buffer);
@@ -0,0 +1,348 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import services.moleculer.ServiceBroker;
+import services.moleculer.service.Name;
+
+/**
+ * Hashed timing wheel. Registration and cancellation costs O(1) (a lock-free
+ * enqueue), the expired tasks are collected by a periodic "tick" task running
+ * on the common scheduler. The accuracy of the timeouts is "tickDuration"
+ * milliseconds. Based on the "Hashed and Hierarchical Timing Wheels" paper of
+ * George Varghese and Tony Lauck.
+ *
+ * @see ScanningTimeoutScheduler
+ */
+@Name("Hashed Wheel Timeout Scheduler")
+public class HashedWheelTimeoutScheduler extends TimeoutScheduler {
+
+	// --- PROPERTIES ---
+
+	/**
+	 * Duration of a tick (= accuracy of the timeouts) in MILLISECONDS
+	 */
+	protected long tickDuration = 100;
+
+	/**
+	 * Number of buckets (rounded up to a power of two)
+	 */
+	protected int wheelSize = 512;
+
+	// --- WHEEL ---
+
+	protected Bucket[] wheel;
+	protected int mask;
+
+	/**
+	 * Timestamp of the first tick
+	 */
+	protected long startTime;
+
+	/**
+	 * Current tick (modified only by the ticker task)
+	 */
+	protected long tick;
+
+	// --- QUEUES ---
+
+	protected final ConcurrentLinkedQueue<WheelTimeout> added = new ConcurrentLinkedQueue<>();
+	protected final ConcurrentLinkedQueue<WheelTimeout> cancelled = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Number of pending timeouts
+	 */
+	protected final AtomicInteger pending = new AtomicInteger();
+
+	// --- TICKER TASK ---
+
+	protected ScheduledFuture<?> ticker;
+
+	// --- CONSTRUCTORS ---
+
+	public HashedWheelTimeoutScheduler() {
+	}
+
+	public HashedWheelTimeoutScheduler(long tickDuration, int wheelSize) {
+		setTickDuration(tickDuration);
+		setWheelSize(wheelSize);
+	}
+
+	// --- START SCHEDULER ---
+
+	/**
+	 * Initializes timing wheel instance.
+	 *
+	 * @param broker
+	 *            parent ServiceBroker
+	 */
+	@Override
+	public void started(ServiceBroker broker) throws Exception {
+		super.started(broker);
+
+		// Create buckets
+		int size = 1;
+		while (size < wheelSize) {
+			size <<= 1;
+		}
+		wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			wheel[i] = new Bucket();
+		}
+		mask = size - 1;
+
+		// Start ticker
+		tick = 0;
+		startTime = System.currentTimeMillis();
+		ticker = scheduler.scheduleAtFixedRate(this::tick, tickDuration, tickDuration, TimeUnit.MILLISECONDS);
+	}
+
+	// --- STOP SCHEDULER ---
+
+	@Override
+	public void stopped() {
+		if (ticker != null) {
+			ticker.cancel(false);
+			ticker = null;
+		}
+		added.clear();
+		cancelled.clear();
+		pending.set(0);
+		if (wheel != null) {
+			for (Bucket bucket : wheel) {
+				bucket.clear();
+			}
+		}
+	}
+
+	// --- SCHEDULE TASK ---
+
+	@Override
+	public Timeout schedule(long timeoutAt, Runnable task) {
+		WheelTimeout timeout = new WheelTimeout(this, timeoutAt, task);
+		pending.incrementAndGet();
+		added.add(timeout);
+		return timeout;
+	}
+
+	@Override
+	public int size() {
+		return pending.get();
+	}
+
+	// --- TICKER TASK ---
+
+	/**
+	 * Processes the queued registrations and cancellations, then expires the
+	 * buckets of the elapsed ticks. Invoked periodically by the scheduler.
+	 */
+	protected synchronized void tick() {
+		try {
+
+			// Remove cancelled timeouts
+			WheelTimeout timeout;
+			while ((timeout = cancelled.poll()) != null) {
+				if (timeout.bucket != null) {
+					timeout.bucket.remove(timeout);
+				}
+			}
+
+			// Add new timeouts to the buckets
+			while ((timeout = added.poll()) != null) {
+				if (timeout.state != WheelTimeout.ST_INIT) {
+					continue;
+				}
+				long calculated = Math.max(0, (timeout.timeoutAt - startTime) / tickDuration);
+				timeout.rounds = Math.max(0, (calculated - tick) / wheel.length);
+				wheel[(int) (Math.max(calculated, tick) & mask)].add(timeout);
+			}
+
+			// Expire buckets of the elapsed ticks
+			long now = System.currentTimeMillis();
+			while (startTime + (tick + 1) * tickDuration <= now) {
+				wheel[(int) (tick & mask)].expire();
+				tick++;
+			}
+
+		} catch (Throwable cause) {
+			logger.warn("Unexpected error occurred in timer task!", cause);
+		}
+	}
+
+	// --- BUCKET OF THE WHEEL ---
+
+	/**
+	 * Doubly-linked list of timeouts (accessed only by the ticker task).
+	 */
+	protected static final class Bucket {
+
+		protected WheelTimeout head;
+		protected WheelTimeout tail;
+
+		protected void add(WheelTimeout timeout) {
+			timeout.bucket = this;
+			if (head == null) {
+				head = tail = timeout;
+			} else {
+				tail.next = timeout;
+				timeout.prev = tail;
+				tail = timeout;
+			}
+		}
+
+		protected WheelTimeout remove(WheelTimeout timeout) {
+			WheelTimeout next = timeout.next;
+			if (timeout.prev != null) {
+				timeout.prev.next = next;
+			}
+			if (next != null) {
+				next.prev = timeout.prev;
+			}
+			if (timeout == head) {
+				if (timeout == tail) {
+					tail = null;
+					head = null;
+				} else {
+					head = next;
+				}
+			} else if (timeout == tail) {
+				tail = timeout.prev;
+			}
+			timeout.prev = null;
+			timeout.next = null;
+			timeout.bucket = null;
+			return next;
+		}
+
+		protected void expire() {
+			WheelTimeout timeout = head;
+			while (timeout != null) {
+				if (timeout.rounds <= 0) {
+					WheelTimeout next = remove(timeout);
+					timeout.expire();
+					timeout = next;
+				} else {
+					timeout.rounds--;
+					timeout = timeout.next;
+				}
+			}
+		}
+
+		protected void clear() {
+			head = null;
+			tail = null;
+		}
+
+	}
+
+	// --- TIMEOUT OF THE WHEEL ---
+
+	protected static final class WheelTimeout implements Timeout {
+
+		// --- STATES ---
+
+		protected static final int ST_INIT = 0;
+		protected static final int ST_CANCELLED = 1;
+		protected static final int ST_EXPIRED = 2;
+
+		protected static final AtomicIntegerFieldUpdater<WheelTimeout> STATE = AtomicIntegerFieldUpdater
+				.newUpdater(WheelTimeout.class, "state");
+
+		// --- PROPERTIES ---
+
+		protected final HashedWheelTimeoutScheduler parent;
+		protected final long timeoutAt;
+		protected final Runnable task;
+
+		protected volatile int state = ST_INIT;
+
+		// --- VARIABLES OF THE TICKER TASK ---
+
+		protected long rounds;
+		protected Bucket bucket;
+		protected WheelTimeout prev;
+		protected WheelTimeout next;
+
+		// --- CONSTRUCTOR ---
+
+		protected WheelTimeout(HashedWheelTimeoutScheduler parent, long timeoutAt, Runnable task) {
+			this.parent = parent;
+			this.timeoutAt = timeoutAt;
+			this.task = task;
+		}
+
+		// --- CANCEL ---
+
+		@Override
+		public boolean cancel() {
+			if (STATE.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+				parent.pending.decrementAndGet();
+				parent.cancelled.add(this);
+				return true;
+			}
+			return false;
+		}
+
+		// --- EXPIRE ---
+
+		protected void expire() {
+			if (STATE.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+				parent.pending.decrementAndGet();
+				try {
+					task.run();
+				} catch (Throwable cause) {
+					parent.logger.warn("Unable to execute timeout task!", cause);
+				}
+			}
+		}
+
+	}
+
+	// --- GETTERS / SETTERS ---
+
+	public long getTickDuration() {
+		return tickDuration;
+	}
+
+	public void setTickDuration(long tickDuration) {
+		this.tickDuration = Math.max(1, tickDuration);
+	}
+
+	public int getWheelSize() {
+		return wheelSize;
+	}
+
+	public void setWheelSize(int wheelSize) {
+		this.wheelSize = Math.max(1, wheelSize);
+	}
+
+}
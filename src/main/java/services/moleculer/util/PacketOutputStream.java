@@ -0,0 +1,199 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.util;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Unsynchronized, growable byte buffer with optional reserved space for a
+ * packet header. Serializers write the packet's body into this stream, and
+ * the caller (eg. a Transporter) fills the header in place. If the first
+ * write is a complete byte array (and there is no reserved header), the
+ * stream adopts the array without copying it (the adopted array is never
+ * modified, the stream drops it at the next write or reset).
+ */
+public class PacketOutputStream extends OutputStream {
+
+	// --- PROPERTIES ---
+
+	protected static final byte[] EMPTY = new byte[0];
+
+	/**
+	 * Size of the reserved header
+	 */
+	protected final int headerSize;
+
+	/**
+	 * Bytes of the header and the body
+	 */
+	protected byte[] buffer;
+
+	/**
+	 * Number of valid bytes (including the header)
+	 */
+	protected int count;
+
+	/**
+	 * The buffer is an array of the caller (adopted by "write(byte[])")
+	 */
+	protected boolean adopted;
+
+	// --- CONSTRUCTORS ---
+
+	public PacketOutputStream() {
+		this(0, 0);
+	}
+
+	/**
+	 * Creates a stream with reserved header space.
+	 *
+	 * @param headerSize
+	 *            size of the reserved header (BYTES)
+	 * @param initialCapacity
+	 *            initial capacity of the body (0 = allocate lazily, at the
+	 *            first write)
+	 */
+	public PacketOutputStream(int headerSize, int initialCapacity) {
+		if (headerSize < 0 || initialCapacity < 0) {
+			throw new IllegalArgumentException("Negative size!");
+		}
+		this.headerSize = headerSize;
+		this.count = headerSize;
+		if (headerSize + initialCapacity == 0) {
+			buffer = EMPTY;
+		} else {
+			buffer = new byte[headerSize + initialCapacity];
+		}
+	}
+
+	// --- WRITE ---
+
+	@Override
+	public void write(int b) {
+		ensureCapacity(1);
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] bytes) {
+		if (count == 0 && buffer.length == 0) {
+
+			// Adopt array
+			buffer = bytes;
+			count = bytes.length;
+			adopted = true;
+			return;
+		}
+		write(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) {
+		ensureCapacity(length);
+		System.arraycopy(bytes, offset, buffer, count, length);
+		count += length;
+	}
+
+	// --- DIRECT ACCESS ---
+
+	/**
+	 * Ensures that the buffer has space for the specified number of
+	 * additional bytes. If the buffer is empty, the allocated array will be
+	 * exactly "header size + bytes" long.
+	 *
+	 * @param bytes
+	 *            number of additional bytes
+	 */
+	public void ensureCapacity(int bytes) {
+		int required = count + bytes;
+		if (required > buffer.length) {
+			if (count == headerSize && buffer.length <= headerSize) {
+				buffer = Arrays.copyOf(buffer, required);
+			} else {
+				buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length << 1));
+			}
+			adopted = false;
+		}
+	}
+
+	/**
+	 * Moves the write position after the bytes which are written directly
+	 * into the array (after an "ensureCapacity" call).
+	 *
+	 * @param bytes
+	 *            number of written bytes
+	 */
+	public void advance(int bytes) {
+		if (count + bytes > buffer.length) {
+			throw new IndexOutOfBoundsException("Buffer overflow!");
+		}
+		count += bytes;
+	}
+
+	/**
+	 * Returns the backing array (its length can be greater than the "size").
+	 *
+	 * @return backing array
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public int getHeaderSize() {
+		return headerSize;
+	}
+
+	public int getBodySize() {
+		return count - headerSize;
+	}
+
+	public void reset() {
+		if (adopted) {
+			buffer = EMPTY;
+			adopted = false;
+		}
+		count = headerSize;
+	}
+
+	/**
+	 * Returns the header and the body in one array. The backing array is
+	 * returned (without copying) if its length is equal to the "size".
+	 *
+	 * @return header and body
+	 */
+	public byte[] toByteArray() {
+		if (count == buffer.length) {
+			return buffer;
+		}
+		return Arrays.copyOf(buffer, count);
+	}
+
+}
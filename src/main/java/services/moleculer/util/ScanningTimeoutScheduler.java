@@ -0,0 +1,186 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.util;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import services.moleculer.service.Name;
+
+/**
+ * Timeout scheduler which scans all pending timeouts to find the next
+ * deadline. Registration and cancellation are cheap, but rescheduling costs
+ * O(n), so this implementation is recommended only for low number of
+ * concurrent calls.
+ *
+ * @see HashedWheelTimeoutScheduler
+ */
+@Name("Scanning Timeout Scheduler")
+public class ScanningTimeoutScheduler extends TimeoutScheduler {
+
+	// --- PENDING TIMEOUTS ---
+
+	protected final Set<ScanningTimeout> timeouts = ConcurrentHashMap.newKeySet(1024);
+
+	// --- VARIABLES OF THE TIMEOUT HANDLER ---
+
+	/**
+	 * Cancelable timer for handling timeouts
+	 */
+	protected final AtomicReference<ScheduledFuture<?>> timeoutTimer = new AtomicReference<>();
+
+	/**
+	 * Next scheduled time to check timeouts
+	 */
+	protected final AtomicLong prevTimeoutAt = new AtomicLong();
+
+	// --- STOP SCHEDULER ---
+
+	@Override
+	public void stopped() {
+		ScheduledFuture<?> task = timeoutTimer.getAndSet(null);
+		if (task != null) {
+			task.cancel(false);
+		}
+		timeouts.clear();
+		prevTimeoutAt.set(0);
+	}
+
+	// --- SCHEDULE TASK ---
+
+	@Override
+	public Timeout schedule(long timeoutAt, Runnable task) {
+		ScanningTimeout timeout = new ScanningTimeout(this, timeoutAt, task);
+		timeouts.add(timeout);
+
+		// Reschedule
+		long nextTimeoutAt = prevTimeoutAt.get();
+		if (nextTimeoutAt == 0 || (timeoutAt / 100 * 100) + 100 < nextTimeoutAt || timeouts.size() < 3) {
+			scheduler.execute(() -> {
+				reschedule(timeoutAt);
+			});
+		}
+		return timeout;
+	}
+
+	@Override
+	public int size() {
+		return timeouts.size();
+	}
+
+	// --- TIMEOUT CHECKER TASK ---
+
+	protected void checkTimeouts() {
+		long now = System.currentTimeMillis();
+		Iterator<ScanningTimeout> i = timeouts.iterator();
+		ScanningTimeout timeout;
+		while (i.hasNext()) {
+			timeout = i.next();
+			if (now >= timeout.timeoutAt && timeouts.remove(timeout)) {
+				try {
+					timeout.task.run();
+				} catch (Throwable cause) {
+					logger.warn("Unable to execute timeout task!", cause);
+				}
+			}
+		}
+
+		// Reschedule
+		prevTimeoutAt.set(0);
+		if (!timeouts.isEmpty()) {
+			reschedule(Long.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Recalculates the next timeout checking time.
+	 * 
+	 * @param minTimeoutAt
+	 *            next / closest timestamp
+	 */
+	protected void reschedule(long minTimeoutAt) {
+		if (minTimeoutAt == Long.MAX_VALUE) {
+			for (ScanningTimeout timeout : timeouts) {
+				if (timeout.timeoutAt < minTimeoutAt) {
+					minTimeoutAt = timeout.timeoutAt;
+				}
+			}
+		}
+		long now = System.currentTimeMillis();
+		if (minTimeoutAt == Long.MAX_VALUE) {
+			ScheduledFuture<?> t = timeoutTimer.getAndSet(null);
+			if (t != null && prevTimeoutAt.get() > now) {
+				t.cancel(false);
+			}
+			prevTimeoutAt.set(0);
+		} else {
+			minTimeoutAt = (minTimeoutAt / 100 * 100) + 100;
+			long prev = prevTimeoutAt.getAndSet(minTimeoutAt);
+			if (prev == minTimeoutAt) {
+
+				// Next when not changed
+				return;
+			}
+
+			// Stop previous timer
+			ScheduledFuture<?> t = timeoutTimer.get();
+			if (t != null) {
+				t.cancel(false);
+			}
+
+			// Schedule next timeout timer
+			long delay = Math.max(10, minTimeoutAt - now);
+			timeoutTimer.set(scheduler.schedule(this::checkTimeouts, delay, TimeUnit.MILLISECONDS));
+		}
+	}
+
+	// --- TIMEOUT HANDLER ---
+
+	protected static final class ScanningTimeout implements Timeout {
+
+		protected final ScanningTimeoutScheduler parent;
+		protected final long timeoutAt;
+		protected final Runnable task;
+
+		protected ScanningTimeout(ScanningTimeoutScheduler parent, long timeoutAt, Runnable task) {
+			this.parent = parent;
+			this.timeoutAt = timeoutAt;
+			this.task = task;
+		}
+
+		@Override
+		public boolean cancel() {
+			return parent.timeouts.remove(this);
+		}
+
+	}
+
+}
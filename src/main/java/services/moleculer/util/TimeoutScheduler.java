@@ -0,0 +1,114 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.util;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import services.moleculer.ServiceBroker;
+import services.moleculer.service.MoleculerComponent;
+import services.moleculer.service.Name;
+
+/**
+ * Base superclass of timeout schedulers. A timeout scheduler invokes a task
+ * when the specified deadline has passed (unless the task is cancelled
+ * before). Used by the Service Registry to handle the timeouts of action
+ * calls, "ping" requests and incoming streams.
+ *
+ * @see HashedWheelTimeoutScheduler
+ * @see ScanningTimeoutScheduler
+ */
+@Name("Timeout Scheduler")
+public abstract class TimeoutScheduler extends MoleculerComponent {
+
+	// --- COMPONENTS ---
+
+	protected ScheduledExecutorService scheduler;
+
+	// --- START SCHEDULER ---
+
+	/**
+	 * Initializes timeout scheduler instance.
+	 *
+	 * @param broker
+	 *            parent ServiceBroker
+	 */
+	@Override
+	public void started(ServiceBroker broker) throws Exception {
+		super.started(broker);
+		if (scheduler == null) {
+			scheduler = broker.getConfig().getScheduler();
+		}
+	}
+
+	// --- SCHEDULE TASK ---
+
+	/**
+	 * Schedules a timeout task.
+	 * 
+	 * @param timeoutAt
+	 *            timestamp of the deadline (in MILLISECONDS)
+	 * @param task
+	 *            task to invoke when the deadline has passed
+	 * 
+	 * @return cancelable Timeout instance
+	 */
+	public abstract Timeout schedule(long timeoutAt, Runnable task);
+
+	/**
+	 * Returns the number of scheduled (not expired and not cancelled) tasks.
+	 * 
+	 * @return number of pending timeouts
+	 */
+	public abstract int size();
+
+	// --- TIMEOUT HANDLER ---
+
+	/**
+	 * Cancelable handle of a scheduled timeout task.
+	 */
+	public static interface Timeout {
+
+		/**
+		 * Cancels the timeout task.
+		 * 
+		 * @return true if the task was cancelled (false = it has already been
+		 *         expired or cancelled)
+		 */
+		boolean cancel();
+
+	}
+
+	// --- GETTERS / SETTERS ---
+
+	public ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+
+	public void setScheduler(ScheduledExecutorService scheduler) {
+		this.scheduler = scheduler;
+	}
+
+}
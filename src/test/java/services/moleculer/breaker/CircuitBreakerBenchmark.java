@@ -0,0 +1,217 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.breaker;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the per-call bookkeeping of the Circuit Breaker (counter lookup,
+ * availability check, success / error accounting) from 8 threads. The
+ * "locked" type works like the previous implementation (HashMap behind a
+ * read/write lock, synchronized error counters), the "lockfree" type uses the
+ * current CircuitBreaker. The "errorRate" is the percentage of failed calls.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class CircuitBreakerBenchmark {
+
+	// --- ENTRY POINT ---
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(CircuitBreakerBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	// --- STATE ---
+
+	@State(Scope.Benchmark)
+	public static class Breaker {
+
+		// --- PARAMETERS ---
+
+		@Param({ "locked", "lockfree" })
+		public String type;
+
+		@Param({ "0", "1" })
+		public int errorRate;
+
+		// --- VARIABLES ---
+
+		protected CircuitBreaker cb;
+		protected LockedErrorCounters locked;
+
+		protected final String action = "test.test";
+		protected final String[] nodeIDs = new String[16];
+
+		// --- SET UP ---
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			cb = new CircuitBreaker();
+			locked = new LockedErrorCounters();
+			for (int i = 0; i < nodeIDs.length; i++) {
+				nodeIDs[i] = "node" + i;
+
+				// All endpoints have an error counter
+				cb.onError(null, nodeIDs[i], action, ERROR);
+				locked.onError(nodeIDs[i], action, System.currentTimeMillis());
+			}
+		}
+
+	}
+
+	// --- SIMULATED ERROR ---
+
+	protected static final Exception ERROR = new Exception("Simulated error");
+
+	// --- BENCHMARK ---
+
+	@Benchmark
+	public boolean call(Breaker state) {
+		ThreadLocalRandom rnd = ThreadLocalRandom.current();
+		String nodeID = state.nodeIDs[rnd.nextInt(state.nodeIDs.length)];
+		boolean failed = state.errorRate > 0 && rnd.nextInt(100) < state.errorRate;
+		long now = System.currentTimeMillis();
+		if ("locked".equals(state.type)) {
+			OldErrorCounter counter = state.locked.get(nodeID, state.action);
+			boolean available = counter == null || counter.isAvailable(now);
+			if (failed) {
+				state.locked.onError(nodeID, state.action, now);
+			} else if (counter != null) {
+				counter.onSuccess();
+			}
+			return available;
+		}
+		CircuitBreaker cb = state.cb;
+		ErrorCounter counter = cb.errorCounters.isEmpty() ? null : cb.getErrorCounter(nodeID, state.action);
+		int acquired = counter == null ? ErrorCounter.AVAILABLE : counter.tryAcquire(now);
+		if (acquired == ErrorCounter.PROBE) {
+			counter.releaseProbe();
+		}
+		if (failed) {
+			cb.onError(counter, nodeID, state.action, ERROR);
+		} else if (counter != null) {
+			counter.onSuccess();
+		}
+		return acquired != ErrorCounter.UNAVAILABLE;
+	}
+
+	// --- PREVIOUS IMPLEMENTATION ---
+
+	protected static final class LockedErrorCounters {
+
+		protected final HashMap<EndpointKey, OldErrorCounter> errorCounters = new HashMap<>(1024);
+		protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		protected OldErrorCounter get(String nodeID, String action) {
+			EndpointKey key = new EndpointKey(nodeID, action);
+			lock.readLock().lock();
+			try {
+				return errorCounters.get(key);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		protected void onError(String nodeID, String action, long now) {
+			OldErrorCounter counter = get(nodeID, action);
+			if (counter == null) {
+				counter = new OldErrorCounter(5000, 10000, 3);
+				lock.writeLock().lock();
+				try {
+					OldErrorCounter prev = errorCounters.putIfAbsent(new EndpointKey(nodeID, action), counter);
+					if (prev != null) {
+						counter = prev;
+					}
+				} finally {
+					lock.writeLock().unlock();
+				}
+			}
+			counter.onError(now);
+		}
+
+	}
+
+	protected static final class OldErrorCounter {
+
+		protected final long windowLength;
+		protected final long lockTimeout;
+		protected final int lastPos;
+		protected final long[] errors;
+
+		protected OldErrorCounter(long windowLength, long lockTimeout, int maxErrors) {
+			this.windowLength = windowLength;
+			this.lockTimeout = lockTimeout;
+			this.lastPos = maxErrors - 1;
+			this.errors = new long[maxErrors];
+		}
+
+		protected synchronized void onError(long now) {
+			if (errors.length > 1) {
+				System.arraycopy(errors, 1, errors, 0, lastPos);
+			}
+			errors[lastPos] = now;
+		}
+
+		protected synchronized void onSuccess() {
+			errors[0] = 0;
+		}
+
+		protected synchronized boolean isAvailable(long now) {
+			int count = 0;
+			for (long time : errors) {
+				if (now - time <= windowLength) {
+					count++;
+				}
+			}
+			return count <= lastPos || now - errors[lastPos] > lockTimeout;
+		}
+
+	}
+
+}
@@ -311,6 +311,45 @@ public class CircuitBreakerTest extends TestCase {
 		assertTrue(System.currentTimeMillis() - start < 100);
 	}
 
+	@Test
+	public void testHalfOpenProbes() throws Exception {
+		ErrorCounter ec = new ErrorCounter(60000, 10000, 3, 2);
+		long now = 100000;
+		assertEquals(ErrorCounter.AVAILABLE, ec.tryAcquire(now));
+
+		// Lock endpoint
+		for (int i = 0; i < 3; i++) {
+			ec.onError(now + i);
+		}
+		assertEquals(3, ec.getErrorCounter(now + 2));
+		assertEquals(now + 2, ec.getLastError());
+		assertEquals(ErrorCounter.UNAVAILABLE, ec.tryAcquire(now + 2));
+		assertFalse(ec.isAvailable(now + 2));
+
+		// Half-opened -> max two probes
+		now += 10003;
+		assertTrue(ec.isAvailable(now));
+		assertEquals(ErrorCounter.PROBE, ec.tryAcquire(now));
+		assertEquals(ErrorCounter.PROBE, ec.tryAcquire(now));
+		assertEquals(ErrorCounter.UNAVAILABLE, ec.tryAcquire(now));
+		assertFalse(ec.isAvailable(now));
+		assertFalse(ec.canRemove(now + 100000));
+
+		// Failed probe -> locked again
+		ec.releaseProbe();
+		ec.onError(now);
+		assertEquals(ErrorCounter.UNAVAILABLE, ec.tryAcquire(now));
+
+		// Successful probe -> opened
+		now += 10001;
+		assertEquals(ErrorCounter.PROBE, ec.tryAcquire(now));
+		ec.releaseProbe();
+		ec.releaseProbe();
+		ec.onSuccess();
+		assertEquals(ErrorCounter.AVAILABLE, ec.tryAcquire(now));
+		assertTrue(ec.canRemove(now + 100000));
+	}
+
 	// --- SET UP ---
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
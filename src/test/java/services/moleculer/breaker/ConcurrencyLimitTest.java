@@ -0,0 +1,106 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.breaker;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ConcurrencyLimitTest extends TestCase {
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testLimit() throws Exception {
+		ConcurrencyLimit limit = new ConcurrencyLimit(4, 1, 100, 1.5, 0.5, 0.5, 10);
+		assertEquals(4, limit.getLimit());
+
+		// Acquire all slots
+		for (int i = 0; i < 4; i++) {
+			assertTrue(limit.tryAcquire(1));
+		}
+		assertFalse(limit.tryAcquire(1));
+		assertEquals(4, limit.getInFlight());
+
+		// Fast responses under full load -> grow
+		for (int i = 0; i < 4; i++) {
+			limit.release(1000, false, true);
+		}
+		assertEquals(0, limit.getInFlight());
+		assertTrue(limit.getLimit() > 4);
+
+		// Dropped call -> shrink
+		int prev = limit.getLimit();
+		assertTrue(limit.tryAcquire(1));
+		limit.release(0, true, false);
+		assertTrue(limit.getLimit() < prev);
+		assertEquals(0, limit.getInFlight());
+	}
+
+	@Test
+	public void testSlowResponses() throws Exception {
+		ConcurrencyLimit limit = new ConcurrencyLimit(50, 1, 100, 1.5, 0.5, 0.9, 100);
+
+		// Baseline (1 ms)
+		for (int i = 0; i < 20; i++) {
+			fill(limit);
+			limit.release(1000000, false, true);
+		}
+		int baseline = limit.getLimit();
+
+		// Queueing on the remote side (RTT goes up 10x)
+		for (int i = 0; i < 20; i++) {
+			fill(limit);
+			limit.release(10000000, false, true);
+		}
+		assertTrue(limit.getLimit() < baseline);
+		assertTrue(limit.getLimit() >= 1);
+
+		// Not used -> no growth
+		limit.inFlight.set(0);
+		int prev = limit.getLimit();
+		assertTrue(limit.tryAcquire(1));
+		limit.release(1000, false, true);
+		assertEquals(prev, limit.getLimit());
+	}
+
+	@Test
+	public void testCleanup() throws Exception {
+		ConcurrencyLimit limit = new ConcurrencyLimit(4, 1, 100, 1.5, 0.5, 0.5, 10);
+		assertTrue(limit.tryAcquire(1000));
+		assertFalse(limit.canRemove(5000, 1000));
+		limit.release(1000, false, false);
+		assertTrue(limit.canRemove(5000, 1000));
+		assertFalse(limit.canRemove(1500, 1000));
+	}
+
+	// --- UTILITIES ---
+
+	protected void fill(ConcurrencyLimit limit) {
+		limit.inFlight.set(limit.getLimit());
+	}
+
+}
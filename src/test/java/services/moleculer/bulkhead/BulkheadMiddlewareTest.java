@@ -0,0 +1,222 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.bulkhead;
+
+import java.util.LinkedList;
+
+import org.junit.Test;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.monitor.ConstantMonitor;
+import services.moleculer.service.Action;
+import services.moleculer.service.Name;
+import services.moleculer.service.Service;
+
+public class BulkheadMiddlewareTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected ServiceBroker br;
+	protected BulkheadMiddleware bulkhead;
+
+	protected final LinkedList<Promise> pending = new LinkedList<>();
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testBulkhead() throws Exception {
+
+		// Two running and one waiting invocation
+		Promise p1 = br.call("bulkheadService.slow", (Tree) null);
+		Promise p2 = br.call("bulkheadService.slow", (Tree) null);
+		Promise p3 = br.call("bulkheadService.slow", (Tree) null);
+		assertEquals(2, getPendingCount());
+		assertFalse(p3.isDone());
+
+		// Queue is full
+		assertRejected(br.call("bulkheadService.slow", (Tree) null));
+
+		// Not limited action
+		assertEquals("ok", br.call("bulkheadService.free", (Tree) null).waitFor(20000).asString());
+
+		// Finish the first invocation (the waiting one starts)
+		complete();
+		p1.waitFor(20000);
+		long timeoutAt = System.currentTimeMillis() + 20000;
+		while (getPendingCount() < 2) {
+			assertTrue(System.currentTimeMillis() < timeoutAt);
+			Thread.sleep(10);
+		}
+		complete();
+		complete();
+		p2.waitFor(20000);
+		p3.waitFor(20000);
+		assertEquals(0, getPendingCount());
+
+		// Free slots
+		Promise p4 = br.call("bulkheadService.slow", (Tree) null);
+		assertEquals(1, getPendingCount());
+		complete();
+		p4.waitFor(20000);
+	}
+
+	@Test
+	public void testSharedBulkhead() throws Exception {
+		Promise p1 = br.call("bulkheadService.first", (Tree) null);
+		assertEquals(1, getPendingCount());
+
+		// The second action uses the same compartment
+		assertRejected(br.call("bulkheadService.second", (Tree) null));
+
+		complete();
+		p1.waitFor(20000);
+		Promise p2 = br.call("bulkheadService.second", (Tree) null);
+		assertEquals(1, getPendingCount());
+		complete();
+		p2.waitFor(20000);
+	}
+
+	@Test
+	public void testError() throws Exception {
+
+		// The slot is released when the action throws an Error
+		for (int i = 0; i < 3; i++) {
+			try {
+				br.call("bulkheadService.broken", (Tree) null).waitFor(20000);
+				fail();
+			} catch (Throwable expected) {
+				assertFalse(expected.toString().contains("Queue is full"));
+			}
+		}
+	}
+
+	@Test
+	public void testRemoteAction() throws Exception {
+		Tree config = new Tree();
+		config.put("name", "remote.slow");
+		config.putMap("bulkhead").put("concurrency", 1);
+		Action action = ctx -> {
+			return "ok";
+		};
+
+		// Remote action is not limited
+		config.put("nodeID", "node2");
+		assertNull(bulkhead.install(action, config));
+
+		// Local action
+		config.put("nodeID", "node1");
+		assertNotNull(bulkhead.install(action, config));
+	}
+
+	// --- UTILITIES ---
+
+	protected void assertRejected(Promise promise) {
+		boolean rejected = false;
+		try {
+			promise.waitFor(20000);
+		} catch (Exception e) {
+			rejected = e.toString().contains("Queue is full");
+		}
+		assertTrue(rejected);
+	}
+
+	protected int getPendingCount() {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+	protected void complete() {
+		Promise promise;
+		synchronized (pending) {
+			promise = pending.removeFirst();
+		}
+		promise.complete(new Tree());
+	}
+
+	protected Promise createPending() {
+		Promise promise = new Promise();
+		synchronized (pending) {
+			pending.addLast(promise);
+		}
+		return promise;
+	}
+
+	// --- TEST SERVICE ---
+
+	@Name("bulkheadService")
+	public class BulkheadService extends Service {
+
+		@Bulkhead(concurrency = 2, maxQueueSize = 1)
+		public Action slow = ctx -> {
+			return createPending();
+		};
+
+		@Bulkhead(concurrency = 1, maxQueueSize = 0, shared = true)
+		public Action first = ctx -> {
+			return createPending();
+		};
+
+		@Bulkhead(concurrency = 1, maxQueueSize = 0, shared = true)
+		public Action second = ctx -> {
+			return createPending();
+		};
+
+		public Action free = ctx -> {
+			return "ok";
+		};
+
+		@Bulkhead(concurrency = 1, maxQueueSize = 0)
+		public Action broken = ctx -> {
+			throw new AssertionError("broken");
+		};
+
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).nodeID("node1").build();
+		bulkhead = new BulkheadMiddleware();
+		br.use(bulkhead);
+		br.createService(new BulkheadService());
+		br.start();
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
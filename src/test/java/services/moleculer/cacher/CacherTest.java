@@ -28,15 +28,18 @@ package services.moleculer.cacher;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
+import io.datatree.Promise;
 import io.datatree.Tree;
 import junit.framework.TestCase;
 import services.moleculer.ServiceBroker;
+import services.moleculer.context.Context;
 import services.moleculer.service.Action;
 import services.moleculer.service.Name;
 import services.moleculer.service.Service;
@@ -369,6 +372,112 @@ public abstract class CacherTest extends TestCase {
 
 	}
 
+	@Name("coalescing")
+	public class CoalescingService extends Service {
+
+		AtomicInteger counter = new AtomicInteger();
+
+		@Cache(keys = { "a" }, singleFlight = true)
+		public Action slow = ctx -> {
+			counter.incrementAndGet();
+			Thread.sleep(500);
+			return ctx.params.get("a", 0) * 2;
+		};
+
+		@Cache(keys = { "a" }, ttl = 1, staleTtl = 30)
+		public Action stale = ctx -> {
+			return counter.incrementAndGet();
+		};
+
+	}
+
+	@Test
+	public void testSingleFlight() throws Exception {
+		CoalescingService service = new CoalescingService();
+		br.createService(service);
+
+		int maxThreads = 10;
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		CountDownLatch latch = new CountDownLatch(maxThreads);
+		executor = Executors.newCachedThreadPool();
+		for (int i = 0; i < maxThreads; i++) {
+			executor.execute(() -> {
+				try {
+					Tree rsp = br.call("coalescing.slow", "a", 3).waitFor(20000);
+					assertEquals(6, (int) rsp.asInteger());
+				} catch (Throwable tx) {
+					error.set(tx);
+				} finally {
+					latch.countDown();
+				}
+			});
+		}
+		latch.await(1, TimeUnit.MINUTES);
+		Throwable t = error.get();
+		if (t != null) {
+			t.printStackTrace();
+			fail(t.getMessage());
+		}
+		assertEquals(1, service.counter.get());
+	}
+
+	@Test
+	public void testCoalescedClones() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Action action = ctx -> {
+			release.await();
+			return new Tree().put("a", 1);
+		};
+		Context ctx = new Context(null, null, null, "id1", "test.action", new Tree(), 1, null, "id1", null, null,
+				"node1");
+		executor = Executors.newCachedThreadPool();
+		Future<Promise> first = executor.submit(() -> {
+			return cr.load(action, ctx, "test.action:clone", 0, 0, false, true);
+		});
+		for (int i = 0; i < 50 && !cr.inflight.containsKey("test.action:clone"); i++) {
+			Thread.sleep(20);
+		}
+		Promise second = cr.load(action, ctx, "test.action:clone", 0, 0, false, true);
+		release.countDown();
+		Tree rsp2 = second.waitFor(20000);
+		Tree rsp1 = first.get(20, TimeUnit.SECONDS).waitFor(20000);
+		assertEquals(1, rsp2.get("a", 0));
+		assertEquals(rsp1.toString(), rsp2.toString());
+		assertNotSame(rsp1.asObject(), rsp2.asObject());
+	}
+
+	@Test
+	public void testStaleWhileRevalidate() throws Exception {
+		CoalescingService service = new CoalescingService();
+		br.createService(service);
+
+		Tree rsp = br.call("coalescing.stale", "a", 1).waitFor(20000);
+		assertEquals(1, (int) rsp.asInteger());
+		rsp = br.call("coalescing.stale", "a", 1).waitFor(20000);
+		assertEquals(1, (int) rsp.asInteger());
+
+		// The cached value is the plain response (metadata is stored
+		// separately)
+		String key = cr.getCacheKey("coalescing.stale", new Tree().put("a", 1), "a");
+		rsp = cr.get(key).waitFor(20000);
+		assertEquals(1, (int) rsp.asInteger());
+		rsp = cr.get(key + Cacher.META_KEY_SUFFIX).waitFor(20000);
+		assertTrue(rsp.get(Cacher.EXPIRES, 0L) > 0);
+
+		// Expired entry is returned while it is refreshed in the background
+		Thread.sleep(1500);
+		rsp = br.call("coalescing.stale", "a", 1).waitFor(20000);
+		assertEquals(1, (int) rsp.asInteger());
+
+		for (int i = 0; i < 20 && service.counter.get() < 2; i++) {
+			Thread.sleep(100);
+		}
+		Thread.sleep(200);
+		rsp = br.call("coalescing.stale", "a", 1).waitFor(20000);
+		assertEquals(2, (int) rsp.asInteger());
+		assertEquals(2, service.counter.get());
+	}
+
 	@Test
 	public void testClean() throws Exception {
 
@@ -0,0 +1,247 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.cacher;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+
+/**
+ * Compares the lock-free MemoryCacher with the previous, lock-based
+ * implementation (global read/write lock + LinkedHashMap partitions behind
+ * their own read/write locks). All keys are in the same ("hot") partition.
+ * Measured operations:
+ * <ul>
+ * <li>readHeavy: 95% get, 5% set
+ * <li>writeHeavy: 25% get, 75% set (with evictions)
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class MemoryCacherBenchmark {
+
+	// --- ENTRY POINT ---
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(MemoryCacherBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	// --- STATE ---
+
+	@State(Scope.Benchmark)
+	public static class Caches {
+
+		// --- PARAMETERS ---
+
+		@Param({ "lockfree", "locking" })
+		public String type;
+
+		// --- VARIABLES ---
+
+		protected Cacher cacher;
+		protected String[] keys;
+		protected Tree value;
+
+		// --- SET UP ---
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			if ("lockfree".equals(type)) {
+				MemoryCacher mc = new MemoryCacher(CAPACITY, 0, 0);
+				mc.setUseCloning(false);
+				cacher = mc;
+			} else {
+				cacher = new LockingMemoryCacher(CAPACITY);
+			}
+			keys = new String[CAPACITY * 2];
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = "hot.key" + i;
+			}
+			value = new Tree().put("value", 123);
+			for (int i = 0; i < CAPACITY; i++) {
+				cacher.set(keys[i], value, 0);
+			}
+		}
+
+	}
+
+	// --- CONSTANTS ---
+
+	protected static final int CAPACITY = 4096;
+
+	// --- BENCHMARKS ---
+
+	@Benchmark
+	public Object readHeavy(Caches state) {
+		ThreadLocalRandom rnd = ThreadLocalRandom.current();
+		if (rnd.nextInt(100) < 5) {
+			return state.cacher.set(state.keys[rnd.nextInt(CAPACITY)], state.value, 0);
+		}
+		return state.cacher.get(state.keys[rnd.nextInt(CAPACITY)]);
+	}
+
+	@Benchmark
+	public Object writeHeavy(Caches state) {
+		ThreadLocalRandom rnd = ThreadLocalRandom.current();
+		String key = state.keys[rnd.nextInt(state.keys.length)];
+		if (rnd.nextInt(100) < 25) {
+			return state.cacher.get(key);
+		}
+		return state.cacher.set(key, state.value, 0);
+	}
+
+	// --- PREVIOUS IMPLEMENTATION ---
+
+	protected static class LockingMemoryCacher extends MemoryCacher {
+
+		protected final ReentrantReadWriteLock.ReadLock readLock;
+		protected final ReentrantReadWriteLock.WriteLock writeLock;
+
+		protected final HashMap<String, LockingPartition> lockingPartitions = new HashMap<>();
+
+		protected LockingMemoryCacher(int capacity) {
+			super(capacity, 0, 0);
+			ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+			readLock = lock.readLock();
+			writeLock = lock.writeLock();
+		}
+
+		@Override
+		public Promise get(String key) {
+			int pos = partitionPosition(key, true);
+			LockingPartition partition;
+			readLock.lock();
+			try {
+				partition = lockingPartitions.get(key.substring(0, pos));
+			} finally {
+				readLock.unlock();
+			}
+			Tree content = partition == null ? null : partition.get(key.substring(pos + 1));
+			return Promise.resolve(content);
+		}
+
+		@Override
+		public Promise set(String key, Tree value, int ttl) {
+			int pos = partitionPosition(key, true);
+			String prefix = key.substring(0, pos);
+			LockingPartition partition;
+			readLock.lock();
+			try {
+				partition = lockingPartitions.get(prefix);
+			} finally {
+				readLock.unlock();
+			}
+			if (partition == null) {
+				writeLock.lock();
+				try {
+					partition = lockingPartitions.get(prefix);
+					if (partition == null) {
+						partition = new LockingPartition(capacity);
+						lockingPartitions.put(prefix, partition);
+					}
+				} finally {
+					writeLock.unlock();
+				}
+			}
+			partition.set(key.substring(pos + 1), value);
+			return Promise.resolve();
+		}
+
+	}
+
+	protected static class LockingPartition {
+
+		protected final ReentrantReadWriteLock.ReadLock readLock;
+		protected final ReentrantReadWriteLock.WriteLock writeLock;
+
+		protected final LinkedHashMap<String, MemoryCacher.PartitionEntry> cache;
+
+		protected LockingPartition(int capacity) {
+			cache = new LinkedHashMap<String, MemoryCacher.PartitionEntry>(capacity, 1.0f, false) {
+
+				private static final long serialVersionUID = 1L;
+
+				protected final boolean removeEldestEntry(Map.Entry<String, MemoryCacher.PartitionEntry> entry) {
+					return size() > capacity;
+				};
+
+			};
+			ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+			readLock = lock.readLock();
+			writeLock = lock.writeLock();
+		}
+
+		protected Tree get(String key) {
+			MemoryCacher.PartitionEntry entry;
+			readLock.lock();
+			try {
+				entry = cache.get(key);
+			} finally {
+				readLock.unlock();
+			}
+			return entry == null ? null : entry.value;
+		}
+
+		protected void set(String key, Tree value) {
+			MemoryCacher.PartitionEntry entry = new MemoryCacher.PartitionEntry(key);
+			entry.update(value, 0);
+			writeLock.lock();
+			try {
+				cache.put(key, entry);
+			} finally {
+				writeLock.unlock();
+			}
+		}
+
+	}
+
+}
@@ -25,11 +25,134 @@
  */
 package services.moleculer.cacher;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.datatree.Tree;
+import services.moleculer.cacher.MemoryCacher.MemoryPartition;
+import services.moleculer.cacher.MemoryCacher.PartitionEntry;
+
 public class MemoryCacherTest extends CacherTest {
 
 	@Override
 	protected Cacher createCacher() throws Exception {
 		return new MemoryCacher(3000, 10000, 10000);
 	}
-	
+
+	@Test
+	public void testClockEviction() throws Exception {
+		MemoryCacher mc = new MemoryCacher(16, 0, 1);
+		mc.started(br);
+		try {
+			for (int i = 0; i < 16; i++) {
+				mc.set("p.k" + i, new Tree().put("v", i), 0);
+			}
+
+			// Referenced entries get a second chance
+			for (int i = 0; i < 8; i++) {
+				assertNotNull(mc.get("p.k" + i).waitFor(20000));
+			}
+			for (int i = 16; i < 24; i++) {
+				mc.set("p.k" + i, new Tree().put("v", i), 0);
+			}
+			for (int i = 0; i < 8; i++) {
+				assertNotNull(mc.get("p.k" + i).waitFor(20000));
+			}
+			for (int i = 8; i < 16; i++) {
+				assertNull(mc.get("p.k" + i).waitFor(20000));
+			}
+			for (int i = 16; i < 24; i++) {
+				assertNotNull(mc.get("p.k" + i).waitFor(20000));
+			}
+			assertEquals(16, mc.getPartition("p").cache.size());
+		} finally {
+			mc.stopped();
+		}
+	}
+
+	@Test
+	public void testRemovedCounter() throws Exception {
+		MemoryCacher mc = new MemoryCacher(16, 0, 1);
+		mc.started(br);
+		try {
+			for (int i = 0; i < 16; i++) {
+				mc.set("p.k" + i, new Tree().put("v", i), 0);
+			}
+			MemoryPartition partition = mc.getPartition("p");
+			for (int i = 0; i < 10; i++) {
+				mc.del("p.k" + i);
+			}
+			assertEquals(10, partition.removed.get());
+			assertCounter(partition);
+
+			// Exceed the capacity (the removed entries are purged)
+			for (int i = 0; i < 200; i++) {
+				mc.set("p.x" + i, new Tree().put("v", i), 0);
+				mc.del("p.x" + i);
+				assertCounter(partition);
+			}
+			assertTrue(partition.removed.get() <= 16);
+			assertTrue(partition.clock.size() <= 32);
+
+			// Eviction
+			for (int i = 0; i < 100; i++) {
+				mc.set("p.y" + i, new Tree().put("v", i), 0);
+				assertCounter(partition);
+			}
+			assertEquals(16, partition.cache.size());
+		} finally {
+			mc.stopped();
+		}
+	}
+
+	@Test
+	public void testConcurrentRemove() throws Exception {
+		MemoryCacher mc = new MemoryCacher(32, 0, 1);
+		mc.started(br);
+		executor = Executors.newFixedThreadPool(4);
+		try {
+			for (int t = 0; t < 4; t++) {
+				executor.execute(() -> {
+					ThreadLocalRandom rnd = ThreadLocalRandom.current();
+					for (int i = 0; i < 50000; i++) {
+						String key = "p.k" + rnd.nextInt(100);
+						int op = rnd.nextInt(10);
+						if (op < 5) {
+							mc.set(key, new Tree().put("v", i), 0);
+						} else if (op < 8) {
+							mc.get(key);
+						} else if (op < 9) {
+							mc.del(key);
+						} else {
+							mc.clean("p.k1*");
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+			// Every live entry is in the queue, the counter is exact
+			MemoryPartition partition = mc.getPartition("p");
+			assertCounter(partition);
+			assertTrue(partition.clock.containsAll(partition.cache.values()));
+		} finally {
+			mc.stopped();
+		}
+	}
+
+	protected void assertCounter(MemoryPartition partition) {
+		int count = 0;
+		for (PartitionEntry entry : partition.clock) {
+			if (entry.removed && entry.queued == 1) {
+				count++;
+			}
+		}
+		assertEquals(count, partition.removed.get());
+	}
+
 }
@@ -0,0 +1,86 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.cacher;
+
+import org.junit.Test;
+
+import io.datatree.Tree;
+
+public class NearCacherTest extends CacherTest {
+
+	@Override
+	protected Cacher createCacher() throws Exception {
+		return new NearCacher(new MemoryCacher(), new MemoryCacher());
+	}
+
+	@Test
+	public void testInvalidation() throws Exception {
+		NearCacher nc = (NearCacher) cr;
+		Tree val = new Tree().put("x", 1);
+		nc.set("inv.a", val, 0).waitFor(20000);
+		nc.set("inv.b", val, 0).waitFor(20000);
+		assertNotNull(nc.getLocal().get("inv.a").waitFor(20000));
+
+		// Own invalidation events are ignored
+		Tree msg = new Tree().put("key", "inv.a").put("sender", br.getNodeID());
+		nc.invalidate(msg);
+		assertNotNull(nc.getLocal().get("inv.a").waitFor(20000));
+
+		// Invalidation from another node removes the local entry only
+		msg.put("sender", "otherNode");
+		nc.invalidate(msg);
+		assertNull(nc.getLocal().get("inv.a").waitFor(20000));
+		assertNotNull(nc.getRemote().get("inv.a").waitFor(20000));
+
+		// Reloaded from the remote cache
+		assertEquals(1, nc.get("inv.a").waitFor(20000).get("x", 0));
+		assertNotNull(nc.getLocal().get("inv.a").waitFor(20000));
+
+		// Pattern-based invalidation
+		nc.invalidate(new Tree().put("match", "inv.*").put("sender", "otherNode"));
+		assertNull(nc.getLocal().get("inv.a").waitFor(20000));
+		assertNull(nc.getLocal().get("inv.b").waitFor(20000));
+		assertNotNull(nc.getRemote().get("inv.b").waitFor(20000));
+	}
+
+	@Test
+	public void testNullValue() throws Exception {
+		NearCacher nc = (NearCacher) cr;
+		Tree nullValue = new Tree().put("v", (String) null).get("v");
+		assertTrue(nullValue.isNull());
+
+		// Null value in the remote cache is a miss (and is not copied)
+		nc.getRemote().set("nul.a", nullValue, 0).waitFor(20000);
+		assertNull(nc.get("nul.a").waitFor(20000));
+		assertNull(nc.getLocal().get("nul.a").waitFor(20000));
+
+		// Null value in the local cache is a miss
+		nc.getRemote().set("nul.b", new Tree().put("x", 2), 0).waitFor(20000);
+		nc.getLocal().set("nul.b", nullValue, 0).waitFor(20000);
+		assertEquals(2, nc.get("nul.b").waitFor(20000).get("x", 0));
+	}
+
+}
@@ -543,6 +543,64 @@ public class EventbusTest extends TestCase {
 		assertEquals(0, g2_b.payloads.size());
 	}
 
+	@Test
+	public void testTargetCache() throws Exception {
+		DefaultEventbus eb = (DefaultEventbus) br.getConfig().getEventbus();
+		eb.setCacheSize(4);
+		CacheListener s1 = new CacheListener();
+		br.createService("cache1", s1);
+
+		// The cache is bounded (entries are evicted one by one)
+		for (int i = 0; i < 10; i++) {
+			br.broadcast("cache.e" + i, new Tree());
+		}
+		assertEquals(10, s1.payloads.size());
+		assertEquals(4, eb.targetCache.size());
+		assertEquals(4, eb.cachedNames.size());
+
+		// Recently used entries get a second chance
+		br.broadcast("cache.e6", new Tree());
+		br.broadcast("cache.x", new Tree());
+		assertNotNull(eb.targetCache.get("cache.e6"));
+		assertNull(eb.targetCache.get("cache.e7"));
+		assertEquals(4, eb.targetCache.size());
+
+		// A new subscription removes the affected entries only
+		br.broadcast("other.a.b", new Tree());
+		assertNotNull(eb.targetCache.get("other.a.b"));
+		OtherListener s2 = new OtherListener();
+		br.createService("other", s2);
+		assertNull(eb.targetCache.get("other.a.b"));
+		assertNotNull(eb.targetCache.get("cache.e6"));
+		assertNotNull(eb.targetCache.get("cache.e9"));
+		assertNotNull(eb.targetCache.get("cache.x"));
+		br.broadcast("other.a.b", new Tree());
+		assertEquals(1, s2.payloads.size());
+		assertEquals(12, s1.payloads.size());
+	}
+
+	protected static final class CacheListener extends Service {
+
+		protected LinkedList<Tree> payloads = new LinkedList<>();
+
+		@Subscribe("cache.*")
+		public Listener evt = ctx -> {
+			payloads.addLast(ctx.params);
+		};
+
+	}
+
+	protected static final class OtherListener extends Service {
+
+		protected LinkedList<Tree> payloads = new LinkedList<>();
+
+		@Subscribe("other.**")
+		public Listener evt = ctx -> {
+			payloads.addLast(ctx.params);
+		};
+
+	}
+
 	protected static final class Group1Listener extends Service {
 
 		protected LinkedList<Tree> payloads = new LinkedList<>();
@@ -0,0 +1,181 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2017 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.eventbus;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class SubscriptionIndexTest extends TestCase {
+
+	// --- PATTERNS AND EVENT NAMES ---
+
+	protected static final String[] PATTERNS = { "1.2.3", "a.b.c.d", "aa.bb.cc", "a?c", "aa.?b.*", "aa.bb.*",
+			"*.bb.*", "bb.*", "*", "*d", "*d*", "*a*", "a*", "aa.*", "*.cc.*", "*bb*", "*b*", "**aa**", "**.bb.**",
+			"**.cc.**", "**dd**", "**b**", "aa.**", "**.cc", "**", "$node.**", "$aa.*.cc", "$aa.**", "$aa.**.cc",
+			"$aa.??.cc", "?aa.bb.cc", "**.bb.cc", "$node.connected", "user.created", "user.*", "user.**" };
+
+	protected static final String[] NAMES = { "1.2.3", "a.b.c.d", "aa.bb.cc", "a1c", "a2c", "aa.1b.c", "aa.5b.ccccc",
+			"bb.cc", "dd", "abcd", "aa.bb.cc.dd", "b", "$node.connected", "$node.disconnected", "$aa.bb.cc",
+			"user.created", "user.created.x", "user", "users.created", "a", "" };
+
+	@Test
+	public void testMatch() throws Exception {
+		SubscriptionIndex<String> index = new SubscriptionIndex<>();
+		for (String pattern : PATTERNS) {
+			assertNull(index.put(pattern, pattern));
+		}
+		assertEquals(PATTERNS.length, index.size());
+
+		// Same result as the segment-based matcher
+		for (String name : NAMES) {
+			assertMatches(index, name);
+		}
+
+		// Remove half of the patterns
+		for (int i = 0; i < PATTERNS.length; i += 2) {
+			assertEquals(PATTERNS[i], index.remove(PATTERNS[i]));
+			assertNull(index.remove(PATTERNS[i]));
+		}
+		assertEquals(PATTERNS.length / 2, index.size());
+		for (String name : NAMES) {
+			assertMatches(index, name);
+		}
+
+		// Remove all
+		for (String pattern : PATTERNS) {
+			index.remove(pattern);
+		}
+		assertTrue(index.isEmpty());
+		assertTrue(index.root.isEmpty());
+	}
+
+	@Test
+	public void testTrieNodes() throws Exception {
+		SubscriptionIndex<String> index = new SubscriptionIndex<>();
+		index.put("*.created", "a");
+		index.put("**", "b");
+		index.put("user.**.changed", "c");
+		index.put("a?c", "d");
+
+		// Only "a?c" is evaluated by the Matcher
+		assertNull(index.root.wildcards.get("*.created"));
+		assertNull(index.root.wildcards.get("**"));
+		assertEquals("d", index.root.wildcards.get("a?c"));
+		assertNotNull(index.root.star.children.get("created"));
+		assertNotNull(index.root.children.get("user").globstar.children.get("changed"));
+
+		assertEquals("a", index.get("*.created"));
+		assertEquals("b", index.get("**"));
+		assertEquals("d", index.get("a?c"));
+		assertNull(index.get("*"));
+
+		// Each matching pattern is returned once
+		ArrayList<String> result = new ArrayList<>();
+		index.match("user.x.changed.y.changed", result);
+		assertEquals(2, result.size());
+		assertTrue(result.contains("b"));
+		assertTrue(result.contains("c"));
+	}
+
+	@Test
+	public void testCollect() throws Exception {
+		SubscriptionIndex<String> index = new SubscriptionIndex<>();
+		for (String name : NAMES) {
+			index.put(name, name);
+		}
+
+		// Reverse lookup finds the same names as the lookup
+		for (String pattern : PATTERNS) {
+			HashSet<String> expected = new HashSet<>();
+			SubscriptionIndex<String> single = new SubscriptionIndex<>();
+			single.put(pattern, pattern);
+			for (String name : NAMES) {
+				ArrayList<String> matching = new ArrayList<>();
+				single.match(name, matching);
+				if (!matching.isEmpty()) {
+					expected.add(name);
+				}
+			}
+			ArrayList<String> result = new ArrayList<>();
+			index.collect(pattern, result);
+			assertEquals(pattern, expected, new HashSet<>(result));
+		}
+	}
+
+	protected void assertMatches(SubscriptionIndex<String> index, String name) {
+		HashSet<String> expected = new HashSet<>();
+		for (String pattern : PATTERNS) {
+			if (index.size() == PATTERNS.length || isIndexed(index, pattern)) {
+				if (matches(name, pattern)) {
+					expected.add(pattern);
+				}
+			}
+		}
+		ArrayList<String> result = new ArrayList<>();
+		index.match(name, result);
+		assertEquals(name, expected, new HashSet<>(result));
+		assertEquals(name, expected.size(), result.size());
+	}
+
+	protected boolean isIndexed(SubscriptionIndex<String> index, String pattern) {
+		for (int i = 0; i < PATTERNS.length; i += 2) {
+			if (PATTERNS[i].equals(pattern)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Same as the {@link Matcher}, but the dots of the pattern only match dots
+	 * (the "*" and "**" segments are trie nodes).
+	 */
+	protected static boolean matches(String name, String pattern) {
+		StringBuilder regex = new StringBuilder("^");
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			if (c == '*') {
+				if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+					regex.append(".*");
+					i++;
+				} else {
+					regex.append("[^\\.]*");
+				}
+			} else if (c == '?') {
+				regex.append('.');
+			} else {
+				regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		return Pattern.matches(regex.append('$').toString(), name);
+	}
+
+}
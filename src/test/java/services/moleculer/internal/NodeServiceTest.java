@@ -56,7 +56,7 @@ public class NodeServiceTest extends TestCase {
 		params.put("withEndpoints", true);
 		rsp = br.call("$node.actions", params).waitFor(20000);
 
-		assertEquals(5, rsp.size());
+		assertEquals(6, rsp.size());
 		assertEquals(6, rsp.get("[0]").size());
 		assertEquals(rsp.get("[0].name", "?"), "$node.events");
 		assertEquals(rsp.get("[0].count", "?"), "1");
@@ -112,6 +112,17 @@ public class NodeServiceTest extends TestCase {
 		assertEquals(2, rsp.get("[4].endpoints[0]").size());
 		assertEquals(rsp.get("[4].endpoints[0].nodeID", "?"), "local");
 		assertEquals(rsp.get("[4].endpoints[0].state", "?"), "true");
+		assertEquals(6, rsp.get("[5]").size());
+		assertEquals(rsp.get("[5].name", "?"), "$node.latency");
+		assertEquals(rsp.get("[5].count", "?"), "1");
+		assertEquals(rsp.get("[5].hasLocal", "?"), "true");
+		assertEquals(rsp.get("[5].available", "?"), "true");
+		assertEquals(1, rsp.get("[5].action").size());
+		assertEquals(rsp.get("[5].action.name", "?"), "$node.latency");
+		assertEquals(1, rsp.get("[5].endpoints").size());
+		assertEquals(2, rsp.get("[5].endpoints[0]").size());
+		assertEquals(rsp.get("[5].endpoints[0].nodeID", "?"), "local");
+		assertEquals(rsp.get("[5].endpoints[0].state", "?"), "true");
 
 		params = new Tree();
 		params.put("onlyLocal", true);
@@ -119,7 +130,7 @@ public class NodeServiceTest extends TestCase {
 		params.put("withEndpoints", false);
 		rsp = br.call("$node.actions", params).waitFor(20000);
 
-		assertEquals(5, rsp.size());
+		assertEquals(6, rsp.size());
 		assertEquals(5, rsp.get("[0]").size());
 		assertEquals(rsp.get("[0].name", "?"), "$node.events");
 		assertEquals(rsp.get("[0].count", "?"), "1");
@@ -155,6 +166,13 @@ public class NodeServiceTest extends TestCase {
 		assertEquals(rsp.get("[4].available", "?"), "true");
 		assertEquals(1, rsp.get("[4].action").size());
 		assertEquals(rsp.get("[4].action.name", "?"), "$node.health");
+		assertEquals(5, rsp.get("[5]").size());
+		assertEquals(rsp.get("[5].name", "?"), "$node.latency");
+		assertEquals(rsp.get("[5].count", "?"), "1");
+		assertEquals(rsp.get("[5].hasLocal", "?"), "true");
+		assertEquals(rsp.get("[5].available", "?"), "true");
+		assertEquals(1, rsp.get("[5].action").size());
+		assertEquals(rsp.get("[5].action.name", "?"), "$node.latency");
 
 		// Events
 		params = new Tree();
@@ -205,6 +223,11 @@ public class NodeServiceTest extends TestCase {
 		assertTrue(rsp.get("time.iso", "").length() > 0);
 		assertTrue(rsp.get("time.utc", "").length() > 0);
 
+		// Latency (metrics are disabled)
+		rsp = br.call("$node.latency").waitFor(20000);
+		assertEquals(1, rsp.size());
+		assertFalse(rsp.get("enabled", true));
+
 		// List
 		params = new Tree();
 		params.put("onlyLocal", false);
@@ -239,7 +262,7 @@ public class NodeServiceTest extends TestCase {
 		params.put("withEndpoints", true);
 		rsp = br.call("$node.actions", params).waitFor(20000);
 
-		assertEquals(6, rsp.size());
+		assertEquals(7, rsp.size());
 		assertEquals(6, rsp.get("[0]").size());
 		assertEquals(rsp.get("[0].name", "?"), "$node.events");
 		assertEquals(rsp.get("[0].count", "?"), "1");
@@ -296,16 +319,27 @@ public class NodeServiceTest extends TestCase {
 		assertEquals(rsp.get("[4].endpoints[0].nodeID", "?"), "local");
 		assertEquals(rsp.get("[4].endpoints[0].state", "?"), "true");
 		assertEquals(6, rsp.get("[5]").size());
-		assertEquals(rsp.get("[5].name", "?"), "test.foo");
+		assertEquals(rsp.get("[5].name", "?"), "$node.latency");
 		assertEquals(rsp.get("[5].count", "?"), "1");
 		assertEquals(rsp.get("[5].hasLocal", "?"), "true");
 		assertEquals(rsp.get("[5].available", "?"), "true");
 		assertEquals(1, rsp.get("[5].action").size());
-		assertEquals(rsp.get("[5].action.name", "?"), "test.foo");
+		assertEquals(rsp.get("[5].action.name", "?"), "$node.latency");
 		assertEquals(1, rsp.get("[5].endpoints").size());
 		assertEquals(2, rsp.get("[5].endpoints[0]").size());
 		assertEquals(rsp.get("[5].endpoints[0].nodeID", "?"), "local");
 		assertEquals(rsp.get("[5].endpoints[0].state", "?"), "true");
+		assertEquals(6, rsp.get("[6]").size());
+		assertEquals(rsp.get("[6].name", "?"), "test.foo");
+		assertEquals(rsp.get("[6].count", "?"), "1");
+		assertEquals(rsp.get("[6].hasLocal", "?"), "true");
+		assertEquals(rsp.get("[6].available", "?"), "true");
+		assertEquals(1, rsp.get("[6].action").size());
+		assertEquals(rsp.get("[6].action.name", "?"), "test.foo");
+		assertEquals(1, rsp.get("[6].endpoints").size());
+		assertEquals(2, rsp.get("[6].endpoints[0]").size());
+		assertEquals(rsp.get("[6].endpoints[0].nodeID", "?"), "local");
+		assertEquals(rsp.get("[6].endpoints[0].state", "?"), "true");
 
 		params = new Tree();
 		params.put("onlyLocal", false);
@@ -0,0 +1,274 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedList;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class AsyncFileLoggerTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected File directory;
+	protected GatedLogger logger;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testDrop() throws Exception {
+		logger = createLogger("drop", 16, 0);
+		int free = blockWriter();
+
+		// Buffer is full -> records are dropped
+		for (int i = 0; i < free + 10; i++) {
+			logger.publish(record(Level.INFO, "record " + i));
+		}
+		assertEquals(10, logger.dropped.get());
+
+		// Dropped records are reported
+		logger.gate.countDown();
+		logger.close();
+		String log = readLog();
+		assertTrue(log.contains("10 log records dropped"));
+		assertTrue(log.contains("record " + (free - 1)));
+		assertFalse(log.contains("record " + free));
+	}
+
+	@Test
+	public void testBlock() throws Exception {
+		logger = createLogger("block", 16, 0);
+		int free = blockWriter();
+
+		// Buffer is full -> the logging thread is waiting
+		Thread publisher = new Thread(() -> {
+			for (int i = 0; i < free + 5; i++) {
+				logger.publish(record(Level.INFO, "record " + i));
+			}
+		});
+		publisher.start();
+		publisher.join(300);
+		assertTrue(publisher.isAlive());
+
+		// Writer continues -> no records are lost
+		logger.gate.countDown();
+		publisher.join(5000);
+		assertFalse(publisher.isAlive());
+		assertEquals(0, logger.dropped.get());
+		logger.close();
+		String log = readLog();
+		assertTrue(log.contains("record " + (free + 4)));
+		assertFalse(log.contains("dropped"));
+	}
+
+	@Test
+	public void testDropDebug() throws Exception {
+		logger = createLogger("dropDebug", 16, 0);
+		blockWriter();
+
+		// Fill the buffer up to the high water mark
+		while (logger.messages.size() < logger.highWaterMark) {
+			logger.publish(record(Level.INFO, "info"));
+		}
+
+		// Debug records are dropped, other records are stored
+		int size = logger.messages.size();
+		for (int i = 0; i < 5; i++) {
+			logger.publish(record(Level.FINE, "debug " + i));
+		}
+		assertEquals(5, logger.dropped.get());
+		assertEquals(size, logger.messages.size());
+		logger.publish(record(Level.WARNING, "warning"));
+		assertEquals(size + 1, logger.messages.size());
+		assertEquals(5, logger.dropped.get());
+
+		logger.gate.countDown();
+		logger.close();
+		String log = readLog();
+		assertTrue(log.contains("5 log records dropped"));
+		assertTrue(log.contains("warning"));
+		assertFalse(log.contains("debug"));
+	}
+
+	@Test
+	public void testFsyncInterval() throws Exception {
+
+		// Disabled
+		logger = createLogger("block", 16, 0);
+		logger.publish(record(Level.INFO, "first"));
+		waitFor("first");
+		assertEquals(0, logger.lastSync);
+		logger.close();
+
+		// At most once per interval
+		logger = createLogger("block", 16, 60000);
+		logger.publish(record(Level.INFO, "second"));
+		waitFor("second");
+		for (int i = 0; i < 250 && logger.lastSync == 0; i++) {
+			Thread.sleep(20);
+		}
+		long lastSync = logger.lastSync;
+		assertTrue(lastSync > 0);
+		logger.publish(record(Level.INFO, "third"));
+		waitFor("third");
+		Thread.sleep(100);
+		assertEquals(lastSync, logger.lastSync);
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		logger = createLogger("block", 16, 0);
+		blockWriter();
+		logger.publish(record(Level.INFO, "queued"));
+
+		// The writer thread writes the rest of the log
+		logger.gate.countDown();
+		logger.close();
+		assertTrue(readLog().contains("queued"));
+		assertTrue(logger.messages.isEmpty());
+		assertNull(logger.openedChannel);
+	}
+
+	// --- UTILITIES ---
+
+	protected GatedLogger createLogger(String overflow, int bufferSize, long fsyncInterval) throws Exception {
+		String className = AsyncFileLogger.class.getName();
+		Properties properties = new Properties();
+		properties.put(className + ".directory", directory.getAbsolutePath());
+		properties.put(className + ".prefix", "test-");
+		properties.put(className + ".bufferSize", Integer.toString(bufferSize));
+		properties.put(className + ".overflow", overflow);
+		properties.put(className + ".fsyncInterval", Long.toString(fsyncInterval));
+		properties.put(className + ".level", "ALL");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		properties.store(out, null);
+		LogManager.getLogManager().readConfiguration(new ByteArrayInputStream(out.toByteArray()));
+		return new GatedLogger();
+	}
+
+	/**
+	 * Stops the writer thread (in the "writeLines" method).
+	 * 
+	 * @return number of free slots in the ring buffer
+	 */
+	protected int blockWriter() throws Exception {
+		logger.entered = new CountDownLatch(1);
+		logger.gate = new CountDownLatch(1);
+		logger.publish(record(Level.INFO, "blocker"));
+		assertTrue(logger.entered.await(5, TimeUnit.SECONDS));
+		return logger.messages.capacity() - logger.messages.size();
+	}
+
+	protected LogRecord record(Level level, String message) {
+		LogRecord record = new LogRecord(level, message);
+		record.setSourceClassName(AsyncFileLoggerTest.class.getName());
+		return record;
+	}
+
+	protected String readLog() throws Exception {
+		StringBuilder log = new StringBuilder();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				log.append(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+			}
+		}
+		return log.toString();
+	}
+
+	protected void waitFor(String message) throws Exception {
+		long timeoutAt = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < timeoutAt) {
+			if (readLog().contains(message)) {
+				return;
+			}
+			Thread.sleep(20);
+		}
+		fail("Record \"" + message + "\" not written!");
+	}
+
+	// --- LOGGER WITH A STOPPABLE WRITER ---
+
+	protected static class GatedLogger extends AsyncFileLogger {
+
+		protected volatile CountDownLatch entered;
+		protected volatile CountDownLatch gate;
+
+		@Override
+		protected void writeLines(LinkedList<LogRecord> records, StringBuilder lines, Formatter formatter)
+				throws Exception {
+			CountDownLatch g = gate;
+			if (g != null) {
+				entered.countDown();
+				g.await();
+			}
+			super.writeLines(records, lines, formatter);
+		}
+
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		directory = Files.createTempDirectory("moleculer-logs").toFile();
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (logger != null) {
+			if (logger.gate != null) {
+				logger.gate.countDown();
+			}
+			logger.close();
+		}
+		LogManager.getLogManager().readConfiguration();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+}
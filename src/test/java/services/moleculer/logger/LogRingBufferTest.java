@@ -0,0 +1,114 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class LogRingBufferTest extends TestCase {
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testBounded() throws Exception {
+		LogRingBuffer buffer = new LogRingBuffer(5);
+		assertEquals(8, buffer.capacity());
+		assertTrue(buffer.isEmpty());
+
+		// Fill buffer
+		for (int i = 0; i < 8; i++) {
+			assertTrue(buffer.offer(record(i)));
+		}
+		assertEquals(8, buffer.size());
+		assertFalse(buffer.offer(record(8)));
+
+		// Remove some records
+		ArrayList<LogRecord> list = new ArrayList<>();
+		assertEquals(3, buffer.drainTo(list, 3));
+		assertEquals("0", list.get(0).getMessage());
+		assertEquals("2", list.get(2).getMessage());
+		assertEquals(5, buffer.size());
+
+		// Wrap around
+		for (int i = 8; i < 11; i++) {
+			assertTrue(buffer.offer(record(i)));
+		}
+		assertFalse(buffer.offer(record(11)));
+		list.clear();
+		assertEquals(8, buffer.drainTo(list, 100));
+		for (int i = 0; i < 8; i++) {
+			assertEquals(Integer.toString(i + 3), list.get(i).getMessage());
+		}
+		assertTrue(buffer.isEmpty());
+		assertEquals(0, buffer.drainTo(list, 100));
+	}
+
+	@Test
+	public void testConcurrentProducers() throws Exception {
+		LogRingBuffer buffer = new LogRingBuffer(64);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t * 10000;
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					LogRecord record = record(offset + i);
+					while (!buffer.offer(record)) {
+						Thread.yield();
+					}
+				}
+			});
+			threads[t].start();
+		}
+
+		// Consume (no records may be lost or duplicated)
+		HashSet<String> messages = new HashSet<>();
+		ArrayList<LogRecord> list = new ArrayList<>();
+		while (messages.size() < 40000) {
+			list.clear();
+			buffer.drainTo(list, 16);
+			for (LogRecord record : list) {
+				assertTrue(messages.add(record.getMessage()));
+			}
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(buffer.isEmpty());
+	}
+
+	// --- UTILITIES ---
+
+	protected LogRecord record(int index) {
+		return new LogRecord(Level.INFO, Integer.toString(index));
+	}
+
+}
@@ -0,0 +1,128 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.metrics;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class LatencyRecorderTest extends TestCase {
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testIntervals() throws Exception {
+		LatencyRecorder recorder = new LatencyRecorder(2);
+
+		// Nothing published yet
+		LatencySnapshot snapshot = recorder.getSnapshot();
+		assertEquals(0, snapshot.getCount());
+
+		// Record 1...1000 microseconds
+		for (int i = 1; i <= 1000; i++) {
+			recorder.record(i * 1000L);
+		}
+		recorder.record(-1);
+
+		// Recorded values are invisible until the interval is closed
+		assertEquals(0, recorder.getSnapshot().getCount());
+		snapshot = recorder.rotate();
+		assertSame(snapshot, recorder.getSnapshot());
+		assertEquals(1000, snapshot.getCount());
+		assertInRange(1000, snapshot.getMin());
+		assertInRange(1000000, snapshot.getMax());
+		assertInRange(500000, snapshot.getP50());
+		assertInRange(900000, snapshot.getP90());
+		assertInRange(990000, snapshot.getP99());
+		assertInRange(500500, (long) snapshot.getMean());
+
+		// Next interval
+		recorder.record(5000);
+		snapshot = recorder.rotate();
+		assertEquals(1, snapshot.getCount());
+		assertInRange(5000, snapshot.getP99());
+
+		// Empty interval
+		snapshot = recorder.rotate();
+		assertEquals(0, snapshot.getCount());
+		assertEquals(0, snapshot.getMax());
+	}
+
+	@Test
+	public void testConcurrentRecording() throws Exception {
+		LatencyRecorder recorder = new LatencyRecorder(2);
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					recorder.record(1000 + i);
+				}
+			});
+			threads[t].start();
+		}
+
+		// Swap intervals while recording (no values may be lost)
+		long total = 0;
+		for (Thread thread : threads) {
+			while (thread.isAlive()) {
+				total += recorder.rotate().getCount();
+			}
+		}
+		total += recorder.rotate().getCount();
+		assertEquals(40000, total);
+	}
+
+	@Test
+	public void testNoop() throws Exception {
+		LatencyRecorder recorder = LatencyRecorder.NOOP;
+		recorder.record(5000);
+		assertSame(LatencySnapshot.EMPTY, recorder.rotate());
+		assertSame(LatencySnapshot.EMPTY, recorder.getSnapshot());
+	}
+
+	@Test
+	public void testRemove() throws Exception {
+		DefaultMetrics metrics = new DefaultMetrics();
+		LatencyRecorder recorder = metrics.latency(Metrics.LATENCY_NODE, "node2");
+		assertSame(recorder, metrics.latency(Metrics.LATENCY_NODE, "node2"));
+		metrics.latency(Metrics.LATENCY_NODE, "node3");
+		assertEquals(2, metrics.getLatencies(Metrics.LATENCY_NODE).size());
+
+		// Disconnected node
+		metrics.removeLatency(Metrics.LATENCY_NODE, "node2");
+		assertEquals(1, metrics.getLatencies(Metrics.LATENCY_NODE).size());
+		assertTrue(metrics.getLatencies(Metrics.LATENCY_NODE).containsKey("node3"));
+		assertNotSame(recorder, metrics.latency(Metrics.LATENCY_NODE, "node2"));
+	}
+
+	// --- UTILITIES ---
+
+	protected void assertInRange(long expected, long value) {
+		long delta = expected / 50;
+		assertTrue(value + " != " + expected, Math.abs(value - expected) <= delta);
+	}
+
+}
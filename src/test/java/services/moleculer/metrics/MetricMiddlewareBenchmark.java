@@ -0,0 +1,147 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Measures the per-request overhead of the MetricMiddleware from 4 threads.
+ * Modes:
+ * <ul>
+ * <li>off: metrics are disabled
+ * <li>current: the previous implementation (tag array, registry lookups and
+ * Timer registration on every request)
+ * <li>prebound: handles resolved once (counters and a timer recorder)
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class MetricMiddlewareBenchmark implements MetricConstants {
+
+	// --- ENTRY POINT ---
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(MetricMiddlewareBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	// --- STATE ---
+
+	@State(Scope.Benchmark)
+	public static class Registry {
+
+		// --- PARAMETERS ---
+
+		@Param({ "off", "current", "prebound" })
+		public String mode;
+
+		// --- VARIABLES ---
+
+		protected final String actionName = "math.add";
+		protected final String callType = "local";
+		protected final String caller = "node-1";
+
+		protected DefaultMetrics metrics;
+		protected MetricMiddleware.RequestMetrics handles;
+
+		// --- SET UP ---
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			metrics = new DefaultMetrics(new SimpleMeterRegistry());
+			handles = new MetricMiddleware.RequestMetrics(metrics, actionName, callType, caller);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			metrics.close();
+		}
+
+	}
+
+	// --- BENCHMARK ---
+
+	@Benchmark
+	public int request(Registry state) {
+		int level = 1;
+		switch (state.mode) {
+		case "current":
+			return currentImplementation(state, level);
+		case "prebound":
+			long start = state.handles.started(level);
+			state.handles.finished(start);
+			return level;
+		default:
+			return level;
+		}
+	}
+
+	// --- PREVIOUS IMPLEMENTATION ---
+
+	protected int currentImplementation(Registry state, int level) {
+		DefaultMetrics metrics = state.metrics;
+		String[] tags = new String[] { "action", state.actionName, "type", state.callType, "caller", state.caller };
+		metrics.increment(MOLECULER_REQUEST_TOTAL, MOLECULER_REQUEST_TOTAL_DESC, tags);
+		MetricCounter requestActive = metrics.increment(MOLECULER_REQUEST_ACTIVE, MOLECULER_REQUEST_ACTIVE_DESC,
+				tags);
+		metrics.increment(MOLECULER_REQUEST_LEVELS, MOLECULER_REQUEST_LEVELS_DESC, "action", state.actionName,
+				"caller", state.caller, "level", Integer.toString(level));
+		Timer timer = Timer.builder(MOLECULER_REQUEST_TIME).description(MOLECULER_REQUEST_TIME_DESC).tags(tags)
+				.publishPercentileHistogram(metrics.publishPercentileHistogram)
+				.percentilePrecision(metrics.percentilePrecision)
+				.distributionStatisticBufferLength(metrics.distributionStatisticBufferLength)
+				.distributionStatisticExpiry(Metrics.ONE_SECOND).publishPercentiles(metrics.percentiles)
+				.register(metrics);
+		long start = System.nanoTime();
+		timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		requestActive.decrement();
+		return level;
+	}
+
+}
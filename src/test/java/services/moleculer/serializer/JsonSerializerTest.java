@@ -25,8 +25,37 @@
  */
 package services.moleculer.serializer;
 
+import org.junit.Test;
+
+import io.datatree.Tree;
+
 public class JsonSerializerTest extends SerializerTest {
 
+	@Test
+	public void testReadSlice() throws Exception {
+		Tree value = new Tree();
+		value.put("s", "text");
+		value.put("i", 5);
+		value.put("l", 1L << 40);
+		value.put("d", 1.5);
+		value.put("b", true);
+		value.putList("a").add(1).add("x");
+		byte[] bytes = serializer.write(value);
+		byte[] buffer = new byte[bytes.length + 10];
+		System.arraycopy(bytes, 0, buffer, 4, bytes.length);
+
+		// Parsed in place
+		assertEquals(0, serializer.getCopySize(buffer, 4, bytes.length));
+		Tree slice = serializer.read(buffer, 4, bytes.length);
+		assertEquals("text", slice.get("s", ""));
+		assertEquals(5, slice.get("i", 0));
+		assertEquals(1L << 40, slice.get("l", 0L));
+		assertEquals(1.5, slice.get("d", 0d));
+		assertTrue(slice.get("b", false));
+		assertEquals(2, slice.get("a").size());
+		assertEquals("x", slice.get("a").get(1).asString());
+	}
+
 	@Override
 	protected Serializer createSerializer() {
 		return new JsonSerializer();
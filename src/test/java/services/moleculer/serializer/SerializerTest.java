@@ -30,6 +30,7 @@ import io.datatree.dom.TreeWriter;
 import io.datatree.dom.TreeWriterRegistry;
 import io.datatree.dom.adapters.JsonIon;
 import services.moleculer.cacher.KeyTest;
+import services.moleculer.util.PacketOutputStream;
 
 public abstract class SerializerTest extends KeyTest {
 
@@ -50,6 +51,21 @@ public abstract class SerializerTest extends KeyTest {
 		Tree v2 = serializer.read(bytes);
 		String json2 = v2.toString(false);
 		assertJsonEquals(json, json2);
+
+		// Read from the middle of a larger array
+		byte[] buffer = new byte[bytes.length + 7];
+		System.arraycopy(bytes, 0, buffer, 3, bytes.length);
+		Tree v3 = serializer.read(buffer, 3, bytes.length);
+		assertJsonEquals(json, v3.toString(false));
+		assertEquals(0, serializer.getCopySize(bytes, 0, bytes.length));
+		int copySize = serializer.getCopySize(buffer, 3, bytes.length);
+		assertTrue(copySize >= 0 && copySize <= bytes.length);
+
+		// Write after a reserved header
+		PacketOutputStream out = new PacketOutputStream(6, 0);
+		serializer.write(v1, out);
+		Tree v4 = serializer.read(out.getBuffer(), 6, out.getBodySize());
+		assertJsonEquals(json, v4.toString(false));
 	}
 
 	private static final void assertJsonEquals(String s1, String s2) {
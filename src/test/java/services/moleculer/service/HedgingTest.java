@@ -0,0 +1,151 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.breaker.TestTransporter;
+import services.moleculer.context.CallOptions;
+import services.moleculer.monitor.ConstantMonitor;
+
+public class HedgingTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected TestTransporter tr;
+	protected DefaultServiceRegistry sr;
+	protected ServiceBroker br;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testHedging() throws Exception {
+
+		// Slow first node -> hedged request wins
+		Promise p = br.call("test.test", (Tree) null, CallOptions.hedgeAfter(100));
+		assertEquals(1, tr.getMessageCount());
+		Tree first = tr.getMessages().get(0);
+		waitForMessages(2);
+		Tree second = tr.getMessages().get(1);
+		assertFalse(getNodeID(first).equals(getNodeID(second)));
+		assertFalse(first.get("id", "").equals(second.get("id", "")));
+		assertEquals(2, sr.promises.size());
+
+		createResponse(second);
+		p.waitFor(2000);
+
+		// Pending request of the slower node is cancelled
+		assertTrue(sr.promises.isEmpty());
+
+		// Max number of hedges
+		tr.clearMessages();
+		p = br.call("test.test", (Tree) null, CallOptions.hedgeAfter(50).maxHedges(1));
+		waitForMessages(2);
+		Thread.sleep(300);
+		assertEquals(2, tr.getMessageCount());
+		createResponse(tr.getMessages().get(0));
+		p.waitFor(2000);
+		assertTrue(sr.promises.isEmpty());
+	}
+
+	@Test
+	public void testFastResponse() throws Exception {
+
+		// Fast first node -> no duplicated request
+		Promise p = br.call("test.test", (Tree) null, CallOptions.hedgeAfter(200));
+		assertEquals(1, tr.getMessageCount());
+		createResponse(tr.getMessages().get(0));
+		p.waitFor(2000);
+		tr.clearMessages();
+		Thread.sleep(400);
+		assertEquals(0, tr.getMessageCount());
+		assertTrue(sr.promises.isEmpty());
+	}
+
+	// --- UTILITIES ---
+
+	protected void waitForMessages(int count) throws Exception {
+		long timeoutAt = System.currentTimeMillis() + 2000;
+		while (tr.getMessageCount() < count && System.currentTimeMillis() < timeoutAt) {
+			Thread.sleep(20);
+		}
+		assertEquals(count, tr.getMessageCount());
+	}
+
+	protected String getNodeID(Tree msg) {
+		String channel = msg.get("channel", "");
+		return channel.substring(channel.lastIndexOf('.') + 1);
+	}
+
+	protected void createResponse(Tree msg) throws Exception {
+		Tree rsp = new Tree();
+		rsp.put("ver", "3");
+		rsp.put("sender", getNodeID(msg));
+		rsp.put("id", msg.get("id", ""));
+		rsp.put("success", true);
+		rsp.put("data", (String) null);
+		tr.received("MOL.RES.local", rsp);
+	}
+
+	// --- SET UP ---
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	protected void setUp() throws Exception {
+		sr = new DefaultServiceRegistry();
+		tr = new TestTransporter();
+		br = ServiceBroker.builder().monitor(new ConstantMonitor()).registry(sr).transporter(tr).nodeID("local")
+				.build();
+		br.start();
+		for (int i = 1; i <= 2; i++) {
+			Tree root = new Tree();
+			Tree config = root.putMap("node" + i);
+			Tree actions = config.putMap("actions");
+			LinkedHashMap<String, Object> action = new LinkedHashMap<>();
+			action.put("name", "test.test");
+			((Map) actions.asObject()).put("test.test", action);
+			sr.addActions("node" + i, config);
+		}
+		tr.clearMessages();
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
@@ -0,0 +1,193 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.strategy;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import io.datatree.Tree;
+import services.moleculer.ServiceBroker;
+import services.moleculer.service.ActionEndpoint;
+
+/**
+ * Discrete-event simulation of a cluster with one degraded node. Five nodes
+ * serve the same action with 8 parallel workers per node. The service time
+ * of the healthy nodes is 1 msec (average, exponentially distributed), the
+ * degraded node is 10 times slower. Requests arrive with Poisson distribution
+ * at 75% of the total capacity of the cluster. The simulation runs in virtual
+ * time (in a single thread), so the results are reproducible. Printed values:
+ * <ul>
+ * <li>mean, p50, p99 and p99.9 response times (in msec)
+ * <li>percent of the requests served by the degraded node
+ * </ul>
+ */
+public class LeastOutstandingStrategyBenchmark {
+
+	// --- SIMULATION PARAMETERS ---
+
+	protected static final int NODES = 5;
+	protected static final int WORKERS = 8;
+	protected static final double SERVICE_TIME = 1.0;
+	protected static final double DEGRADED_SERVICE_TIME = 10.0;
+	protected static final double LOAD = 0.75;
+	protected static final int REQUESTS = 500000;
+	protected static final long SEED = 12345L;
+
+	// --- ENTRY POINT ---
+
+	public static void main(String[] args) throws Exception {
+		ServiceBroker broker = new ServiceBroker("client");
+		System.out.println("strategy                mean      p50      p99    p99.9  degraded");
+		simulate("round-robin", new RoundRobinStrategy<>(broker, false));
+		simulate("random", new XorShiftRandomStrategy<>(broker, false));
+		simulate("least-outstanding", new LeastOutstandingStrategy<>(broker, false, false));
+		simulate("least-outstanding+ewma", new LeastOutstandingStrategy<>(broker, false, true));
+	}
+
+	// --- SIMULATION LOOP ---
+
+	protected static void simulate(String name, Strategy<SimulatedEndpoint> strategy) {
+		Random random = new Random(SEED);
+		SimulatedEndpoint[] endpoints = new SimulatedEndpoint[NODES];
+		for (int i = 0; i < NODES; i++) {
+			endpoints[i] = new SimulatedEndpoint("node" + i, i == 0 ? DEGRADED_SERVICE_TIME : SERVICE_TIME);
+			strategy.addEndpoint(endpoints[i]);
+		}
+
+		// Requests per msec
+		double capacity = 0;
+		for (SimulatedEndpoint endpoint : endpoints) {
+			capacity += WORKERS / endpoint.serviceTime;
+		}
+		double arrivalRate = capacity * LOAD;
+
+		// Pending responses, ordered by completion time
+		PriorityQueue<Completion> completions = new PriorityQueue<>();
+		double[] latencies = new double[REQUESTS];
+		int degraded = 0;
+		double now = 0;
+		for (int i = 0; i < REQUESTS; i++) {
+			now += exponential(random, 1 / arrivalRate);
+
+			// Deliver responses (updates the load statistics)
+			while (!completions.isEmpty() && completions.peek().time <= now) {
+				Completion completion = completions.poll();
+				completion.endpoint.finished(completion.latency);
+			}
+
+			// Select endpoint
+			SimulatedEndpoint endpoint = strategy.getEndpoint(null, null);
+			if (endpoint == endpoints[0]) {
+				degraded++;
+			}
+
+			// Invoke the first free worker (FIFO)
+			double latency = endpoint.invoke(now, exponential(random, endpoint.serviceTime));
+			latencies[i] = latency;
+			completions.add(new Completion(now + latency, latency, endpoint));
+		}
+
+		// Print results
+		Arrays.sort(latencies);
+		double total = 0;
+		for (double latency : latencies) {
+			total += latency;
+		}
+		System.out.println(String.format("%-22s %7.2f  %7.2f  %7.2f  %7.2f  %7.2f%%", name, total / REQUESTS,
+				percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999),
+				degraded * 100.0 / REQUESTS));
+	}
+
+	protected static double exponential(Random random, double mean) {
+		return -Math.log(1 - random.nextDouble()) * mean;
+	}
+
+	protected static double percentile(double[] sorted, double percentile) {
+		return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+	}
+
+	// --- SIMULATED NODE ---
+
+	protected static class SimulatedEndpoint extends ActionEndpoint {
+
+		protected final double serviceTime;
+
+		/**
+		 * Virtual times (in msec) when the workers become free.
+		 */
+		protected final PriorityQueue<Double> workers = new PriorityQueue<>();
+
+		protected SimulatedEndpoint(String nodeID, double serviceTime) {
+			super(nodeID, "test", config());
+			this.serviceTime = serviceTime;
+			for (int i = 0; i < WORKERS; i++) {
+				workers.add(0.0);
+			}
+		}
+
+		protected static Tree config() {
+			Tree config = new Tree();
+			config.put("name", "test.action");
+			return config;
+		}
+
+		protected double invoke(double now, double duration) {
+			requestStarted();
+			double start = Math.max(now, workers.poll());
+			double end = start + duration;
+			workers.add(end);
+			return end - now;
+		}
+
+		protected void finished(double latency) {
+			requestFinished((long) (latency * 1000000));
+		}
+
+	}
+
+	// --- RESPONSE EVENT ---
+
+	protected static class Completion implements Comparable<Completion> {
+
+		protected final double time;
+		protected final double latency;
+		protected final SimulatedEndpoint endpoint;
+
+		protected Completion(double time, double latency, SimulatedEndpoint endpoint) {
+			this.time = time;
+			this.latency = latency;
+			this.endpoint = endpoint;
+		}
+
+		@Override
+		public int compareTo(Completion other) {
+			return Double.compare(time, other.time);
+		}
+
+	}
+
+}
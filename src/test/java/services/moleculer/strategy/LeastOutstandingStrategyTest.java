@@ -0,0 +1,174 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.strategy;
+
+import org.junit.Test;
+
+import io.datatree.Tree;
+import services.moleculer.ServiceBroker;
+import services.moleculer.context.Context;
+import services.moleculer.service.Action;
+import services.moleculer.service.DefaultServiceRegistry;
+import services.moleculer.service.LocalActionEndpoint;
+
+public class LeastOutstandingStrategyTest extends StrategyTest {
+
+	@Override
+	public Strategy<LocalActionEndpoint> createStrategy(boolean preferLocal) throws Exception {
+		LeastOutstandingStrategyFactory f = new LeastOutstandingStrategyFactory(preferLocal);
+		f.started(br);
+		return f.create();
+	}
+
+	@Test
+	public void testOutstanding() throws Exception {
+		LeastOutstandingStrategyFactory f = new LeastOutstandingStrategyFactory(false, false);
+		f.started(br);
+		Strategy<LocalActionEndpoint> s = f.create();
+		LoadedEndpoint e1 = new LoadedEndpoint(br, "node2", "e1");
+		LoadedEndpoint e2 = new LoadedEndpoint(br, "node2", "e2");
+		s.addEndpoint(e1);
+		s.addEndpoint(e2);
+
+		// Pending calls
+		for (int i = 0; i < 3; i++) {
+			e1.start();
+		}
+		e2.start();
+		assertEquals(3, e1.getOutstanding());
+		for (int i = 0; i < 100; i++) {
+			assertSame(e2, s.getEndpoint(null, null));
+		}
+
+		// Responses
+		e1.finish(1000000L);
+		e1.finish(1000000L);
+		e1.finish(1000000L);
+		assertEquals(0, e1.getOutstanding());
+		for (int i = 0; i < 100; i++) {
+			assertSame(e1, s.getEndpoint(null, null));
+		}
+	}
+
+	@Test
+	public void testLatencyWeighted() throws Exception {
+		Strategy<LocalActionEndpoint> s = createStrategy(false);
+		LoadedEndpoint e1 = new LoadedEndpoint(br, "node2", "e1");
+		LoadedEndpoint e2 = new LoadedEndpoint(br, "node2", "e2");
+		s.addEndpoint(e1);
+		s.addEndpoint(e2);
+
+		// Same number of pending calls, but "e1" is 10 times slower
+		e1.start();
+		e1.finish(10000000L);
+		e2.start();
+		e2.finish(1000000L);
+		assertEquals(10000000d, e1.getLatency(), 0.1);
+		for (int i = 0; i < 100; i++) {
+			assertSame(e2, s.getEndpoint(null, null));
+		}
+
+		// Without weighting
+		LeastOutstandingStrategyFactory f = new LeastOutstandingStrategyFactory(false, false);
+		f.started(br);
+		s = f.create();
+		s.addEndpoint(e1);
+		s.addEndpoint(e2);
+		int e1Count = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (s.getEndpoint(null, null) == e1) {
+				e1Count++;
+			}
+		}
+		assertTrue(e1Count > 300 && e1Count < 700);
+	}
+
+	@Test
+	public void testFailedCalls() throws Exception {
+		Strategy<LocalActionEndpoint> s = createStrategy(false);
+		LoadedEndpoint e1 = new LoadedEndpoint(br, "node2", "e1");
+		LoadedEndpoint e2 = new LoadedEndpoint(br, "node2", "e2");
+		s.addEndpoint(e1);
+		s.addEndpoint(e2);
+
+		// Fast errors do not create the first sample
+		e1.start();
+		e1.fail(1000L);
+		assertEquals(0, e1.getOutstanding());
+		assertEquals(0d, e1.getLatency(), 0.1);
+
+		// Fast errors raise the average ("e1" fails quickly)
+		e1.start();
+		e1.finish(2000000L);
+		e2.start();
+		e2.finish(3000000L);
+		for (int i = 0; i < 10; i++) {
+			e1.start();
+			e1.fail(1000L);
+		}
+		assertTrue(e1.getLatency() > 3000000d);
+		for (int i = 0; i < 100; i++) {
+			assertSame(e2, s.getEndpoint(null, null));
+		}
+	}
+
+	// --- ENDPOINT WITH ADJUSTABLE LOAD ---
+
+	protected static class LoadedEndpoint extends LocalActionEndpoint {
+
+		protected LoadedEndpoint(ServiceBroker broker, String nodeID, String name) {
+			super((DefaultServiceRegistry) broker.getConfig().getServiceRegistry(), broker.getConfig().getExecutor(),
+					nodeID, "e", config(name), new Action() {
+
+						@Override
+						public Object handler(Context ctx) throws Exception {
+							return null;
+						}
+
+					}, name);
+		}
+
+		protected static Tree config(String name) {
+			Tree cfg = new Tree();
+			cfg.put("name", name);
+			return cfg;
+		}
+
+		protected void start() {
+			requestStarted();
+		}
+
+		protected void finish(long duration) {
+			requestFinished(duration);
+		}
+
+		protected void fail(long duration) {
+			requestFinished(duration, false);
+		}
+
+	}
+
+}
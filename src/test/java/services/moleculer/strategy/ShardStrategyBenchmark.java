@@ -0,0 +1,238 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.strategy;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import services.moleculer.ServiceBroker;
+import services.moleculer.service.Endpoint;
+
+/**
+ * Measures the routing speed of the ShardStrategy (without hashing and
+ * caching). The "linear" type works like the previous implementation (scans
+ * vnodes x endpoints), the "ring" type uses binary search, the "maglev" type
+ * uses the Maglev lookup table. Before running the benchmarks, the main method
+ * prints the distribution quality of the "ring" and "maglev" types:
+ * <ul>
+ * <li>min / max: the least and most loaded node (percent of the fair share)
+ * <li>moved: percent of the keys of the remaining nodes which are moved to
+ * another node when a node leaves the cluster (ideally 0)
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardStrategyBenchmark {
+
+	// --- CONSTANTS ---
+
+	protected static final int VNODES = 100;
+	protected static final int MAGLEV_SIZE = 65537;
+	protected static final int KEYS = 100000;
+
+	// --- ENTRY POINT ---
+
+	public static void main(String[] args) throws Exception {
+		printDistribution(10);
+		printDistribution(50);
+		new Runner(new OptionsBuilder().include(ShardStrategyBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	// --- STATE ---
+
+	@State(Scope.Benchmark)
+	public static class Shard {
+
+		// --- PARAMETERS ---
+
+		@Param({ "linear", "ring", "maglev" })
+		public String type;
+
+		@Param({ "10", "50" })
+		public int nodes;
+
+		// --- VARIABLES ---
+
+		protected ShardStrategy<Endpoint> strategy;
+		protected LinearRing linear;
+		protected Endpoint[] array;
+
+		protected final long[] hashes = new long[1024];
+		protected int index;
+
+		// --- SET UP ---
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			strategy = create(nodes, "maglev".equals(type) ? MAGLEV_SIZE : 0);
+			array = strategy.endpoints;
+			linear = new LinearRing(array, VNODES);
+			Random random = new Random(12345);
+			for (int i = 0; i < hashes.length; i++) {
+				hashes[i] = random.nextInt() & 0xFFFFFFFFL;
+			}
+		}
+
+		protected long nextHash() {
+			return hashes[index++ & 1023];
+		}
+
+	}
+
+	// --- BENCHMARK ---
+
+	@Benchmark
+	public Endpoint next(Shard state) {
+		long hashNum = state.nextHash();
+		if ("linear".equals(state.type)) {
+			return state.linear.find(hashNum, state.array);
+		}
+		return state.strategy.find(state.strategy.ringRef.get(), hashNum, state.array);
+	}
+
+	// --- DISTRIBUTION QUALITY ---
+
+	protected static void printDistribution(int nodes) {
+		for (int maglevSize : new int[] { 0, MAGLEV_SIZE }) {
+			ShardStrategy<Endpoint> strategy = create(nodes, maglevSize);
+
+			// Assign random keys
+			Random random = new Random(12345);
+			long[] hashes = new long[KEYS];
+			Endpoint[] owners = new Endpoint[KEYS];
+			HashMap<Endpoint, Integer> counters = new HashMap<>();
+			for (int i = 0; i < KEYS; i++) {
+				hashes[i] = random.nextInt() & 0xFFFFFFFFL;
+				owners[i] = strategy.find(strategy.ringRef.get(), hashes[i], strategy.endpoints);
+				counters.merge(owners[i], 1, Integer::sum);
+			}
+			int[] counts = counters.values().stream().mapToInt(Integer::intValue).toArray();
+			Arrays.sort(counts);
+			double fair = KEYS / (double) nodes;
+
+			// Remove a node
+			Endpoint removed = strategy.endpoints[nodes / 2];
+			strategy.remove(removed.getNodeID());
+			int moved = 0;
+			for (int i = 0; i < KEYS; i++) {
+				Endpoint owner = strategy.find(strategy.ringRef.get(), hashes[i], strategy.endpoints);
+				if (owners[i] != removed && owners[i] != owner) {
+					moved++;
+				}
+			}
+			System.out.println(String.format("%-6s nodes: %2d  min: %5.1f%%  max: %5.1f%%  moved: %5.1f%%",
+					maglevSize > 0 ? "maglev" : "ring", nodes, counts[0] * 100 / fair,
+					counts[counts.length - 1] * 100 / fair, moved * 100.0 / KEYS));
+		}
+	}
+
+	// --- UTILITIES ---
+
+	protected static ShardStrategy<Endpoint> create(int nodes, int maglevSize) {
+		ShardStrategy<Endpoint> strategy = new ShardStrategy<>(new ServiceBroker("client"), false, "key", VNODES,
+				null, 0, maglevSize, new ShardStrategyFactory().getHash());
+		for (int i = 0; i < nodes; i++) {
+			strategy.addEndpoint(new Endpoint("node" + i) {
+			});
+		}
+		return strategy;
+	}
+
+	// --- PREVIOUS IMPLEMENTATION ---
+
+	protected static class LinearRing {
+
+		protected final HashMap<Endpoint, long[]> limitMap = new HashMap<>();
+		protected final int vnodes;
+
+		protected LinearRing(Endpoint[] endpoints, int vnodes) {
+			this.vnodes = vnodes;
+			Endpoint[] copy = new Endpoint[endpoints.length];
+			System.arraycopy(endpoints, 0, copy, 0, copy.length);
+			Arrays.sort(copy, (ep1, ep2) -> {
+				return String.CASE_INSENSITIVE_ORDER.compare(ep1.getNodeID(), ep2.getNodeID());
+			});
+			int total = copy.length * vnodes;
+			long size = (long) Math.pow(2, 32);
+			double slice = size / (double) total;
+			long index = 1;
+			for (int j = 0; j < vnodes; j++) {
+				for (int i = 0; i < copy.length; i++) {
+					long[] limits = limitMap.get(copy[i]);
+					if (limits == null) {
+						limits = new long[vnodes];
+						limitMap.put(copy[i], limits);
+					}
+					if (j == vnodes - 1 && i == copy.length - 1) {
+						limits[j] = size;
+					} else {
+						limits[j] = (long) (slice * (index++));
+					}
+				}
+			}
+		}
+
+		protected Endpoint find(long hashNum, Endpoint[] array) {
+			long[][] limits = new long[array.length][];
+			for (int i = 0; i < array.length; i++) {
+				limits[i] = limitMap.get(array[i]);
+			}
+			for (int j = 0; j < vnodes; j++) {
+				for (int i = 0; i < array.length; i++) {
+					if (limits[i] == null) {
+						continue;
+					}
+					if (hashNum <= limits[i][j]) {
+						return array[i];
+					}
+				}
+			}
+			return null;
+		}
+
+	}
+
+}
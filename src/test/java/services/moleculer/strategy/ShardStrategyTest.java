@@ -25,6 +25,7 @@
  */
 package services.moleculer.strategy;
 
+import java.util.HashMap;
 import java.util.HashSet;
 
 import org.junit.Test;
@@ -306,6 +307,100 @@ public class ShardStrategyTest extends StrategyTest {
 		// }
 	}
 
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testMaglev() throws Exception {
+		ShardStrategyFactory f = new ShardStrategyFactory(false);
+		f.setShardKey("key");
+		f.setMaglevSize(5000);
+		f.started(br);
+		ShardStrategy<LocalActionEndpoint> s = (ShardStrategy) f.create();
+		for (int i = 0; i < 10; i++) {
+			s.addEndpoint(createEndpoint(br, "node" + i, "e", "e" + i));
+		}
+
+		// Same key -> same node, keys are distributed evenly
+		HashMap<String, String> owners = new HashMap<>();
+		HashMap<String, Integer> counters = new HashMap<>();
+		for (int i = 0; i < 10000; i++) {
+			String key = "key" + i;
+			HashSet<String> set = collect(s, new Tree().put("key", key), 2);
+			assertEquals(1, set.size());
+			String nodeID = set.iterator().next();
+			owners.put(key, nodeID);
+			counters.merge(nodeID, 1, Integer::sum);
+		}
+		assertEquals(10, counters.size());
+		for (int count : counters.values()) {
+			assertTrue(count > 700 && count < 1300);
+		}
+
+		// Remove a node -> (almost) only the keys of the removed node move
+		s.remove("node3");
+		int moved = 0;
+		for (int i = 0; i < 10000; i++) {
+			String key = "key" + i;
+			String nodeID = collect(s, new Tree().put("key", key), 1).iterator().next();
+			assertFalse("node3".equals(nodeID));
+			String previous = owners.get(key);
+			if (!"node3".equals(previous) && !previous.equals(nodeID)) {
+				moved++;
+			}
+		}
+		assertTrue(moved < 500);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testNegativeHash() throws Exception {
+		ShardStrategyFactory f = new ShardStrategyFactory(false);
+		f.setShardKey("key");
+		f.setMaglevSize(5003);
+		f.setHash(key -> (long) key.hashCode() | Long.MIN_VALUE);
+		f.started(br);
+		ShardStrategy<LocalActionEndpoint> s = (ShardStrategy) f.create();
+		for (int i = 0; i < 10; i++) {
+			s.addEndpoint(createEndpoint(br, "node" + i, "e", "e" + i));
+		}
+		for (int i = 0; i < 100; i++) {
+			assertEquals(1, collect(s, new Tree().put("key", "key" + i), 2).size());
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testSubsetWalk() throws Exception {
+
+		// Ring (size = 4000, 1 vnode per endpoint):
+		// 1000 -> node0, 2000 -> node1/a, 3000 -> node1/b, 4000 -> node2
+		ShardStrategyFactory f = new ShardStrategyFactory(true);
+		f.setShardKey("key");
+		f.setVnodes(1);
+		f.setRingSize(4000);
+		f.setHash(key -> Long.parseLong(key));
+		f.started(br);
+		ShardStrategy<LocalActionEndpoint> s = (ShardStrategy) f.create();
+		s.addEndpoint(createEndpoint(br, "node0", "e", "e0"));
+		s.addEndpoint(createEndpoint(br, "node1", "e", "a"));
+		s.addEndpoint(createEndpoint(br, "node1", "e", "b"));
+		s.addEndpoint(createEndpoint(br, "node2", "e", "e2"));
+
+		// Local owners
+		assertNameLinkedToKey(s, "a", "1500");
+		assertNameLinkedToKey(s, "b", "2500");
+
+		// Remote owners -> the next local endpoint (clockwise)
+		assertNameLinkedToKey(s, "a", "500");
+		assertNameLinkedToKey(s, "a", "3500");
+	}
+
+	protected void assertNameLinkedToKey(ShardStrategy<LocalActionEndpoint> s, String name, String key) {
+		Tree params = new Tree().put("key", key);
+		LocalActionEndpoint ep = s.getEndpoint(createContext(params), null);
+		assertEquals("node1", ep.getNodeID());
+		assertEquals(name, ep.getConfig().get("name", ""));
+	}
+
 	protected void assertNodeLinkedToKey(ShardStrategy<LocalActionEndpoint> s, String nodeID, String key) {
 		Tree params = new Tree().put("key", key);
 		LocalActionEndpoint ep = s.getEndpoint(createContext(params), null);
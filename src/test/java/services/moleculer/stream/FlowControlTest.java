@@ -0,0 +1,205 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.stream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Test;
+
+import io.datatree.Promise;
+import junit.framework.TestCase;
+import services.moleculer.error.MoleculerError;
+
+public class FlowControlTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected ScheduledExecutorService scheduler;
+	protected Random rnd = new Random();
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	// --- TESTS ---
+
+	@Test
+	public void testBoundedBuffer() throws Exception {
+		PacketStream stream = new PacketStream("node1", scheduler);
+		stream.setMaxBufferSize(10);
+		assertTrue(stream.isWritable());
+		assertTrue(stream.sendData(new byte[8]));
+		assertEquals(8, stream.getBufferedBytes());
+		assertTrue(stream.isWritable());
+		try {
+			stream.sendData(new byte[8]);
+			fail();
+		} catch (MoleculerError expected) {
+		}
+		assertTrue(stream.sendData(new byte[2]));
+		assertFalse(stream.isWritable());
+
+		// Connected stream
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		stream.onPacket((bytes, cause, close) -> {
+			if (bytes != null) {
+				out.write(bytes);
+			}
+		});
+		assertTrue(stream.isWritable());
+		assertTrue(stream.sendData(new byte[20]));
+		assertEquals(30, out.size());
+	}
+
+	@Test
+	public void testDefaultBufferLimit() throws Exception {
+
+		// Unlimited without flow control
+		PacketStream stream = new PacketStream("node1", scheduler);
+		assertEquals(0, stream.getBufferLimit());
+
+		// Limited with flow control
+		stream.setWindow(1000);
+		assertEquals(PacketStream.DEFAULT_MAX_BUFFER_SIZE, stream.getBufferLimit());
+		stream = new PacketStream("node1", scheduler);
+		stream.setCreditHandler(1000, consumed -> {
+		});
+		assertEquals(PacketStream.DEFAULT_MAX_BUFFER_SIZE, stream.getBufferLimit());
+
+		// Explicitly unlimited
+		stream.setMaxBufferSize(0);
+		assertEquals(0, stream.getBufferLimit());
+	}
+
+	@Test
+	public void testCredits() throws Exception {
+		PacketStream stream = new PacketStream("node1", scheduler);
+		LinkedList<Long> credits = new LinkedList<>();
+		stream.setCreditHandler(100, credits::add);
+
+		// Unconnected stream (bytes are not consumed)
+		stream.sendData(new byte[80]);
+		assertTrue(credits.isEmpty());
+
+		// Connected stream
+		stream.onPacket((bytes, cause, close) -> {
+		});
+		assertEquals(1, credits.size());
+		assertEquals(80L, (long) credits.getLast());
+
+		stream.sendData(new byte[30]);
+		assertEquals(1, credits.size());
+		stream.sendData(new byte[30]);
+		assertEquals(2, credits.size());
+		assertEquals(140L, (long) credits.getLast());
+	}
+
+	@Test
+	public void testWindow() throws Exception {
+		int window = 1000;
+		int packetSize = 100;
+		byte[] source = new byte[20000];
+		rnd.nextBytes(source);
+
+		PacketStream stream = new PacketStream("node1", scheduler);
+		stream.setPacketSize(packetSize);
+		stream.setWindow(window);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		stream.onPacket((bytes, cause, close) -> {
+			if (bytes != null) {
+				synchronized (out) {
+					out.write(bytes);
+				}
+			}
+		});
+
+		Promise promise = stream.transferFrom(new ByteArrayInputStream(source));
+		long timeoutAt = System.currentTimeMillis() + 20000;
+		while (!promise.isDone()) {
+			Thread.sleep(20);
+			assertTrue(stream.getInFlightBytes() <= window + packetSize);
+			assertTrue(System.currentTimeMillis() < timeoutAt);
+
+			// Consume all received bytes
+			synchronized (out) {
+				stream.acknowledge(out.size());
+			}
+		}
+		assertTrue(stream.isClosed());
+		assertEquals(source.length, stream.getTransferedBytes());
+		assertTrue(Arrays.equals(source, out.toByteArray()));
+
+		// Old (reordered) credit
+		stream.acknowledge(source.length);
+		stream.acknowledge(10);
+		assertEquals(0, stream.getInFlightBytes());
+	}
+
+	@Test
+	public void testLostReceiver() throws Exception {
+		PacketStream stream = new PacketStream("node1", scheduler);
+		stream.setPacketSize(100);
+		stream.setWindow(1000);
+		stream.onPacket((bytes, cause, close) -> {
+		});
+
+		// No credits (the transfer pauses)
+		Promise promise = stream.transferFrom(new ByteArrayInputStream(new byte[20000]));
+		long timeoutAt = System.currentTimeMillis() + 20000;
+		while (stream.getPausedAt() == 0) {
+			Thread.sleep(20);
+			assertTrue(System.currentTimeMillis() < timeoutAt);
+		}
+		assertFalse(promise.isDone());
+		assertEquals(1000, stream.getInFlightBytes());
+
+		// Closed by the Transporter (the transfer fails)
+		stream.sendError(new Exception("Receiver is disconnected!"));
+		while (!promise.isDone()) {
+			Thread.sleep(20);
+			assertTrue(System.currentTimeMillis() < timeoutAt);
+		}
+		assertTrue(promise.isRejected());
+		assertEquals(0, stream.getPausedAt());
+	}
+
+}
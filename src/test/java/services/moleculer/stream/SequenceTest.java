@@ -251,6 +251,65 @@ public class SequenceTest extends TestCase {
 		listener.reset();
 	}
 
+	@Test
+	public void testReorderRing() throws Exception {
+		IncomingStream stream = new IncomingStream("node1", scheduler, 0, 20);
+		InternalStreamTest.TestListener listener = new InternalStreamTest.TestListener();
+		stream.getPacketStream().onPacket(listener);
+
+		ByteArrayOutputStream tmp = new ByteArrayOutputStream();
+		byte[][] packets = new byte[20][];
+		for (int i = 1; i < packets.length; i++) {
+			packets[i] = randomBytes(10 + i);
+			tmp.write(packets[i]);
+		}
+		byte[] all = tmp.toByteArray();
+		String id = "test1";
+
+		// Scrambled order (the ring grows)
+		int[] order = new int[packets.length - 1];
+		order[0] = 2;
+		order[1] = 3;
+		for (int i = 2, seq = packets.length - 1; seq > 3; i++, seq--) {
+			order[i] = seq;
+		}
+		order[order.length - 1] = 1;
+		for (int i = 0; i < order.length; i++) {
+			assertFalse(stream.receive(createDataStreamingPacket(id, order[i], packets[order[i]])));
+			assertEquals(i + 1, stream.getReorderDepth());
+		}
+		listener.assertEmpty();
+		assertFalse(stream.receive(createStartStreamingPacket(id)));
+		assertEquals(0, stream.getReorderDepth());
+		listener.assertDataEquals(all);
+
+		// Duplicated and late packets
+		assertFalse(stream.receive(createDataStreamingPacket(id, 5, packets[5])));
+		assertFalse(stream.receive(createDataStreamingPacket(id, 21, packets[1])));
+		assertFalse(stream.receive(createDataStreamingPacket(id, 21, packets[1])));
+		assertEquals(2, stream.getLatePackets());
+		assertEquals(1, stream.getReorderDepth());
+		listener.assertDataEquals(all);
+
+		// Close
+		assertTrue(stream.receive(createCloseStreamingPacket(id, 20)));
+		assertEquals(0, stream.getReorderDepth());
+		listener.assertDataEquals(all);
+		listener.assertClosed();
+		listener.assertNotFaulty();
+
+		// Too many missing packets
+		stream = new IncomingStream("node1", scheduler, 0, 20);
+		listener = new InternalStreamTest.TestListener();
+		stream.getPacketStream().onPacket(listener);
+		assertFalse(stream.receive(createStartStreamingPacket(id)));
+		assertFalse(stream.receive(createDataStreamingPacket(id, 20, packets[1])));
+		assertEquals(1, stream.getReorderDepth());
+		assertTrue(stream.receive(createDataStreamingPacket(id, 21, packets[1])));
+		assertEquals(0, stream.getReorderDepth());
+		listener.assertFaulty();
+	}
+
 	// --- UTILITIES ---
 
 	public Tree createStartStreamingPacket(String id) {
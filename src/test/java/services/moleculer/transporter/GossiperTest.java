@@ -25,6 +25,8 @@
  */
 package services.moleculer.transporter;
 
+import java.util.Arrays;
+
 import org.junit.Test;
 
 import io.datatree.Tree;
@@ -32,6 +34,7 @@ import junit.framework.AssertionFailedError;
 import junit.framework.TestCase;
 import services.moleculer.ServiceBroker;
 import services.moleculer.monitor.ConstantMonitor;
+import services.moleculer.transporter.tcp.GossipDigest;
 import services.moleculer.transporter.tcp.NodeDescriptor;
 
 public class GossiperTest extends TestCase {
@@ -351,6 +354,139 @@ public class GossiperTest extends TestCase {
 		assertEquals(3, tr.getDescriptor().seq);
 	}
 
+	// --- GOSSIP DIGEST ---
+
+	@Test
+	public void testGossipDigest() throws Exception {
+		tr.setGossipDigest(true);
+		tr.nodes.put("node2", createOnlineDescriptorWithoutInfo(false, "node2"));
+		tr.nodes.put("node3", createOnlineDescriptorWithoutInfo(false, "node3"));
+
+		Tree req = tr.sendGossipRequest();
+		assertEquals(req.get("ver", "?"), br.getProtocolVersion());
+		assertEquals(req.get("sender", "?"), "node1");
+		assertNull(req.get("online"));
+		assertEquals(32, req.get("digest").size());
+
+		// Same version vector
+		req.put("sender", "node2");
+		Tree rsp = tr.processGossipRequest(req);
+		assertNull(rsp.get("buckets"));
+
+		// CPU of "node2" changed
+		tr.nodes.get("node2").updateCpu(7);
+		rsp = tr.processGossipRequest(req);
+		assertEquals(1, rsp.get("buckets").size());
+		assertEquals(GossipDigest.bucketOf("node2", 32), rsp.get("buckets[0]", -1));
+		assertEquals(32, rsp.get("bucketCount", 0));
+
+		// Version vector of the differing bucket
+		boolean[] filter = GossipDigest.toFilter(rsp.get("buckets"), 32);
+		req = tr.createGossipRequest(filter);
+		assertEquals(1, req.get("online").size());
+		assertEquals(1, req.get("online.node2[1]", -1));
+		assertEquals(7, req.get("online.node2[2]", -1));
+		assertEquals(1, req.get("buckets").size());
+
+		// Size of the digest doesn't depend on the number of nodes
+		for (int i = 4; i < 300; i++) {
+			tr.nodes.put("node" + i, createOnlineDescriptorWithoutInfo(false, "node" + i));
+		}
+		req = tr.sendGossipRequest();
+		assertEquals(32, req.get("digest").size());
+		assertNull(req.get("online"));
+	}
+
+	@Test
+	public void testGossipDigestFallback() throws Exception {
+		tr.setGossipDigest(true);
+		NodeDescriptor node2 = createOnlineDescriptorWithInfo(false, "node2");
+		node2.info.put("seq", 3);
+		node2.seq = 3;
+		tr.nodes.put("node2", node2);
+
+		// Request of a peer without digest support (full version vector)
+		Tree req = createGossipRequest("node3", 1, 1, 0);
+		assertNull(req.get("digest"));
+
+		Tree rsp = tr.processGossipRequest(req);
+		assertNull(rsp.get("buckets"));
+		assertNull(rsp.get("bucketCount"));
+		assertEquals(2, rsp.get("online").size());
+		assertTrue(rsp.get("online.node1[0].services").size() > 0);
+		assertEquals(3, rsp.get("online.node2[0].seq", 0));
+		assertEquals("node2", rsp.get("online.node2[0].hostname", "?"));
+
+		// Requester already knows "node2"
+		req.get("online").putList("node2").add(3).add(1).add(0);
+		rsp = tr.processGossipRequest(req);
+		assertEquals(1, rsp.get("online").size());
+		assertNull(rsp.get("online.node2"));
+
+		// Full response of a peer without digest support
+		Tree info = new Tree();
+		info.put("seq", 1);
+		info.put("hostname", "node3");
+		info.put("port", 13);
+		info.putList("services").putMap("test");
+		rsp = createGossipOnlineResponse("node3", info, 1, 5);
+		tr.processGossipResponse(rsp);
+		assertNotNull(tr.nodes.get("node3"));
+		assertEquals(13, tr.nodes.get("node3").port);
+		assertEquals(5, tr.getCpuUsage("node3"));
+
+		// Requests of the local node still use the digest
+		req = tr.sendGossipRequest();
+		assertNotNull(req.get("digest"));
+		assertNull(req.get("online"));
+	}
+
+	// --- BINARY STREAM CHUNKS ---
+
+	@Test
+	public void testBinaryStreamData() throws Exception {
+		assertTrue(tr.getDescriptor().info.get("binaryStreams", false));
+
+		NodeDescriptor node2 = createOnlineDescriptorWithoutInfo(false, "node2");
+		tr.nodes.put("node2", node2);
+		assertFalse(tr.isBinaryStreamsSupported("node2"));
+		assertFalse(tr.isBinaryStreamsSupported("node3"));
+		node2.info.put("binaryStreams", true);
+		assertTrue(tr.isBinaryStreamsSupported("node2"));
+
+		byte[] bytes = new byte[16 * 1024];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) i;
+		}
+
+		// Request stream
+		byte[] packet = tr.serializeStreamData(false, "id1", bytes, 5);
+		assertEquals(9, packet[5]);
+		assertEquals(packet.length, ((packet[1] & 0xFF) << 24) | ((packet[2] & 0xFF) << 16)
+				| ((packet[3] & 0xFF) << 8) | (packet[4] & 0xFF));
+		assertEquals(packet[0], (byte) (packet[1] ^ packet[2] ^ packet[3] ^ packet[4] ^ packet[5]));
+		assertTrue(packet.length < bytes.length + 64);
+
+		Tree msg = tr.readStreamData(packet, 6, packet.length - 6);
+		assertEquals(br.getProtocolVersion(), msg.get("ver", "?"));
+		assertEquals("node1", msg.get("sender", "?"));
+		assertEquals("id1", msg.get("id", "?"));
+		assertEquals(5L, msg.get("seq", 0L));
+		assertTrue(msg.get("stream", false));
+		assertNull(msg.get("success"));
+		assertEquals("Buffer", msg.get("params.type", "?"));
+		assertTrue(Arrays.equals(bytes, (byte[]) msg.get("params.data").asObject()));
+
+		// Response stream
+		packet = tr.serializeStreamData(true, "id2", new byte[0], 6);
+		msg = tr.readStreamData(packet, 6, packet.length - 6);
+		assertEquals("id2", msg.get("id", "?"));
+		assertEquals(6L, msg.get("seq", 0L));
+		assertTrue(msg.get("success", false));
+		assertNull(msg.get("params"));
+		assertEquals(0, ((byte[]) msg.get("data.data").asObject()).length);
+	}
+
 	// --- UTILITIES ---
 
 	protected Tree createGossipOfflineMessage(String nodeID, int seq) {
@@ -0,0 +1,235 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.datatree.Promise;
+import io.datatree.Tree;
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.monitor.ConstantMonitor;
+import services.moleculer.service.Action;
+import services.moleculer.transporter.tcp.NodeDescriptor;
+
+public class InfoDiffTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected InternalTransporter tr;
+	protected ServiceBroker br;
+
+	// --- CREATE DIFF ---
+
+	@Test
+	public void testCreateInfoDiff() throws Exception {
+		tr.setInfoDiff(true);
+
+		// First INFO packet is complete
+		assertNull(tr.createInfoDiff(createInfo(createService("a", "x"), createService("b", "y")), 10));
+
+		// Changed "a", removed "b", added "c"
+		Tree diff = tr.createInfoDiff(createInfo(createService("a", "x", "z"), createService("c", "w")), 20);
+		assertEquals(10, diff.get("base", 0));
+		assertEquals(20, diff.get("seq", 0));
+		assertEquals(2, diff.get("services").size());
+		assertEquals("a", diff.get("services[0].name", "?"));
+		assertEquals("c", diff.get("services[1].name", "?"));
+		assertEquals(1, diff.get("removed").size());
+		assertEquals("b", diff.get("removed[0]", "?"));
+
+		// Nothing changed
+		diff = tr.createInfoDiff(createInfo(createService("a", "x", "z"), createService("c", "w")), 30);
+		assertEquals(20, diff.get("base", 0));
+		assertEquals(0, diff.get("services").size());
+		assertEquals(0, diff.get("removed").size());
+
+		// Disabled (the services are not even collected)
+		tr.setInfoDiff(false);
+		tr.resetInfoDiff();
+		assertNull(tr.createInfoDiff(createInfo(createService("a", "x")), 40));
+		assertNull(tr.infoServices);
+	}
+
+	// --- APPLY DIFF ---
+
+	@Test
+	public void testApplyInfoDiff() throws Exception {
+		Tree info = createInfo(createService("a", "x"), createService("b", "y"));
+		NodeDescriptor node = new NodeDescriptor("node2", true, false, info);
+		node.version = 10;
+		tr.nodes.put("node2", node);
+
+		Tree diff = new Tree();
+		diff.put("sender", "node2");
+		diff.put("seq", 20);
+		diff.put("base", 10);
+		diff.putList("services").addObject(createService("c", "w"));
+		diff.putList("removed").add("b");
+
+		Tree merged = tr.applyInfoDiff("node2", diff);
+		assertEquals(2, merged.get("services").size());
+		assertEquals("a", merged.get("services[0].name", "?"));
+		assertEquals("c", merged.get("services[1].name", "?"));
+		assertEquals("node2", merged.get("hostname", "?"));
+		assertEquals(20, merged.get("seq", 0));
+
+		// Out of sequence
+		node.version = 5;
+		assertNull(tr.applyInfoDiff("node2", diff));
+
+		// Unknown node
+		assertNull(tr.applyInfoDiff("node3", diff));
+	}
+
+	// --- INCREMENTAL REGISTRATION ---
+
+	@Test
+	public void testUpdateServices() throws Exception {
+		Tree prev = createInfo(createService("a", "x"), createService("b", "y")).get("services");
+		for (Tree service : prev) {
+			tr.registry.addActions("node2", service);
+		}
+		Action ax = br.getAction("a.x", "node2");
+		assertNotNull(ax);
+		assertNotNull(br.getAction("b.y", "node2"));
+
+		Tree next = createInfo(createService("a", "x"), createService("c", "w")).get("services");
+		tr.updateServices("node2", prev, next);
+
+		// Unchanged service is not re-registered
+		assertSame(ax, br.getAction("a.x", "node2"));
+		assertNotNull(br.getAction("c.w", "node2"));
+		try {
+			br.getAction("b.y", "node2");
+			fail();
+		} catch (Exception expected) {
+		}
+	}
+
+	// --- REMOVE CHANGED SERVICES ---
+
+	@Test
+	public void testRemoveActions() throws Exception {
+
+		// Versioned service on two nodes
+		Tree posts = new Tree();
+		posts.put("name", "posts");
+		posts.put("version", 2);
+		posts.putMap("actions");
+		addAction(posts, "v2.posts.find");
+		tr.registry.addActions("node2", posts);
+		tr.registry.addActions("node3", posts);
+
+		// Service is still available on "node3"
+		tr.registry.removeActions("node2", posts, null);
+		assertNotNull(br.getAction("v2.posts.find", "node3"));
+		br.waitForServices(1000, "posts").waitFor(2000);
+
+		// Pending call of an unchanged action
+		Tree prev = createInfo(createService("a", "x")).get("services");
+		for (Tree service : prev) {
+			tr.registry.addActions("node2", service);
+		}
+		Promise promise = br.call("a.x", new Tree());
+		Action ax = br.getAction("a.x", "node2");
+		Tree next = createInfo(createService("a", "x", "y")).get("services");
+		tr.updateServices("node2", prev, next);
+		Thread.sleep(200);
+		assertFalse(promise.isDone());
+
+		// The endpoint of the unchanged action is kept (with its load
+		// statistics)
+		assertSame(ax, br.getAction("a.x", "node2"));
+		assertNotNull(br.getAction("a.y", "node2"));
+
+		// Pending call of a changed action
+		Tree changed = createService("a", "x", "y");
+		getAction(changed, "a.x").put("timeout", 5);
+		tr.updateServices("node2", next, createInfo(changed).get("services"));
+		try {
+			promise.waitFor(2000);
+			fail();
+		} catch (Exception expected) {
+		}
+	}
+
+	// --- UTILITIES ---
+
+	protected Tree createInfo(Tree... services) {
+		Tree info = new Tree();
+		info.put("seq", 1);
+		info.put("port", 1);
+		info.put("hostname", "node2");
+		Tree list = info.putList("services");
+		for (Tree service : services) {
+			list.addObject(service);
+		}
+		return info;
+	}
+
+	protected Tree createService(String name, String... actions) {
+		Tree service = new Tree();
+		service.put("name", name);
+		service.putMap("actions");
+		for (String action : actions) {
+			addAction(service, name + '.' + action);
+		}
+		return service;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected void addAction(Tree service, String actionName) {
+		LinkedHashMap<String, Object> action = new LinkedHashMap<>();
+		action.put("name", actionName);
+
+		// Action names contain dots (they are not paths)
+		((Map) service.get("actions").asObject()).put(actionName, action);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected Map<String, Object> getAction(Tree service, String actionName) {
+		return (Map<String, Object>) ((Map<?, ?>) service.get("actions").asObject()).get(actionName);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		tr = new InternalTransporter();
+		br = ServiceBroker.builder().transporter(tr).monitor(new ConstantMonitor()).nodeID("node1").build();
+		br.start();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (br != null) {
+			br.stop();
+		}
+	}
+
+}
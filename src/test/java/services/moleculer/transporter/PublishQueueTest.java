@@ -0,0 +1,222 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+import services.moleculer.transporter.PublishQueue.Message;
+
+public class PublishQueueTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected ExecutorService executor;
+	protected ScheduledExecutorService scheduler;
+
+	protected final LinkedList<List<Message>> batches = new LinkedList<>();
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testBatches() throws Exception {
+
+		// Collect messages while the sender is blocked
+		PublishQueue queue = new PublishQueue(batch -> {
+			synchronized (batches) {
+				batches.add(new ArrayList<>(batch));
+			}
+		}, executor, scheduler, 10, 0, null);
+		synchronized (batches) {
+			for (int i = 0; i < 25; i++) {
+				queue.add(i % 2 == 0 ? "a" : "b", new byte[] { (byte) i });
+			}
+			assertTrue(queue.size() > 0);
+		}
+		waitFor(25);
+		assertEquals(0, queue.size());
+
+		// Batches are limited, the order is preserved
+		int next = 0;
+		for (List<Message> batch : batches) {
+			assertTrue(batch.size() <= 10);
+			for (Message message : batch) {
+				assertEquals(next, message.bytes[0]);
+				assertEquals(next % 2 == 0 ? "a" : "b", message.channel);
+				next++;
+			}
+		}
+		assertEquals(25, next);
+	}
+
+	@Test
+	public void testMaxBatchDelay() throws Exception {
+		PublishQueue queue = new PublishQueue(batch -> {
+			synchronized (batches) {
+				batches.add(new ArrayList<>(batch));
+			}
+		}, executor, scheduler, 100, 200, null);
+		for (int i = 0; i < 5; i++) {
+			queue.add("a", new byte[] { (byte) i });
+		}
+		Thread.sleep(50);
+		synchronized (batches) {
+			assertTrue(batches.isEmpty());
+		}
+		waitFor(5);
+		assertEquals(1, batches.size());
+		assertEquals(5, batches.getFirst().size());
+	}
+
+	@Test
+	public void testFlush() throws Exception {
+		PublishQueue queue = new PublishQueue(batch -> {
+			batches.add(new ArrayList<>(batch));
+		}, executor, scheduler, 3, 60000, null);
+		for (int i = 0; i < 7; i++) {
+			queue.add("a", new byte[] { (byte) i });
+		}
+		queue.flush();
+		assertEquals(0, queue.size());
+		assertEquals(3, batches.size());
+		assertEquals(1, batches.getLast().size());
+
+		// Sender error -> the next batches are sent
+		PublishQueue failing = new PublishQueue(batch -> {
+			batches.add(new ArrayList<>(batch));
+			throw new Exception("Test error");
+		}, executor, scheduler, 1, 60000, null);
+		batches.clear();
+		failing.add("a", new byte[1]);
+		failing.add("a", new byte[1]);
+		failing.flush();
+		assertEquals(2, batches.size());
+		assertEquals(2, failing.getDropped());
+	}
+
+	@Test
+	public void testFlushWaitsForRunningTask() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		PublishQueue queue = new PublishQueue(batch -> {
+			release.await();
+			synchronized (batches) {
+				batches.add(new ArrayList<>(batch));
+			}
+		}, executor, scheduler, 1, 0, null);
+		for (int i = 0; i < 3; i++) {
+			queue.add("a", new byte[] { (byte) i });
+		}
+
+		// The drain task is blocked -> "flush" must wait for it
+		Thread flusher = new Thread(queue::flush);
+		flusher.start();
+		flusher.join(200);
+		assertTrue(flusher.isAlive());
+		release.countDown();
+		flusher.join(5000);
+		assertFalse(flusher.isAlive());
+		synchronized (batches) {
+			assertEquals(3, batches.size());
+		}
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testMaxQueueSize() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		PublishQueue queue = new PublishQueue(batch -> {
+			release.await();
+			synchronized (batches) {
+				batches.add(new ArrayList<>(batch));
+			}
+		}, executor, scheduler, 1, 0, 2, null);
+		queue.add("a", new byte[] { 0 });
+		queue.add("a", new byte[] { 1 });
+
+		// The queue is full -> the publisher is blocked
+		Thread publisher = new Thread(() -> {
+			queue.add("a", new byte[] { 2 });
+		});
+		publisher.start();
+		publisher.join(200);
+		assertTrue(publisher.isAlive());
+		release.countDown();
+		publisher.join(5000);
+		assertFalse(publisher.isAlive());
+		waitFor(3);
+		int next = 0;
+		for (List<Message> batch : batches) {
+			assertEquals(next++, batch.get(0).bytes[0]);
+		}
+		assertEquals(0, queue.getDropped());
+	}
+
+	// --- UTILITIES ---
+
+	protected void waitFor(int messages) throws Exception {
+		long timeoutAt = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < timeoutAt) {
+			synchronized (batches) {
+				int count = 0;
+				for (List<Message> batch : batches) {
+					count += batch.size();
+				}
+				if (count >= messages) {
+					return;
+				}
+			}
+			Thread.sleep(20);
+		}
+		fail("Messages not sent!");
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		executor = Executors.newSingleThreadExecutor();
+		scheduler = Executors.newSingleThreadScheduledExecutor();
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		executor.shutdownNow();
+		scheduler.shutdownNow();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+}
@@ -0,0 +1,73 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter;
+
+import java.net.BindException;
+import java.net.ServerSocket;
+
+import org.junit.Test;
+
+import services.moleculer.transporter.tcp.TcpReader;
+
+public class TcpTransporterMultiLoopTest extends TransporterTest {
+
+	@Override
+	public Transporter createTransporter() {
+		TcpTransporter tr = new TcpTransporter();
+		tr.setReaderThreads(3);
+		tr.setWriterThreads(2);
+		return tr;
+	}
+
+	@Test
+	public void testExclusivePort() throws Exception {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		TcpTransporter t1 = (TcpTransporter) createTransporter();
+		TcpTransporter t2 = (TcpTransporter) createTransporter();
+		t1.setPort(port);
+		t2.setPort(port);
+		TcpReader r1 = new TcpReader(t1);
+		TcpReader r2 = new TcpReader(t2);
+		try {
+			r1.connect();
+			assertEquals(port, r1.getCurrentPort());
+
+			// The port is used by the first reader
+			try {
+				r2.connect();
+				fail("Port " + port + " is already in use!");
+			} catch (BindException expected) {
+			}
+		} finally {
+			r1.disconnect();
+			r2.disconnect();
+		}
+	}
+
+}
@@ -32,7 +32,7 @@ import org.junit.runners.Suite;
 
 @Suite.SuiteClasses({ AmqpTransporterTest.class, MqttTransporterTest.class, FileSystemTransporterTest.class,
 		InternalTransporterTest.class, NatsTransporterTest.class, RedisTransporterTest.class,
-		TcpTransporterTest.class })
+		TcpTransporterTest.class, TcpTransporterMultiLoopTest.class })
 
 public class TransporterTestSuite {
 }
\ No newline at end of file
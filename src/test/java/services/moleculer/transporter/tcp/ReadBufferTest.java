@@ -0,0 +1,165 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class ReadBufferTest extends TestCase {
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testFraming() throws Exception {
+		BufferPool pool = new BufferPool(64, 4, null);
+		Random rnd = new Random(1);
+
+		// Create packets (some of them are larger than the pooled buffers)
+		ArrayList<byte[]> packets = new ArrayList<>();
+		int total = 0;
+		for (int i = 0; i < 200; i++) {
+			byte[] body = new byte[rnd.nextInt(i % 20 == 0 ? 200 : 40)];
+			rnd.nextBytes(body);
+			packets.add(body);
+			total += body.length + 6;
+		}
+		byte[] stream = new byte[total];
+		int pos = 0;
+		for (byte[] body : packets) {
+			pos += writePacket(stream, pos, body);
+		}
+
+		// Read the stream in random chunks
+		ReadBuffer buffer = new ReadBuffer(pool);
+		ArrayList<byte[]> received = new ArrayList<>();
+		ArrayList<PooledBuffer> retained = new ArrayList<>();
+		pos = 0;
+		while (pos < stream.length) {
+			ByteBuffer target = buffer.prepare();
+			int n = Math.min(Math.min(target.remaining(), 1 + rnd.nextInt(50)), stream.length - pos);
+			target.put(stream, pos, n);
+			pos += n;
+			buffer.filled(n);
+			int len;
+			while ((len = frame(buffer, received, retained)) > 0) {
+				buffer.consumed(len);
+			}
+
+			// Release some packets later (simulates slow deserialization)
+			if (retained.size() > 3) {
+				retained.remove(0).release();
+			}
+		}
+		assertEquals(packets.size(), received.size());
+		for (int i = 0; i < packets.size(); i++) {
+			assertTrue(Arrays.equals(packets.get(i), received.get(i)));
+		}
+
+		// Only partial packets are moved
+		assertTrue(pool.getCopiedBytes() < total / 2);
+
+		// All buffers must be returned
+		for (PooledBuffer b : retained) {
+			b.release();
+		}
+		buffer.close();
+		assertEquals(0, pool.getActive());
+		assertTrue(pool.getPooled() > 0);
+		assertTrue(pool.getPooled() <= 4);
+	}
+
+	@Test
+	public void testReuse() throws Exception {
+		BufferPool pool = new BufferPool(64, 4, null);
+		ReadBuffer buffer = new ReadBuffer(pool);
+		byte[] stream = new byte[16];
+		writePacket(stream, 0, new byte[10]);
+
+		// Unshared buffer is rewound
+		ByteBuffer target = buffer.prepare();
+		target.put(stream);
+		buffer.filled(stream.length);
+		buffer.consumed(stream.length);
+		PooledBuffer first = buffer.getBuffer();
+		buffer.prepare();
+		assertSame(first, buffer.getBuffer());
+		assertEquals(0, buffer.getLimit());
+
+		// Shared buffer is replaced
+		first.retain();
+		buffer.prepare().put(stream);
+		buffer.filled(stream.length);
+		buffer.consumed(stream.length);
+		buffer.prepare();
+		assertNotSame(first, buffer.getBuffer());
+		assertEquals(2, pool.getActive());
+		first.release();
+		assertEquals(1, pool.getActive());
+		assertEquals(1, pool.getPooled());
+		buffer.close();
+		assertEquals(0, pool.getActive());
+	}
+
+	// --- UTILITIES ---
+
+	protected static int writePacket(byte[] stream, int pos, byte[] body) {
+		int len = body.length + 6;
+		stream[pos + 1] = (byte) (len >>> 24);
+		stream[pos + 2] = (byte) (len >>> 16);
+		stream[pos + 3] = (byte) (len >>> 8);
+		stream[pos + 4] = (byte) len;
+		stream[pos + 5] = 1;
+		stream[pos] = (byte) (stream[pos + 1] ^ stream[pos + 2] ^ stream[pos + 3] ^ stream[pos + 4] ^ stream[pos + 5]);
+		System.arraycopy(body, 0, stream, pos + 6, body.length);
+		return len;
+	}
+
+	protected static int frame(ReadBuffer buffer, ArrayList<byte[]> received, ArrayList<PooledBuffer> retained) {
+		int start = buffer.getStart();
+		int limit = buffer.getLimit();
+		if (limit - start < 6) {
+			return 0;
+		}
+		PooledBuffer pooled = buffer.getBuffer();
+		byte[] bytes = pooled.array;
+		int len = ((0xFF & bytes[start + 1]) << 24) | ((0xFF & bytes[start + 2]) << 16)
+				| ((0xFF & bytes[start + 3]) << 8) | (0xFF & bytes[start + 4]);
+		if (limit - start < len) {
+			return 0;
+		}
+		received.add(Arrays.copyOfRange(bytes, start + 6, start + len));
+		pooled.retain();
+		retained.add(pooled);
+		return len;
+	}
+
+}
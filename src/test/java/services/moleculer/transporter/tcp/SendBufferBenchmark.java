@@ -0,0 +1,158 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the packet throughput of the SendBuffer over a loopback TCP
+ * connection. Every invocation queues a batch of packets to the same peer,
+ * then drains the queue. The "gathered" parameter is the max number of packets
+ * submitted by one system call (1 = one "write" per packet, like the previous
+ * implementation).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SendBufferBenchmark {
+
+	// --- ENTRY POINT ---
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(SendBufferBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	// --- PARAMETERS ---
+
+	@Param({ "64", "256", "1024", "4096" })
+	public int payload;
+
+	@Param({ "1", "64" })
+	public int gathered;
+
+	protected static final int BATCH = 64;
+
+	// --- VARIABLES ---
+
+	protected ServerSocketChannel server;
+	protected SocketChannel client;
+	protected SocketChannel peer;
+	protected Thread receiver;
+	protected Selector selector;
+	protected SendBuffer buffer;
+	protected byte[] packet;
+
+	// --- SET UP ---
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(loopback, 0));
+		client = SocketChannel.open(server.getLocalAddress());
+		peer = server.accept();
+
+		// Receiver (discards the incoming bytes)
+		receiver = new Thread(() -> {
+			byte[] bytes = new byte[64 * 1024];
+			try (InputStream in = peer.socket().getInputStream()) {
+				while (in.read(bytes) >= 0) {
+				}
+			} catch (Exception closed) {
+			}
+		});
+		receiver.setDaemon(true);
+		receiver.start();
+
+		// Sender
+		client.configureBlocking(false);
+		client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		selector = Selector.open();
+		SelectionKey key = client.register(selector, SelectionKey.OP_WRITE);
+		buffer = new SendBuffer("node2", loopback.getHostAddress(), 0, false);
+		buffer.maxGathered = gathered;
+		buffer.connected(key, client);
+		key.attach(buffer);
+		packet = new byte[payload];
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		buffer.close();
+		selector.close();
+		peer.close();
+		server.close();
+		receiver.join(1000);
+	}
+
+	// --- BENCHMARK ---
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void writeBatch() throws Exception {
+		for (int i = 0; i < BATCH; i++) {
+			buffer.append(packet);
+		}
+		while (!buffer.queue.isEmpty()) {
+			buffer.write();
+			if (!buffer.queue.isEmpty()) {
+
+				// Wait for free space in the socket's buffer
+				selector.select(10);
+				selector.selectedKeys().clear();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.transporter.tcp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class SendBufferTest extends TestCase {
+
+	// --- VARIABLES ---
+
+	protected ServerSocketChannel server;
+	protected SocketChannel client;
+	protected SocketChannel peer;
+	protected Selector selector;
+	protected SelectionKey key;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testGatheringWrite() throws Exception {
+		SendBuffer buffer = new SendBuffer("node2", "localhost", 0, false);
+		buffer.connected(key, client);
+
+		// Queue packets
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		for (int i = 0; i < 500; i++) {
+			byte[] packet = new byte[1 + i % 300];
+			Arrays.fill(packet, (byte) i);
+			expected.write(packet);
+			assertTrue(buffer.append(packet));
+		}
+
+		// Read in the background
+		byte[] bytes = expected.toByteArray();
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		Thread reader = new Thread(() -> {
+			byte[] tmp = new byte[1024];
+			try (InputStream in = peer.socket().getInputStream()) {
+				int n;
+				while (received.size() < bytes.length && (n = in.read(tmp)) >= 0) {
+					received.write(tmp, 0, n);
+				}
+			} catch (Exception ignored) {
+			}
+		});
+		reader.start();
+
+		// Drain the queue
+		while (!buffer.queue.isEmpty()) {
+			assertEquals(0, buffer.write());
+			if (!buffer.queue.isEmpty()) {
+				selector.select(100);
+				selector.selectedKeys().clear();
+			}
+		}
+		assertEquals(SendBuffer.IDLE, buffer.state.get());
+		assertEquals(0, key.interestOps());
+		reader.join(5000);
+		assertTrue(Arrays.equals(bytes, received.toByteArray()));
+
+		// Buffer is unused
+		assertTrue(buffer.tryToClose());
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		SendBuffer buffer = new SendBuffer("node2", "localhost", 0, false, 1000, TimeUnit.SECONDS.toNanos(10));
+		buffer.connected(key, client);
+
+		// Small packet is delayed
+		assertTrue(buffer.append(new byte[100]));
+		long delay = buffer.write();
+		assertTrue(delay > 0);
+		assertEquals(SendBuffer.DEFERRED, buffer.state.get());
+		assertEquals(1, buffer.queue.size());
+		assertFalse(buffer.requestWrite());
+
+		// Limit reached
+		for (int i = 0; i < 9; i++) {
+			assertTrue(buffer.append(new byte[100]));
+		}
+		assertTrue(buffer.requestWrite());
+		assertEquals(0, buffer.write());
+		assertTrue(buffer.queue.isEmpty());
+		assertEquals(SendBuffer.IDLE, buffer.state.get());
+
+		// Next packet
+		assertTrue(buffer.append(new byte[100]));
+		assertTrue(buffer.requestWrite());
+		assertFalse(buffer.requestWrite());
+		assertTrue(buffer.write() > 0);
+	}
+
+	// --- SET UP ---
+
+	@Override
+	protected void setUp() throws Exception {
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+		server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(loopback, 0));
+		client = SocketChannel.open(server.getLocalAddress());
+		peer = server.accept();
+		client.configureBlocking(false);
+		selector = Selector.open();
+		key = client.register(selector, SelectionKey.OP_WRITE);
+	}
+
+	// --- TEAR DOWN ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		client.close();
+		selector.close();
+		peer.close();
+		server.close();
+	}
+
+}
@@ -0,0 +1,114 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.uid;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import services.moleculer.ServiceBroker;
+
+/**
+ * Compares the throughput of the UID generators when they are shared by 8
+ * threads (one UID per Context). Use the "-t" JMH option (eg. "-t 64") to
+ * simulate more request threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class UidGeneratorBenchmark {
+
+	// --- ENTRY POINT ---
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(UidGeneratorBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	// --- STATE ---
+
+	@State(Scope.Benchmark)
+	public static class Generator {
+
+		// --- PARAMETERS ---
+
+		@Param({ "standard", "timebased", "incremental", "xorshift", "striped" })
+		public String type;
+
+		// --- VARIABLES ---
+
+		protected UidGenerator generator;
+
+		// --- SET UP ---
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+			switch (type) {
+			case "standard":
+				generator = new StandardUidGenerator();
+				break;
+			case "timebased":
+				generator = new TimeBasedUidGenerator();
+				break;
+			case "incremental":
+				generator = new IncrementalUidGenerator();
+				break;
+			case "xorshift":
+				generator = new XorShiftRandomUidGenerator();
+				break;
+			default:
+				generator = new StripedUidGenerator();
+				break;
+			}
+			generator.started(new ServiceBroker());
+		}
+
+	}
+
+	// --- BENCHMARK ---
+
+	@Benchmark
+	public String nextUID(Generator state) {
+		return state.generator.nextUID();
+	}
+
+}
@@ -25,7 +25,10 @@
  */
 package services.moleculer.uid;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Test;
 
@@ -39,6 +42,45 @@ public class UidGeneratorTest extends TestCase {
 		testGenerator(new IncrementalUidGenerator());
 		testGenerator(new StandardUidGenerator());
 		testGenerator(new XorShiftRandomUidGenerator());
+		testGenerator(new StripedUidGenerator());
+	}
+
+	@Test
+	public void testStripedUidGenerator() throws Exception {
+		StripedUidGenerator gen = new StripedUidGenerator();
+		gen.started(new ServiceBroker());
+
+		// Generate UIDs from multiple threads
+		Set<String> set = Collections.newSetFromMap(new ConcurrentHashMap<>());
+		Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 10000; i++) {
+					set.add(gen.nextUID());
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(80000, set.size());
+
+		// Fixed width, base-62
+		for (String uid : set) {
+			assertEquals(22, uid.length());
+			for (char c : uid.toCharArray()) {
+				assertTrue(Character.isLetterOrDigit(c));
+			}
+		}
+
+		// Time-ordered (in the same thread)
+		String previous = gen.nextUID();
+		for (int i = 0; i < 1000; i++) {
+			String next = gen.nextUID();
+			assertTrue(next.compareTo(previous) > 0);
+			previous = next;
+		}
 	}
 
 	protected void testGenerator(UidGenerator gen) throws Exception {
@@ -0,0 +1,124 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class PacketOutputStreamTest extends TestCase {
+
+	@Test
+	public void testReservedHeader() throws Exception {
+		PacketOutputStream out = new PacketOutputStream(6, 0);
+		assertEquals(6, out.size());
+		assertEquals(0, out.getBodySize());
+
+		// First write allocates an exactly sized array
+		byte[] body = { 1, 2, 3, 4, 5 };
+		out.write(body);
+		assertEquals(11, out.size());
+		assertEquals(11, out.getBuffer().length);
+		byte[] packet = out.toByteArray();
+		assertSame(out.getBuffer(), packet);
+		assertTrue(Arrays.equals(body, Arrays.copyOfRange(packet, 6, 11)));
+
+		// Grow
+		for (int i = 0; i < 100; i++) {
+			out.write(i);
+		}
+		assertEquals(111, out.size());
+		packet = out.toByteArray();
+		assertEquals(111, packet.length);
+		assertEquals(99, packet[110]);
+
+		// Reset
+		out.reset();
+		assertEquals(6, out.size());
+	}
+
+	@Test
+	public void testAdopt() throws Exception {
+		PacketOutputStream out = new PacketOutputStream();
+		byte[] bytes = { 1, 2, 3 };
+		out.write(bytes);
+		assertSame(bytes, out.toByteArray());
+
+		// Next write copies
+		out.write(4);
+		byte[] copy = out.toByteArray();
+		assertNotSame(bytes, copy);
+		assertTrue(Arrays.equals(new byte[] { 1, 2, 3, 4 }, copy));
+
+		// Reset drops the adopted array
+		out = new PacketOutputStream();
+		out.write(bytes);
+		out.reset();
+		out.write(new byte[] { 5 }, 0, 1);
+		out.write(6);
+		assertTrue(Arrays.equals(new byte[] { 1, 2, 3 }, bytes));
+		assertTrue(Arrays.equals(new byte[] { 5, 6 }, out.toByteArray()));
+	}
+
+	@Test
+	public void testDirectWrite() throws Exception {
+		PacketOutputStream out = new PacketOutputStream(2, 0);
+		out.ensureCapacity(10);
+		byte[] buffer = out.getBuffer();
+		for (int i = 0; i < 10; i++) {
+			buffer[out.size() + i] = (byte) i;
+		}
+		out.advance(10);
+		assertEquals(12, out.size());
+		assertSame(buffer, out.toByteArray());
+		try {
+			out.advance(1);
+			fail();
+		} catch (IndexOutOfBoundsException expected) {
+		}
+	}
+
+	@Test
+	public void testCompress() throws Exception {
+		Random rnd = new Random(1);
+		for (int size : new int[] { 0, 10, 1000, 100000 }) {
+			byte[] data = new byte[size];
+			for (int i = 0; i < size; i++) {
+				data[i] = (byte) (rnd.nextInt(16) + 'a');
+			}
+			PacketOutputStream out = new PacketOutputStream(1, 0);
+			CommonUtils.compress(data, 0, size, Deflater.BEST_SPEED, out);
+			byte[] compressed = Arrays.copyOfRange(out.getBuffer(), 1, out.size());
+			assertTrue(Arrays.equals(data, CommonUtils.decompress(compressed)));
+			assertTrue(Arrays.equals(data, CommonUtils.decompress(out.getBuffer(), 1, out.getBodySize())));
+		}
+	}
+
+}
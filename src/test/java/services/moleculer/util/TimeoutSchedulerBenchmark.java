@@ -0,0 +1,152 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.util;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the timeout schedulers while 1k, 10k or 100k calls are pending.
+ * The "scanning" scheduler works like the previous (built-in) timeout handler
+ * of the Service Registry. Measured operations:
+ * <ul>
+ * <li>registerAndDeregister: register a call with timeout, then remove it
+ * (when the response arrives)
+ * <li>checkTimeouts: register a call with an expired deadline, then run the
+ * timeout checker task
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimeoutSchedulerBenchmark {
+
+	// --- ENTRY POINT ---
+
+	public static void main(String[] args) throws Exception {
+		new Runner(new OptionsBuilder().include(TimeoutSchedulerBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	// --- STATE ---
+
+	@State(Scope.Benchmark)
+	public static class Pending {
+
+		// --- PARAMETERS ---
+
+		@Param({ "1000", "10000", "100000" })
+		public int pendingCalls;
+
+		@Param({ "wheel", "scanning" })
+		public String type;
+
+		// --- VARIABLES ---
+
+		protected ScheduledThreadPoolExecutor scheduler;
+		protected TimeoutScheduler ts;
+
+		// --- SET UP ---
+
+		@Setup(Level.Trial)
+		public void setUp() throws Exception {
+
+			// The rescheduling tasks of the scanning scheduler run in the
+			// caller's thread, so their cost is included in the measured time
+			scheduler = new ScheduledThreadPoolExecutor(1) {
+
+				@Override
+				public void execute(Runnable command) {
+					command.run();
+				}
+
+			};
+			if ("wheel".equals(type)) {
+				ts = new HashedWheelTimeoutScheduler();
+			} else {
+				ts = new ScanningTimeoutScheduler();
+			}
+			ts.setScheduler(scheduler);
+			ts.started(null);
+
+			// Pending calls (with long timeouts)
+			long timeoutAt = System.currentTimeMillis() + 3600000L;
+			for (int i = 0; i < pendingCalls; i++) {
+				ts.schedule(timeoutAt + i, NOOP);
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			ts.stopped();
+			scheduler.shutdownNow();
+		}
+
+	}
+
+	// --- EMPTY TASK ---
+
+	protected static final Runnable NOOP = () -> {
+	};
+
+	// --- BENCHMARKS ---
+
+	@Benchmark
+	public boolean registerAndDeregister(Pending state) {
+		TimeoutScheduler.Timeout timeout = state.ts.schedule(System.currentTimeMillis() + 10000, NOOP);
+		return timeout.cancel();
+	}
+
+	@Benchmark
+	public int checkTimeouts(Pending state) {
+		TimeoutScheduler ts = state.ts;
+		ts.schedule(System.currentTimeMillis() - 1, NOOP);
+		if (ts instanceof HashedWheelTimeoutScheduler) {
+			((HashedWheelTimeoutScheduler) ts).tick();
+		} else {
+			((ScanningTimeoutScheduler) ts).checkTimeouts();
+		}
+		return ts.size();
+	}
+
+}
@@ -0,0 +1,152 @@
+/**
+ * THIS SOFTWARE IS LICENSED UNDER MIT LICENSE.<br>
+ * <br>
+ * Copyright 2021 Andras Berkes [andras.berkes@programmer.net]<br>
+ * Based on Moleculer Framework for NodeJS [https://moleculer.services].
+ * <br><br>
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:<br>
+ * <br>
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.<br>
+ * <br>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package services.moleculer.util;
+
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+import services.moleculer.ServiceBroker;
+import services.moleculer.monitor.ConstantMonitor;
+import services.moleculer.util.TimeoutScheduler.Timeout;
+
+public abstract class TimeoutSchedulerTest extends TestCase {
+
+	// --- PROPERTIES ---
+
+	protected ServiceBroker br;
+	protected TimeoutScheduler ts;
+
+	// --- TIMEOUT SCHEDULER ---
+
+	protected abstract TimeoutScheduler createScheduler() throws Exception;
+
+	// --- TEST METHODS ---
+
+	@Test
+	public void testExpire() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < 100; i++) {
+			ts.schedule(now + 200 + i * 3, counter::incrementAndGet);
+		}
+		assertEquals(100, ts.size());
+		assertEquals(0, counter.get());
+		waitFor(counter, 100, 3000);
+		assertEquals(100, counter.get());
+		assertEquals(0, ts.size());
+
+		// Deadline in the past
+		ts.schedule(now - 1000, counter::incrementAndGet);
+		waitFor(counter, 101, 3000);
+		assertEquals(101, counter.get());
+
+		// Order of expiration
+		ConcurrentLinkedQueue<Integer> order = new ConcurrentLinkedQueue<>();
+		now = System.currentTimeMillis();
+		for (int i = 4; i >= 0; i--) {
+			final int n = i;
+			ts.schedule(now + 300 + i * 300, () -> {
+				order.add(n);
+				counter.incrementAndGet();
+			});
+		}
+		waitFor(counter, 106, 5000);
+		assertEquals("[0, 1, 2, 3, 4]", order.toString());
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		long now = System.currentTimeMillis();
+		LinkedList<Timeout> timeouts = new LinkedList<>();
+		for (int i = 0; i < 100; i++) {
+			timeouts.add(ts.schedule(now + 300, counter::incrementAndGet));
+		}
+		int cancelled = 0;
+		for (int i = 0; i < 100; i += 2) {
+			assertTrue(timeouts.get(i).cancel());
+			assertFalse(timeouts.get(i).cancel());
+			cancelled++;
+		}
+		assertEquals(100 - cancelled, ts.size());
+		waitFor(counter, 100 - cancelled, 3000);
+		Thread.sleep(300);
+		assertEquals(100 - cancelled, counter.get());
+		assertEquals(0, ts.size());
+
+		// Cancel an expired timeout
+		assertFalse(timeouts.get(1).cancel());
+	}
+
+	@Test
+	public void testLongTimeout() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+		long now = System.currentTimeMillis();
+
+		// Longer than one rotation of the wheel
+		ts.schedule(now + 1500, counter::incrementAndGet);
+		Thread.sleep(1000);
+		assertEquals(0, counter.get());
+		waitFor(counter, 1, 3000);
+		assertEquals(1, counter.get());
+	}
+
+	protected void waitFor(AtomicInteger counter, int expected, long timeout) throws Exception {
+		long end = System.currentTimeMillis() + timeout;
+		while (counter.get() < expected && System.currentTimeMillis() < end) {
+			Thread.sleep(20);
+		}
+	}
+
+	// --- START BROKER ---
+
+	@Override
+	protected void setUp() throws Exception {
+		br = ServiceBroker.builder().nodeID("node1").monitor(new ConstantMonitor()).build();
+		br.start();
+		ts = createScheduler();
+		ts.started(br);
+	}
+
+	// --- STOP BROKER ---
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (ts != null) {
+			ts.stopped();
+			ts = null;
+		}
+		if (br != null) {
+			br.stop();
+			br = null;
+		}
+	}
+
+}